@@ -14,11 +14,15 @@ import org.ta4j.core.num.Num;
 
 import java.math.BigDecimal;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 蜡烛图数据转换器
@@ -30,6 +34,11 @@ public class CandlestickBarSeriesConverter {
 
     private static final Logger log = LoggerFactory.getLogger(CandlestickBarSeriesConverter.class);
 
+    /**
+     * 转换结果使用的数值类型，作为条形系列缓存键的一部分
+     */
+    public static final String NUM_TYPE = DecimalNum.class.getSimpleName();
+
     /**
      * 将蜡烛图数据列表转换为Ta4j的BarSeries
      * @param candlesticks 蜡烛图数据列表
@@ -55,17 +64,104 @@ public class CandlestickBarSeriesConverter {
 
         // 转换每个蜡烛图数据为Bar对象并添加到series中
         for (CandlestickEntity candle : sortedCandles) {
-            try {
-                Bar bar = convertToBar(candle, barDuration);
-                series.addBar(bar);
-            } catch (Exception e) {
-                log.error("转换蜡烛图数据时发生错误: {}", e.getMessage(), e);
+            addBar(series, candle, barDuration);
+        }
+
+        return series;
+    }
+
+    /**
+     * 将按开盘时间升序的蜡烛图数据流增量转换为Ta4j的BarSeries
+     * 不做整体去重和排序，开盘时间不大于前一根的数据直接跳过，适合数据库游标读取的大范围数据
+     * @param candlesticks 按开盘时间升序的蜡烛图数据流
+     * @param seriesName 数据系列名称
+     * @return Ta4j的BarSeries
+     */
+    public BarSeries convert(Stream<CandlestickEntity> candlesticks, String seriesName) {
+        BaseBarSeries series = new BaseBarSeries(seriesName);
+        Iterator<CandlestickEntity> iterator = candlesticks.iterator();
+
+        // 第一根K线需要等第二根到达后才能确定时间间隔
+        CandlestickEntity first = null;
+        Duration barDuration = null;
+        LocalDateTime lastOpenTime = null;
+        while (iterator.hasNext()) {
+            CandlestickEntity candle = iterator.next();
+            if (candle == null || candle.getOpenTime() == null
+                    || (lastOpenTime != null && !candle.getOpenTime().isAfter(lastOpenTime))) {
+                continue;
+            }
+            lastOpenTime = candle.getOpenTime();
+
+            if (barDuration == null) {
+                if (first == null) {
+                    first = candle;
+                    continue;
+                }
+                barDuration = determineBarDuration(Arrays.asList(first, candle));
+                addBar(series, first, barDuration);
             }
+            addBar(series, candle, barDuration);
+        }
+        if (barDuration == null && first != null) {
+            addBar(series, first, determineBarDuration(Arrays.asList(first)));
         }
 
+        if (series.isEmpty()) {
+            log.warn("传入的蜡烛图数据为空，无法转换为BarSeries");
+        }
         return series;
     }
 
+    /**
+     * 把接在已有条形系列之后的蜡烛图数据转换为Bar，原系列不做修改，只转换追加部分
+     * 开盘时间早于原系列最后一根收盘时间的数据会被跳过
+     * @param base 已有的条形系列，K线周期取自其最后一根
+     * @param tail 追加的蜡烛图数据
+     * @return 按时间升序的新Bar
+     */
+    public List<Bar> convertTail(BarSeries base, List<CandlestickEntity> tail) {
+        if (base.isEmpty()) {
+            return convert(tail, base.getName()).getBarData();
+        }
+        // 从原系列最后一根开始的临时系列，按append的规则过滤和转换
+        BaseBarSeries scratch = new BaseBarSeries(base.getName());
+        scratch.addBar(base.getLastBar());
+        append(scratch, tail);
+        return scratch.getBarData().subList(1, scratch.getBarCount());
+    }
+
+    /**
+     * 在可修改的非空条形系列尾部原地追加蜡烛图数据，开盘时间早于系列最后一根收盘时间的数据会被跳过
+     * @param series 可修改的条形系列，K线周期取自其最后一根
+     * @param tail 追加的蜡烛图数据
+     * @return 实际追加的K线数
+     */
+    public int append(BarSeries series, List<CandlestickEntity> tail) {
+        if (tail == null || tail.isEmpty()) {
+            return 0;
+        }
+        int before = series.getBarCount();
+        Bar lastBar = series.getLastBar();
+        Duration barDuration = lastBar.getTimePeriod();
+        // Bar的结束时间取自收盘时间，新K线的开盘时间不早于它才是后续K线
+        ZonedDateTime lastEndTime = lastBar.getEndTime();
+        tail.stream().distinct()
+                .filter(candle -> candle.getOpenTime() != null)
+                .sorted(Comparator.comparing(CandlestickEntity::getOpenTime))
+                .filter(candle -> !candle.getOpenTime().atZone(ZoneId.systemDefault()).isBefore(lastEndTime))
+                .forEach(candle -> addBar(series, candle, barDuration));
+        return series.getBarCount() - before;
+    }
+
+    private void addBar(BarSeries series, CandlestickEntity candle, Duration barDuration) {
+        try {
+            series.addBar(convertToBar(candle, barDuration));
+        } catch (Exception e) {
+            log.error("转换蜡烛图数据时发生错误: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * 根据一组蜡烛图数据确定时间间隔
      * @param candlesticks 蜡烛图数据列表
@@ -0,0 +1,239 @@
+package com.okx.trading.adapter;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.Num;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 只读BarSeries
+ * 缓存中的条形系列会被多个回测线程同时读取，所有修改操作都抛出UnsupportedOperationException。
+ * 同一序列的多个系列共享一个Bar数组，每个系列只读取自己的前barCount个元素；
+ * {@link #append}在共享数组末尾原地追加，不复制已有的K线，已经交给调用方的较短系列内容不变
+ */
+public final class ImmutableBarSeries implements BarSeries {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final Function<Number, Num> numFunction;
+    private final Storage storage;
+    // 创建时共享数组的快照，只读取[0, barCount)
+    private final Bar[] bars;
+    private final int barCount;
+    // 不进入共享数组的临时尾部，用于未收盘K线
+    private final Bar[] tail;
+
+    private ImmutableBarSeries(String name, Function<Number, Num> numFunction, Storage storage, Bar[] bars, int barCount, Bar[] tail) {
+        this.name = name;
+        this.numFunction = numFunction;
+        this.storage = storage;
+        this.bars = bars;
+        this.barCount = barCount;
+        this.tail = tail;
+    }
+
+    /**
+     * 复制为只读系列，已经是只读系列时直接返回
+     * @param series 原始系列
+     * @return 只读系列
+     */
+    public static ImmutableBarSeries of(BarSeries series) {
+        if (series instanceof ImmutableBarSeries) {
+            return (ImmutableBarSeries) series;
+        }
+        Bar[] bars = series.isEmpty() ? new Bar[0] : series.getBarData().toArray(new Bar[0]);
+        return new ImmutableBarSeries(series.getName(), series.function(), new Storage(bars, bars.length), bars, bars.length, new Bar[0]);
+    }
+
+    /**
+     * 在尾部追加K线，返回包含追加部分的新系列，本系列不变
+     * 本系列是共享数组中最长的系列且容量足够时直接写入数组末尾，否则按1.5倍扩容复制一次，追加的均摊开销只与追加的K线数有关
+     * @param newBars 按时间升序、接在本系列之后的K线
+     * @return 新系列，newBars为空时返回本系列
+     */
+    public ImmutableBarSeries append(List<Bar> newBars) {
+        if (newBars.isEmpty()) {
+            return this;
+        }
+        if (tail.length > 0) {
+            throw new UnsupportedOperationException("带临时尾部的系列不能追加K线");
+        }
+        int size = barCount + newBars.size();
+        synchronized (storage) {
+            if (storage.array == bars && storage.size == barCount && size <= bars.length) {
+                // 共享数组只在所有系列都不读取的位置写入
+                for (int i = 0; i < newBars.size(); i++) {
+                    bars[barCount + i] = newBars.get(i);
+                }
+                storage.size = size;
+                return new ImmutableBarSeries(name, numFunction, storage, bars, size, tail);
+            }
+            Bar[] grown = Arrays.copyOf(bars, Math.max(size, barCount + (barCount >> 1)));
+            for (int i = 0; i < newBars.size(); i++) {
+                grown[barCount + i] = newBars.get(i);
+            }
+            if (storage.array == bars && storage.size == barCount) {
+                // 本系列是最长的系列，扩容后的数组接替共享数组
+                storage.array = grown;
+                storage.size = size;
+                return new ImmutableBarSeries(name, numFunction, storage, grown, size, tail);
+            }
+            return new ImmutableBarSeries(name, numFunction, new Storage(grown, size), grown, size, tail);
+        }
+    }
+
+    /**
+     * 返回在本系列之后临时追加K线的新系列，追加的K线不写入共享数组，之后的{@link #append}不会覆盖它们
+     * @param newBars 按时间升序、接在本系列之后的K线
+     * @return 新系列，newBars为空时返回本系列
+     */
+    public ImmutableBarSeries withTail(List<Bar> newBars) {
+        if (newBars.isEmpty()) {
+            return this;
+        }
+        Bar[] merged = Arrays.copyOf(tail, tail.length + newBars.size());
+        for (int i = 0; i < newBars.size(); i++) {
+            merged[tail.length + i] = newBars.get(i);
+        }
+        return new ImmutableBarSeries(name, numFunction, storage, bars, barCount, merged);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Bar getBar(int i) {
+        if (i < 0 || i >= getBarCount()) {
+            throw new IndexOutOfBoundsException("K线下标越界: " + i + ", K线数: " + getBarCount());
+        }
+        return i < barCount ? bars[i] : tail[i - barCount];
+    }
+
+    @Override
+    public int getBarCount() {
+        return barCount + tail.length;
+    }
+
+    @Override
+    public List<Bar> getBarData() {
+        List<Bar> data = Arrays.asList(bars).subList(0, barCount);
+        if (tail.length > 0) {
+            data = new ArrayList<>(data);
+            data.addAll(Arrays.asList(tail));
+        }
+        return Collections.unmodifiableList(data);
+    }
+
+    @Override
+    public int getBeginIndex() {
+        return getBarCount() == 0 ? -1 : 0;
+    }
+
+    @Override
+    public int getEndIndex() {
+        return getBarCount() - 1;
+    }
+
+    @Override
+    public int getMaximumBarCount() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setMaximumBarCount(int maximumBarCount) {
+        throw new UnsupportedOperationException("只读BarSeries不允许修改最大K线数");
+    }
+
+    @Override
+    public int getRemovedBarsCount() {
+        return 0;
+    }
+
+    @Override
+    public void addBar(Bar bar, boolean replace) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加K线");
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加K线");
+    }
+
+    @Override
+    public void addBar(ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume, Num amount) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加K线");
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加K线");
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume, Num amount) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加K线");
+    }
+
+    @Override
+    public void addTrade(Num tradeVolume, Num tradePrice) {
+        throw new UnsupportedOperationException("只读BarSeries不允许添加成交");
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        throw new UnsupportedOperationException("只读BarSeries不允许修改价格");
+    }
+
+    @Override
+    public BarSeries getSubSeries(int startIndex, int endIndex) {
+        if (startIndex < 0) {
+            throw new IllegalArgumentException("子系列的起始下标不能为负数: " + startIndex);
+        }
+        if (startIndex >= endIndex) {
+            throw new IllegalArgumentException("子系列的起始下标必须小于结束下标: " + startIndex + " >= " + endIndex);
+        }
+        // 子系列是新建的副本，可以自由修改
+        int end = Math.min(endIndex, getBarCount());
+        List<Bar> subBars = new ArrayList<>(Math.max(end - startIndex, 0));
+        for (int i = startIndex; i < end; i++) {
+            subBars.add(getBar(i));
+        }
+        return new BaseBarSeries(name, subBars, numFunction);
+    }
+
+    @Override
+    public Num numOf(Number number) {
+        return numFunction.apply(number);
+    }
+
+    @Override
+    public Function<Number, Num> function() {
+        return numFunction;
+    }
+
+    /**
+     * 同一序列各系列共享的Bar数组，size之后的位置没有任何系列读取
+     */
+    private static final class Storage implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Bar[] array;
+        private int size;
+
+        private Storage(Bar[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.TradeRecordDTO;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.Position;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 可续跑的回测检查点
+ * 保存策略、交易记录、下一根待处理K线的位置、未平仓头寸、逐K线权益曲线和交易统计累加器。
+ * 条形系列追加新K线后调用advance()只遍历新增部分，交易明细和统计口径与BacktestMetricsCalculator一致
+ * （全仓复利、进出场各收一次手续费、单笔最大损失和最大回撤按收盘价计算）。
+ * 本类不是线程安全的，调用方需要串行访问同一个检查点
+ */
+public class BacktestCheckpoint {
+
+    private final BarSeries series;
+    private final Strategy strategy;
+    private final TradingRecord tradingRecord;
+    private final BigDecimal initialAmount;
+    private final BigDecimal feeRatio;
+
+    // 下一根待处理K线的下标
+    private int nextIndex;
+
+    // 交易统计累加器
+    private final List<TradeRecordDTO> trades = new ArrayList<>();
+    private BigDecimal tradeAmount;
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+    private BigDecimal totalFee = BigDecimal.ZERO;
+    private BigDecimal grossProfit = BigDecimal.ZERO;
+    private BigDecimal grossLoss = BigDecimal.ZERO;
+    private BigDecimal maximumLoss = BigDecimal.ZERO;
+    private BigDecimal maxDrawdown = BigDecimal.ZERO;
+    private int profitableTrades;
+
+    // 未平仓头寸
+    private BigDecimal entryPrice;
+    private BigDecimal highestPrice;
+    private BigDecimal lowestPrice;
+    private BigDecimal positionMaxLoss;
+    private BigDecimal positionMaxDrawdown;
+
+    // 按K线收盘价计算的权益曲线
+    private double[] equityCurve = new double[64];
+    private int equityCount;
+    private double peakEquity;
+    private double equityMaxDrawdown;
+
+    /**
+     * @param series        可在尾部追加K线的条形系列，检查点独占
+     * @param strategy      基于series创建的策略
+     * @param initialAmount 初始资金
+     * @param feeRatio      手续费率
+     */
+    public BacktestCheckpoint(BarSeries series, Strategy strategy, BigDecimal initialAmount, BigDecimal feeRatio) {
+        this.series = series;
+        this.strategy = strategy;
+        this.tradingRecord = new BaseTradingRecord(Trade.TradeType.BUY, new ZeroCostModel(), new ZeroCostModel());
+        this.initialAmount = initialAmount;
+        this.feeRatio = feeRatio;
+        this.tradeAmount = initialAmount;
+        this.nextIndex = series.getBeginIndex();
+        this.peakEquity = initialAmount.doubleValue();
+    }
+
+    /**
+     * 从上次停下的位置处理到系列的最后一根K线，语义与BarSeriesManager.run(strategy, BUY)相同
+     *
+     * @return 本次处理的K线数
+     */
+    public int advance() {
+        if (series.isEmpty()) {
+            return 0;
+        }
+        int start = Math.max(nextIndex, series.getBeginIndex());
+        int endIndex = series.getEndIndex();
+        Num amount = series.numOf(1);
+        for (int i = start; i <= endIndex; i++) {
+            Bar bar = series.getBar(i);
+            int positionsBefore = tradingRecord.getPositionCount();
+            boolean openBefore = tradingRecord.getCurrentPosition().isOpened();
+            if (strategy.shouldOperate(i, tradingRecord)) {
+                tradingRecord.operate(i, bar.getClosePrice(), amount);
+            }
+
+            if (!openBefore && tradingRecord.getCurrentPosition().isOpened()) {
+                onEntry(bar);
+            }
+            if (tradingRecord.getCurrentPosition().isOpened()) {
+                trackOpenPosition(bar);
+            } else if (tradingRecord.getPositionCount() > positionsBefore) {
+                trackOpenPosition(bar);
+                onExit(tradingRecord.getLastPosition());
+            }
+            appendEquity(bar);
+        }
+        nextIndex = endIndex + 1;
+        return endIndex - start + 1;
+    }
+
+    private void onEntry(Bar bar) {
+        entryPrice = new BigDecimal(bar.getClosePrice().doubleValue());
+        highestPrice = BigDecimal.ZERO;
+        lowestPrice = BigDecimal.valueOf(Long.MAX_VALUE);
+        positionMaxLoss = BigDecimal.ZERO;
+        positionMaxDrawdown = BigDecimal.ZERO;
+    }
+
+    /**
+     * 更新持仓期间的最高、最低价以及单笔最大损失和最大回撤，包含进场和出场K线
+     */
+    private void trackOpenPosition(Bar bar) {
+        BigDecimal closePrice = BigDecimal.valueOf(bar.getClosePrice().doubleValue());
+        if (closePrice.compareTo(highestPrice) > 0) {
+            highestPrice = closePrice;
+        }
+        if (closePrice.compareTo(lowestPrice) <= 0) {
+            lowestPrice = closePrice;
+        }
+        BigDecimal lossRate = closePrice.subtract(entryPrice).divide(entryPrice, 8, RoundingMode.HALF_UP);
+        BigDecimal drawDownRate = closePrice.subtract(highestPrice).divide(highestPrice, 8, RoundingMode.HALF_UP);
+        if (lossRate.compareTo(positionMaxLoss) < 0) {
+            positionMaxLoss = lossRate;
+        }
+        if (drawDownRate.compareTo(positionMaxDrawdown) < 0) {
+            positionMaxDrawdown = drawDownRate;
+        }
+    }
+
+    private void onExit(Position position) {
+        Bar entryBar = series.getBar(position.getEntry().getIndex());
+        Bar exitBar = series.getBar(position.getExit().getIndex());
+        BigDecimal exitPrice = new BigDecimal(exitBar.getClosePrice().doubleValue());
+
+        BigDecimal entryFee = tradeAmount.multiply(feeRatio);
+        BigDecimal actualTradeAmount = tradeAmount.subtract(entryFee);
+        BigDecimal profitPercentage = exitPrice.subtract(entryPrice).divide(entryPrice, 4, RoundingMode.HALF_UP);
+        BigDecimal exitAmount = actualTradeAmount.add(actualTradeAmount.multiply(profitPercentage));
+        BigDecimal exitFee = exitAmount.multiply(feeRatio);
+        BigDecimal actualExitAmount = exitAmount.subtract(exitFee);
+        BigDecimal fee = entryFee.add(exitFee);
+        BigDecimal profit = actualExitAmount.subtract(tradeAmount);
+
+        TradeRecordDTO trade = new TradeRecordDTO();
+        trade.setIndex(trades.size() + 1);
+        trade.setType("BUY");
+        trade.setEntryTime(entryBar.getEndTime().toLocalDateTime());
+        trade.setExitTime(exitBar.getEndTime().toLocalDateTime());
+        trade.setEntryPrice(entryPrice);
+        trade.setExitPrice(exitPrice);
+        trade.setEntryAmount(tradeAmount);
+        trade.setExitAmount(actualExitAmount);
+        trade.setProfit(profit);
+        trade.setProfitPercentage(profitPercentage);
+        trade.setClosed(true);
+        trade.setFee(fee);
+        trade.setMaxLoss(positionMaxLoss.abs());
+        trade.setMaxDrowdown(positionMaxDrawdown.abs());
+        trades.add(trade);
+
+        totalProfit = totalProfit.add(profit);
+        totalFee = totalFee.add(fee);
+        if (profit.compareTo(BigDecimal.ZERO) > 0) {
+            profitableTrades++;
+            grossProfit = grossProfit.add(profit);
+        } else {
+            grossLoss = grossLoss.add(profit.abs());
+        }
+        maximumLoss = maximumLoss.max(positionMaxLoss.abs());
+        maxDrawdown = maxDrawdown.max(positionMaxDrawdown.abs());
+        tradeAmount = actualExitAmount;
+        entryPrice = null;
+    }
+
+    /**
+     * 持仓时按收盘价计算扣除进场手续费后的市值，空仓时为可用资金
+     */
+    private void appendEquity(Bar bar) {
+        double equity = tradeAmount.doubleValue();
+        if (entryPrice != null) {
+            double invested = equity * (1 - feeRatio.doubleValue());
+            equity = invested * bar.getClosePrice().doubleValue() / entryPrice.doubleValue();
+        }
+        if (equityCount == equityCurve.length) {
+            equityCurve = Arrays.copyOf(equityCurve, equityCurve.length * 2);
+        }
+        equityCurve[equityCount++] = equity;
+        peakEquity = Math.max(peakEquity, equity);
+        if (peakEquity > 0) {
+            equityMaxDrawdown = Math.max(equityMaxDrawdown, (peakEquity - equity) / peakEquity);
+        }
+    }
+
+    /**
+     * 由累加器生成交易统计部分的回测结果，耗时只与交易数有关；夏普比率等需要完整收益序列的指标不在其中
+     *
+     * @param strategyType 策略类型
+     * @return 回测结果
+     */
+    public BacktestResultDTO toResult(String strategyType) {
+        int tradeCount = trades.size();
+        BacktestResultDTO result = new BacktestResultDTO();
+        result.setSuccess(true);
+        result.setStrategyName(strategyType);
+        result.setStrategyCode(strategyType);
+        result.setParameterDescription("");
+        result.setInitialAmount(initialAmount);
+        result.setFinalAmount(initialAmount.add(totalProfit));
+        result.setTotalProfit(totalProfit);
+        result.setTotalReturn(initialAmount.compareTo(BigDecimal.ZERO) > 0
+                ? totalProfit.divide(initialAmount, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        result.setNumberOfTrades(tradeCount);
+        result.setProfitableTrades(profitableTrades);
+        result.setUnprofitableTrades(tradeCount - profitableTrades);
+        result.setWinRate(tradeCount > 0
+                ? new BigDecimal(profitableTrades).divide(new BigDecimal(tradeCount), 4, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        result.setAverageProfit(tradeCount > 0
+                ? result.getTotalReturn().divide(new BigDecimal(tradeCount), 4, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        if (grossLoss.compareTo(BigDecimal.ZERO) > 0) {
+            result.setProfitFactor(grossProfit.divide(grossLoss, 4, RoundingMode.HALF_UP));
+        } else {
+            result.setProfitFactor(grossProfit.compareTo(BigDecimal.ZERO) > 0 ? new BigDecimal("999.9999") : BigDecimal.ONE);
+        }
+        result.setMaximumLoss(maximumLoss);
+        result.setMaxDrawdown(maxDrawdown);
+        result.setTotalFee(totalFee);
+        result.setTrades(new ArrayList<>(trades));
+        return result;
+    }
+
+    public BarSeries getSeries() {
+        return series;
+    }
+
+    public TradingRecord getTradingRecord() {
+        return tradingRecord;
+    }
+
+    /**
+     * 已处理的K线数
+     */
+    public int getProcessedBars() {
+        return nextIndex - series.getBeginIndex();
+    }
+
+    /**
+     * 最后一根已处理K线的结束时间，尚未处理任何K线时为null
+     */
+    public ZonedDateTime getLastBarTime() {
+        return getProcessedBars() > 0 ? series.getBar(nextIndex - 1).getEndTime() : null;
+    }
+
+    public boolean isPositionOpen() {
+        return entryPrice != null;
+    }
+
+    /**
+     * 最后一根已处理K线收盘时的权益
+     */
+    public double getEquity() {
+        return equityCount > 0 ? equityCurve[equityCount - 1] : initialAmount.doubleValue();
+    }
+
+    public double[] getEquityCurve() {
+        return Arrays.copyOf(equityCurve, equityCount);
+    }
+
+    /**
+     * 按逐K线权益曲线计算的最大回撤，包含未平仓头寸的浮动亏损
+     */
+    public double getEquityMaxDrawdown() {
+        return equityMaxDrawdown;
+    }
+}
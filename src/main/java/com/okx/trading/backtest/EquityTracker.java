@@ -0,0 +1,101 @@
+package com.okx.trading.backtest;
+
+import org.ta4j.core.TradingRecord;
+
+/**
+ * 回测循环中的净值跟踪
+ * 与BacktestMetricsCalculator的记账方式一致（只是不把每笔收益率舍入到四位小数）：按收盘价全仓复利，
+ * 进场和出场各扣一次手续费，持仓期间按收盘价盯市。
+ * 每根K线O(1)更新，供剪枝条件在循环中途判断，也作为被剪枝候选的部分统计
+ */
+public class EquityTracker {
+
+    private final int beginIndex;
+    private final int endIndex;
+    private final double feeRatio;
+
+    private double equity = 1;
+    private double peak = 1;
+    private double maxDrawdown;
+    private double entryEquity;
+    private double entryPrice;
+    private boolean positionOpen;
+    private int closedTrades;
+    private int profitableTrades;
+    private int processedBars;
+    private double lastEquity = 1;
+
+    public EquityTracker(int beginIndex, int endIndex, double feeRatio) {
+        this.beginIndex = beginIndex;
+        this.endIndex = endIndex;
+        this.feeRatio = feeRatio;
+    }
+
+    /**
+     * 在策略处理完一根K线后更新净值
+     *
+     * @param close    该K线收盘价
+     * @param operated 该K线上策略是否进场或出场
+     * @param record   交易记录，用于判断本次操作是进场还是出场
+     */
+    public void update(double close, boolean operated, TradingRecord record) {
+        if (operated) {
+            if (record.getCurrentPosition().isOpened()) {
+                entryEquity = equity * (1 - feeRatio);
+                entryPrice = close;
+                positionOpen = true;
+            } else {
+                double exitEquity = entryEquity * close / entryPrice * (1 - feeRatio);
+                if (exitEquity > equity) {
+                    profitableTrades++;
+                }
+                equity = exitEquity;
+                closedTrades++;
+                positionOpen = false;
+            }
+        }
+        lastEquity = positionOpen ? entryEquity * close / entryPrice : equity;
+        peak = Math.max(peak, lastEquity);
+        maxDrawdown = Math.max(maxDrawdown, 1 - lastEquity / peak);
+        processedBars++;
+    }
+
+    /**
+     * 当前净值（初始为1），持仓时为盯市净值
+     */
+    public double getEquity() {
+        return lastEquity;
+    }
+
+    public double getTotalReturn() {
+        return lastEquity - 1;
+    }
+
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public boolean isPositionOpen() {
+        return positionOpen;
+    }
+
+    public int getClosedTrades() {
+        return closedTrades;
+    }
+
+    public int getProfitableTrades() {
+        return profitableTrades;
+    }
+
+    public int getProcessedBars() {
+        return processedBars;
+    }
+
+    /**
+     * 已处理K线占整个区间的比例
+     */
+    public double getProgress() {
+        int total = endIndex - beginIndex + 1;
+        return total <= 0 ? 1 : (double) processedBars / total;
+    }
+}
@@ -0,0 +1,190 @@
+package com.okx.trading.backtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+import org.ta4j.core.num.Num;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 融合多策略K线循环
+ * 与BarSeriesManager.run(strategy, BUY)的语义相同，但所有策略共用一次K线遍历：每根K线只读取一次，
+ * 依次询问每个策略是否进出场，交易记录按策略序号保存在并行数组中。
+ * 策略较多时可以按策略分组，每组在一个线程里各自完成一次遍历。
+ * 传入剪枝策略时每个策略另有一个净值跟踪，命中剪枝条件的策略不再参与后续K线
+ */
+@Slf4j
+public class FusedStrategyRunner {
+
+    private FusedStrategyRunner() {
+    }
+
+    /**
+     * 在当前线程中单次遍历执行一组策略
+     *
+     * @param series     条形系列
+     * @param strategies 基于series创建的策略
+     * @return 执行结果，records和errors与strategies下标一一对应
+     */
+    public static Result run(BarSeries series, List<Strategy> strategies) {
+        return run(series, strategies, PruningPolicy.disabled(), 0);
+    }
+
+    /**
+     * 在当前线程中单次遍历执行一组策略，并按剪枝策略提前终止没有希望的策略
+     *
+     * @param series     条形系列
+     * @param strategies 基于series创建的策略
+     * @param policy     剪枝策略
+     * @param feeRatio   净值跟踪使用的单边手续费率
+     * @return 执行结果，records、errors和剪枝信息与strategies下标一一对应
+     */
+    public static Result run(BarSeries series, List<Strategy> strategies, PruningPolicy policy, double feeRatio) {
+        int count = strategies.size();
+        Strategy[] strategyArray = strategies.toArray(new Strategy[0]);
+        TradingRecord[] records = new TradingRecord[count];
+        Exception[] errors = new Exception[count];
+        EquityTracker[] trackers = policy.isEnabled() ? new EquityTracker[count] : null;
+        String[] pruneReasons = new String[count];
+        for (int s = 0; s < count; s++) {
+            records[s] = new BaseTradingRecord(Trade.TradeType.BUY, new ZeroCostModel(), new ZeroCostModel());
+            if (trackers != null) {
+                trackers[s] = new EquityTracker(series.getBeginIndex(), series.getEndIndex(), feeRatio);
+            }
+        }
+        if (series.isEmpty()) {
+            return new Result(records, errors, trackers, pruneReasons);
+        }
+
+        Num amount = series.numOf(1);
+        int beginIndex = series.getBeginIndex();
+        int endIndex = series.getEndIndex();
+        for (int i = beginIndex; i <= endIndex; i++) {
+            Num closePrice = series.getBar(i).getClosePrice();
+            for (int s = 0; s < count; s++) {
+                if (errors[s] != null || pruneReasons[s] != null) {
+                    continue;
+                }
+                try {
+                    boolean operated = strategyArray[s].shouldOperate(i, records[s]);
+                    if (operated) {
+                        records[s].operate(i, closePrice, amount);
+                    }
+                    if (trackers != null) {
+                        trackers[s].update(closePrice.doubleValue(), operated, records[s]);
+                        pruneReasons[s] = policy.check(trackers[s]);
+                    }
+                } catch (Exception e) {
+                    // 单个策略出错只影响它自己，其余策略继续遍历
+                    errors[s] = e;
+                }
+            }
+        }
+        return new Result(records, errors, trackers, pruneReasons);
+    }
+
+    /**
+     * 把策略按顺序切分为若干组并行执行，每组单次遍历
+     *
+     * @param series     条形系列
+     * @param strategies 基于series创建的策略
+     * @param executor   执行各组遍历的线程池
+     * @param groups     分组数
+     * @return 执行结果，records和errors与strategies下标一一对应
+     */
+    public static Result run(BarSeries series, List<Strategy> strategies, ExecutorService executor, int groups) {
+        return run(series, strategies, executor, groups, PruningPolicy.disabled(), 0);
+    }
+
+    /**
+     * 把策略按顺序切分为若干组并行执行，每组单次遍历，并按剪枝策略提前终止没有希望的策略
+     *
+     * @param series     条形系列
+     * @param strategies 基于series创建的策略
+     * @param executor   执行各组遍历的线程池
+     * @param groups     分组数
+     * @param policy     剪枝策略
+     * @param feeRatio   净值跟踪使用的单边手续费率
+     * @return 执行结果，records、errors和剪枝信息与strategies下标一一对应
+     */
+    public static Result run(BarSeries series, List<Strategy> strategies, ExecutorService executor, int groups,
+                             PruningPolicy policy, double feeRatio) {
+        int count = strategies.size();
+        int groupCount = Math.max(1, Math.min(groups, count));
+        if (groupCount == 1) {
+            return run(series, strategies, policy, feeRatio);
+        }
+
+        TradingRecord[] records = new TradingRecord[count];
+        Exception[] errors = new Exception[count];
+        EquityTracker[] trackers = policy.isEnabled() ? new EquityTracker[count] : null;
+        String[] pruneReasons = new String[count];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int g = 0; g < groupCount; g++) {
+            int from = (int) ((long) count * g / groupCount);
+            int to = (int) ((long) count * (g + 1) / groupCount);
+            futures.add(CompletableFuture.runAsync(() -> {
+                Result groupResult = run(series, strategies.subList(from, to), policy, feeRatio);
+                System.arraycopy(groupResult.records, 0, records, from, to - from);
+                System.arraycopy(groupResult.errors, 0, errors, from, to - from);
+                System.arraycopy(groupResult.pruneReasons, 0, pruneReasons, from, to - from);
+                if (trackers != null) {
+                    System.arraycopy(groupResult.trackers, 0, trackers, from, to - from);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        log.debug("融合回测完成: {} 个策略, {} 个分组, {} 根K线", count, groupCount, series.getBarCount());
+        return new Result(records, errors, trackers, pruneReasons);
+    }
+
+    /**
+     * 融合执行结果
+     */
+    public static class Result {
+        private final TradingRecord[] records;
+        private final Exception[] errors;
+        private final EquityTracker[] trackers;
+        private final String[] pruneReasons;
+
+        Result(TradingRecord[] records, Exception[] errors, EquityTracker[] trackers, String[] pruneReasons) {
+            this.records = records;
+            this.errors = errors;
+            this.trackers = trackers;
+            this.pruneReasons = pruneReasons;
+        }
+
+        public TradingRecord getRecord(int index) {
+            return records[index];
+        }
+
+        /**
+         * 策略执行中抛出的异常，没有出错时为null
+         */
+        public Exception getError(int index) {
+            return errors[index];
+        }
+
+        /**
+         * 策略被剪枝的原因，没有被剪枝时为null
+         */
+        public String getPruneReason(int index) {
+            return pruneReasons[index];
+        }
+
+        /**
+         * 策略的净值跟踪，未启用剪枝时为null
+         */
+        public EquityTracker getTracker(int index) {
+            return trackers == null ? null : trackers[index];
+        }
+    }
+}
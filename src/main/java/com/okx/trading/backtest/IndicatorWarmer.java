@@ -0,0 +1,234 @@
+package com.okx.trading.backtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.AbstractIndicator;
+import org.ta4j.core.indicators.CachedIndicator;
+import org.ta4j.core.num.Num;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 指标缓存预热
+ * ta4j的CachedIndicator按需递归计算：第一次在靠后的下标上取值时会一路递归到起点，长序列上既慢又可能栈溢出。
+ * 预热先通过反射从策略的规则出发找出全部指标及其依赖关系，再按依赖顺序（被依赖的指标在前）从起点向后逐个下标取值，
+ * 每次计算用到的前序值都已经在缓存中，递归深度恒定。互不共享指标的子图在线程池中并行预热，同一子图内串行，
+ * 因为CachedIndicator的缓存不是线程安全的
+ */
+@Slf4j
+public final class IndicatorWarmer {
+
+    private IndicatorWarmer() {
+    }
+
+    /**
+     * 在当前线程中预热策略用到的全部缓存指标
+     *
+     * @param series     策略所基于的条形系列
+     * @param strategies 策略或规则等根对象
+     * @return 预热的指标数
+     */
+    public static int warm(BarSeries series, Collection<?> strategies) {
+        return warm(series, strategies, null);
+    }
+
+    /**
+     * 预热策略用到的全部缓存指标，互不相连的指标子图在executor中并行预热
+     *
+     * @param series     策略所基于的条形系列
+     * @param strategies 策略或规则等根对象
+     * @param executor   并行预热的线程池，为null时在当前线程中串行预热
+     * @return 预热的指标数
+     */
+    public static int warm(BarSeries series, Collection<?> strategies, ExecutorService executor) {
+        if (series.isEmpty()) {
+            return 0;
+        }
+        long startMillis = System.currentTimeMillis();
+        List<List<CachedIndicator<?>>> components = discover(strategies);
+        int count = 0;
+        for (List<CachedIndicator<?>> component : components) {
+            count += component.size();
+        }
+
+        if (executor == null || components.size() < 2) {
+            for (List<CachedIndicator<?>> component : components) {
+                warmComponent(series, component);
+            }
+        } else {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(components.size());
+            for (List<CachedIndicator<?>> component : components) {
+                futures.add(CompletableFuture.runAsync(() -> warmComponent(series, component), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        log.debug("指标预热完成: {} 个指标, {} 个独立子图, {} 根K线, 耗时 {} ms",
+                count, components.size(), series.getBarCount(), System.currentTimeMillis() - startMillis);
+        return count;
+    }
+
+    /**
+     * 找出根对象可达的全部缓存指标，按连通子图分组，每组内被依赖的指标排在前面
+     *
+     * @param roots 策略或规则等根对象
+     * @return 各连通子图的缓存指标
+     */
+    public static List<List<CachedIndicator<?>>> discover(Collection<?> roots) {
+        Map<Indicator<?>, List<Indicator<?>>> dependencies = new IdentityHashMap<>();
+        List<Indicator<?>> order = new ArrayList<>();
+        for (Object root : roots) {
+            for (Indicator<?> indicator : directIndicators(root)) {
+                visit(indicator, dependencies, Collections.newSetFromMap(new IdentityHashMap<>()), order);
+            }
+        }
+
+        // 以共享的指标为纽带合并为连通子图
+        Map<Indicator<?>, Indicator<?>> parents = new IdentityHashMap<>();
+        for (Indicator<?> indicator : order) {
+            parents.put(indicator, indicator);
+        }
+        for (Indicator<?> indicator : order) {
+            for (Indicator<?> dependency : dependencies.get(indicator)) {
+                parents.put(find(parents, indicator), find(parents, dependency));
+            }
+        }
+
+        Map<Indicator<?>, List<CachedIndicator<?>>> components = new LinkedHashMap<>();
+        for (Indicator<?> indicator : order) {
+            if (indicator instanceof CachedIndicator) {
+                components.computeIfAbsent(find(parents, indicator), k -> new ArrayList<>()).add((CachedIndicator<?>) indicator);
+            }
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    /**
+     * 后序深度优先遍历，保证依赖先于使用者加入order
+     */
+    private static void visit(Indicator<?> indicator, Map<Indicator<?>, List<Indicator<?>>> dependencies,
+                              Set<Indicator<?>> visiting, List<Indicator<?>> order) {
+        if (dependencies.containsKey(indicator) || !visiting.add(indicator)) {
+            return;
+        }
+        List<Indicator<?>> direct = directIndicators(indicator);
+        direct.removeIf(dependency -> dependency == indicator);
+        for (Indicator<?> dependency : direct) {
+            visit(dependency, dependencies, visiting, order);
+        }
+        visiting.remove(indicator);
+        dependencies.put(indicator, direct);
+        order.add(indicator);
+    }
+
+    private static Indicator<?> find(Map<Indicator<?>, Indicator<?>> parents, Indicator<?> indicator) {
+        Indicator<?> root = indicator;
+        while (parents.get(root) != root) {
+            root = parents.get(root);
+        }
+        parents.put(indicator, root);
+        return root;
+    }
+
+    /**
+     * 收集对象字段中直接引用的指标；规则、辅助对象、数组和集合会继续向内查找，遇到指标即停止
+     */
+    private static List<Indicator<?>> directIndicators(Object owner) {
+        List<Indicator<?>> result = new ArrayList<>();
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(owner);
+        collectFields(owner, seen, result);
+        return result;
+    }
+
+    private static void collect(Object value, Set<Object> seen, List<Indicator<?>> result) {
+        if (value == null || isLeaf(value)) {
+            return;
+        }
+        if (value instanceof Indicator) {
+            result.add((Indicator<?>) value);
+            return;
+        }
+        if (!seen.add(value)) {
+            return;
+        }
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (element instanceof Num) {
+                    return;
+                }
+                collect(element, seen, result);
+            }
+        } else if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                collect(element, seen, result);
+            }
+        } else if (value.getClass().isArray()) {
+            if (!value.getClass().getComponentType().isPrimitive()) {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    collect(Array.get(value, i), seen, result);
+                }
+            }
+        } else if (!isJdkClass(value.getClass())) {
+            collectFields(value, seen, result);
+        }
+    }
+
+    private static void collectFields(Object owner, Set<Object> seen, List<Indicator<?>> result) {
+        for (Class<?> type = owner.getClass(); type != null && !isJdkClass(type); type = type.getSuperclass()) {
+            // CachedIndicator的结果缓存和AbstractIndicator的序列引用不包含依赖
+            if (type == CachedIndicator.class || type == AbstractIndicator.class) {
+                continue;
+            }
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    collect(field.get(owner), seen, result);
+                } catch (RuntimeException | IllegalAccessException e) {
+                    log.debug("读取字段 {}.{} 失败: {}", type.getSimpleName(), field.getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isLeaf(Object value) {
+        return value instanceof BarSeries || value instanceof Num || value instanceof CharSequence
+                || value instanceof Number || value instanceof Boolean || value instanceof Enum
+                || value instanceof Class || value instanceof org.slf4j.Logger;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    private static void warmComponent(BarSeries series, List<CachedIndicator<?>> component) {
+        int beginIndex = series.getBeginIndex();
+        int endIndex = series.getEndIndex();
+        for (CachedIndicator<?> indicator : component) {
+            try {
+                for (int i = beginIndex; i <= endIndex; i++) {
+                    indicator.getValue(i);
+                }
+            } catch (RuntimeException e) {
+                // 预热失败不影响回测，回测循环中仍会按需计算
+                log.debug("指标 {} 预热失败: {}", indicator.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.model.dto.PortfolioBacktestResultDTO;
+import com.okx.trading.model.dto.PortfolioSymbolResultDTO;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BarSeriesManager;
+import org.ta4j.core.Position;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多品种组合回测引擎
+ * 与BacktestFramework相同的现金/持仓记账方式，但多个品种共享一个现金池：各品种的K线按时间戳归并后在同一个事件循环中推进，
+ * 同一时间戳先处理平仓释放现金，再按交易对顺序处理开仓。
+ * 品种加入时先用其策略独立跑一遍得到进出场信号，随后只保留时间戳、收盘价和信号三个原始类型数组，不持有BarSeries，
+ * 因此上百个品种、数年的小时K线也只占用几十MB内存
+ */
+@Slf4j
+public class PortfolioBacktestEngine {
+
+    static final byte SIGNAL_ENTRY = 1;
+    static final byte SIGNAL_EXIT = 2;
+
+    private static final double SECONDS_PER_YEAR = 365 * 24 * 3600.0;
+
+    /**
+     * 初始资金
+     */
+    @Getter
+    private final BigDecimal initialBalance;
+
+    /**
+     * 手续费率
+     */
+    @Getter
+    private final BigDecimal feeRate;
+
+    /**
+     * 同时持仓的品种数上限，每次开仓使用当前总资产的 1/maxPositions
+     */
+    @Getter
+    private final int maxPositions;
+
+    /**
+     * 组合交易记录，reason字段记录交易对
+     */
+    @Getter
+    private final List<BacktestFramework.TradeRecord> tradeRecords = new ArrayList<>();
+
+    private final List<SymbolBook> books = new ArrayList<>();
+
+    // 组合净值曲线，按时间戳去重后每个时间点一个值
+    private long[] equityTimes = new long[0];
+    private double[] equityValues = new double[0];
+    private int equityCount = 0;
+
+    /**
+     * 构造函数
+     *
+     * @param initialBalance 初始资金
+     * @param feeRate        手续费率
+     * @param maxPositions   同时持仓的品种数上限
+     */
+    public PortfolioBacktestEngine(BigDecimal initialBalance, BigDecimal feeRate, int maxPositions) {
+        this.initialBalance = initialBalance;
+        this.feeRate = feeRate;
+        this.maxPositions = Math.max(1, maxPositions);
+    }
+
+    /**
+     * 加入一个品种：用策略在该品种上独立运行得到进出场信号，之后不再引用series
+     *
+     * @param symbol       交易对
+     * @param strategyCode 策略代码
+     * @param series       该品种的条形系列
+     * @param strategy     基于series创建的策略
+     */
+    public void addSymbol(String symbol, String strategyCode, BarSeries series, Strategy strategy) {
+        int barCount = series.getBarCount();
+        long[] times = new long[barCount];
+        double[] closes = new double[barCount];
+        for (int i = 0; i < barCount; i++) {
+            times[i] = series.getBar(i).getEndTime().toEpochSecond();
+            closes[i] = series.getBar(i).getClosePrice().doubleValue();
+        }
+        addSymbol(symbol, strategyCode, times, closes, computeSignals(series, strategy));
+    }
+
+    /**
+     * 加入一个已经转换为原始类型数组的品种
+     *
+     * @param times   K线结束时间（epoch秒），升序
+     * @param closes  收盘价
+     * @param signals 每根K线的信号：1开仓，2平仓，0无
+     */
+    public void addSymbol(String symbol, String strategyCode, long[] times, double[] closes, byte[] signals) {
+        if (times.length == 0) {
+            return;
+        }
+        synchronized (books) {
+            books.add(new SymbolBook(symbol, strategyCode, times, closes, signals));
+        }
+    }
+
+    /**
+     * 策略独立运行时的进出场位置
+     */
+    static byte[] computeSignals(BarSeries series, Strategy strategy) {
+        byte[] signals = new byte[series.getBarCount()];
+        TradingRecord record = new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel()).run(strategy);
+        for (Position position : record.getPositions()) {
+            signals[position.getEntry().getIndex()] = SIGNAL_ENTRY;
+            signals[position.getExit().getIndex()] = SIGNAL_EXIT;
+        }
+        if (record.getCurrentPosition() != null && record.getCurrentPosition().isOpened()) {
+            signals[record.getCurrentPosition().getEntry().getIndex()] = SIGNAL_ENTRY;
+        }
+        return signals;
+    }
+
+    /**
+     * 运行组合回测
+     *
+     * @return 组合回测结果
+     */
+    public PortfolioBacktestResultDTO run() {
+        long startMillis = System.currentTimeMillis();
+        // 按交易对排序，保证同一时间戳的开仓顺序与加入顺序（并行加载时不确定）无关
+        books.sort((a, b) -> a.symbol.compareTo(b.symbol));
+        int symbolCount = books.size();
+        double fee = feeRate.doubleValue();
+
+        double cash = initialBalance.doubleValue();
+        double positionValue = 0;
+        int openPositions = 0;
+        int[] batch = new int[symbolCount];
+        SymbolHeap heap = new SymbolHeap(symbolCount);
+        for (int s = 0; s < symbolCount; s++) {
+            heap.push(s);
+        }
+
+        while (!heap.isEmpty()) {
+            long time = heap.peekTime();
+            int batchSize = 0;
+            while (!heap.isEmpty() && heap.peekTime() == time) {
+                batch[batchSize++] = heap.pop();
+            }
+            // 按品种序号处理，保证同一时间戳的结果确定
+            Arrays.sort(batch, 0, batchSize);
+
+            for (int b = 0; b < batchSize; b++) {
+                SymbolBook book = books.get(batch[b]);
+                double close = book.closes[book.cursor];
+                positionValue += book.quantity * (close - book.lastPrice);
+                book.lastPrice = close;
+            }
+
+            for (int b = 0; b < batchSize; b++) {
+                SymbolBook book = books.get(batch[b]);
+                if (book.signals[book.cursor] == SIGNAL_EXIT && book.quantity > 0) {
+                    double value = book.quantity * book.lastPrice;
+                    double exitFee = value * fee;
+                    cash += value - exitFee;
+                    positionValue -= value;
+                    double profit = value - exitFee - book.entryCost;
+                    book.totalProfit += profit;
+                    book.totalFee += exitFee;
+                    book.trades++;
+                    if (profit > 0) {
+                        book.profitableTrades++;
+                    }
+                    record(time, "卖出", book, book.quantity, value, exitFee, cash, cash + positionValue);
+                    book.quantity = 0;
+                    openPositions--;
+                }
+            }
+
+            for (int b = 0; b < batchSize; b++) {
+                SymbolBook book = books.get(batch[b]);
+                if (book.signals[book.cursor] != SIGNAL_ENTRY || book.quantity > 0) {
+                    continue;
+                }
+                double allocation = Math.min(cash, (cash + positionValue) / maxPositions);
+                if (openPositions >= maxPositions || allocation <= 0 || allocation < (cash + positionValue) * 1e-6) {
+                    book.skippedEntries++;
+                    continue;
+                }
+                double entryFee = allocation * fee;
+                double quantity = (allocation - entryFee) / book.lastPrice;
+                cash -= allocation;
+                positionValue += quantity * book.lastPrice;
+                book.quantity = quantity;
+                book.entryCost = allocation;
+                book.totalFee += entryFee;
+                openPositions++;
+                record(time, "买入", book, quantity, allocation - entryFee, entryFee, cash, cash + positionValue);
+            }
+
+            appendEquity(time, cash + positionValue);
+
+            for (int b = 0; b < batchSize; b++) {
+                int s = batch[b];
+                SymbolBook book = books.get(s);
+                if (++book.cursor < book.times.length) {
+                    heap.push(s);
+                }
+            }
+        }
+
+        PortfolioBacktestResultDTO result = buildResult();
+        result.setElapsedMillis(System.currentTimeMillis() - startMillis);
+        log.info("组合回测完成: {} 个品种, {} 个时间点, 交易 {} 次, 最终资产 {}, 耗时 {} ms",
+                symbolCount, equityCount, result.getNumberOfTrades(), result.getFinalAmount(), result.getElapsedMillis());
+        return result;
+    }
+
+    /**
+     * 组合净值对应的时间点（epoch秒）
+     */
+    public long[] getEquityTimes() {
+        return Arrays.copyOf(equityTimes, equityCount);
+    }
+
+    /**
+     * 组合净值曲线
+     */
+    public double[] getEquityValues() {
+        return Arrays.copyOf(equityValues, equityCount);
+    }
+
+    private void appendEquity(long time, double equity) {
+        if (equityCount == equityTimes.length) {
+            int capacity = Math.max(1024, equityCount * 2);
+            equityTimes = Arrays.copyOf(equityTimes, capacity);
+            equityValues = Arrays.copyOf(equityValues, capacity);
+        }
+        equityTimes[equityCount] = time;
+        equityValues[equityCount] = equity;
+        equityCount++;
+    }
+
+    private void record(long time, String type, SymbolBook book, double quantity, double value, double tradeFee,
+                        double cash, double totalBalance) {
+        BacktestFramework.TradeRecord trade = new BacktestFramework.TradeRecord();
+        trade.setTime(toLocalDateTime(time));
+        trade.setType(type);
+        trade.setPrice(decimal(book.lastPrice));
+        trade.setAmount(decimal(quantity));
+        trade.setValue(decimal(value));
+        trade.setFee(decimal(tradeFee));
+        trade.setCash(decimal(cash));
+        trade.setPosition(decimal("买入".equals(type) ? quantity : 0));
+        trade.setTotalBalance(decimal(totalBalance));
+        trade.setReason(book.symbol);
+        tradeRecords.add(trade);
+    }
+
+    private PortfolioBacktestResultDTO buildResult() {
+        PortfolioBacktestResultDTO result = new PortfolioBacktestResultDTO();
+        result.setSymbolCount(books.size());
+        result.setMaxPositions(maxPositions);
+        result.setInitialAmount(initialBalance);
+        result.setTimelineBars(equityCount);
+        if (equityCount == 0) {
+            result.setSuccess(false);
+            result.setErrorMessage("没有可回测的K线数据");
+            return result;
+        }
+
+        double initial = initialBalance.doubleValue();
+        double peak = initial;
+        double maxDrawdown = 0;
+        double previous = initial;
+        double sum = 0;
+        double sumSquares = 0;
+        Map<String, BigDecimal> dailyEquity = new LinkedHashMap<>();
+        for (int i = 0; i < equityCount; i++) {
+            double equity = equityValues[i];
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+            double r = previous > 0 ? equity / previous - 1 : 0;
+            sum += r;
+            sumSquares += r * r;
+            previous = equity;
+            // 同一天的后一个值覆盖前一个，得到每日收盘净值
+            dailyEquity.put(toLocalDateTime(equityTimes[i]).toLocalDate().toString(), decimal(equity));
+        }
+        double finalEquity = equityValues[equityCount - 1];
+        double totalReturn = finalEquity / initial - 1;
+        double years = (equityTimes[equityCount - 1] - equityTimes[0]) / SECONDS_PER_YEAR;
+        double periodsPerYear = years > 0 ? (equityCount - 1) / years : 0;
+        double mean = sum / equityCount;
+        double variance = sumSquares / equityCount - mean * mean;
+
+        int trades = 0;
+        int profitableTrades = 0;
+        int skippedEntries = 0;
+        double totalFee = 0;
+        List<PortfolioSymbolResultDTO> symbols = new ArrayList<>();
+        for (SymbolBook book : books) {
+            PortfolioSymbolResultDTO symbolResult = new PortfolioSymbolResultDTO();
+            symbolResult.setSymbol(book.symbol);
+            symbolResult.setStrategyCode(book.strategyCode);
+            symbolResult.setBarCount(book.times.length);
+            symbolResult.setNumberOfTrades(book.trades);
+            symbolResult.setProfitableTrades(book.profitableTrades);
+            symbolResult.setSkippedEntries(book.skippedEntries);
+            symbolResult.setTotalProfit(decimal(book.totalProfit));
+            symbolResult.setTotalFee(decimal(book.totalFee));
+            symbolResult.setOpenPositionValue(decimal(book.quantity * book.lastPrice));
+            symbols.add(symbolResult);
+
+            trades += book.trades;
+            profitableTrades += book.profitableTrades;
+            skippedEntries += book.skippedEntries;
+            totalFee += book.totalFee;
+        }
+
+        result.setSuccess(true);
+        result.setFinalAmount(decimal(finalEquity));
+        result.setTotalReturn(decimal(totalReturn));
+        result.setAnnualizedReturn(decimal(years > 0 && totalReturn > -1 ? Math.pow(1 + totalReturn, 1 / years) - 1 : 0));
+        result.setSharpeRatio(decimal(variance > 0 ? mean / Math.sqrt(variance) * Math.sqrt(periodsPerYear) : 0));
+        result.setMaxDrawdown(decimal(maxDrawdown));
+        result.setNumberOfTrades(trades);
+        result.setProfitableTrades(profitableTrades);
+        result.setWinRate(decimal(trades == 0 ? 0 : (double) profitableTrades / trades));
+        result.setSkippedEntries(skippedEntries);
+        result.setTotalFee(decimal(totalFee));
+        result.setSymbols(symbols);
+        result.setDailyEquity(dailyEquity);
+        return result;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+
+    private static BigDecimal decimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(value).setScale(8, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 单个品种的K线、信号和持仓状态
+     */
+    private static class SymbolBook {
+        private final String symbol;
+        private final String strategyCode;
+        private final long[] times;
+        private final double[] closes;
+        private final byte[] signals;
+
+        private int cursor;
+        private double lastPrice;
+        private double quantity;
+        private double entryCost;
+        private double totalProfit;
+        private double totalFee;
+        private int trades;
+        private int profitableTrades;
+        private int skippedEntries;
+
+        SymbolBook(String symbol, String strategyCode, long[] times, double[] closes, byte[] signals) {
+            this.symbol = symbol;
+            this.strategyCode = strategyCode;
+            this.times = times;
+            this.closes = closes;
+            this.signals = signals;
+            this.lastPrice = closes[0];
+        }
+    }
+
+    /**
+     * 按各品种下一根K线时间排序的最小堆，只存品种序号
+     */
+    private class SymbolHeap {
+        private final int[] heap;
+        private int size;
+
+        SymbolHeap(int capacity) {
+            this.heap = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekTime() {
+            return timeOf(heap[0]);
+        }
+
+        void push(int symbolIndex) {
+            int i = size++;
+            heap[i] = symbolIndex;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (timeOf(heap[parent]) <= timeOf(heap[i])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        int pop() {
+            int top = heap[0];
+            heap[0] = heap[--size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int child = left + 1 < size && timeOf(heap[left + 1]) < timeOf(heap[left]) ? left + 1 : left;
+                if (timeOf(heap[i]) <= timeOf(heap[child])) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+            return top;
+        }
+
+        private long timeOf(int symbolIndex) {
+            SymbolBook book = books.get(symbolIndex);
+            return book.times[book.cursor];
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
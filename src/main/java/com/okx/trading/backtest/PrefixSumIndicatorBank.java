@@ -0,0 +1,254 @@
+package com.okx.trading.backtest;
+
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.AbstractIndicator;
+import org.ta4j.core.num.Num;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * 前缀和指标库
+ * 对一个条形系列的收盘价、最高价、最低价和成交量一次性计算前缀和与平方前缀和，任意周期的均值和标准差都能在O(1)内得到；
+ * 窗口最高、最低值按周期用单调队列一次遍历算出并缓存。参数扫描时不同周期共用同一组前缀和，
+ * 扫描上百个周期的开销接近只算两三个。
+ * 通过sma、stdDev等方法得到的是ta4j的Indicator&lt;Num&gt;，可以直接用于现有的规则代码；
+ * 前N根K线不足一个周期时与ta4j一致，按已有的K线计算。指标库是创建时的快照，系列之后追加的K线不在其中
+ */
+public class PrefixSumIndicatorBank {
+
+    /**
+     * 数据来源
+     */
+    public enum Source {
+        CLOSE, HIGH, LOW, VOLUME
+    }
+
+    private final BarSeries series;
+    private final int beginIndex;
+    private final int length;
+    private final double[][] values = new double[Source.values().length][];
+    // 前缀和以各序列第一个值为基准平移，减小平方和相减时的精度损失
+    private final double[] offsets = new double[Source.values().length];
+    private final double[][] prefixSums = new double[Source.values().length][];
+    private final double[][] prefixSquares = new double[Source.values().length][];
+    // 收盘价逐根涨跌幅的前缀和，用于RSI
+    private final double[] prefixGains;
+    private final double[] prefixLosses;
+    private final Map<Long, double[]> extrema = new ConcurrentHashMap<>();
+
+    private PrefixSumIndicatorBank(BarSeries series) {
+        this.series = series;
+        this.beginIndex = series.getBeginIndex();
+        this.length = series.isEmpty() ? 0 : series.getEndIndex() - beginIndex + 1;
+        for (Source source : Source.values()) {
+            values[source.ordinal()] = new double[length];
+        }
+        double[] close = values[Source.CLOSE.ordinal()];
+        double[] high = values[Source.HIGH.ordinal()];
+        double[] low = values[Source.LOW.ordinal()];
+        double[] volume = values[Source.VOLUME.ordinal()];
+        for (int i = 0; i < length; i++) {
+            close[i] = series.getBar(beginIndex + i).getClosePrice().doubleValue();
+            high[i] = series.getBar(beginIndex + i).getHighPrice().doubleValue();
+            low[i] = series.getBar(beginIndex + i).getLowPrice().doubleValue();
+            volume[i] = series.getBar(beginIndex + i).getVolume().doubleValue();
+        }
+
+        for (Source source : Source.values()) {
+            int s = source.ordinal();
+            double offset = length > 0 ? values[s][0] : 0;
+            double[] sums = new double[length + 1];
+            double[] squares = new double[length + 1];
+            for (int i = 0; i < length; i++) {
+                double shifted = values[s][i] - offset;
+                sums[i + 1] = sums[i] + shifted;
+                squares[i + 1] = squares[i] + shifted * shifted;
+            }
+            offsets[s] = offset;
+            prefixSums[s] = sums;
+            prefixSquares[s] = squares;
+        }
+
+        prefixGains = new double[length + 1];
+        prefixLosses = new double[length + 1];
+        for (int i = 0; i < length; i++) {
+            double change = i == 0 ? 0 : close[i] - close[i - 1];
+            prefixGains[i + 1] = prefixGains[i] + Math.max(change, 0);
+            prefixLosses[i + 1] = prefixLosses[i] + Math.max(-change, 0);
+        }
+    }
+
+    /**
+     * 为条形系列创建指标库
+     */
+    public static PrefixSumIndicatorBank of(BarSeries series) {
+        return new PrefixSumIndicatorBank(series);
+    }
+
+    public BarSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * 原始数据
+     */
+    public double value(Source source, int index) {
+        return values[source.ordinal()][index - beginIndex];
+    }
+
+    /**
+     * 简单移动平均，与ta4j的SMAIndicator一致
+     */
+    public double smaValue(Source source, int period, int index) {
+        int end = index - beginIndex + 1;
+        int start = Math.max(0, end - period);
+        int s = source.ordinal();
+        return (prefixSums[s][end] - prefixSums[s][start]) / (end - start) + offsets[s];
+    }
+
+    /**
+     * 总体标准差，与ta4j的StandardDeviationIndicator一致
+     */
+    public double stdDevValue(Source source, int period, int index) {
+        int end = index - beginIndex + 1;
+        int start = Math.max(0, end - period);
+        int count = end - start;
+        int s = source.ordinal();
+        double mean = (prefixSums[s][end] - prefixSums[s][start]) / count;
+        double variance = (prefixSquares[s][end] - prefixSquares[s][start]) / count - mean * mean;
+        return variance > 0 ? Math.sqrt(variance) : 0;
+    }
+
+    /**
+     * 窗口最高值，与ta4j的HighestValueIndicator一致
+     */
+    public double highestValue(Source source, int period, int index) {
+        return extremaOf(source, period, true)[index - beginIndex];
+    }
+
+    /**
+     * 窗口最低值，与ta4j的LowestValueIndicator一致
+     */
+    public double lowestValue(Source source, int period, int index) {
+        return extremaOf(source, period, false)[index - beginIndex];
+    }
+
+    /**
+     * 以简单平均计算平均涨跌幅的RSI（Cutler RSI）。
+     * ta4j的RSIIndicator使用Wilder平滑，是递归的，无法由前缀和得到，两者数值不同但走势一致
+     */
+    public double rsiValue(int period, int index) {
+        int end = index - beginIndex + 1;
+        int start = Math.max(0, end - period);
+        double gain = prefixGains[end] - prefixGains[start];
+        double loss = prefixLosses[end] - prefixLosses[start];
+        if (loss == 0) {
+            return gain == 0 ? 0 : 100;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    public Indicator<Num> sma(Source source, int period) {
+        return adapter(index -> smaValue(source, period, index));
+    }
+
+    public Indicator<Num> stdDev(Source source, int period) {
+        return adapter(index -> stdDevValue(source, period, index));
+    }
+
+    public Indicator<Num> highest(Source source, int period) {
+        double[] window = extremaOf(source, period, true);
+        return adapter(index -> window[index - beginIndex]);
+    }
+
+    public Indicator<Num> lowest(Source source, int period) {
+        double[] window = extremaOf(source, period, false);
+        return adapter(index -> window[index - beginIndex]);
+    }
+
+    /**
+     * 布林带上轨：均值加multiplier倍标准差
+     */
+    public Indicator<Num> bollingerUpper(Source source, int period, double multiplier) {
+        return adapter(index -> smaValue(source, period, index) + multiplier * stdDevValue(source, period, index));
+    }
+
+    /**
+     * 布林带下轨：均值减multiplier倍标准差
+     */
+    public Indicator<Num> bollingerLower(Source source, int period, double multiplier) {
+        return adapter(index -> smaValue(source, period, index) - multiplier * stdDevValue(source, period, index));
+    }
+
+    public Indicator<Num> rsi(int period) {
+        return adapter(index -> rsiValue(period, index));
+    }
+
+    /**
+     * 用任意按下标计算的函数创建指标
+     */
+    public Indicator<Num> adapter(IntToDoubleFunction function) {
+        return new BankIndicator(series, function, beginIndex, length);
+    }
+
+    /**
+     * 单调队列一次遍历算出每个位置的窗口最值，同一数据来源和周期只计算一次
+     */
+    private double[] extremaOf(Source source, int period, boolean max) {
+        long key = ((long) period << 3) | ((long) source.ordinal() << 1) | (max ? 1 : 0);
+        return extrema.computeIfAbsent(key, k -> {
+            double[] data = values[source.ordinal()];
+            double[] result = new double[length];
+            int[] deque = new int[length];
+            int head = 0;
+            int tail = 0;
+            for (int i = 0; i < length; i++) {
+                while (tail > head && (max ? data[deque[tail - 1]] <= data[i] : data[deque[tail - 1]] >= data[i])) {
+                    tail--;
+                }
+                deque[tail++] = i;
+                if (deque[head] <= i - period) {
+                    head++;
+                }
+                result[i] = data[deque[head]];
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 指标库的ta4j适配器
+     * double值O(1)可得，但DecimalNum系列上每次numOf都要构造BigDecimal，规则每根K线会多次读取同一下标，
+     * 所以按下标缓存转换后的Num，每个下标只转换一次。Num不可变，并发读取时最多重复转换，不需要加锁
+     */
+    private static class BankIndicator extends AbstractIndicator<Num> {
+
+        private final IntToDoubleFunction function;
+        private final int beginIndex;
+        private final Num[] cache;
+
+        BankIndicator(BarSeries series, IntToDoubleFunction function, int beginIndex, int length) {
+            super(series);
+            this.function = function;
+            this.beginIndex = beginIndex;
+            this.cache = new Num[length];
+        }
+
+        @Override
+        public Num getValue(int index) {
+            int offset = index - beginIndex;
+            if (offset < 0 || offset >= cache.length) {
+                return numOf(function.applyAsDouble(index));
+            }
+            Num value = cache[offset];
+            if (value == null) {
+                value = numOf(function.applyAsDouble(index));
+                cache[offset] = value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.okx.trading.backtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 回测提前终止（剪枝）策略
+ * 参数扫描和批量回测中大部分候选很早就能看出没有希望：净值已亏损大半、回撤超限，或者遍历了一半K线仍没有交易。
+ * 剪枝条件在K线循环中每隔checkInterval根K线检查一次，命中后该候选停止遍历，只返回EquityTracker中的部分统计，
+ * 不再提取交易明细、不计算完整指标
+ */
+public final class PruningPolicy {
+
+    private static final PruningPolicy DISABLED = new PruningPolicy(Collections.emptyList(), Integer.MAX_VALUE);
+
+    /**
+     * 剪枝条件，命中时返回原因，否则返回null
+     */
+    @FunctionalInterface
+    public interface Condition {
+        String check(EquityTracker tracker);
+    }
+
+    private final List<Condition> conditions;
+    private final int checkInterval;
+
+    private PruningPolicy(List<Condition> conditions, int checkInterval) {
+        this.conditions = conditions;
+        this.checkInterval = Math.max(1, checkInterval);
+    }
+
+    /**
+     * 不做任何剪枝
+     */
+    public static PruningPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * 用常用条件创建剪枝策略，取值不大于0的条件不启用
+     *
+     * @param maxEquityLoss   净值亏损超过该比例时终止
+     * @param maxDrawdown     净值最大回撤超过该比例时终止
+     * @param noTradeProgress 遍历过该比例的K线仍没有任何交易时终止
+     * @param checkInterval   每隔多少根K线检查一次
+     */
+    public static PruningPolicy of(double maxEquityLoss, double maxDrawdown, double noTradeProgress, int checkInterval) {
+        List<Condition> conditions = new ArrayList<>();
+        if (maxEquityLoss > 0) {
+            conditions.add(tracker -> tracker.getEquity() < 1 - maxEquityLoss
+                    ? String.format("净值亏损超过%.0f%%", maxEquityLoss * 100) : null);
+        }
+        if (maxDrawdown > 0) {
+            conditions.add(tracker -> tracker.getMaxDrawdown() > maxDrawdown
+                    ? String.format("最大回撤超过%.0f%%", maxDrawdown * 100) : null);
+        }
+        if (noTradeProgress > 0) {
+            conditions.add(tracker -> tracker.getClosedTrades() == 0 && !tracker.isPositionOpen()
+                    && tracker.getProgress() >= noTradeProgress
+                    ? String.format("遍历%.0f%%的K线仍无交易", noTradeProgress * 100) : null);
+        }
+        return conditions.isEmpty() ? DISABLED : new PruningPolicy(Collections.unmodifiableList(conditions), checkInterval);
+    }
+
+    /**
+     * 追加一个自定义条件，返回新的剪枝策略
+     */
+    public PruningPolicy withCondition(Condition condition) {
+        List<Condition> combined = new ArrayList<>(conditions);
+        combined.add(condition);
+        return new PruningPolicy(Collections.unmodifiableList(combined), this == DISABLED ? 1 : checkInterval);
+    }
+
+    public boolean isEnabled() {
+        return !conditions.isEmpty();
+    }
+
+    /**
+     * 按检查间隔判断是否应终止，未到检查点或没有命中时返回null
+     */
+    public String check(EquityTracker tracker) {
+        if (conditions.isEmpty() || tracker.getProcessedBars() % checkInterval != 0) {
+            return null;
+        }
+        for (Condition condition : conditions) {
+            String reason = condition.check(tracker);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+}
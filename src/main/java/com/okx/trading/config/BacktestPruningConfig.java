@@ -0,0 +1,31 @@
+package com.okx.trading.config;
+
+import com.okx.trading.backtest.PruningPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回测剪枝配置类
+ * 参数扫描和批量回测在请求开启剪枝时使用此处配置的条件
+ */
+@Configuration
+public class BacktestPruningConfig {
+
+    @Value("${okx.backtest.pruning.max-equity-loss:0.6}")
+    private double maxEquityLoss;
+
+    @Value("${okx.backtest.pruning.max-drawdown:0}")
+    private double maxDrawdown;
+
+    @Value("${okx.backtest.pruning.no-trade-progress:0.5}")
+    private double noTradeProgress;
+
+    @Value("${okx.backtest.pruning.check-interval:64}")
+    private int checkInterval;
+
+    @Bean(name = "backtestPruningPolicy")
+    public PruningPolicy backtestPruningPolicy() {
+        return PruningPolicy.of(maxEquityLoss, maxDrawdown, noTradeProgress, checkInterval);
+    }
+}
@@ -0,0 +1,22 @@
+package com.okx.trading.config;
+
+import com.okx.trading.event.MarketDataEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 行情事件总线配置类
+ * WebSocket读线程与价格缓存、实时策略等行情消费者之间的环形总线
+ */
+@Configuration
+public class MarketDataEventBusConfig {
+
+    @Value("${okx.market-data.event-bus.capacity:8192}")
+    private int capacity;
+
+    @Bean(destroyMethod = "shutdown")
+    public MarketDataEventBus marketDataEventBus() {
+        return new MarketDataEventBus(capacity);
+    }
+}
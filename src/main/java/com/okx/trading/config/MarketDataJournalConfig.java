@@ -0,0 +1,32 @@
+package com.okx.trading.config;
+
+import com.okx.trading.util.MarketDataJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * 行情日志配置类
+ * 开启后公共频道和业务频道收到的每条消息都写入内存映射的日志文件
+ */
+@Configuration
+@ConditionalOnProperty(name = "okx.market-data.journal.enabled", havingValue = "true")
+public class MarketDataJournalConfig {
+
+    @Value("${okx.market-data.journal.directory:./data/journal}")
+    private String directory;
+
+    @Value("${okx.market-data.journal.segment-size-mb:256}")
+    private int segmentSizeMb;
+
+    @Value("${okx.market-data.journal.index-interval-ms:1000}")
+    private long indexIntervalMs;
+
+    @Bean(destroyMethod = "close")
+    public MarketDataJournal marketDataJournal() {
+        return new MarketDataJournal(Paths.get(directory), segmentSizeMb * 1024L * 1024L, indexIntervalMs);
+    }
+}
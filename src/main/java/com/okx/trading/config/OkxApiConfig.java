@@ -78,6 +78,36 @@ public class OkxApiConfig {
          */
         private String privateChannel;
 
+        /**
+         * 公共频道连接数，订阅按交易对哈希分散到各连接
+         */
+        private int publicShards = 1;
+
+        /**
+         * 业务频道连接数，订阅按交易对哈希分散到各连接
+         */
+        private int businessShards = 1;
+
+        /**
+         * 单个订阅请求中合并的最大参数个数
+         */
+        private int maxArgsPerFrame = 100;
+
+        /**
+         * 单个订阅请求的最大字节数，OKX限制为64KB
+         */
+        private int maxFrameBytes = 60000;
+
+        /**
+         * 每个连接每小时最多发送的订阅/取消订阅请求数，OKX限制为480
+         */
+        private int maxRequestsPerHour = 480;
+
+        /**
+         * 订阅请求的合并窗口（毫秒），窗口内的订阅合并为一个请求发送
+         */
+        private long subscribeBatchMillis = 50;
+
         public String getPublicChannel() {
             return publicChannel;
         }
@@ -84,6 +84,16 @@ public class ThreadPoolConfig{
             createThreadFactory("实时策略计算"));
     }
 
+    /**
+     * 回测计算线程池
+     * 用于走步分析等纯CPU计算任务，线程数与CPU核数一致
+     */
+    @Bean(name = "backtestComputeExecutorService")
+    public ExecutorService backtestComputeExecutorService(){
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            createThreadFactory("回测计算"));
+    }
+
     /**
      * WebSocket心跳线程池
      * 用于定期发送WebSocket心跳消息
@@ -127,4 +137,14 @@ public class ThreadPoolConfig{
         return Executors.newSingleThreadScheduledExecutor(
             createThreadFactory("指标计算"));
     }
+
+    /**
+     * 策略信号轧差线程池
+     * 用于在轧差窗口结束时合并执行各策略的信号
+     */
+    @Bean(name = "signalNettingScheduler")
+    public ScheduledExecutorService signalNettingScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+            createThreadFactory("信号轧差"));
+    }
 }
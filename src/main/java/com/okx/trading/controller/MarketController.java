@@ -1,15 +1,20 @@
 package com.okx.trading.controller;
 
 import com.alibaba.fastjson.JSONArray;
+import com.okx.trading.event.MarketDataEventBus;
 import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.model.dto.MarketDataReplayResultDTO;
 import com.okx.trading.model.entity.CandlestickEntity;
 import com.okx.trading.model.market.Candlestick;
 import com.okx.trading.model.market.Ticker;
 import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.MarketDataReplayService;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RedisCacheService;
 import com.okx.trading.service.KlineCacheService;
 import com.okx.trading.util.TechnicalIndicatorUtil;
+import com.okx.trading.util.WebSocketConnectionPool;
+import com.okx.trading.util.WebSocketUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -20,6 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -55,16 +61,25 @@ public class MarketController {
     private final HistoricalDataService historicalDataService;
     private final RedisCacheService redisCacheService;
     private final KlineCacheService klineCacheService;
+    private final MarketDataEventBus marketDataEventBus;
+    private final WebSocketUtil webSocketUtil;
+    private final MarketDataReplayService marketDataReplayService;
 
     @Autowired
     public MarketController(OkxApiService okxApiService,
                            HistoricalDataService historicalDataService,
                            RedisCacheService redisCacheService,
-                           KlineCacheService klineCacheService) {
+                           KlineCacheService klineCacheService,
+                           MarketDataEventBus marketDataEventBus,
+                           WebSocketUtil webSocketUtil,
+                           MarketDataReplayService marketDataReplayService) {
         this.okxApiService = okxApiService;
         this.historicalDataService = historicalDataService;
         this.redisCacheService = redisCacheService;
         this.klineCacheService = klineCacheService;
+        this.marketDataEventBus = marketDataEventBus;
+        this.webSocketUtil = webSocketUtil;
+        this.marketDataReplayService = marketDataReplayService;
     }
 
     // 判断是否为开发环境，用于控制日志详细程度
@@ -178,6 +193,53 @@ public class MarketController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 获取行情事件总线各消费者的统计
+     *
+     * @return 各消费者的积压、合并和丢弃数量
+     */
+    @ApiOperation(value = "行情事件总线统计", notes = "查看价格缓存、实时策略等行情消费者的积压、合并和丢弃数量")
+    @GetMapping("/event_bus_stats")
+    public ApiResponse<List<MarketDataEventBus.ConsumerStats>> getEventBusStats() {
+        return ApiResponse.success(marketDataEventBus.getStats());
+    }
+
+    /**
+     * 获取公共频道和业务频道各WebSocket连接的统计
+     *
+     * @return 各连接的订阅数、消息吞吐和订阅请求合并情况
+     */
+    @ApiOperation(value = "WebSocket连接统计", notes = "查看各分片连接的订阅数、消息吞吐、订阅请求数和重连次数")
+    @GetMapping("/websocket_stats")
+    public ApiResponse<List<WebSocketConnectionPool.ConnectionStats>> getWebSocketStats() {
+        return ApiResponse.success(webSocketUtil.getConnectionStats());
+    }
+
+    /**
+     * 回放行情日志中一个时间窗口内的消息
+     *
+     * @param startTimeStr 开始时间 (yyyy-MM-dd HH:mm:ss)
+     * @param endTimeStr   结束时间 (yyyy-MM-dd HH:mm:ss)
+     * @param speed        回放速度，1为按原始节奏，小于等于0为全速回放
+     * @return 回放结果
+     */
+    @ApiOperation(value = "回放行情日志", notes = "把行情日志中指定时间窗口内的消息重新交给WebSocket消息处理流程，需开启okx.market-data.journal.enabled，且只允许在模拟数据模式(okx.api.use-mock-data=true)下执行")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "startTimeStr", value = "开始时间 (yyyy-MM-dd HH:mm:ss)", required = true, dataType = "String", example = "2024-01-01 00:00:00", paramType = "query"),
+            @ApiImplicitParam(name = "endTimeStr", value = "结束时间 (yyyy-MM-dd HH:mm:ss)", required = true, dataType = "String", example = "2024-01-01 01:00:00", paramType = "query"),
+            @ApiImplicitParam(name = "speed", value = "回放速度，1为原始节奏，小于等于0为全速", required = false, dataType = "double", example = "0", paramType = "query")
+    })
+    @PostMapping("/journal/replay")
+    public ApiResponse<MarketDataReplayResultDTO> replayJournal(
+            @NotBlank(message = "开始时间不能为空") @RequestParam String startTimeStr,
+            @NotBlank(message = "结束时间不能为空") @RequestParam String endTimeStr,
+            @RequestParam(required = false, defaultValue = "0") double speed) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime startTime = LocalDateTime.parse(startTimeStr, formatter);
+        LocalDateTime endTime = LocalDateTime.parse(endTimeStr, formatter);
+        return ApiResponse.success(marketDataReplayService.replay(startTime, endTime, speed));
+    }
+
     /**
      * 获取最新的K线数据
      *
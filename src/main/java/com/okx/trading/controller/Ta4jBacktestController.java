@@ -3,17 +3,34 @@ package com.okx.trading.controller;
 import com.alibaba.fastjson.JSONObject;
 import com.okx.trading.model.common.ApiResponse;
 import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.IncrementalBacktestResultDTO;
+import com.okx.trading.model.dto.LiveReplayResultDTO;
+import com.okx.trading.model.dto.GeneticSearchRequestDTO;
+import com.okx.trading.model.dto.GeneticSearchResultDTO;
+import com.okx.trading.model.dto.MonteCarloResultDTO;
+import com.okx.trading.model.dto.ParameterSweepResultDTO;
+import com.okx.trading.model.dto.PortfolioBacktestResultDTO;
 import com.okx.trading.model.entity.*;
 import com.okx.trading.model.dto.StrategyUpdateRequestDTO;
+import com.okx.trading.model.dto.WalkForwardResultDTO;
 import com.okx.trading.service.*;
 import com.okx.trading.service.impl.DeepSeekApiService;
 import com.okx.trading.service.impl.DynamicStrategyService;
+import com.okx.trading.service.impl.IncrementalBacktestService;
 import com.okx.trading.service.impl.JavaCompilerDynamicStrategyService;
+import com.okx.trading.service.impl.LiveReplayService;
+import com.okx.trading.service.impl.GeneticStrategySearchService;
+import com.okx.trading.service.impl.MonteCarloAnalysisService;
+import com.okx.trading.service.impl.ParameterSweepService;
+import com.okx.trading.service.impl.PortfolioBacktestService;
 import com.okx.trading.service.impl.SmartDynamicStrategyService;
+import com.okx.trading.strategy.EvaluationMode;
 import com.okx.trading.strategy.RealTimeStrategyManager;
-import com.okx.trading.adapter.CandlestickAdapter;
 import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.backtest.PruningPolicy;
 import com.okx.trading.service.impl.Ta4jBacktestService;
+import com.okx.trading.service.impl.WalkForwardAnalysisService;
+import com.okx.trading.strategy.StrategyRegisterCenter;
 import com.okx.trading.model.trade.Order;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -27,6 +44,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 import org.ta4j.core.BarSeries;
 
+import javax.validation.Valid;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -60,6 +78,16 @@ public class Ta4jBacktestController {
     private final SmartDynamicStrategyService smartDynamicStrategyService;
     private final StrategyConversationService strategyConversationService;
     private final CandlestickBarSeriesConverter barSeriesConverter;
+    private final BarSeriesCacheService barSeriesCacheService;
+    private final WalkForwardAnalysisService walkForwardAnalysisService;
+    private final MonteCarloAnalysisService monteCarloAnalysisService;
+    private final PortfolioBacktestService portfolioBacktestService;
+    private final BacktestResultCacheService backtestResultCacheService;
+    private final IncrementalBacktestService incrementalBacktestService;
+    private final ParameterSweepService parameterSweepService;
+    private final GeneticStrategySearchService geneticStrategySearchService;
+    private final LiveReplayService liveReplayService;
+    private final PruningPolicy backtestPruningPolicy;
     private final RealTimeOrderService realTimeOrderService;
     private final KlineCacheService klineCacheService;
     private final OkxApiService okxApiService;
@@ -125,32 +153,42 @@ public class Ta4jBacktestController {
                     required = true,
                     defaultValue = "true",
                     type = "boolean")
-            @RequestParam(defaultValue = "true") boolean saveResult) {
+            @RequestParam(defaultValue = "true") boolean saveResult,
+            @ApiParam(value = "是否跳过回测结果缓存，强制重新计算",
+                    required = false,
+                    defaultValue = "false",
+                    type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean bypassCache) {
 
         log.info("开始执行Ta4j回测，交易对: {}, 间隔: {}, 时间范围: {} - {}, 策略: {}, 参数: {}, 初始资金: {}, 手续费率: {}",
                 symbol, interval, startTime, endTime, strategyType, strategyParams, initialAmount, feeRatio);
 
         try {
 
-            // 获取历史数据
-            List<CandlestickEntity> candlesticks = historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(symbol, interval, startTime.format(dateFormat), endTime.format(dateFormat));
+            // 获取历史数据并转换为条形系列，相同时间范围的重复回测直接复用缓存
+            BarSeries series = barSeriesCacheService.getSeries(symbol, interval, startTime, endTime);
 
             // 获取基准数据
-            List<CandlestickEntity> benchmarkCandlesticks = historicalDataService.fetchAndSaveHistoryWithIntegrityCheck("BTC-USDT", interval, startTime.format(dateFormat), endTime.format(dateFormat));
+            List<CandlestickEntity> benchmarkCandlesticks = barSeriesCacheService.getBenchmark("BTC-USDT", interval, startTime, endTime);
 
-            if (candlesticks == null || candlesticks.isEmpty()) {
+            if (series.isEmpty()) {
                 return ApiResponse.error(404, "未找到指定条件的历史数据");
             }
-            // 生成唯一的系列名称
-            String seriesName = CandlestickAdapter.getSymbol(candlesticks.get(0)) + "_" + CandlestickAdapter.getIntervalVal(candlesticks.get(0));
-            // 使用转换器将蜡烛图实体转换为条形系列
-            BarSeries series = barSeriesConverter.convert(candlesticks, seriesName);
 
             StrategyInfoEntity strategy = strategyInfoService.getStrategyByCode(strategyType).get();
 
 
-            // 执行回测
-            BacktestResultDTO result = ta4jBacktestService.backtest(series, benchmarkCandlesticks, strategyType, initialAmount, feeRatio, interval);
+            // 相同参数、相同K线内容和相同策略源码的回测直接复用缓存结果
+            String cacheKey = backtestResultCacheService.buildKey(strategyType, symbol, interval, startTime, endTime,
+                    initialAmount, feeRatio, series, benchmarkCandlesticks);
+            BacktestResultDTO result = bypassCache ? null : backtestResultCacheService.get(cacheKey);
+            if (result != null) {
+                log.info("命中回测结果缓存，策略: {}", strategyType);
+            } else {
+                // 执行回测
+                result = ta4jBacktestService.backtest(series, benchmarkCandlesticks, strategyType, initialAmount, feeRatio, interval);
+                backtestResultCacheService.put(cacheKey, strategyType, symbol, interval, result);
+            }
 
             result.setStrategyName(strategy.getStrategyName());
             result.setStrategyCode(strategy.getStrategyCode());
@@ -227,10 +265,31 @@ public class Ta4jBacktestController {
                     required = false,
                     defaultValue = "4",
                     type = "integer")
-            @RequestParam(required = false, defaultValue = "4") int threadCount) {
+            @RequestParam(required = false, defaultValue = "4") int threadCount,
+            @ApiParam(value = "每个策略的蒙特卡洛模拟次数，0表示不做稳健性分析",
+                    required = false,
+                    defaultValue = "0",
+                    type = "integer")
+            @RequestParam(required = false, defaultValue = "0") int monteCarloSimulations,
+            @ApiParam(value = "是否融合执行：所有策略共用一次K线遍历，按并行线程数分组",
+                    required = false,
+                    defaultValue = "false",
+                    type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean fused,
+            @ApiParam(value = "是否跳过回测结果缓存，强制重新计算",
+                    required = false,
+                    defaultValue = "false",
+                    type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean bypassCache,
+            @ApiParam(value = "是否开启剪枝：净值亏损过大、长时间无交易等没有希望的策略提前终止，只返回部分统计且不保存",
+                    required = false,
+                    defaultValue = "false",
+                    type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean prune) {
 
-        log.info("开始执行所有策略的批量回测，交易对: {}, 间隔: {}, 时间范围: {} - {}, 初始资金: {}, 手续费率: {}, 并行线程数: {}",
-                symbol, interval, startTime, endTime, initialAmount, feeRatio, threadCount);
+        log.info("开始执行所有策略的批量回测，交易对: {}, 间隔: {}, 时间范围: {} - {}, 初始资金: {}, 手续费率: {}, 并行线程数: {}, 蒙特卡洛模拟次数: {}, 融合执行: {}, 跳过缓存: {}, 剪枝: {}",
+                symbol, interval, startTime, endTime, initialAmount, feeRatio, threadCount, monteCarloSimulations, fused, bypassCache, prune);
+        PruningPolicy pruningPolicy = prune ? backtestPruningPolicy : PruningPolicy.disabled();
 
         // 生成唯一的批量回测ID
         String batchBacktestId = UUID.randomUUID().toString();
@@ -240,26 +299,48 @@ public class Ta4jBacktestController {
         List<Map<String, Object>> allResults = Collections.synchronizedList(new ArrayList<>());
 
         try {
-            // 获取历史数据
-            List<CandlestickEntity> candlesticks = historicalDataService.getHistoricalData(symbol, interval, startTime, endTime);
-            if (candlesticks == null || candlesticks.isEmpty()) {
+            // 生成唯一的系列名称
+            String seriesName = CandlestickBarSeriesConverter.createSeriesName(symbol, interval);
+
+            // 以只读游标流式读取历史数据并直接转换为条形系列，不在内存中保留实体列表
+            BarSeries series = historicalDataService.streamHistoricalData(symbol, interval, startTime, endTime,
+                    candlesticks -> barSeriesConverter.convert(candlesticks, seriesName));
+            if (series.isEmpty()) {
                 return ApiResponse.error(404, "未找到指定条件的历史数据");
             }
             // 获取基准数据
             List<CandlestickEntity> benchmarkCandlesticks = historicalDataService.getHistoricalData("BTC-USDT", interval, startTime, endTime);
 
-            // 生成唯一的系列名称
-            String seriesName = CandlestickAdapter.getSymbol(candlesticks.get(0)) + "_" + CandlestickAdapter.getIntervalVal(candlesticks.get(0));
-
-            // 使用转换器将蜡烛图实体转换为条形系列
-            BarSeries series = barSeriesConverter.convert(candlesticks, seriesName);
-
             // 获取所有支持的策略
             Map<String, Map<String, Object>> strategiesInfo = strategyInfoService.getStrategiesInfo();
             List<String> strategyCodes = new ArrayList<>(strategiesInfo.keySet());
 
             log.info("找到{}个策略，准备执行批量回测", strategyCodes.size());
 
+            // 先查回测结果缓存，只有未命中的策略需要重新计算；数据指纹需要遍历全部K线，所有策略共用一次计算结果
+            Map<String, String> cacheKeys = new HashMap<>();
+            Map<String, BacktestResultDTO> cachedResults = new HashMap<>();
+            List<String> uncachedCodes = new ArrayList<>();
+            String dataFingerprint = backtestResultCacheService.dataFingerprint(series, benchmarkCandlesticks);
+            for (String strategyCode : strategyCodes) {
+                String cacheKey = backtestResultCacheService.buildKey(strategyCode, symbol, interval, startTime, endTime,
+                        initialAmount, feeRatio, dataFingerprint);
+                cacheKeys.put(strategyCode, cacheKey);
+                BacktestResultDTO cached = bypassCache ? null : backtestResultCacheService.get(cacheKey);
+                if (cached != null) {
+                    cachedResults.put(strategyCode, cached);
+                } else {
+                    uncachedCodes.add(strategyCode);
+                }
+            }
+            log.info("回测结果缓存命中{}个策略，需要计算{}个策略", cachedResults.size(), uncachedCodes.size());
+
+            // 融合模式下先一次遍历完成所有未命中策略的回测，下面的任务只负责保存和汇总结果
+            Map<String, BacktestResultDTO> fusedResults = fused && !uncachedCodes.isEmpty()
+                    ? ta4jBacktestService.backtestFused(series, benchmarkCandlesticks, uncachedCodes, initialAmount, feeRatio, interval,
+                    scheduler, threadCount, pruningPolicy)
+                    : null;
+
             // 创建线程池
             List<CompletableFuture<Void>> futures = new ArrayList<>();
 
@@ -277,7 +358,15 @@ public class Ta4jBacktestController {
                         // 执行回测 - 添加额外的异常处理
                         BacktestResultDTO result = null;
                         try {
-                            result = ta4jBacktestService.backtest(series, benchmarkCandlesticks, currentStrategyCode, initialAmount, feeRatio, interval);
+                            result = cachedResults.get(currentStrategyCode);
+                            if (result == null) {
+                                result = fusedResults != null ? fusedResults.get(currentStrategyCode)
+                                        : ta4jBacktestService.backtest(series, benchmarkCandlesticks, currentStrategyCode, initialAmount, feeRatio, interval, pruningPolicy);
+                                // 被剪枝的结果只有部分统计，不进入缓存
+                                if (!result.isPruned()) {
+                                    backtestResultCacheService.put(cacheKeys.get(currentStrategyCode), currentStrategyCode, symbol, interval, result);
+                                }
+                            }
                         } catch (Exception backtestException) {
                             log.error("策略 {} 回测执行失败: {}", currentStrategyCode, backtestException.getMessage());
                             // 创建一个失败的结果对象
@@ -296,7 +385,7 @@ public class Ta4jBacktestController {
                         result.setStrategyCode((String) strategyDetails.get("strategy_code"));
 
                         // 如果需要保存结果到数据库
-                        if (saveResult && result.isSuccess()) {
+                        if (saveResult && result.isSuccess() && !result.isPruned()) {
                             try {
                                 // 保存交易明细
                                 String backtestId = backtestTradeService.saveBacktestTrades(symbol, result, defaultParams);
@@ -327,6 +416,15 @@ public class Ta4jBacktestController {
                             resultMap.put("sharpe_ratio", result.getSharpeRatio() != null ? result.getSharpeRatio() : BigDecimal.ZERO);
                             resultMap.put("max_drawdown", result.getMaxDrawdown() != null ? result.getMaxDrawdown() : BigDecimal.ZERO);
                             resultMap.put("backtest_id", result.getBacktestId());
+                            if (result.isPruned()) {
+                                resultMap.put("pruned", true);
+                                resultMap.put("prune_reason", result.getPruneReason());
+                                resultMap.put("processed_bars", result.getProcessedBars());
+                            }
+                            if (monteCarloSimulations > 0 && !result.isPruned()) {
+                                resultMap.put("monte_carlo", monteCarloAnalysisService.analyze(
+                                        series, result, feeRatio, monteCarloSimulations, 0, null));
+                            }
 
                             log.info("策略 {} 回测成功 - 收益率: {}%, 交易次数: {}, 胜率: {}%",
                                     strategyDetails.get("name"),
@@ -456,6 +554,299 @@ public class Ta4jBacktestController {
         }
     }
 
+    @GetMapping("/series-cache/stats")
+    @ApiOperation(value = "获取回测条形系列缓存统计", notes = "返回命中、未命中、尾部扩展、淘汰次数以及当前缓存的K线总数")
+    public ApiResponse<Map<String, Object>> getSeriesCacheStats() {
+        return ApiResponse.success(barSeriesCacheService.getStats());
+    }
+
+    @GetMapping("/result-cache/stats")
+    @ApiOperation(value = "获取回测结果缓存统计", notes = "返回命中、未命中、写入、失效次数以及命中率")
+    public ApiResponse<Map<String, Object>> getResultCacheStats() {
+        return ApiResponse.success(backtestResultCacheService.getStats());
+    }
+
+    @GetMapping("/portfolio")
+    @ApiOperation(value = "执行多品种组合回测", notes = "多个交易对共享一个现金池，按时间戳归并各品种K线在同一事件循环中执行各自策略的信号")
+    public ApiResponse<PortfolioBacktestResultDTO> runPortfolioBacktest(
+            @ApiParam(value = "交易对 (以逗号分隔)", required = true, example = "BTC-USDT,ETH-USDT,SOL-USDT", type = "string")
+            @RequestParam String symbols,
+            @ApiParam(value = "策略代码 (以逗号分隔，与交易对一一对应；只传一个则所有交易对使用同一策略)", required = true, example = "SMA", type = "string")
+            @RequestParam String strategyCodes,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "结束时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2025-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @ApiParam(value = "初始资金", defaultValue = "100000", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "100000") BigDecimal initialAmount,
+            @ApiParam(value = "交易手续费率", defaultValue = "0.001", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "0.001") BigDecimal feeRatio,
+            @ApiParam(value = "同时持仓的品种数上限，0表示等于交易对数量", defaultValue = "0", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "0") int maxPositions) {
+
+        List<String> symbolList = Arrays.stream(symbols.split(",")).map(String::trim).filter(StringUtils::isNotBlank)
+                .distinct().collect(Collectors.toList());
+        List<String> strategyList = Arrays.stream(strategyCodes.split(",")).map(String::trim).filter(StringUtils::isNotBlank)
+                .collect(Collectors.toList());
+        log.info("开始执行组合回测，交易对数量: {}, 策略: {}, 间隔: {}, 时间范围: {} - {}, 持仓上限: {}",
+                symbolList.size(), strategyList, interval, startTime, endTime, maxPositions);
+        try {
+            if (symbolList.isEmpty()) {
+                return ApiResponse.error(400, "交易对不能为空");
+            }
+            PortfolioBacktestResultDTO result = portfolioBacktestService.backtest(symbolList, strategyList, interval,
+                    startTime, endTime, initialAmount, feeRatio, maxPositions);
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("组合回测过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "组合回测过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/monte-carlo")
+    @ApiOperation(value = "执行蒙特卡洛稳健性分析", notes = "对单个策略的回测交易序列做重排、重采样和分块自助法模拟，返回最终资金、最大回撤和夏普比率的分布")
+    public ApiResponse<MonteCarloResultDTO> runMonteCarlo(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "结束时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2025-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @ApiParam(value = "策略类型", required = true, example = "SMA", type = "string")
+            @RequestParam String strategyType,
+            @ApiParam(value = "模拟次数", defaultValue = "10000", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "10000") int simulations,
+            @ApiParam(value = "分块自助法块长度，0表示按K线数自动选择", defaultValue = "0", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "0") int blockSize,
+            @ApiParam(value = "随机数种子", required = false, type = "integer")
+            @RequestParam(required = false) Long seed,
+            @ApiParam(value = "初始资金", defaultValue = "100000", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "100000") BigDecimal initialAmount,
+            @ApiParam(value = "交易手续费率", defaultValue = "0.001", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "0.001") BigDecimal feeRatio) {
+
+        log.info("开始执行蒙特卡洛分析，交易对: {}, 间隔: {}, 时间范围: {} - {}, 策略: {}, 模拟次数: {}",
+                symbol, interval, startTime, endTime, strategyType, simulations);
+        try {
+            BarSeries series = barSeriesCacheService.getSeries(symbol, interval, startTime, endTime);
+            if (series.isEmpty()) {
+                return ApiResponse.error(404, "未找到指定条件的历史数据");
+            }
+            List<CandlestickEntity> benchmarkCandlesticks = barSeriesCacheService.getBenchmark("BTC-USDT", interval, startTime, endTime);
+            BacktestResultDTO backtest = ta4jBacktestService.backtest(series, benchmarkCandlesticks, strategyType, initialAmount, feeRatio, interval);
+            if (!backtest.isSuccess()) {
+                return ApiResponse.error(500, "回测执行失败: " + backtest.getErrorMessage());
+            }
+            return ApiResponse.success(monteCarloAnalysisService.analyze(series, backtest, feeRatio, simulations, blockSize, seed));
+        } catch (Exception e) {
+            log.error("蒙特卡洛分析过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "蒙特卡洛分析过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/incremental")
+    @ApiOperation(value = "增量刷新回测", notes = "首次调用完整回测并保存检查点，之后只处理检查点之后新收盘的K线；默认只返回交易统计，需要夏普比率等完整指标时传fullMetrics=true")
+    public ApiResponse<IncrementalBacktestResultDTO> runIncrementalBacktest(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "策略类型", required = true, example = "SMA", type = "string")
+            @RequestParam String strategyType,
+            @ApiParam(value = "初始资金", defaultValue = "100000", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "100000") BigDecimal initialAmount,
+            @ApiParam(value = "交易手续费率", defaultValue = "0.001", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "0.001") BigDecimal feeRatio,
+            @ApiParam(value = "是否计算完整指标", defaultValue = "false", required = false, type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean fullMetrics) {
+        try {
+            IncrementalBacktestResultDTO result = incrementalBacktestService.refresh(strategyType, symbol, interval, startTime,
+                    initialAmount, feeRatio, fullMetrics);
+            if (!result.getResult().isSuccess() && result.getProcessedBars() == 0) {
+                return ApiResponse.error(404, result.getResult().getErrorMessage());
+            }
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("增量回测过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "增量回测过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/incremental/reset")
+    @ApiOperation(value = "丢弃增量回测检查点", notes = "历史K线被回补修正后调用，下次刷新重新完整回测")
+    public ApiResponse<Integer> resetIncrementalBacktest(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval) {
+        return ApiResponse.success(incrementalBacktestService.reset(symbol, interval));
+    }
+
+    @GetMapping("/sweep")
+    @ApiOperation(value = "指标周期参数扫描", notes = "基于前缀和指标库一次遍历回测一组周期，返回按夏普比率排序的各周期表现")
+    public ApiResponse<ParameterSweepResultDTO> runParameterSweep(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "结束时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2025-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @ApiParam(value = "策略族：SMA、BOLLINGER、DONCHIAN、RSI", defaultValue = "SMA", required = true, type = "string")
+            @RequestParam String family,
+            @ApiParam(value = "起始周期", defaultValue = "5", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "5") int periodFrom,
+            @ApiParam(value = "结束周期（包含）", defaultValue = "200", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "200") int periodTo,
+            @ApiParam(value = "周期步长", defaultValue = "1", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "1") int periodStep,
+            @ApiParam(value = "布林带标准差倍数", defaultValue = "2.0", required = false, type = "number")
+            @RequestParam(required = false, defaultValue = "2.0") double multiplier,
+            @ApiParam(value = "交易手续费率", defaultValue = "0.001", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "0.001") BigDecimal feeRatio,
+            @ApiParam(value = "是否开启剪枝：没有希望的周期提前终止，只返回部分统计", defaultValue = "false", required = false, type = "boolean")
+            @RequestParam(required = false, defaultValue = "false") boolean prune) {
+
+        log.info("开始执行参数扫描，交易对: {}, 间隔: {}, 时间范围: {} - {}, 策略族: {}, 周期: {}-{} 步长 {}, 剪枝: {}",
+                symbol, interval, startTime, endTime, family, periodFrom, periodTo, periodStep, prune);
+        try {
+            if (periodStep <= 0 || periodFrom > periodTo) {
+                return ApiResponse.error(400, "周期范围无效");
+            }
+            List<Integer> periods = new ArrayList<>();
+            for (int period = periodFrom; period <= periodTo; period += periodStep) {
+                periods.add(period);
+            }
+
+            BarSeries series = barSeriesCacheService.getSeries(symbol, interval, startTime, endTime);
+            if (series.isEmpty()) {
+                return ApiResponse.error(404, "未找到指定条件的历史数据");
+            }
+
+            ParameterSweepResultDTO result = parameterSweepService.sweep(series, family.toUpperCase(), periods, multiplier, feeRatio,
+                    prune ? backtestPruningPolicy : PruningPolicy.disabled());
+            if (!result.isSuccess()) {
+                return ApiResponse.error(400, result.getErrorMessage());
+            }
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("参数扫描过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "参数扫描过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/genetic-search")
+    @ApiOperation(value = "规则组合遗传搜索", notes = "以已注册策略的入场/出场规则为基因，搜索AND/OR规则组合，按收益率、回撤和综合评分做多目标选择，帕累托前沿保存到回测汇总表")
+    public ApiResponse<GeneticSearchResultDTO> runGeneticSearch(@Valid @RequestBody GeneticSearchRequestDTO request) {
+        log.info("开始执行规则组合遗传搜索，交易对: {}, 间隔: {}, 时间范围: {} - {}, 种群大小: {}, 代数: {}",
+                request.getSymbol(), request.getInterval(), request.getStartTime(), request.getEndTime(),
+                request.getPopulationSize(), request.getGenerations());
+        try {
+            BarSeries series = barSeriesCacheService.getSeries(request.getSymbol(), request.getInterval(),
+                    request.getStartTime(), request.getEndTime());
+            if (series.isEmpty()) {
+                return ApiResponse.error(404, "未找到指定条件的历史数据");
+            }
+            List<CandlestickEntity> benchmarkCandlesticks = barSeriesCacheService.getBenchmark("BTC-USDT", request.getInterval(),
+                    request.getStartTime(), request.getEndTime());
+
+            GeneticSearchResultDTO result = geneticStrategySearchService.search(series, benchmarkCandlesticks, request);
+            if (!result.isSuccess()) {
+                return ApiResponse.error(400, result.getErrorMessage());
+            }
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("规则组合遗传搜索过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "规则组合遗传搜索过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/walk-forward")
+    @ApiOperation(value = "执行走步分析", notes = "按滚动折叠在样本内选出最优策略，在随后的样本外区间评估，返回拼接后的样本外表现")
+    public ApiResponse<WalkForwardResultDTO> runWalkForward(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "结束时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2025-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @ApiParam(value = "候选策略代码 (以逗号分隔)，不传则使用所有已注册策略", required = false, example = "SMA,EMA,RSI", type = "string")
+            @RequestParam(required = false) String strategyCodes,
+            @ApiParam(value = "折叠数", defaultValue = "10", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "10") int folds,
+            @ApiParam(value = "样本内比例", defaultValue = "0.7", required = false, type = "number")
+            @RequestParam(required = false, defaultValue = "0.7") double inSampleRatio,
+            @ApiParam(value = "样本内优化目标：SHARPE 或 RETURN", defaultValue = "SHARPE", required = false, type = "string")
+            @RequestParam(required = false, defaultValue = WalkForwardAnalysisService.OBJECTIVE_SHARPE) String objective,
+            @ApiParam(value = "初始资金", defaultValue = "100000", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "100000") BigDecimal initialAmount,
+            @ApiParam(value = "交易手续费率", defaultValue = "0.001", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "0.001") BigDecimal feeRatio) {
+
+        log.info("开始执行走步分析，交易对: {}, 间隔: {}, 时间范围: {} - {}, 折叠数: {}, 样本内比例: {}, 优化目标: {}",
+                symbol, interval, startTime, endTime, folds, inSampleRatio, objective);
+        try {
+            List<String> candidates = StringUtils.isBlank(strategyCodes)
+                    ? new ArrayList<>(new TreeSet<>(StrategyRegisterCenter.strategyCreators.keySet()))
+                    : Arrays.stream(strategyCodes.split(",")).map(String::trim).filter(StringUtils::isNotBlank).collect(Collectors.toList());
+            if (candidates.isEmpty()) {
+                return ApiResponse.error(400, "没有可用的候选策略");
+            }
+
+            BarSeries series = barSeriesCacheService.getSeries(symbol, interval, startTime, endTime);
+            if (series.isEmpty()) {
+                return ApiResponse.error(404, "未找到指定条件的历史数据");
+            }
+
+            WalkForwardResultDTO result = walkForwardAnalysisService.analyze(series, candidates, folds, inSampleRatio,
+                    objective.toUpperCase(), initialAmount, feeRatio);
+            result.setSymbol(symbol);
+            result.setInterval(interval);
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("走步分析过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "走步分析过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/live-replay")
+    @ApiOperation(value = "实时策略历史回放", notes = "用已保存的历史K线驱动实时策略的处理路径，订单进入模拟交易所，不写数据库；返回吞吐量和实时信号与回测信号的比对结果")
+    public ApiResponse<LiveReplayResultDTO> runLiveReplay(
+            @ApiParam(value = "交易对", defaultValue = "BTC-USDT", required = true, type = "string") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", defaultValue = "1H", required = true, type = "string") @RequestParam String interval,
+            @ApiParam(value = "开始时间 (格式: yyyy-MM-dd HH:mm:ss)，包含预热K线", example = "2023-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @ApiParam(value = "结束时间 (格式: yyyy-MM-dd HH:mm:ss)", example = "2024-01-01 00:00:00", required = true, type = "string")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @ApiParam(value = "策略代码 (以逗号分隔)，不传则使用所有已注册策略", required = false, example = "SMA,EMA,RSI", type = "string")
+            @RequestParam(required = false) String strategyCodes,
+            @ApiParam(value = "每个策略的实例数，用于压测", defaultValue = "1", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "1") int copies,
+            @ApiParam(value = "预热K线数", defaultValue = "100", required = false, type = "integer")
+            @RequestParam(required = false, defaultValue = "100") int warmupBars,
+            @ApiParam(value = "每个策略实例的下单金额", defaultValue = "100", required = false, type = "number", format = "decimal")
+            @RequestParam(required = false, defaultValue = "100") BigDecimal tradeAmount) {
+
+        log.info("开始实时策略历史回放，交易对: {}, 间隔: {}, 时间范围: {} - {}, 策略: {}, 实例数: {}",
+                symbol, interval, startTime, endTime, strategyCodes, copies);
+        try {
+            List<String> codes = StringUtils.isBlank(strategyCodes)
+                    ? new ArrayList<>(new TreeSet<>(StrategyRegisterCenter.strategyCreators.keySet()))
+                    : Arrays.stream(strategyCodes.split(",")).map(String::trim).filter(StringUtils::isNotBlank).collect(Collectors.toList());
+            List<CandlestickEntity> candlesticks = historicalDataService.getHistoricalData(symbol, interval, startTime, endTime);
+            if (candlesticks.isEmpty()) {
+                return ApiResponse.error(404, "未找到指定条件的历史数据");
+            }
+
+            LiveReplayResultDTO result = liveReplayService.replay(candlesticks, symbol, interval, codes, copies, warmupBars, tradeAmount);
+            if (!result.isSuccess()) {
+                return ApiResponse.error(400, result.getErrorMessage());
+            }
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            log.error("实时策略历史回放过程中发生错误: {}", e.getMessage(), e);
+            return ApiResponse.error(500, "实时策略历史回放过程中发生错误: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/strategies")
     @ApiOperation(value = "获取支持的策略类型和参数说明", notes = "返回系统支持的所有策略类型和对应的参数说明")
     public ApiResponse<Map<String, Map<String, Object>>> getStrategies() {
@@ -1007,10 +1398,14 @@ public class Ta4jBacktestController {
             @ApiParam(value = "策略代码", required = true, example = "STOCHASTIC") @RequestParam String strategyCode,
             @ApiParam(value = "交易对", required = true, example = "BTC-USDT") @RequestParam String symbol,
             @ApiParam(value = "时间间隔", required = true, example = "1D") @RequestParam String interval,
-            @ApiParam(value = "交易金额", required = false, example = "20") @RequestParam(required = true) BigDecimal tradeAmount) {
+            @ApiParam(value = "交易金额", required = false, example = "20") @RequestParam(required = true) BigDecimal tradeAmount,
+            @ApiParam(value = "评估时机：ON_CLOSE（K线完结时评估）、THROTTLED（K线内按间隔评估）、EVERY_TICK（每次推送都评估）", required = false, example = "ON_CLOSE")
+            @RequestParam(required = false, defaultValue = "ON_CLOSE") String evaluationMode,
+            @ApiParam(value = "THROTTLED模式下K线内两次评估的最小间隔（毫秒）", required = false, example = "1000")
+            @RequestParam(required = false, defaultValue = "1000") Long evaluationIntervalMs) {
         try {
 
-            log.info("开始实时策略回测: strategyCode={}, symbol={}, interval={}", strategyCode, symbol, interval);
+            log.info("开始实时策略回测: strategyCode={}, symbol={}, interval={}, evaluationMode={}", strategyCode, symbol, interval, evaluationMode);
             LocalDateTime now = LocalDateTime.now();
             // 1. 验证策略是否存在
             Optional<StrategyInfoEntity> strategyOpt = strategyInfoService.getStrategyByCode(strategyCode);
@@ -1019,6 +1414,8 @@ public class Ta4jBacktestController {
             }
             StrategyInfoEntity strategy = strategyOpt.get();
             RealTimeStrategyEntity realTimeStrategy = new RealTimeStrategyEntity(strategyCode, symbol, interval, now, tradeAmount.doubleValue(),strategy.getStrategyName());
+            realTimeStrategy.setEvaluationMode(EvaluationMode.of(evaluationMode).name());
+            realTimeStrategy.setEvaluationIntervalMs(evaluationIntervalMs);
             realTimeStrategyManager.addStrategy(realTimeStrategy);
 
             // 4. 初始化实时回测状态
@@ -1044,6 +1441,7 @@ public class Ta4jBacktestController {
             response.put("symbol", symbol);
             response.put("interval", interval);
             response.put("tradeAmount", tradeAmount);
+            response.put("evaluationMode", realTimeStrategy.getEvaluationMode());
             response.put("status", "RUNNING");
             response.put("startTime", now.format(dateFormat));
 
@@ -1056,6 +1454,26 @@ public class Ta4jBacktestController {
     }
 
 
+    /**
+     * 修改运行中实时策略的评估时机
+     */
+    @PostMapping("/real-time/evaluation-mode")
+    @ApiOperation(value = "修改实时策略评估时机", notes = "ON_CLOSE只在K线完结时评估，THROTTLED在K线内按间隔评估，EVERY_TICK每次推送都评估")
+    public ApiResponse<RealTimeStrategyEntity> updateRealTimeEvaluationMode(
+            @ApiParam(value = "策略代码", required = true, example = "STOCHASTIC") @RequestParam String strategyCode,
+            @ApiParam(value = "交易对", required = true, example = "BTC-USDT") @RequestParam String symbol,
+            @ApiParam(value = "时间间隔", required = true, example = "1D") @RequestParam String interval,
+            @ApiParam(value = "评估时机", required = true, example = "THROTTLED") @RequestParam String evaluationMode,
+            @ApiParam(value = "THROTTLED模式下K线内两次评估的最小间隔（毫秒）", required = false, example = "1000")
+            @RequestParam(required = false, defaultValue = "1000") Long evaluationIntervalMs) {
+        RealTimeStrategyEntity state = realTimeStrategyManager.updateEvaluationPolicy(strategyCode, symbol, interval,
+                EvaluationMode.of(evaluationMode), evaluationIntervalMs);
+        if (state == null) {
+            return ApiResponse.error(404, "实时策略未运行: " + strategyCode);
+        }
+        return ApiResponse.success(state);
+    }
+
     /**
      * 执行交易订单
      */
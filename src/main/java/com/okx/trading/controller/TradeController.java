@@ -63,6 +63,28 @@ public class TradeController {
         return ApiResponse.success(orders);
     }
 
+    /**
+     * 查询单个订单
+     *
+     * @param symbol  交易对，如BTC-USDT
+     * @param orderId 订单ID
+     * @return 订单的最新状态，不存在时data为null
+     */
+    @ApiOperation("查询单个订单")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "symbol", value = "交易对", required = true, dataType = "String", example = "BTC-USDT", paramType = "query"),
+            @ApiImplicitParam(name = "orderId", value = "订单ID", required = true, dataType = "String", example = "123456789", paramType = "query")
+    })
+    @GetMapping("/order")
+    public ApiResponse<Order> getOrder(
+            @NotBlank(message = "交易对不能为空") @RequestParam String symbol,
+            @NotBlank(message = "订单ID不能为空") @RequestParam String orderId) {
+
+        log.info("查询订单, symbol: {}, orderId: {}", symbol, orderId);
+
+        return ApiResponse.success(okxApiService.getOrder(symbol, orderId));
+    }
+
     /**
      * 创建现货订单
      *
@@ -139,6 +161,26 @@ public class TradeController {
         return ApiResponse.success(order);
     }
 
+    /**
+     * 批量创建现货订单
+     *
+     * @param orderRequests 订单请求列表，最多20个
+     * @return 与请求顺序一致的订单，被拒绝的订单状态为REJECTED
+     */
+    @ApiOperation(value = "批量创建现货订单", notes = "一次请求提交最多20个现货订单，单个订单被拒绝不影响同批其他订单")
+    @PostMapping("/batch-spot-orders")
+    public ApiResponse<List<Order>> createSpotOrders(@RequestBody List<OrderRequest> orderRequests) {
+        if (orderRequests == null || orderRequests.isEmpty()) {
+            return ApiResponse.error(400, "订单列表不能为空");
+        }
+        if (orderRequests.size() > OkxApiService.BATCH_ORDER_LIMIT) {
+            return ApiResponse.error(400, "批量下单每次最多" + OkxApiService.BATCH_ORDER_LIMIT + "个订单");
+        }
+        log.info("批量创建现货订单, 订单数: {}", orderRequests.size());
+
+        return ApiResponse.success(okxApiService.createSpotOrders(orderRequests));
+    }
+
     /**
      * 创建合约订单
      *
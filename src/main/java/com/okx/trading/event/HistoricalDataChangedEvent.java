@@ -0,0 +1,77 @@
+package com.okx.trading.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * 历史K线数据变更事件
+ * 回补或新增历史K线入库后触发
+ */
+@Getter
+public class HistoricalDataChangedEvent extends ApplicationEvent {
+
+    /**
+     * 交易对符号
+     */
+    private final String symbol;
+
+    /**
+     * K线时间间隔
+     */
+    private final String interval;
+
+    /**
+     * 新增K线中最早的开盘时间，为null时表示范围未知
+     */
+    private final LocalDateTime from;
+
+    /**
+     * 新增K线中最晚的开盘时间，为null时表示范围未知
+     */
+    private final LocalDateTime to;
+
+    /**
+     * 创建历史K线数据变更事件，变更范围未知
+     *
+     * @param source   事件源
+     * @param symbol   交易对符号
+     * @param interval K线时间间隔
+     */
+    public HistoricalDataChangedEvent(Object source, String symbol, String interval) {
+        this(source, symbol, interval, null, null);
+    }
+
+    /**
+     * 创建历史K线数据变更事件
+     *
+     * @param source   事件源
+     * @param symbol   交易对符号
+     * @param interval K线时间间隔
+     * @param from     新增K线中最早的开盘时间
+     * @param to       新增K线中最晚的开盘时间
+     */
+    public HistoricalDataChangedEvent(Object source, String symbol, String interval, LocalDateTime from, LocalDateTime to) {
+        super(source);
+        this.symbol = symbol;
+        this.interval = interval;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * 变更是否落在开盘时间范围内，范围未知时视为落在范围内
+     * 只在已缓存的最后一根K线之后追加的新K线不影响已缓存的数据
+     *
+     * @param start 已缓存数据的第一根K线开盘时间，为null时不限
+     * @param end   已缓存数据的最后一根K线开盘时间
+     * @return 是否需要丢弃已缓存的数据
+     */
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        if (from == null || to == null) {
+            return true;
+        }
+        return !from.isAfter(end) && (start == null || !to.isBefore(start));
+    }
+}
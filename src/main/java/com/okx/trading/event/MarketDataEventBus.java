@@ -0,0 +1,401 @@
+package com.okx.trading.event;
+
+import com.okx.trading.model.market.Candlestick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 行情事件环形总线
+ * WebSocket读线程只把解析好的K线写入预分配的环形数组就返回，各消费者在自己的线程上按各自的序号读取，
+ * 一个消费者变慢不会阻塞读线程，也不会拖慢其他消费者。
+ * <p>
+ * 写入方从不等待：消费者落后超过环的容量时，被覆盖的未完结K线计为丢弃，消费者跳到仍然有效的最早位置继续；
+ * 被覆盖的已完结K线在覆盖前转入该消费者的溢出队列，消费者按序号把它们与环中的事件合并后交付，不会丢失，
+ * 溢出队列只在消费者被套圈时增长，每个条形系列每根K线最多一条。
+ * 消费者每次取出一批积压的事件，同一交易对、频道和开盘时间的多条未完结更新只处理最新的一条，
+ * 之后已有同一根K线完结推送的更新也被合并；已完结的K线总是按顺序交付。
+ * <p>
+ * 槽位采用序号校验读取：写入时先把槽位序号置为-1，写完数据后再写入新序号，
+ * 消费者读取数据前后两次核对序号，不一致说明读取期间被覆盖，按丢弃处理
+ */
+public class MarketDataEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataEventBus.class);
+
+    /**
+     * 消费者无事件可读时的最长等待时间，写入方发布事件时会主动唤醒
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * 事件处理器
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void onKline(String symbol, String interval, Candlestick candlestick);
+    }
+
+    private final Slot[] ring;
+    private final int mask;
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private volatile long cursor = -1;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity 环的容量，向上取整为2的幂
+     */
+    public MarketDataEventBus(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * 发布一根K线，已完结的K线不参与合并
+     * 多个WebSocket连接的读线程可能同时发布，写入方之间互斥，消费者读取不加锁
+     */
+    public void publishKline(String channel, String symbol, String interval, Candlestick candlestick) {
+        synchronized (ring) {
+            long sequence = cursor + 1;
+            Slot slot = ring[(int) sequence & mask];
+            if (slot.candlestick != null && !slot.conflatable) {
+                spill(slot);
+            }
+            slot.sequence = -1;
+            slot.key = channel + "_" + symbol;
+            slot.symbol = symbol;
+            slot.interval = interval;
+            slot.candlestick = candlestick;
+            slot.conflatable = !candlestick.isConfirmed();
+            slot.sequence = sequence;
+            cursor = sequence;
+        }
+        for (Consumer consumer : consumers) {
+            if (consumer.waiting) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    /**
+     * 槽位中的已完结K线即将被覆盖，转入还没有处理到它的消费者的溢出队列
+     * 调用方需持有ring锁
+     */
+    private void spill(Slot slot) {
+        long overwritten = slot.sequence;
+        for (Consumer consumer : consumers) {
+            if (consumer.sequence < overwritten) {
+                consumer.spilled.add(new SpilledEvent(overwritten, slot.symbol, slot.interval, slot.candlestick));
+            }
+        }
+    }
+
+    /**
+     * 注册消费者并启动其线程，消费者从注册之后发布的事件开始读取
+     *
+     * @param name    消费者名称，用于线程名和统计
+     * @param handler 事件处理器
+     */
+    public void subscribe(String name, Handler handler) {
+        Consumer consumer = new Consumer(name, handler, cursor);
+        consumers.add(consumer);
+        consumer.thread.start();
+        log.info("行情事件总线注册消费者: {}", name);
+    }
+
+    /**
+     * 各消费者的积压、合并与丢弃统计
+     */
+    public List<ConsumerStats> getStats() {
+        List<ConsumerStats> stats = new ArrayList<>(consumers.size());
+        long published = cursor;
+        for (Consumer consumer : consumers) {
+            stats.add(new ConsumerStats(consumer.name, published + 1, consumer.sequence + 1, published - consumer.sequence,
+                    consumer.maxLag, consumer.processed.get(), consumer.conflated.get(), consumer.dropped.get(), consumer.failed.get()));
+        }
+        return stats;
+    }
+
+    /**
+     * 停止所有消费者线程
+     */
+    public void shutdown() {
+        running = false;
+        for (Consumer consumer : consumers) {
+            consumer.thread.interrupt();
+        }
+    }
+
+    private static final class Slot {
+        volatile long sequence = -1;
+        volatile String key;
+        volatile String symbol;
+        volatile String interval;
+        volatile Candlestick candlestick;
+        volatile boolean conflatable;
+    }
+
+    /**
+     * 被覆盖前转出的已完结K线
+     */
+    private static final class SpilledEvent {
+        private final long sequence;
+        private final String symbol;
+        private final String interval;
+        private final Candlestick candlestick;
+
+        SpilledEvent(long sequence, String symbol, String interval, Candlestick candlestick) {
+            this.sequence = sequence;
+            this.symbol = symbol;
+            this.interval = interval;
+            this.candlestick = candlestick;
+        }
+    }
+
+    private final class Consumer implements Runnable {
+
+        private final String name;
+        private final Handler handler;
+        private final Thread thread;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong conflated = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        // 已处理到的序号
+        private volatile long sequence;
+        private volatile long maxLag;
+        private volatile boolean waiting;
+        // 被覆盖的已完结K线，按序号递增
+        private final ConcurrentLinkedQueue<SpilledEvent> spilled = new ConcurrentLinkedQueue<>();
+
+        // 每批事件的本地副本，避免处理期间被写入方覆盖
+        private final String[] keys = new String[ring.length];
+        private final String[] symbols = new String[ring.length];
+        private final String[] intervals = new String[ring.length];
+        private final Candlestick[] candlesticks = new Candlestick[ring.length];
+        private final boolean[] conflatables = new boolean[ring.length];
+        private final long[] sequences = new long[ring.length];
+        private final boolean[] skipped = new boolean[ring.length];
+        private final Map<String, LocalDateTime> laterOpenTimes = new HashMap<>();
+        private final List<SpilledEvent> recovered = new ArrayList<>();
+
+        Consumer(String name, Handler handler, long sequence) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = sequence;
+            this.thread = new Thread(this, "行情事件-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long available = cursor;
+                if (available <= sequence) {
+                    waiting = true;
+                    if (cursor <= sequence) {
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                processBatch(available);
+            }
+        }
+
+        private void processBatch(long available) {
+            long lag = available - sequence;
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+            long next = sequence + 1;
+            // 被覆盖的事件数，其中已完结的K线会从溢出队列补回
+            long overwritten = 0;
+            if (available - next >= ring.length) {
+                overwritten = available - ring.length + 1 - next;
+                next = available - ring.length + 1;
+            }
+
+            int count = 0;
+            for (long s = next; s <= available; s++) {
+                Slot slot = ring[(int) s & mask];
+                if (slot.sequence != s) {
+                    overwritten++;
+                    continue;
+                }
+                keys[count] = slot.key;
+                symbols[count] = slot.symbol;
+                intervals[count] = slot.interval;
+                candlesticks[count] = slot.candlestick;
+                conflatables[count] = slot.conflatable;
+                if (slot.sequence != s) {
+                    overwritten++;
+                    continue;
+                }
+                sequences[count] = s;
+                count++;
+            }
+
+            // 溢出队列按序号递增，取出本批范围内的部分，更晚的留到下一批
+            recovered.clear();
+            SpilledEvent head;
+            while ((head = spilled.peek()) != null && head.sequence <= available) {
+                spilled.poll();
+                if (head.sequence > sequence) {
+                    recovered.add(head);
+                }
+            }
+
+            // 从后往前扫描，同一交易对和频道中，已有同一开盘时间的更晚事件时合并掉当前的未完结更新
+            laterOpenTimes.clear();
+            for (int i = count - 1; i >= 0; i--) {
+                LocalDateTime openTime = candlesticks[i].getOpenTime();
+                skipped[i] = conflatables[i] && openTime != null && openTime.equals(laterOpenTimes.get(keys[i]));
+                laterOpenTimes.put(keys[i], openTime);
+            }
+
+            // 环中读到的事件和补回的已完结K线按序号合并交付，环中已读到的同一事件不重复交付
+            int r = 0;
+            for (int i = 0; i <= count; i++) {
+                long s = i < count ? sequences[i] : Long.MAX_VALUE;
+                while (r < recovered.size() && recovered.get(r).sequence <= s) {
+                    SpilledEvent event = recovered.get(r++);
+                    if (event.sequence != s) {
+                        overwritten--;
+                        deliver(event.symbol, event.interval, event.candlestick);
+                    }
+                }
+                if (i == count) {
+                    break;
+                }
+                if (skipped[i]) {
+                    conflated.incrementAndGet();
+                } else {
+                    deliver(symbols[i], intervals[i], candlesticks[i]);
+                }
+                candlesticks[i] = null;
+            }
+            recovered.clear();
+
+            if (overwritten > 0) {
+                dropped.addAndGet(overwritten);
+                log.warn("行情事件消费者 {} 落后超过环容量，丢弃 {} 条未完结事件", name, overwritten);
+            }
+            sequence = available;
+        }
+
+        private void deliver(String symbol, String interval, Candlestick candlestick) {
+            try {
+                handler.onKline(symbol, interval, candlestick);
+                processed.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("行情事件消费者 {} 处理失败: symbol={}, error={}", name, symbol, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 消费者统计
+     */
+    public static final class ConsumerStats {
+
+        private final String name;
+        private final long published;
+        private final long consumed;
+        private final long lag;
+        private final long maxLag;
+        private final long processed;
+        private final long conflated;
+        private final long dropped;
+        private final long failed;
+
+        ConsumerStats(String name, long published, long consumed, long lag, long maxLag,
+                      long processed, long conflated, long dropped, long failed) {
+            this.name = name;
+            this.published = published;
+            this.consumed = consumed;
+            this.lag = lag;
+            this.maxLag = maxLag;
+            this.processed = processed;
+            this.conflated = conflated;
+            this.dropped = dropped;
+            this.failed = failed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 总线累计发布的事件数
+         */
+        public long getPublished() {
+            return published;
+        }
+
+        /**
+         * 消费者已读过的事件数（含合并和丢弃）
+         */
+        public long getConsumed() {
+            return consumed;
+        }
+
+        /**
+         * 当前积压的事件数
+         */
+        public long getLag() {
+            return lag;
+        }
+
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        /**
+         * 实际交给处理器的事件数
+         */
+        public long getProcessed() {
+            return processed;
+        }
+
+        /**
+         * 被同一交易对、频道和开盘时间的更晚事件合并掉的事件数
+         */
+        public long getConflated() {
+            return conflated;
+        }
+
+        /**
+         * 落后超过环容量被覆盖的未完结事件数，已完结的K线从溢出队列补回，不计入
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+    }
+}
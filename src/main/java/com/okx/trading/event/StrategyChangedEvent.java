@@ -0,0 +1,28 @@
+package com.okx.trading.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 策略变更事件
+ * 策略信息（包括动态策略源码）保存或删除时触发
+ */
+@Getter
+public class StrategyChangedEvent extends ApplicationEvent {
+
+    /**
+     * 策略代码
+     */
+    private final String strategyCode;
+
+    /**
+     * 创建策略变更事件
+     *
+     * @param source       事件源
+     * @param strategyCode 策略代码
+     */
+    public StrategyChangedEvent(Object source, String strategyCode) {
+        super(source);
+        this.strategyCode = strategyCode;
+    }
+}
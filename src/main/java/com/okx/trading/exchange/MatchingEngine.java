@@ -0,0 +1,234 @@
+package com.okx.trading.exchange;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存撮合引擎
+ * 每个交易对一本{@link OrderBook}，按交易对加锁，不同交易对之间可以并发撮合。
+ * 支持限价单(GTC)、IOC和市价单，允许部分成交；可以为交易对挂出做市报价，让市价单和穿价的限价单按参考价成交。
+ * 成交和撤单通过{@link ExecutionListener}回调，回调在交易对锁内同步执行，做市订单不产生回调
+ */
+public class MatchingEngine {
+
+    /**
+     * 价格和数量的换算精度
+     */
+    public static final int SCALE = 8;
+
+    public enum OrderType {
+        /**
+         * 剩余部分挂单，直到成交或撤销
+         */
+        LIMIT,
+        /**
+         * 立即成交，剩余部分撤销
+         */
+        IOC,
+        /**
+         * 不限价格立即成交，剩余部分撤销
+         */
+        MARKET
+    }
+
+    /**
+     * 订单执行回报
+     */
+    public interface ExecutionListener {
+
+        /**
+         * 订单成交
+         *
+         * @param symbol   交易对
+         * @param orderId  订单号
+         * @param price    成交价格
+         * @param quantity 成交数量
+         * @param leaves   剩余未成交数量
+         */
+        void onFill(String symbol, long orderId, long price, long quantity, long leaves);
+
+        /**
+         * 订单撤销
+         *
+         * @param symbol   交易对
+         * @param orderId  订单号
+         * @param quantity 撤销的剩余数量
+         */
+        void onCancel(String symbol, long orderId, long quantity);
+    }
+
+    private final Map<String, Market> markets = new ConcurrentHashMap<>();
+    private final AtomicLong houseOrderIds = new AtomicLong();
+    private final ExecutionListener listener;
+
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+
+    public MatchingEngine(ExecutionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 提交订单
+     *
+     * @param symbol   交易对
+     * @param orderId  订单号，必须为正数且在交易对内唯一
+     * @param buy      是否买入
+     * @param type     订单类型
+     * @param price    限价，市价单忽略
+     * @param quantity 数量
+     * @return 未成交数量，限价单这部分已挂单，其余类型这部分已撤销
+     */
+    public long submit(String symbol, long orderId, boolean buy, OrderType type, long price, long quantity) {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("订单号必须为正数: " + orderId);
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("订单数量必须大于0: " + quantity);
+        }
+        Market market = market(symbol);
+        long limit = type == OrderType.MARKET ? (buy ? Long.MAX_VALUE : 0) : price;
+        orders.increment();
+        synchronized (market) {
+            long leaves = market.book.submit(orderId, buy ? OrderBook.BUY : OrderBook.SELL, limit, quantity,
+                    type == OrderType.LIMIT, market);
+            if (leaves > 0 && type != OrderType.LIMIT) {
+                listener.onCancel(symbol, orderId, leaves);
+            }
+            return leaves;
+        }
+    }
+
+    /**
+     * 撤销挂单
+     *
+     * @return 订单仍在簿中并已撤销时返回true
+     */
+    public boolean cancel(String symbol, long orderId) {
+        Market market = markets.get(symbol);
+        if (market == null) {
+            return false;
+        }
+        synchronized (market) {
+            long canceled = market.book.cancel(orderId);
+            if (canceled < 0) {
+                return false;
+            }
+            listener.onCancel(symbol, orderId, canceled);
+            return true;
+        }
+    }
+
+    /**
+     * 刷新做市报价：撤掉上一组做市订单，在给定价格挂出新的买卖单。
+     * 新报价作为主动方进入订单簿，会先与穿价的挂单成交，价格移动时挂单因此按新价格成交
+     *
+     * @param bidPrice 做市买价
+     * @param askPrice 做市卖价，不低于买价
+     * @param quantity 每侧数量
+     */
+    public void quote(String symbol, long bidPrice, long askPrice, long quantity) {
+        if (askPrice < bidPrice) {
+            throw new IllegalArgumentException("做市卖价不能低于买价");
+        }
+        Market market = market(symbol);
+        synchronized (market) {
+            if (market.houseBid != 0) {
+                market.book.cancel(market.houseBid);
+                market.book.cancel(market.houseAsk);
+            }
+            market.houseBid = houseOrderIds.decrementAndGet();
+            market.houseAsk = houseOrderIds.decrementAndGet();
+            market.book.submit(market.houseBid, OrderBook.BUY, bidPrice, quantity, true, market);
+            market.book.submit(market.houseAsk, OrderBook.SELL, askPrice, quantity, true, market);
+        }
+    }
+
+    /**
+     * 最高买价，没有买单时返回-1
+     */
+    public long bestBid(String symbol) {
+        Market market = markets.get(symbol);
+        if (market == null) {
+            return -1;
+        }
+        synchronized (market) {
+            return market.book.bestBid();
+        }
+    }
+
+    /**
+     * 最低卖价，没有卖单时返回-1
+     */
+    public long bestAsk(String symbol) {
+        Market market = markets.get(symbol);
+        if (market == null) {
+            return -1;
+        }
+        synchronized (market) {
+            return market.book.bestAsk();
+        }
+    }
+
+    /**
+     * 挂单剩余数量，订单不在簿中时返回-1
+     */
+    public long leaves(String symbol, long orderId) {
+        Market market = markets.get(symbol);
+        if (market == null) {
+            return -1;
+        }
+        synchronized (market) {
+            return market.book.leaves(orderId);
+        }
+    }
+
+    public long getOrderCount() {
+        return orders.sum();
+    }
+
+    public long getFillCount() {
+        return fills.sum();
+    }
+
+    public static long toUnits(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.DOWN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    private Market market(String symbol) {
+        return markets.computeIfAbsent(symbol, Market::new);
+    }
+
+    /**
+     * 交易对的订单簿和做市订单，同时负责把订单簿的成交拆成双方的回报
+     */
+    private final class Market implements OrderBook.FillHandler {
+        private final String symbol;
+        private final OrderBook book = new OrderBook();
+        private long houseBid;
+        private long houseAsk;
+
+        private Market(String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public void onFill(long takerId, long takerLeaves, long makerId, long makerLeaves, long price, long quantity) {
+            fills.increment();
+            if (makerId > 0) {
+                listener.onFill(symbol, makerId, price, quantity, makerLeaves);
+            }
+            if (takerId > 0) {
+                listener.onFill(symbol, takerId, price, quantity, takerLeaves);
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.okx.trading.exchange;
+
+import java.util.Arrays;
+
+/**
+ * 单个交易对的限价订单簿
+ * 价格和数量都是按固定精度换算后的long。买卖两侧各用一组按价格排序的原始数组保存价位，最优价位在数组末尾，
+ * 成交或撤掉最优价位不需要移动元素；同一价位的订单按时间先后串成双向链表，订单字段保存在按槽位编号的原始数组中，
+ * 槽位回收复用，稳定运行时撮合不产生对象分配。
+ * <p>
+ * 订单号为负数的是做市订单，做市订单之间不会成交。非线程安全，由{@link MatchingEngine}按交易对加锁调用
+ */
+public class OrderBook {
+
+    public static final byte BUY = 0;
+    public static final byte SELL = 1;
+
+    private static final int NONE = -1;
+
+    /**
+     * 成交回报
+     */
+    public interface FillHandler {
+
+        /**
+         * @param takerId     主动方订单号
+         * @param takerLeaves 主动方剩余未成交数量
+         * @param makerId     被动方订单号
+         * @param makerLeaves 被动方剩余未成交数量
+         * @param price       成交价格，取被动方价格
+         * @param quantity    成交数量
+         */
+        void onFill(long takerId, long takerLeaves, long makerId, long makerLeaves, long price, long quantity);
+    }
+
+    private final Side bids = new Side();
+    private final Side asks = new Side();
+    private final LongIntMap index = new LongIntMap();
+
+    // 订单槽位，空闲槽位通过next串成链表
+    private long[] ids = new long[64];
+    private long[] prices = new long[64];
+    private long[] remaining = new long[64];
+    private byte[] sides = new byte[64];
+    private int[] next = new int[64];
+    private int[] prev = new int[64];
+    private int used;
+    private int freeHead = NONE;
+    private int orderCount;
+
+    /**
+     * 提交订单：先与对手方按价格优先、时间优先撮合，剩余部分按需挂单
+     *
+     * @param orderId  订单号，做市订单为负数
+     * @param side     方向
+     * @param price    限价，买单不高于该价格成交，卖单不低于该价格成交；市价单传极值
+     * @param quantity 数量
+     * @param rest     剩余部分是否挂单
+     * @param handler  成交回报
+     * @return 撮合后剩余的数量，rest为true时这部分已挂单
+     */
+    public long submit(long orderId, byte side, long price, long quantity, boolean rest, FillHandler handler) {
+        long leaves = quantity;
+        Side book = side == BUY ? asks : bids;
+        boolean houseTaker = orderId < 0;
+        while (leaves > 0 && book.count > 0) {
+            int level = book.count - 1;
+            long levelPrice = side == BUY ? -book.keys[level] : book.keys[level];
+            if (side == BUY ? levelPrice > price : levelPrice < price) {
+                break;
+            }
+            boolean blocked = false;
+            int slot = book.heads[level];
+            while (leaves > 0 && slot != NONE) {
+                long makerId = ids[slot];
+                if (houseTaker && makerId < 0) {
+                    blocked = true;
+                    break;
+                }
+                long fill = Math.min(leaves, remaining[slot]);
+                leaves -= fill;
+                long makerLeaves = remaining[slot] - fill;
+                remaining[slot] = makerLeaves;
+                book.quantities[level] -= fill;
+                int following = next[slot];
+                if (makerLeaves == 0) {
+                    book.heads[level] = following;
+                    if (following == NONE) {
+                        book.tails[level] = NONE;
+                    } else {
+                        prev[following] = NONE;
+                    }
+                    release(slot, makerId);
+                }
+                handler.onFill(orderId, leaves, makerId, makerLeaves, levelPrice, fill);
+                slot = following;
+            }
+            if (book.heads[level] == NONE) {
+                book.count--;
+            }
+            if (blocked) {
+                break;
+            }
+        }
+        if (rest && leaves > 0) {
+            add(orderId, side, price, leaves);
+        }
+        return leaves;
+    }
+
+    /**
+     * 撤销挂单
+     *
+     * @return 撤销的剩余数量，订单不在簿中时返回-1
+     */
+    public long cancel(long orderId) {
+        int slot = index.get(orderId);
+        if (slot == NONE) {
+            return -1;
+        }
+        Side book = sides[slot] == BUY ? bids : asks;
+        int level = book.find(sides[slot] == BUY ? prices[slot] : -prices[slot]);
+        long canceled = remaining[slot];
+        book.quantities[level] -= canceled;
+        if (prev[slot] == NONE) {
+            book.heads[level] = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            book.tails[level] = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+        if (book.heads[level] == NONE) {
+            book.remove(level);
+        }
+        release(slot, orderId);
+        return canceled;
+    }
+
+    /**
+     * 最高买价，没有买单时返回-1
+     */
+    public long bestBid() {
+        return bids.count == 0 ? -1 : bids.keys[bids.count - 1];
+    }
+
+    /**
+     * 最低卖价，没有卖单时返回-1
+     */
+    public long bestAsk() {
+        return asks.count == 0 ? -1 : -asks.keys[asks.count - 1];
+    }
+
+    /**
+     * 某一价位的挂单总量
+     */
+    public long depth(byte side, long price) {
+        Side book = side == BUY ? bids : asks;
+        int level = book.find(side == BUY ? price : -price);
+        return level < 0 ? 0 : book.quantities[level];
+    }
+
+    /**
+     * 挂单剩余数量，订单不在簿中时返回-1
+     */
+    public long leaves(long orderId) {
+        int slot = index.get(orderId);
+        return slot == NONE ? -1 : remaining[slot];
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getLevelCount(byte side) {
+        return side == BUY ? bids.count : asks.count;
+    }
+
+    private void add(long orderId, byte side, long price, long quantity) {
+        int slot = allocate();
+        ids[slot] = orderId;
+        prices[slot] = price;
+        remaining[slot] = quantity;
+        sides[slot] = side;
+        next[slot] = NONE;
+
+        Side book = side == BUY ? bids : asks;
+        long key = side == BUY ? price : -price;
+        int level = book.find(key);
+        if (level < 0) {
+            level = book.insert(-level - 1, key);
+        }
+        int tail = book.tails[level];
+        prev[slot] = tail;
+        if (tail == NONE) {
+            book.heads[level] = slot;
+        } else {
+            next[tail] = slot;
+        }
+        book.tails[level] = slot;
+        book.quantities[level] += quantity;
+        index.put(orderId, slot);
+        orderCount++;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (used == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            remaining = Arrays.copyOf(remaining, capacity);
+            sides = Arrays.copyOf(sides, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int slot, long orderId) {
+        index.remove(orderId);
+        next[slot] = freeHead;
+        freeHead = slot;
+        orderCount--;
+    }
+
+    /**
+     * 一侧的价位，按key升序排列，最优价位在末尾；买方key为价格，卖方key为价格取负
+     */
+    private static final class Side {
+        long[] keys = new long[32];
+        long[] quantities = new long[32];
+        int[] heads = new int[32];
+        int[] tails = new int[32];
+        int count;
+
+        /**
+         * 二分查找，找不到时返回 -(插入位置) - 1；新价位大多出现在最优价附近，先检查末尾
+         */
+        int find(long key) {
+            if (count > 0 && keys[count - 1] == key) {
+                return count - 1;
+            }
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else if (keys[mid] > key) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        int insert(int position, long key) {
+            if (count == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                heads = Arrays.copyOf(heads, capacity);
+                tails = Arrays.copyOf(tails, capacity);
+            }
+            int moved = count - position;
+            if (moved > 0) {
+                System.arraycopy(keys, position, keys, position + 1, moved);
+                System.arraycopy(quantities, position, quantities, position + 1, moved);
+                System.arraycopy(heads, position, heads, position + 1, moved);
+                System.arraycopy(tails, position, tails, position + 1, moved);
+            }
+            keys[position] = key;
+            quantities[position] = 0;
+            heads[position] = NONE;
+            tails[position] = NONE;
+            count++;
+            return position;
+        }
+
+        void remove(int position) {
+            int moved = count - position - 1;
+            if (moved > 0) {
+                System.arraycopy(keys, position + 1, keys, position, moved);
+                System.arraycopy(quantities, position + 1, quantities, position, moved);
+                System.arraycopy(heads, position + 1, heads, position, moved);
+                System.arraycopy(tails, position + 1, tails, position, moved);
+            }
+            count--;
+        }
+    }
+
+    /**
+     * 订单号到槽位的开放寻址哈希表，线性探测，删除时回移后续元素，不使用墓碑
+     */
+    private static final class LongIntMap {
+        private long[] keys = new long[128];
+        private int[] values = new int[128];
+        private boolean[] occupied = new boolean[128];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; occupied[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NONE;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (occupied[i]) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            occupied[i] = true;
+            size++;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (occupied[i] && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (!occupied[i]) {
+                return;
+            }
+            occupied[i] = false;
+            size--;
+            // 把同一探测链上后续的元素移到空出的位置
+            for (int j = (i + 1) & mask; occupied[j]; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    occupied[i] = true;
+                    occupied[j] = false;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldOccupied = occupied;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            occupied = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldOccupied[i]) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
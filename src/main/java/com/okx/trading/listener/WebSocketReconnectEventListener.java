@@ -1,38 +1,142 @@
 package com.okx.trading.listener;
 
 import com.okx.trading.event.WebSocketReconnectEvent;
+import com.okx.trading.model.market.Candlestick;
 import com.okx.trading.service.KlineCacheService;
 import com.okx.trading.service.OkxApiService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * WebSocket重连事件监听器
- * 处理WebSocket重连后的K线数据重新订阅
+ * 处理WebSocket重连后的K线数据重新订阅，并补齐实时策略条形系列在断线期间缺失的K线
  */
 @Component
 public class WebSocketReconnectEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(WebSocketReconnectEventListener.class);
 
+    /**
+     * 历史K线接口单次返回的最大条数
+     */
+    private static final int HISTORY_PAGE_SIZE = 100;
+
+    /**
+     * 单个条形系列补齐时最多请求的页数
+     */
+    private static final int MAX_BACKFILL_PAGES = 10;
+
     private final KlineCacheService klineCacheService;
     private final OkxApiService okxApiService;
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final ExecutorService historicalDataExecutorService;
 
     @Autowired
     public WebSocketReconnectEventListener(KlineCacheService klineCacheService,
-                                           @Lazy OkxApiService okxApiService) {
+                                           @Lazy OkxApiService okxApiService,
+                                           @Lazy RealTimeStrategyManager realTimeStrategyManager,
+                                           @Qualifier("historicalDataExecutorService") ExecutorService historicalDataExecutorService) {
         this.klineCacheService = klineCacheService;
         this.okxApiService = okxApiService;
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.historicalDataExecutorService = historicalDataExecutorService;
+    }
+
+    /**
+     * 重连后补齐实时策略条形系列的缺口
+     * 在发布事件的线程上同步标记所有条形系列进入补齐状态，之后到达的实时K线先缓存；
+     * 各交易对的缺失区间并行通过REST历史接口获取，按时间顺序补入后再处理缓存的实时K线
+     */
+    @EventListener
+    public void backfillGapsOnReconnect(WebSocketReconnectEvent event) {
+        if (event.getType() == WebSocketReconnectEvent.ReconnectType.PRIVATE) {
+            return;
+        }
+        Map<String, LocalDateTime> gaps = realTimeStrategyManager.beginReplay();
+        if (gaps.isEmpty()) {
+            return;
+        }
+        log.info("WebSocket重连({})，开始补齐 {} 个条形系列的缺口", event.getType(), gaps.size());
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, LocalDateTime> gap : gaps.entrySet()) {
+            String seriesKey = gap.getKey();
+            int split = seriesKey.lastIndexOf('_');
+            String symbol = seriesKey.substring(0, split);
+            String interval = seriesKey.substring(split + 1);
+            // 每个系列都必须结束补齐，否则策略停止评估，缓存的实时K线无限增长
+            try {
+                CompletableFuture.supplyAsync(() -> fetchMissedBars(symbol, interval, gap.getValue(), now), historicalDataExecutorService)
+                        .whenComplete((bars, e) -> {
+                            if (e != null) {
+                                log.error("获取缺失K线失败: symbol={}, interval={}, error={}", symbol, interval, e.getMessage());
+                            }
+                            finishReplay(symbol, interval, e == null ? bars : Collections.emptyList());
+                        });
+            } catch (RuntimeException e) {
+                log.error("提交缺失K线获取任务失败: symbol={}, interval={}, error={}", symbol, interval, e.getMessage());
+                finishReplay(symbol, interval, Collections.emptyList());
+            }
+        }
+    }
+
+    private void finishReplay(String symbol, String interval, List<Candlestick> bars) {
+        try {
+            realTimeStrategyManager.finishReplay(symbol, interval, bars);
+        } catch (Exception e) {
+            log.error("补入缺失K线失败: symbol={}, interval={}, error={}", symbol, interval, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 分页获取since之后到now之间已完结的K线
+     * 历史接口从新到旧返回，每页最多100条，按最早一根的开盘时间向前翻页
+     */
+    List<Candlestick> fetchMissedBars(String symbol, String interval, LocalDateTime since, long now) {
+        long sinceMillis = since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long endMillis = now;
+        List<Candlestick> bars = new ArrayList<>();
+        for (int page = 0; page < MAX_BACKFILL_PAGES; page++) {
+            List<Candlestick> batch = okxApiService.getHistoryKlineData(symbol, interval, sinceMillis, endMillis, HISTORY_PAGE_SIZE);
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            long oldest = endMillis;
+            for (Candlestick candlestick : batch) {
+                long openMillis = candlestick.getOpenTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                oldest = Math.min(oldest, openMillis);
+                // 只补已完结的K线，正在进行的K线等待实时推送
+                if (openMillis > sinceMillis && candlestick.getCloseTime() != null
+                        && !candlestick.getCloseTime().atZone(ZoneId.systemDefault()).toInstant().isAfter(Instant.ofEpochMilli(now))) {
+                    candlestick.setState(1);
+                    bars.add(candlestick);
+                }
+            }
+            if (batch.size() < HISTORY_PAGE_SIZE || oldest <= sinceMillis || oldest >= endMillis) {
+                break;
+            }
+            endMillis = oldest;
+        }
+        log.info("获取缺失K线完成: symbol={}, interval={}, since={}, 共 {} 根", symbol, interval, since, bars.size());
+        return bars;
     }
 
     /**
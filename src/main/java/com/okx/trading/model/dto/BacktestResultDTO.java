@@ -223,6 +223,21 @@ public class BacktestResultDTO {
      */
     private BigDecimal comprehensiveScore;
 
+    /**
+     * 是否在回测中途被剪枝；被剪枝的结果只有部分统计，没有交易明细和完整指标
+     */
+    private boolean pruned;
+
+    /**
+     * 剪枝原因
+     */
+    private String pruneReason;
+
+    /**
+     * 被剪枝前已处理的K线数
+     */
+    private Integer processedBars;
+
     public BacktestResultDTO() {
     }
 
@@ -0,0 +1,73 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 遗传搜索中的一个规则组合
+ */
+@Data
+public class GeneticCandidateDTO {
+
+    /**
+     * 组合描述，如 (SMA AND RSI) -> (BOLLINGER)
+     */
+    private String description;
+
+    /**
+     * 入场规则来源的策略代码
+     */
+    private List<String> entryRules;
+
+    /**
+     * 入场规则之间的组合方式：AND 或 OR
+     */
+    private String entryOperator;
+
+    /**
+     * 出场规则来源的策略代码
+     */
+    private List<String> exitRules;
+
+    /**
+     * 出场规则之间的组合方式：AND 或 OR
+     */
+    private String exitOperator;
+
+    /**
+     * 总收益率（按收盘价全仓复利，含手续费）
+     */
+    private BigDecimal totalReturn;
+
+    /**
+     * 净值曲线最大回撤
+     */
+    private BigDecimal maxDrawdown;
+
+    /**
+     * 综合评分
+     */
+    private BigDecimal comprehensiveScore;
+
+    /**
+     * 交易次数
+     */
+    private int numberOfTrades;
+
+    /**
+     * 非支配排序层级，0为帕累托前沿
+     */
+    private int paretoRank;
+
+    /**
+     * 是否因回撤超限被提前终止
+     */
+    private boolean pruned;
+
+    /**
+     * 保存到数据库后的回测ID
+     */
+    private String backtestId;
+}
@@ -0,0 +1,71 @@
+package com.okx.trading.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 规则组合遗传搜索请求DTO
+ */
+@Data
+@ApiModel(description = "规则组合遗传搜索请求参数")
+public class GeneticSearchRequestDTO {
+
+    @ApiModelProperty(value = "交易对", required = true, example = "BTC-USDT")
+    @NotBlank(message = "交易对不能为空")
+    private String symbol;
+
+    @ApiModelProperty(value = "K线间隔", required = true, example = "1H")
+    @NotBlank(message = "K线间隔不能为空")
+    private String interval;
+
+    @ApiModelProperty(value = "开始时间", required = true, example = "2023-01-01 00:00:00")
+    @NotNull(message = "开始时间不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @ApiModelProperty(value = "结束时间", required = true, example = "2025-01-01 00:00:00")
+    @NotNull(message = "结束时间不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    @ApiModelProperty(value = "作为基因的策略代码，为空时使用全部已注册策略", example = "[\"SMA\", \"RSI\", \"BOLLINGER\"]")
+    private List<String> strategyCodes;
+
+    @ApiModelProperty(value = "种群大小", example = "40")
+    private int populationSize = 40;
+
+    @ApiModelProperty(value = "迭代代数", example = "10")
+    private int generations = 10;
+
+    @ApiModelProperty(value = "入场规则最多组合几个", example = "3")
+    private int maxEntryRules = 3;
+
+    @ApiModelProperty(value = "出场规则最多组合几个", example = "2")
+    private int maxExitRules = 2;
+
+    @ApiModelProperty(value = "变异概率", example = "0.3")
+    private double mutationRate = 0.3;
+
+    @ApiModelProperty(value = "回撤剪枝阈值，回测中净值回撤超过该比例即提前终止", example = "0.5")
+    private double maxDrawdownLimit = 0.5;
+
+    @ApiModelProperty(value = "随机种子，相同种子和数据得到相同结果；为空时随机", example = "42")
+    private Long seed;
+
+    @ApiModelProperty(value = "初始资金", example = "100000")
+    private BigDecimal initialAmount = new BigDecimal("100000");
+
+    @ApiModelProperty(value = "交易手续费率", example = "0.001")
+    private BigDecimal feeRatio = new BigDecimal("0.001");
+
+    @ApiModelProperty(value = "保存到回测汇总表的帕累托前沿组合数量，0表示不保存", example = "10")
+    private int saveTopN = 10;
+}
@@ -0,0 +1,63 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 规则组合遗传搜索结果数据传输对象
+ */
+@Data
+public class GeneticSearchResultDTO {
+
+    /**
+     * 搜索是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果搜索失败）
+     */
+    private String errorMessage;
+
+    /**
+     * 保存结果时使用的批量回测ID
+     */
+    private String batchBacktestId;
+
+    /**
+     * 可用的基因（策略）数量
+     */
+    private int geneCount;
+
+    /**
+     * 实际完成的代数
+     */
+    private int generations;
+
+    /**
+     * 累计评估的不同组合数
+     */
+    private int evaluatedCandidates;
+
+    /**
+     * 被提前终止的组合数
+     */
+    private int prunedCandidates;
+
+    /**
+     * 每一代种群中的最高综合评分
+     */
+    private List<BigDecimal> bestScoreByGeneration;
+
+    /**
+     * 最终种群的帕累托前沿，按拥挤度排序
+     */
+    private List<GeneticCandidateDTO> paretoFront;
+
+    /**
+     * 计算耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
@@ -0,0 +1,59 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 增量回测结果数据传输对象
+ * 在回测结果之外给出检查点的续跑情况和未平仓头寸的状态
+ */
+@Data
+public class IncrementalBacktestResultDTO {
+
+    /**
+     * 回测结果；未要求完整指标时只包含交易统计部分
+     */
+    private BacktestResultDTO result;
+
+    /**
+     * 是否从已有检查点续跑
+     */
+    private boolean resumed;
+
+    /**
+     * 本次新处理的K线数
+     */
+    private int newBars;
+
+    /**
+     * 检查点累计处理的K线数
+     */
+    private int processedBars;
+
+    /**
+     * 最后一根已处理K线的收盘时间
+     */
+    private LocalDateTime lastBarTime;
+
+    /**
+     * 是否持有未平仓头寸
+     */
+    private boolean positionOpen;
+
+    /**
+     * 最后一根已处理K线收盘时的权益，包含未平仓头寸的浮动盈亏
+     */
+    private BigDecimal equity;
+
+    /**
+     * 按逐K线权益曲线计算的最大回撤
+     */
+    private BigDecimal equityMaxDrawdown;
+
+    /**
+     * 本次刷新耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
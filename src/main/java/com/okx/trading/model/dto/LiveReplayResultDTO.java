@@ -0,0 +1,88 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 实时策略历史回放结果数据传输对象
+ */
+@Data
+public class LiveReplayResultDTO {
+
+    /**
+     * 回放是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果回放失败）
+     */
+    private String errorMessage;
+
+    private String symbol;
+
+    private String interval;
+
+    /**
+     * 第一根回放K线的开盘时间，预热K线不计入
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 最后一根回放K线的开盘时间
+     */
+    private LocalDateTime endTime;
+
+    /**
+     * 用于初始化条形系列的预热K线数
+     */
+    private int warmupBars;
+
+    /**
+     * 回放的K线数
+     */
+    private int candles;
+
+    /**
+     * 参与回放的策略实例数（策略数 × 副本数）
+     */
+    private int strategyInstances;
+
+    /**
+     * 回放耗时（毫秒），只统计推送K线的部分
+     */
+    private long elapsedMillis;
+
+    /**
+     * 每秒处理的K线数
+     */
+    private double candlesPerSecond;
+
+    /**
+     * 每秒完成的策略评估次数
+     */
+    private double strategyEvaluationsPerSecond;
+
+    /**
+     * 模拟交易所收到的订单数
+     */
+    private int orders;
+
+    /**
+     * 已成交的订单数
+     */
+    private int filledOrders;
+
+    /**
+     * 实时信号与回测信号完全一致的策略数
+     */
+    private int matchedStrategies;
+
+    /**
+     * 每个策略的信号比对结果
+     */
+    private List<LiveSignalCheckDTO> signalChecks = new ArrayList<>();
+}
@@ -0,0 +1,45 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+/**
+ * 单个策略在历史回放中实时信号与回测信号的比对结果
+ */
+@Data
+public class LiveSignalCheckDTO {
+
+    /**
+     * 策略代码
+     */
+    private String strategyCode;
+
+    /**
+     * 实时路径下单的信号数
+     */
+    private int liveSignals;
+
+    /**
+     * 回测产生的信号数
+     */
+    private int backtestSignals;
+
+    /**
+     * 从第一个信号起按顺序一致的信号数
+     */
+    private int matchedSignals;
+
+    /**
+     * 两条路径的信号是否完全一致
+     */
+    private boolean matched;
+
+    /**
+     * 第一处不一致的信号描述，完全一致时为null
+     */
+    private String firstMismatch;
+
+    /**
+     * 策略创建或回测失败时的错误信息
+     */
+    private String errorMessage;
+}
@@ -0,0 +1,52 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 行情日志回放结果数据传输对象
+ */
+@Data
+public class MarketDataReplayResultDTO {
+
+    /**
+     * 回放开始时间（按接收时间）
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 回放结束时间（按接收时间）
+     */
+    private LocalDateTime endTime;
+
+    /**
+     * 回放速度，1为按原始节奏，小于等于0为不等待全速回放
+     */
+    private double speed;
+
+    /**
+     * 回放的消息数
+     */
+    private long messages;
+
+    /**
+     * 回放的第一条消息与最后一条消息的接收时间跨度（毫秒）
+     */
+    private long journalSpanMillis;
+
+    /**
+     * 回放耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 每秒回放的消息数
+     */
+    private double messagesPerSecond;
+
+    /**
+     * 是否因线程中断而提前结束
+     */
+    private boolean interrupted;
+}
@@ -0,0 +1,57 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 蒙特卡洛模拟单个指标的分布
+ */
+@Data
+public class MonteCarloDistributionDTO {
+
+    /**
+     * 均值
+     */
+    private BigDecimal mean;
+
+    /**
+     * 标准差
+     */
+    private BigDecimal stdDev;
+
+    /**
+     * 最小值
+     */
+    private BigDecimal min;
+
+    /**
+     * 5%分位数
+     */
+    private BigDecimal p5;
+
+    /**
+     * 25%分位数
+     */
+    private BigDecimal p25;
+
+    /**
+     * 中位数
+     */
+    private BigDecimal p50;
+
+    /**
+     * 75%分位数
+     */
+    private BigDecimal p75;
+
+    /**
+     * 95%分位数
+     */
+    private BigDecimal p95;
+
+    /**
+     * 最大值
+     */
+    private BigDecimal max;
+}
@@ -0,0 +1,119 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 蒙特卡洛稳健性分析结果数据传输对象
+ * 交易重排只改变资金曲线路径，最终资金与原回测相同，因此只给出最大回撤分布；
+ * 交易重采样和K线收益分块自助法给出最终资金、最大回撤和夏普比率的分布
+ */
+@Data
+public class MonteCarloResultDTO {
+
+    /**
+     * 分析是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果分析失败）
+     */
+    private String errorMessage;
+
+    /**
+     * 每种方法的模拟次数
+     */
+    private int simulations;
+
+    /**
+     * 随机数种子，相同种子可复现结果
+     */
+    private long seed;
+
+    /**
+     * 参与模拟的已平仓交易数
+     */
+    private int tradeCount;
+
+    /**
+     * 参与分块自助法的K线收益数
+     */
+    private int barCount;
+
+    /**
+     * 分块自助法的块长度（K线数）
+     */
+    private int blockSize;
+
+    /**
+     * 初始资金
+     */
+    private BigDecimal initialAmount;
+
+    /**
+     * 原回测的最终资金
+     */
+    private BigDecimal pointFinalAmount;
+
+    /**
+     * 原回测的最大回撤
+     */
+    private BigDecimal pointMaxDrawdown;
+
+    /**
+     * 原回测的夏普比率
+     */
+    private BigDecimal pointSharpeRatio;
+
+    /**
+     * 交易重排后的最大回撤分布
+     */
+    private MonteCarloDistributionDTO reshuffleMaxDrawdown;
+
+    /**
+     * 交易有放回重采样后的最终资金分布
+     */
+    private MonteCarloDistributionDTO resampleFinalAmount;
+
+    /**
+     * 交易有放回重采样后的最大回撤分布
+     */
+    private MonteCarloDistributionDTO resampleMaxDrawdown;
+
+    /**
+     * 交易有放回重采样后的夏普比率分布（按每年交易次数年化）
+     */
+    private MonteCarloDistributionDTO resampleSharpeRatio;
+
+    /**
+     * 交易有放回重采样后最终亏损的概率
+     */
+    private BigDecimal resampleLossProbability;
+
+    /**
+     * K线收益分块自助法的最终资金分布
+     */
+    private MonteCarloDistributionDTO bootstrapFinalAmount;
+
+    /**
+     * K线收益分块自助法的最大回撤分布
+     */
+    private MonteCarloDistributionDTO bootstrapMaxDrawdown;
+
+    /**
+     * K线收益分块自助法的夏普比率分布
+     */
+    private MonteCarloDistributionDTO bootstrapSharpeRatio;
+
+    /**
+     * K线收益分块自助法最终亏损的概率
+     */
+    private BigDecimal bootstrapLossProbability;
+
+    /**
+     * 分析耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
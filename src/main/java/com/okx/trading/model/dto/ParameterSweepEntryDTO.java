@@ -0,0 +1,52 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 参数扫描中单个周期的回测表现
+ */
+@Data
+public class ParameterSweepEntryDTO {
+
+    /**
+     * 指标周期
+     */
+    private int period;
+
+    /**
+     * 总收益率
+     */
+    private BigDecimal totalReturn;
+
+    /**
+     * 年化夏普比率
+     */
+    private BigDecimal sharpeRatio;
+
+    /**
+     * 最大回撤
+     */
+    private BigDecimal maxDrawdown;
+
+    /**
+     * 交易次数（含期末未平仓的持仓）
+     */
+    private int numberOfTrades;
+
+    /**
+     * 胜率
+     */
+    private BigDecimal winRate;
+
+    /**
+     * 是否被剪枝提前终止；被剪枝的周期只有遍历到终止时的部分统计，没有夏普比率
+     */
+    private boolean pruned;
+
+    /**
+     * 剪枝原因
+     */
+    private String pruneReason;
+}
@@ -0,0 +1,58 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 参数扫描结果数据传输对象
+ */
+@Data
+public class ParameterSweepResultDTO {
+
+    /**
+     * 扫描是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果扫描失败）
+     */
+    private String errorMessage;
+
+    /**
+     * 策略族：SMA、BOLLINGER、DONCHIAN、RSI
+     */
+    private String family;
+
+    /**
+     * 布林带标准差倍数，其他策略族忽略
+     */
+    private double multiplier;
+
+    /**
+     * 参与扫描的K线数
+     */
+    private int barCount;
+
+    /**
+     * 夏普比率最高的周期
+     */
+    private Integer bestPeriod;
+
+    /**
+     * 各周期的表现，按夏普比率从高到低排列，被剪枝的周期排在最后
+     */
+    private List<ParameterSweepEntryDTO> entries;
+
+    /**
+     * 被剪枝提前终止的周期数
+     */
+    private int prunedCount;
+
+    /**
+     * 扫描耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
@@ -0,0 +1,119 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多品种组合回测结果数据传输对象
+ */
+@Data
+public class PortfolioBacktestResultDTO {
+
+    /**
+     * 回测是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果回测失败）
+     */
+    private String errorMessage;
+
+    /**
+     * K线间隔
+     */
+    private String interval;
+
+    /**
+     * 参与回测的品种数量
+     */
+    private int symbolCount;
+
+    /**
+     * 归并后的时间点数量
+     */
+    private int timelineBars;
+
+    /**
+     * 同时持仓的品种数上限
+     */
+    private int maxPositions;
+
+    /**
+     * 初始资金
+     */
+    private BigDecimal initialAmount;
+
+    /**
+     * 最终资金（含未平仓持仓市值）
+     */
+    private BigDecimal finalAmount;
+
+    /**
+     * 总收益率
+     */
+    private BigDecimal totalReturn;
+
+    /**
+     * 年化收益率
+     */
+    private BigDecimal annualizedReturn;
+
+    /**
+     * 组合净值的夏普比率
+     */
+    private BigDecimal sharpeRatio;
+
+    /**
+     * 组合净值的最大回撤
+     */
+    private BigDecimal maxDrawdown;
+
+    /**
+     * 已平仓交易总次数
+     */
+    private int numberOfTrades;
+
+    /**
+     * 盈利交易次数
+     */
+    private int profitableTrades;
+
+    /**
+     * 胜率
+     */
+    private BigDecimal winRate;
+
+    /**
+     * 因现金不足或持仓数已满而放弃的开仓信号数
+     */
+    private int skippedEntries;
+
+    /**
+     * 总手续费
+     */
+    private BigDecimal totalFee;
+
+    /**
+     * 各品种结果
+     */
+    private List<PortfolioSymbolResultDTO> symbols;
+
+    /**
+     * 每日收盘时的组合净值，键为日期 yyyy-MM-dd
+     */
+    private Map<String, BigDecimal> dailyEquity;
+
+    /**
+     * 加载失败或没有数据而未参与回测的品种及原因
+     */
+    private Map<String, String> failedSymbols;
+
+    /**
+     * 回测耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
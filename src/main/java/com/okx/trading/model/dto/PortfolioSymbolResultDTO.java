@@ -0,0 +1,57 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 组合回测中单个品种的结果
+ */
+@Data
+public class PortfolioSymbolResultDTO {
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * 策略代码
+     */
+    private String strategyCode;
+
+    /**
+     * K线数量
+     */
+    private int barCount;
+
+    /**
+     * 已平仓交易次数
+     */
+    private int numberOfTrades;
+
+    /**
+     * 盈利交易次数
+     */
+    private int profitableTrades;
+
+    /**
+     * 因现金不足或持仓数已满而放弃的开仓信号数
+     */
+    private int skippedEntries;
+
+    /**
+     * 已平仓交易的总盈亏（扣除手续费）
+     */
+    private BigDecimal totalProfit;
+
+    /**
+     * 总手续费
+     */
+    private BigDecimal totalFee;
+
+    /**
+     * 回测结束时未平仓持仓的市值
+     */
+    private BigDecimal openPositionValue;
+}
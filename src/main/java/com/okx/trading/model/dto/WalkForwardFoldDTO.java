@@ -0,0 +1,73 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 走步分析单个折叠的结果
+ */
+@Data
+public class WalkForwardFoldDTO {
+
+    /**
+     * 折叠序号，从1开始
+     */
+    private int foldIndex;
+
+    /**
+     * 样本内区间开始时间
+     */
+    private LocalDateTime inSampleStart;
+
+    /**
+     * 样本内区间结束时间
+     */
+    private LocalDateTime inSampleEnd;
+
+    /**
+     * 样本外区间开始时间
+     */
+    private LocalDateTime outOfSampleStart;
+
+    /**
+     * 样本外区间结束时间
+     */
+    private LocalDateTime outOfSampleEnd;
+
+    /**
+     * 样本内优化选出的策略代码
+     */
+    private String selectedStrategyCode;
+
+    /**
+     * 选中策略的样本内优化目标值
+     */
+    private BigDecimal inSampleScore;
+
+    /**
+     * 选中策略的样本内收益率
+     */
+    private BigDecimal inSampleReturn;
+
+    /**
+     * 选中策略的样本外收益率
+     */
+    private BigDecimal outOfSampleReturn;
+
+    /**
+     * 选中策略的样本外夏普比率
+     */
+    private BigDecimal outOfSampleSharpeRatio;
+
+    /**
+     * 选中策略的样本外最大回撤
+     */
+    private BigDecimal outOfSampleMaxDrawdown;
+
+    /**
+     * 选中策略的样本外交易次数
+     */
+    private int outOfSampleTrades;
+}
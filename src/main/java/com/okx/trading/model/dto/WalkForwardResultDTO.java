@@ -0,0 +1,115 @@
+package com.okx.trading.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 走步分析结果数据传输对象
+ * 汇总指标基于各折叠样本外区间拼接后的收益序列计算
+ */
+@Data
+public class WalkForwardResultDTO {
+
+    /**
+     * 分析是否成功
+     */
+    private boolean success;
+
+    /**
+     * 错误信息（如果分析失败）
+     */
+    private String errorMessage;
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * K线间隔
+     */
+    private String interval;
+
+    /**
+     * 样本内优化目标：SHARPE 或 RETURN
+     */
+    private String objective;
+
+    /**
+     * 每个折叠的样本内K线数
+     */
+    private int inSampleBars;
+
+    /**
+     * 每个折叠的样本外K线数
+     */
+    private int outOfSampleBars;
+
+    /**
+     * 参与优化的候选策略数量
+     */
+    private int candidateCount;
+
+    /**
+     * 初始资金
+     */
+    private BigDecimal initialAmount;
+
+    /**
+     * 样本外拼接后的最终资金
+     */
+    private BigDecimal finalAmount;
+
+    /**
+     * 样本外拼接后的总收益率
+     */
+    private BigDecimal totalReturn;
+
+    /**
+     * 样本外拼接后的年化收益率
+     */
+    private BigDecimal annualizedReturn;
+
+    /**
+     * 样本外拼接后的夏普比率
+     */
+    private BigDecimal sharpeRatio;
+
+    /**
+     * 样本外拼接后的最大回撤
+     */
+    private BigDecimal maxDrawdown;
+
+    /**
+     * 样本外交易总次数
+     */
+    private int numberOfTrades;
+
+    /**
+     * 样本外胜率
+     */
+    private BigDecimal winRate;
+
+    /**
+     * 走步效率：样本外平均每根K线收益 / 样本内平均每根K线收益
+     */
+    private BigDecimal walkForwardEfficiency;
+
+    /**
+     * 各策略被选中的折叠数
+     */
+    private Map<String, Integer> selectionCounts;
+
+    /**
+     * 各折叠明细
+     */
+    private List<WalkForwardFoldDTO> folds;
+
+    /**
+     * 分析耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
@@ -0,0 +1,66 @@
+package com.okx.trading.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * K线覆盖位图实体类
+ * 每条记录保存一个(交易对, K线间隔)在一个分块内已存在K线的位图，
+ * 位下标为K线开盘时间相对分块起点的偏移(以K线间隔为单位)，1m周期下一个分块恰好是一天
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "candlestick_coverage",
+        uniqueConstraints = @UniqueConstraint(name = "idx_symbol_interval_chunk",
+                columnNames = {"symbol", "interval_val", "chunk_index"}))
+public class CandlestickCoverageEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    /**
+     * 交易对，如BTC-USDT
+     */
+    @Column(name = "symbol", nullable = false, length = 20)
+    private String symbol;
+
+    /**
+     * K线间隔，如1m, 5m, 15m, 30m, 1H, 2H, 4H, 6H, 12H, 1D, 1W, 1M
+     */
+    @Column(name = "interval_val", nullable = false, length = 10)
+    private String intervalVal;
+
+    /**
+     * 分块序号，等于 floor(开盘时间分钟数 / 间隔分钟数 / 每块槽位数)
+     */
+    @Column(name = "chunk_index", nullable = false)
+    private Long chunkIndex;
+
+    /**
+     * 分块内已存在的K线数量
+     */
+    @Column(name = "present_count", nullable = false)
+    private Integer presentCount;
+
+    /**
+     * Deflater压缩后的位图字节
+     */
+    @Column(name = "bitmap", columnDefinition = "VARBINARY(2048)")
+    private byte[] bitmap;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+}
@@ -119,6 +119,20 @@ public class RealTimeStrategyEntity {
     @Builder.Default
     private String status = "RUNNING";
 
+    /**
+     * 评估时机：ON_CLOSE(K线完结时), THROTTLED(完结时及K线内按间隔节流), EVERY_TICK(每次推送)
+     */
+    @Column(name = "evaluation_mode", length = 20)
+    @Builder.Default
+    private String evaluationMode = "ON_CLOSE";
+
+    /**
+     * THROTTLED模式下K线内两次评估的最小间隔（毫秒）
+     */
+    @Column(name = "evaluation_interval_ms")
+    @Builder.Default
+    private Long evaluationIntervalMs = 1000L;
+
     /**
      * 策略运行开始时间
      */
@@ -152,6 +166,18 @@ public class RealTimeStrategyEntity {
     @Transient
     private Boolean isInPosition = false;
 
+    /**
+     * 上次评估策略的时间（毫秒）
+     */
+    @Transient
+    private long lastEvaluationMillis;
+
+    /**
+     * 上次在已完结K线上评估时该K线的开盘时间，避免重复推送的完结K线触发两次评估
+     */
+    @Transient
+    private LocalDateTime lastConfirmedBarTime;
+
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
@@ -169,6 +195,8 @@ public class RealTimeStrategyEntity {
 
 
     public RealTimeStrategyEntity(String strategyCode, String symbol, String interval, LocalDateTime startTime, Double tradeAmount,String strategyName) {
+        // 使用@Builder.Default的字段只在无参构造器中初始化
+        this();
         this.strategyCode = strategyCode;
         this.symbol = symbol;
         this.interval = interval;
@@ -92,6 +92,13 @@ public class Candlestick implements Comparable<Candlestick>{
 
     private Map<String,Map<String,BigDecimal>> indecator;
 
+    /**
+     * K线是否已完结，对应OKX推送中的confirm字段
+     */
+    public boolean isConfirmed() {
+        return state == 1;
+    }
+
     @Override
     public String toString(){
         return JSONObject.toJSONString(this);
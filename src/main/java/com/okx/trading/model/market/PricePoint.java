@@ -0,0 +1,27 @@
+package com.okx.trading.model.market;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * 价格快照
+ * 价格簿中每个交易对的最新价格及其更新时间，不可变，更新时整体替换
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PricePoint {
+
+    /**
+     * 最新价格
+     */
+    private final BigDecimal price;
+
+    /**
+     * 更新时间戳（毫秒）
+     */
+    private final long timestamp;
+}
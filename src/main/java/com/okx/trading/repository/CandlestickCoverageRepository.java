@@ -0,0 +1,45 @@
+package com.okx.trading.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.okx.trading.model.entity.CandlestickCoverageEntity;
+
+/**
+ * K线覆盖位图仓库
+ */
+@Repository
+public interface CandlestickCoverageRepository extends JpaRepository<CandlestickCoverageEntity, Long> {
+
+    /**
+     * 查询指定分块范围内的覆盖位图
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @param fromChunk 起始分块(包含)
+     * @param toChunk 结束分块(包含)
+     * @return 覆盖位图列表
+     */
+    @Query("SELECT c FROM CandlestickCoverageEntity c WHERE c.symbol = :symbol AND c.intervalVal = :interval_val AND c.chunkIndex BETWEEN :fromChunk AND :toChunk")
+    List<CandlestickCoverageEntity> findChunksBetween(
+            @Param("symbol") String symbol, @Param("interval_val") String intervalVal,
+            @Param("fromChunk") long fromChunk, @Param("toChunk") long toChunk);
+
+    /**
+     * 删除指定交易对和间隔的全部覆盖位图
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CandlestickCoverageEntity c WHERE c.symbol = :symbol AND c.intervalVal = :interval_val")
+    int deleteBySymbolAndInterval(@Param("symbol") String symbol, @Param("interval_val") String intervalVal);
+}
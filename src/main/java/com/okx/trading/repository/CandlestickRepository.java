@@ -2,11 +2,19 @@ package com.okx.trading.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +27,11 @@ import com.okx.trading.model.entity.CandlestickEntity;
 @Repository
 public interface CandlestickRepository extends JpaRepository<CandlestickEntity, String> {
 
+    /**
+     * K线表与归档表合并查询时的列清单，显式列出以免两表列顺序不一致
+     */
+    String ARCHIVE_COLUMNS = "id, symbol, interval_val, open_time, close_time, open, high, low, close, volume, quote_volume, trades, fetch_time";
+
     /**
      * 根据交易对和时间间隔查询指定时间范围内的K线数据
      *
@@ -46,6 +59,83 @@ public interface CandlestickRepository extends JpaRepository<CandlestickEntity,
             @Param("symbol") String symbol, @Param("interval_val") String intervalVal);
 
 
+    /**
+     * 以只读游标流式读取指定时间范围内的K线数据
+     * 配合连接串的useCursorFetch=true按fetchSize分批拉取，实体不做脏检查快照；
+     * 必须在只读事务内消费并关闭Stream
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 按开盘时间升序的K线数据流
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")})
+    @Query("SELECT c FROM CandlestickEntity c WHERE c.symbol = :symbol AND c.intervalVal = :interval_val AND c.openTime BETWEEN :startTime AND :endTime ORDER BY c.openTime ASC")
+    Stream<CandlestickEntity> streamBySymbolAndIntervalAndOpenTimeBetween(
+            @Param("symbol") String symbol, @Param("interval_val") String intervalVal,
+            @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 合并读取归档表和K线表中指定时间范围内的K线数据
+     * 仅在查询范围落入已归档区间时使用，两张表都走(symbol, interval_val, open_time)主键范围扫描；
+     * 同一根K线同时存在于两张表时只返回归档表中的一条
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 按开盘时间升序的K线数据列表
+     */
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM candlestick_history_archive a WHERE a.symbol = :symbol AND a.interval_val = :interval_val AND a.open_time BETWEEN :startTime AND :endTime " +
+            "UNION ALL " +
+            "SELECT " + ARCHIVE_COLUMNS + " FROM candlestick_history c WHERE c.symbol = :symbol AND c.interval_val = :interval_val AND c.open_time BETWEEN :startTime AND :endTime " +
+            "AND NOT EXISTS (SELECT 1 FROM candlestick_history_archive d WHERE d.symbol = c.symbol AND d.interval_val = c.interval_val AND d.open_time = c.open_time) " +
+            "ORDER BY open_time ASC", nativeQuery = true)
+    List<CandlestickEntity> findWithArchiveBySymbolAndIntervalAndOpenTimeBetween(
+            @Param("symbol") String symbol, @Param("interval_val") String intervalVal,
+            @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 查询归档表中指定时间范围内的K线数据，保存前用于排除已归档的K线
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 按开盘时间升序的K线数据列表
+     */
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM candlestick_history_archive a WHERE a.symbol = :symbol AND a.interval_val = :interval_val AND a.open_time BETWEEN :startTime AND :endTime " +
+            "ORDER BY open_time ASC", nativeQuery = true)
+    List<CandlestickEntity> findArchivedBySymbolAndIntervalAndOpenTimeBetween(
+            @Param("symbol") String symbol, @Param("interval_val") String intervalVal,
+            @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 以只读游标合并流式读取归档表和K线表中指定时间范围内的K线数据
+     *
+     * @param symbol 交易对
+     * @param intervalVal 时间间隔
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 按开盘时间升序的K线数据流
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")})
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM candlestick_history_archive a WHERE a.symbol = :symbol AND a.interval_val = :interval_val AND a.open_time BETWEEN :startTime AND :endTime " +
+            "UNION ALL " +
+            "SELECT " + ARCHIVE_COLUMNS + " FROM candlestick_history c WHERE c.symbol = :symbol AND c.interval_val = :interval_val AND c.open_time BETWEEN :startTime AND :endTime " +
+            "AND NOT EXISTS (SELECT 1 FROM candlestick_history_archive d WHERE d.symbol = c.symbol AND d.interval_val = c.interval_val AND d.open_time = c.open_time) " +
+            "ORDER BY open_time ASC", nativeQuery = true)
+    Stream<CandlestickEntity> streamWithArchiveBySymbolAndIntervalAndOpenTimeBetween(
+            @Param("symbol") String symbol, @Param("interval_val") String intervalVal,
+            @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
     /**
      * 根据交易对和时间间隔查询最新的K线数据
      *
@@ -0,0 +1,103 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回测结果缓存服务接口
+ * 以回测参数、K线数据内容指纹和策略源码哈希组成内容地址，相同输入的回测直接返回已缓存的结果
+ */
+public interface BacktestResultCacheService {
+
+    /**
+     * 计算回测结果的缓存键
+     *
+     * @param strategyCode          策略代码
+     * @param symbol                交易对
+     * @param interval              K线间隔
+     * @param startTime             开始时间
+     * @param endTime               结束时间
+     * @param initialAmount         初始资金
+     * @param feeRatio              手续费率
+     * @param series                回测使用的条形系列，用于计算数据内容指纹
+     * @param benchmarkCandlesticks 基准K线，用于计算基准数据指纹
+     * @return 缓存键
+     */
+    default String buildKey(String strategyCode, String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime,
+                            BigDecimal initialAmount, BigDecimal feeRatio, BarSeries series, List<CandlestickEntity> benchmarkCandlesticks) {
+        return buildKey(strategyCode, symbol, interval, startTime, endTime, initialAmount, feeRatio,
+                dataFingerprint(series, benchmarkCandlesticks));
+    }
+
+    /**
+     * 计算回测数据的内容指纹，需要遍历全部K线；同一批数据回测多个策略时只计算一次
+     *
+     * @param series                回测使用的条形系列
+     * @param benchmarkCandlesticks 基准K线
+     * @return 数据指纹
+     */
+    String dataFingerprint(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks);
+
+    /**
+     * 用预先计算的数据指纹计算回测结果的缓存键
+     *
+     * @param strategyCode    策略代码
+     * @param symbol          交易对
+     * @param interval        K线间隔
+     * @param startTime       开始时间
+     * @param endTime         结束时间
+     * @param initialAmount   初始资金
+     * @param feeRatio        手续费率
+     * @param dataFingerprint {@link #dataFingerprint}的结果
+     * @return 缓存键
+     */
+    String buildKey(String strategyCode, String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime,
+                    BigDecimal initialAmount, BigDecimal feeRatio, String dataFingerprint);
+
+    /**
+     * 获取缓存的回测结果
+     *
+     * @param key 缓存键
+     * @return 回测结果，未命中时返回null
+     */
+    BacktestResultDTO get(String key);
+
+    /**
+     * 缓存成功的回测结果
+     *
+     * @param key          缓存键
+     * @param strategyCode 策略代码，用于策略变更时失效
+     * @param symbol       交易对，用于数据回补时失效
+     * @param interval     K线间隔，用于数据回补时失效
+     * @param result       回测结果
+     */
+    void put(String key, String strategyCode, String symbol, String interval, BacktestResultDTO result);
+
+    /**
+     * 使某个策略的全部缓存结果失效
+     *
+     * @param strategyCode 策略代码
+     */
+    void evictStrategy(String strategyCode);
+
+    /**
+     * 使某个交易对和K线间隔的全部缓存结果失效
+     *
+     * @param symbol   交易对
+     * @param interval K线间隔
+     */
+    void evictData(String symbol, String interval);
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 命中、未命中、写入和失效次数
+     */
+    Map<String, Object> getStats();
+}
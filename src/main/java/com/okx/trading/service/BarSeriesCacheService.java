@@ -0,0 +1,53 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.entity.CandlestickEntity;
+import org.ta4j.core.BarSeries;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回测条形系列缓存服务
+ * 在进程内按(交易对, K线间隔, 时间范围, 数值类型)缓存已转换的只读BarSeries和基准K线，
+ * 按K线总数限制内存占用并按LRU淘汰；同一开始时间的更长范围请求只拉取和转换尾部增量
+ */
+public interface BarSeriesCacheService {
+
+    /**
+     * 获取回测用的条形系列，未命中时通过完整性检查加载历史数据并转换
+     *
+     * @param symbol    交易对
+     * @param interval  K线间隔
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 只读条形系列，调用方不得修改
+     */
+    BarSeries getSeries(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 获取基准K线，未命中时通过完整性检查加载历史数据
+     *
+     * @param symbol    基准交易对，如BTC-USDT
+     * @param interval  K线间隔
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 按开盘时间升序的不可修改K线列表
+     */
+    List<CandlestickEntity> getBenchmark(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 丢弃指定交易对和间隔的全部缓存
+     *
+     * @param symbol   交易对
+     * @param interval K线间隔
+     */
+    void invalidate(String symbol, String interval);
+
+    /**
+     * 获取缓存统计信息：命中、未命中、尾部扩展、淘汰次数以及当前条目数和K线总数
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,59 @@
+package com.okx.trading.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import com.okx.trading.model.TimeSlice;
+
+/**
+ * K线覆盖索引服务
+ * 以(交易对, K线间隔)为单位维护已入库K线的位图，用位图差集代替逐点生成预期时间和逐天count查询
+ */
+public interface CandlestickCoverageService {
+
+    /**
+     * 查找时间范围内缺失的K线区间
+     * 预期时间点为 startTime, startTime + interval, ... 且不晚于 endTime
+     *
+     * @param symbol          交易对，如BTC-USDT
+     * @param interval        K线间隔，如1m, 5m, 1H, 1D
+     * @param intervalMinutes K线间隔对应的分钟数
+     * @param startTime       开始时间(包含)
+     * @param endTime         结束时间(包含)
+     * @return 连续缺失的区间列表，start/end均为缺失K线的开盘时间(包含)
+     */
+    List<TimeSlice> findMissingRanges(String symbol, String interval, long intervalMinutes,
+                                      LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 统计时间范围内已存在的K线数量
+     *
+     * @param symbol          交易对
+     * @param interval        K线间隔
+     * @param intervalMinutes K线间隔对应的分钟数
+     * @param startTime       开始时间(包含)
+     * @param endTime         结束时间(包含)
+     * @return 已存在的K线数量
+     */
+    long countPresent(String symbol, String interval, long intervalMinutes,
+                      LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 标记K线已入库，由saveBatch在写库成功后调用
+     *
+     * @param symbol          交易对
+     * @param interval        K线间隔
+     * @param intervalMinutes K线间隔对应的分钟数
+     * @param openTimes       新入库K线的开盘时间
+     */
+    void markPresent(String symbol, String interval, long intervalMinutes, Collection<LocalDateTime> openTimes);
+
+    /**
+     * 丢弃指定交易对和间隔的覆盖索引，下次查询时从K线表重建
+     *
+     * @param symbol   交易对
+     * @param interval K线间隔
+     */
+    void rebuild(String symbol, String interval);
+}
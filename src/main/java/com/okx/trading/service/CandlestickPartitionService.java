@@ -0,0 +1,46 @@
+package com.okx.trading.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * K线表分区管理服务
+ * 维护 candlestick_history 的按月分区，并把冷分区迁入压缩归档表 candlestick_history_archive
+ */
+public interface CandlestickPartitionService {
+
+    /**
+     * 从兜底分区 p_max 中拆分出截至当前月之后N个月的月分区
+     * 表未分区时不做任何操作
+     *
+     * @return 新建的分区数量
+     */
+    int ensureFuturePartitions();
+
+    /**
+     * 把早于归档阈值的月分区迁入归档表，原分区通过EXCHANGE PARTITION原子地换出，归档期间写入的K线不会丢失
+     * 迁移前先为分区内的数据建立覆盖索引，避免归档后被误判为缺失而重新拉取
+     *
+     * @return 归档的分区数量
+     */
+    int archiveColdPartitions();
+
+    /**
+     * 判断查询范围是否需要合并读取归档表
+     *
+     * @param startTime 查询开始时间，为null表示不限开始时间
+     * @return 开始时间不晚于归档表中最新K线时为true
+     */
+    boolean isArchived(LocalDateTime startTime);
+
+    /**
+     * 对K线范围查询执行EXPLAIN，返回实际命中的分区，用于验证分区裁剪
+     *
+     * @param symbol    交易对
+     * @param interval  K线间隔
+     * @param startTime 开始时间(包含)
+     * @param endTime   结束时间(包含)，与仓库范围查询一样使用BETWEEN
+     * @return 命中的分区名列表，表未分区时为空
+     */
+    List<String> explainPartitions(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime);
+}
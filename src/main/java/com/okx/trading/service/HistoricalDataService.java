@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.okx.trading.model.common.ApiResponse;
 import com.okx.trading.model.entity.CandlestickEntity;
@@ -70,6 +72,20 @@ public interface HistoricalDataService {
                                              LocalDateTime startTime, LocalDateTime endTime);
 
 
+    /**
+     * 以只读游标流式读取数据库中存储的历史K线数据，内存占用与时间范围无关
+     * Stream只在reader执行期间有效，按开盘时间升序，读过的实体会立即从持久化上下文中分离
+     *
+     * @param symbol     交易对，如BTC-USDT
+     * @param interval   K线间隔，如1m, 5m, 15m, 30m, 1H, 2H, 4H, 6H, 12H, 1D, 1W, 1M
+     * @param startTime  开始时间
+     * @param endTime    结束时间
+     * @param reader     消费K线数据流并返回结果
+     * @return reader的返回值
+     */
+    <R> R streamHistoricalData(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime,
+                               Function<Stream<CandlestickEntity>, R> reader);
+
     List<CandlestickEntity> fetchAndSaveHistoryWithIntegrityCheck(String symbol, String interval, String startTimeStr, String endTimeStr);
 
     List<CandlestickEntity> fetchAndSaveHistoryWithIntegrityCheck(String symbol, String interval,  String endTimeStr, int limit);
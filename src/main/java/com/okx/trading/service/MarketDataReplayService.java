@@ -0,0 +1,28 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.dto.MarketDataReplayResultDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * 行情日志回放服务接口
+ * 把行情日志中一个时间窗口内的消息按记录顺序重新交给WebSocket消息处理流程，用于复现线上行情和审计
+ */
+public interface MarketDataReplayService {
+
+    /**
+     * 回放接收时间在[startTime, endTime]内的行情消息
+     * 回放的消息会驱动实时策略等处理器，只允许在模拟数据模式下调用
+     *
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @param speed     回放速度，1为按原始节奏，10为十倍速，小于等于0为不等待全速回放
+     * @return 回放结果
+     */
+    MarketDataReplayResultDTO replay(LocalDateTime startTime, LocalDateTime endTime, double speed);
+
+    /**
+     * 行情日志是否启用
+     */
+    boolean isJournalEnabled();
+}
@@ -1,5 +1,6 @@
 package com.okx.trading.service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -16,6 +17,11 @@ import com.okx.trading.model.trade.OrderRequest;
  */
 public interface OkxApiService {
 
+    /**
+     * 批量下单每次最多的订单数量（OKX batch-orders上限）
+     */
+    int BATCH_ORDER_LIMIT = 20;
+
     /**
      * 获取K线数据
      *
@@ -58,6 +64,23 @@ public interface OkxApiService {
      */
     List<Order> getOrders(String symbol, String status, Integer limit);
 
+    /**
+     * 查询单个订单的最新状态
+     * 默认在订单列表中按订单ID查找，能按订单ID直接查询的实现应覆盖
+     *
+     * @param symbol  交易对，如BTC-USDT
+     * @param orderId 订单ID
+     * @return 订单，不存在时返回null
+     */
+    default Order getOrder(String symbol, String orderId) {
+        for (Order order : getOrders(symbol, null, null)) {
+            if (orderId != null && orderId.equals(order.getOrderId())) {
+                return order;
+            }
+        }
+        return null;
+    }
+
     /**
      * 创建现货订单
      *
@@ -66,6 +89,32 @@ public interface OkxApiService {
      */
     Order createSpotOrder(OrderRequest orderRequest);
 
+    /**
+     * 批量创建现货订单，单个订单失败时以REJECTED状态返回，不影响同批其他订单
+     * 默认逐个下单，支持批量接口的实现应覆盖为一次请求
+     *
+     * @param orderRequests 订单请求参数，最多{@link #BATCH_ORDER_LIMIT}个
+     * @return 与请求顺序一致的订单
+     */
+    default List<Order> createSpotOrders(List<OrderRequest> orderRequests) {
+        List<Order> orders = new ArrayList<>(orderRequests.size());
+        for (OrderRequest orderRequest : orderRequests) {
+            try {
+                orders.add(createSpotOrder(orderRequest));
+            } catch (RuntimeException e) {
+                Order rejected = new Order();
+                rejected.setClientOrderId(orderRequest.getClientOrderId());
+                rejected.setSymbol(orderRequest.getSymbol());
+                rejected.setSide(orderRequest.getSide());
+                rejected.setType(orderRequest.getType());
+                rejected.setStatus("REJECTED");
+                rejected.setSMsg(e.getMessage());
+                orders.add(rejected);
+            }
+        }
+        return orders;
+    }
+
     /**
      * 创建合约订单
      *
@@ -0,0 +1,131 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.account.AccountBalance;
+import com.okx.trading.model.trade.Order;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * 订单与余额状态服务接口
+ * 由私有频道orders和account的推送驱动，按客户端订单ID和订单ID维护订单的最新状态；
+ * 下单、撤单等待推送带来的状态变化，不再轮询REST接口，REST只在重连后用于对账
+ */
+public interface OrderStateService {
+
+    /**
+     * 完结状态，进入后不会再有成交或状态变化；MMP_CANCELED为做市商保护触发的撤单
+     */
+    Set<String> FINISHED_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "FILLED", "CANCELED", "MMP_CANCELED", "REJECTED", "EXPIRED")));
+
+    /**
+     * 订单是否已完结
+     */
+    static boolean isFinished(Order order) {
+        return order != null && FINISHED_STATUSES.contains(order.getStatus());
+    }
+
+    /**
+     * 应用一条订单推送，旧于当前状态的推送被忽略
+     *
+     * @param order 推送解析出的订单
+     * @return 是否更新了状态
+     */
+    boolean onOrderUpdate(Order order);
+
+    /**
+     * 订单请求被交易所拒绝，等待该订单的调用方收到异常
+     *
+     * @param clientOrderId 客户端订单ID
+     * @param cause         拒绝原因
+     */
+    void onOrderRejected(String clientOrderId, Throwable cause);
+
+    /**
+     * 应用一条账户推送，按币种合并到当前余额
+     *
+     * @param balance   推送解析出的余额
+     * @param simulated 是否为模拟账户
+     */
+    void onBalanceUpdate(AccountBalance balance, boolean simulated);
+
+    /**
+     * 按客户端订单ID获取订单状态
+     *
+     * @param clientOrderId 客户端订单ID
+     * @return 订单，未收到过推送返回null
+     */
+    Order getByClientOrderId(String clientOrderId);
+
+    /**
+     * 按订单ID获取订单状态
+     *
+     * @param orderId 订单ID
+     * @return 订单，未收到过推送返回null
+     */
+    Order getByOrderId(String orderId);
+
+    /**
+     * 查询已跟踪的订单，按创建时间倒序
+     *
+     * @param symbol 交易对，为null时不限
+     * @param status 订单状态，为null时不限
+     * @param limit  返回条数，为null或不大于0时不限
+     * @return 订单列表
+     */
+    List<Order> getOrders(String symbol, String status, Integer limit);
+
+    /**
+     * 获取未完结（NEW、PARTIALLY_FILLED）的订单，用于重连后对账
+     *
+     * @return 订单列表
+     */
+    List<Order> getOpenOrders();
+
+    /**
+     * 获取最新余额
+     *
+     * @param simulated 是否为模拟账户
+     * @return 余额，未收到过推送返回null
+     */
+    AccountBalance getBalance(boolean simulated);
+
+    /**
+     * 等待客户端订单ID对应的订单满足条件，当前状态已满足时立即完成
+     *
+     * @param clientOrderId 客户端订单ID
+     * @param condition     条件
+     * @return 满足条件时的订单
+     */
+    CompletableFuture<Order> awaitByClientOrderId(String clientOrderId, Predicate<Order> condition);
+
+    /**
+     * 等待订单ID对应的订单满足条件，当前状态已满足时立即完成
+     *
+     * @param orderId   订单ID
+     * @param condition 条件
+     * @return 满足条件时的订单
+     */
+    CompletableFuture<Order> awaitByOrderId(String orderId, Predicate<Order> condition);
+
+    /**
+     * 等待下一次余额推送，已有余额时立即完成
+     *
+     * @param simulated 是否为模拟账户
+     * @return 余额
+     */
+    CompletableFuture<AccountBalance> awaitBalance(boolean simulated);
+
+    /**
+     * 清理完结时间早于保留期的订单
+     *
+     * @return 清理的订单数量
+     */
+    int evictFinishedOrders();
+}
@@ -0,0 +1,52 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.PricePoint;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 进程内价格簿服务接口
+ * 行情推送直接更新内存中的最新价格，本进程的读取不再经过Redis；价格按固定间隔批量同步到Redis供其他进程使用
+ */
+public interface PriceBookService {
+
+    /**
+     * 更新交易对的最新价格
+     *
+     * @param symbol    交易对符号，如 BTC-USDT
+     * @param price     最新价格
+     * @param timestamp 更新时间戳（毫秒）
+     */
+    void updatePrice(String symbol, BigDecimal price, long timestamp);
+
+    /**
+     * 获取交易对的最新价格，价格簿中没有时从Redis读取
+     *
+     * @param symbol 交易对符号，如 BTC-USDT
+     * @return 最新价格，不存在返回null
+     */
+    BigDecimal getPrice(String symbol);
+
+    /**
+     * 获取价格簿中的价格快照，不访问Redis
+     *
+     * @param symbol 交易对符号，如 BTC-USDT
+     * @return 价格快照，不存在返回null
+     */
+    PricePoint getPricePoint(String symbol);
+
+    /**
+     * 获取价格簿中所有交易对的价格快照
+     *
+     * @return key为交易对，value为价格快照
+     */
+    Map<String, PricePoint> getAllPricePoints();
+
+    /**
+     * 把上次同步之后有变化的价格批量写入Redis
+     *
+     * @return 本次写入的交易对数量
+     */
+    int flush();
+}
@@ -21,6 +21,14 @@ public interface RedisCacheService {
      */
     void updateCoinPrice(String symbol, BigDecimal price);
 
+    /**
+     * 批量更新币种实时价格，一次HMSET写入
+     *
+     * @param prices key为交易对符号，value为最新价格
+     * @return 写入是否成功
+     */
+    boolean updateCoinPrices(Map<String, BigDecimal> prices);
+
 
     void updateCandlestick(  Candlestick candlestick);
     /**
@@ -0,0 +1,297 @@
+package com.okx.trading.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.okx.trading.event.HistoricalDataChangedEvent;
+import com.okx.trading.event.StrategyChangedEvent;
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.model.entity.StrategyInfoEntity;
+import com.okx.trading.service.BacktestResultCacheService;
+import com.okx.trading.service.StrategyInfoService;
+import com.okx.trading.strategy.StrategyFactory1;
+import com.okx.trading.strategy.StrategyFactory2;
+import com.okx.trading.strategy.StrategyFactory3;
+import com.okx.trading.strategy.StrategyFactory4;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.boot.info.GitProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回测结果缓存服务实现类
+ * 结果以JSON存放在Redis中，键由回测参数、K线内容指纹和策略源码哈希（内置策略为构建版本）计算得出：数据回补、策略源码变化或重新发布后键自然不同，
+ * 旧结果不会再被命中；同时按策略和按 交易对:间隔 维护键索引，收到变更事件时主动删除，避免过期结果占用Redis
+ */
+@Slf4j
+@Service
+public class BacktestResultCacheServiceImpl implements BacktestResultCacheService {
+
+    /**
+     * 缓存键格式版本，回测或指标计算逻辑变化时递增，使旧结果全部失效
+     */
+    private static final String KEY_VERSION = "v1";
+    private static final String RESULT_KEY_PREFIX = "backtest-result:";
+    private static final String STRATEGY_INDEX_PREFIX = "backtest-result-index:strategy:";
+    private static final String DATA_INDEX_PREFIX = "backtest-result-index:data:";
+    private static final String BUILTIN_SOURCE = "builtin";
+
+    /**
+     * 内置策略的逻辑随代码发布变化，无构建信息时用这些类的字节码哈希代替
+     */
+    private static final Class<?>[] BUILTIN_STRATEGY_CLASSES = {StrategyRegisterCenter.class,
+            StrategyFactory1.class, StrategyFactory2.class, StrategyFactory3.class, StrategyFactory4.class};
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StrategyInfoService strategyInfoService;
+    private final String builtinSource;
+
+    /**
+     * 缓存结果的过期时间（分钟），默认7天
+     */
+    @Value("${okx.backtest.result-cache.ttl-minutes:10080}")
+    private long ttlMinutes = 10080;
+
+    // 策略源码哈希，收到策略变更事件时移除
+    private final Map<String, String> sourceHashes = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BacktestResultCacheServiceImpl(RedisTemplate<String, Object> redisTemplate, StrategyInfoService strategyInfoService,
+                                          ObjectProvider<GitProperties> gitProperties, ObjectProvider<BuildProperties> buildProperties) {
+        this(redisTemplate, strategyInfoService, builtinVersion(gitProperties.getIfAvailable(), buildProperties.getIfAvailable()));
+    }
+
+    BacktestResultCacheServiceImpl(RedisTemplate<String, Object> redisTemplate, StrategyInfoService strategyInfoService,
+                                   String builtinVersion) {
+        this.redisTemplate = redisTemplate;
+        this.strategyInfoService = strategyInfoService;
+        this.builtinSource = BUILTIN_SOURCE + ":" + builtinVersion;
+        log.info("内置策略回测结果缓存版本: {}", builtinVersion);
+    }
+
+    @Override
+    public String dataFingerprint(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks) {
+        return seriesFingerprint(series) + "|" + benchmarkFingerprint(benchmarkCandlesticks);
+    }
+
+    @Override
+    public String buildKey(String strategyCode, String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime,
+                           BigDecimal initialAmount, BigDecimal feeRatio, String dataFingerprint) {
+        String content = String.join("|",
+                KEY_VERSION,
+                strategyCode,
+                sourceHash(strategyCode),
+                symbol,
+                interval,
+                String.valueOf(startTime),
+                String.valueOf(endTime),
+                plain(initialAmount),
+                plain(feeRatio),
+                dataFingerprint);
+        return RESULT_KEY_PREFIX + DigestUtils.sha256Hex(content);
+    }
+
+    @Override
+    public BacktestResultDTO get(String key) {
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return JSON.parseObject(value.toString(), BacktestResultDTO.class);
+        } catch (Exception e) {
+            log.warn("读取回测结果缓存失败，key: {}, error: {}", key, e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, String strategyCode, String symbol, String interval, BacktestResultDTO result) {
+        if (result == null || !result.isSuccess()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(key, JSON.toJSONString(result), ttlMinutes, TimeUnit.MINUTES);
+            String strategyIndex = STRATEGY_INDEX_PREFIX + strategyCode;
+            String dataIndex = DATA_INDEX_PREFIX + symbol + ":" + interval;
+            redisTemplate.opsForSet().add(strategyIndex, key);
+            redisTemplate.opsForSet().add(dataIndex, key);
+            redisTemplate.expire(strategyIndex, ttlMinutes, TimeUnit.MINUTES);
+            redisTemplate.expire(dataIndex, ttlMinutes, TimeUnit.MINUTES);
+            puts.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("写入回测结果缓存失败，key: {}, error: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void evictStrategy(String strategyCode) {
+        sourceHashes.remove(strategyCode);
+        evictIndex(STRATEGY_INDEX_PREFIX + strategyCode);
+    }
+
+    @Override
+    public void evictData(String symbol, String interval) {
+        evictIndex(DATA_INDEX_PREFIX + symbol + ":" + interval);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("puts", puts.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    @EventListener
+    public void onStrategyChanged(StrategyChangedEvent event) {
+        log.debug("策略 {} 已变更，清除其回测结果缓存", event.getStrategyCode());
+        evictStrategy(event.getStrategyCode());
+    }
+
+    @EventListener
+    public void onHistoricalDataChanged(HistoricalDataChangedEvent event) {
+        log.debug("{} {} 历史K线已更新，清除相关回测结果缓存", event.getSymbol(), event.getInterval());
+        evictData(event.getSymbol(), event.getInterval());
+    }
+
+    private void evictIndex(String indexKey) {
+        try {
+            Set<Object> keys = redisTemplate.opsForSet().members(indexKey);
+            List<String> toDelete = new ArrayList<>();
+            if (keys != null) {
+                keys.forEach(key -> toDelete.add(key.toString()));
+            }
+            toDelete.add(indexKey);
+            Long deleted = redisTemplate.delete(toDelete);
+            evictions.addAndGet(Math.max(0, (deleted == null ? 0 : deleted) - 1));
+        } catch (Exception e) {
+            log.warn("清除回测结果缓存失败，index: {}, error: {}", indexKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 动态策略取源码的SHA-256，内置策略取构建版本，重新发布后旧结果不再命中
+     */
+    private String sourceHash(String strategyCode) {
+        return sourceHashes.computeIfAbsent(strategyCode, code -> {
+            String sourceCode = strategyInfoService.getStrategyByCode(code)
+                    .map(StrategyInfoEntity::getSourceCode)
+                    .orElse(null);
+            return StringUtils.isBlank(sourceCode) ? builtinSource : DigestUtils.sha256Hex(sourceCode);
+        });
+    }
+
+    /**
+     * 内置策略版本：优先取git提交ID，其次取构建版本和构建时间，都没有时（如IDE直接运行）取内置策略类的字节码哈希
+     */
+    static String builtinVersion(GitProperties gitProperties, BuildProperties buildProperties) {
+        if (gitProperties != null && StringUtils.isNotBlank(gitProperties.getCommitId())) {
+            return "git-" + gitProperties.getCommitId();
+        }
+        if (buildProperties != null && buildProperties.getTime() != null) {
+            return "build-" + buildProperties.getVersion() + "-" + buildProperties.getTime().toEpochMilli();
+        }
+        return "classes-" + builtinClassesHash();
+    }
+
+    static String builtinClassesHash() {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (Class<?> clazz : BUILTIN_STRATEGY_CLASSES) {
+            String resource = clazz.getSimpleName() + ".class";
+            try (InputStream in = clazz.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IllegalStateException("找不到内置策略类文件: " + clazz.getName());
+                }
+                DigestUtils.updateDigest(digest, in);
+            } catch (IOException e) {
+                throw new IllegalStateException("读取内置策略类文件失败: " + clazz.getName(), e);
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * K线内容指纹：K线数、首尾时间以及全部结束时间、OHLCV的64位混合哈希，任何一根K线被回补或修正都会改变指纹
+     */
+    static String seriesFingerprint(BarSeries series) {
+        if (series == null || series.isEmpty()) {
+            return "empty";
+        }
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int i = series.getBeginIndex(); i <= series.getEndIndex(); i++) {
+            Bar bar = series.getBar(i);
+            hash = mix(hash, bar.getEndTime().toEpochSecond());
+            hash = mix(hash, Double.doubleToLongBits(bar.getOpenPrice().doubleValue()));
+            hash = mix(hash, Double.doubleToLongBits(bar.getHighPrice().doubleValue()));
+            hash = mix(hash, Double.doubleToLongBits(bar.getLowPrice().doubleValue()));
+            hash = mix(hash, Double.doubleToLongBits(bar.getClosePrice().doubleValue()));
+            hash = mix(hash, Double.doubleToLongBits(bar.getVolume().doubleValue()));
+        }
+        return series.getBarCount() + ":" + series.getFirstBar().getEndTime().toEpochSecond() + ":"
+                + series.getLastBar().getEndTime().toEpochSecond() + ":" + Long.toHexString(hash);
+    }
+
+    static String benchmarkFingerprint(List<CandlestickEntity> candlesticks) {
+        if (candlesticks == null || candlesticks.isEmpty()) {
+            return "empty";
+        }
+        long hash = 0x9E3779B97F4A7C15L;
+        for (CandlestickEntity candlestick : candlesticks) {
+            hash = mix(hash, candlestick.getOpenTime() == null ? 0 : candlestick.getOpenTime().hashCode());
+            hash = mix(hash, candlestick.getClose() == null ? 0 : Double.doubleToLongBits(candlestick.getClose().doubleValue()));
+        }
+        return candlesticks.size() + ":" + Long.toHexString(hash);
+    }
+
+    private static long mix(long hash, long value) {
+        long h = hash ^ value;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "null" : value.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,310 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.adapter.ImmutableBarSeries;
+import com.okx.trading.event.HistoricalDataChangedEvent;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.BarSeriesCacheService;
+import com.okx.trading.service.HistoricalDataService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 回测条形系列缓存服务实现类
+ * 缓存条目只保存已收盘的K线；请求范围包含未收盘K线时，返回值在缓存副本之后临时追加未收盘部分，
+ * 下一次请求从缓存的最后一根K线之后增量拉取，不会把未收盘K线留在缓存里
+ */
+@Slf4j
+@Service
+public class BarSeriesCacheServiceImpl implements BarSeriesCacheService {
+
+    private static final String KIND_SERIES = "series";
+    private static final String KIND_BENCHMARK = "benchmark";
+
+    private final HistoricalDataService historicalDataService;
+    private final CandlestickBarSeriesConverter barSeriesConverter;
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 缓存的K线总数上限，超过后按LRU淘汰
+     * 每根DecimalNum的Bar约占0.7~1KB，默认值在1GB堆内约占200MB
+     */
+    @Value("${okx.backtest.series-cache.max-bars:200000}")
+    private long maxBars = 200_000L;
+
+    // 按访问顺序排列，读写都需要持有自身的锁
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBars = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong extensions = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BarSeriesCacheServiceImpl(HistoricalDataService historicalDataService,
+                                     CandlestickBarSeriesConverter barSeriesConverter) {
+        this.historicalDataService = historicalDataService;
+        this.barSeriesConverter = barSeriesConverter;
+    }
+
+    @Override
+    public BarSeries getSeries(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        String seriesName = CandlestickBarSeriesConverter.createSeriesName(symbol, interval);
+        return this.<ImmutableBarSeries>lookup(new CacheKey(KIND_SERIES, symbol, interval, startTime, endTime, CandlestickBarSeriesConverter.NUM_TYPE),
+                candles -> ImmutableBarSeries.of(barSeriesConverter.convert(candles, seriesName)),
+                (series, tail) -> series.append(barSeriesConverter.convertTail(series, tail)),
+                (series, pending) -> series.withTail(barSeriesConverter.convertTail(series, pending)),
+                BarSeries::getBarCount);
+    }
+
+    @Override
+    public List<CandlestickEntity> getBenchmark(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        return lookup(new CacheKey(KIND_BENCHMARK, symbol, interval, startTime, endTime, CandlestickBarSeriesConverter.NUM_TYPE),
+                candles -> Collections.unmodifiableList(new ArrayList<>(candles)),
+                BarSeriesCacheServiceImpl::appendCandles,
+                BarSeriesCacheServiceImpl::appendCandles,
+                List::size);
+    }
+
+    @Override
+    public void invalidate(String symbol, String interval) {
+        synchronized (entries) {
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+                if (entry.getKey().getSymbol().equals(symbol) && entry.getKey().getInterval().equals(interval)) {
+                    cachedBars -= entry.getValue().getWeight();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 回补的K线落在已缓存的范围内时，缓存的系列缺少这些K线，丢弃受影响的条目，下一次请求重新加载；
+     * 只在缓存最后一根K线之后新增的K线由尾部扩展处理，不丢弃条目
+     */
+    @EventListener
+    public void onHistoricalDataChanged(HistoricalDataChangedEvent event) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+                CacheKey key = entry.getKey();
+                if (key.getSymbol().equals(event.getSymbol()) && key.getInterval().equals(event.getInterval())
+                        && event.overlaps(key.getStartTime(), entry.getValue().getLastOpenTime())) {
+                    cachedBars -= entry.getValue().getWeight();
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.debug("{} {} 历史K线已回补，清除 {} 个缓存的条形系列", event.getSymbol(), event.getInterval(), removed);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get() + extensions.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("extensions", extensions.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("cachedBars", cachedBars);
+        }
+        stats.put("maxBars", maxBars);
+        return stats;
+    }
+
+    /**
+     * 按 完全命中 → 同一开始时间的较短条目尾部扩展 → 完整加载 的顺序取值
+     *
+     * @param create 由按开盘时间升序的K线创建缓存值
+     * @param extend 在已有缓存值尾部追加已收盘K线，返回新值，已有缓存值不变
+     * @param withPending 在缓存值之后临时追加未收盘K线，返回不进入缓存的新值
+     * @param weigher 缓存值包含的K线数
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(CacheKey key, Function<List<CandlestickEntity>, T> create,
+                         BiFunction<T, List<CandlestickEntity>, T> extend, BiFunction<T, List<CandlestickEntity>, T> withPending,
+                         ToIntFunction<T> weigher) {
+        long intervalMinutes = historicalDataService.getIntervalMinutes(key.getInterval());
+        // 开盘时间晚于该时间的K线尚未收盘
+        LocalDateTime confirmedUntil = LocalDateTime.now().minusMinutes(intervalMinutes);
+
+        CacheEntry base;
+        synchronized (entries) {
+            CacheEntry exact = entries.get(key);
+            if (exact != null && exact.isComplete()) {
+                hits.incrementAndGet();
+                return (T) exact.getValue();
+            }
+            base = findExtensionBase(key);
+        }
+
+        T confirmed;
+        LocalDateTime lastOpenTime;
+        List<CandlestickEntity> pending;
+        if (base != null) {
+            extensions.incrementAndGet();
+            LocalDateTime from = base.getLastOpenTime().plusMinutes(intervalMinutes);
+            List<CandlestickEntity> tail = from.isAfter(key.getEndTime())
+                    ? Collections.emptyList() : load(key.getSymbol(), key.getInterval(), from, key.getEndTime());
+            List<CandlestickEntity> confirmedTail = new ArrayList<>();
+            pending = new ArrayList<>();
+            splitConfirmed(tail, confirmedUntil, confirmedTail, pending);
+
+            confirmed = confirmedTail.isEmpty() ? (T) base.getValue() : extend.apply((T) base.getValue(), confirmedTail);
+            lastOpenTime = confirmedTail.isEmpty() ? base.getLastOpenTime()
+                    : confirmedTail.get(confirmedTail.size() - 1).getOpenTime();
+            log.debug("条形系列缓存尾部扩展: {} {} {} ~ {}, 新增K线 {} 根",
+                    key.getSymbol(), key.getInterval(), from, key.getEndTime(), confirmedTail.size());
+        } else {
+            misses.incrementAndGet();
+            List<CandlestickEntity> candles = load(key.getSymbol(), key.getInterval(), key.getStartTime(), key.getEndTime());
+            List<CandlestickEntity> confirmedCandles = new ArrayList<>();
+            pending = new ArrayList<>();
+            splitConfirmed(candles, confirmedUntil, confirmedCandles, pending);
+            if (confirmedCandles.isEmpty()) {
+                return create.apply(pending);
+            }
+            confirmed = create.apply(confirmedCandles);
+            lastOpenTime = confirmedCandles.get(confirmedCandles.size() - 1).getOpenTime();
+        }
+
+        boolean complete = !key.getEndTime().isAfter(confirmedUntil);
+        put(key, new CacheEntry(confirmed, lastOpenTime, complete, weigher.applyAsInt(confirmed)));
+        return pending.isEmpty() ? confirmed : withPending.apply(confirmed, pending);
+    }
+
+    /**
+     * 查找可以作为尾部扩展起点的条目：同一序列和开始时间，且全部K线都落在请求范围内，取最后一根K线最晚的
+     * 调用方需持有entries锁
+     */
+    private CacheEntry findExtensionBase(CacheKey key) {
+        CacheEntry best = null;
+        for (Map.Entry<CacheKey, CacheEntry> entry : entries.entrySet()) {
+            CacheKey candidate = entry.getKey();
+            CacheEntry value = entry.getValue();
+            if (candidate.sameSeries(key) && !value.getLastOpenTime().isAfter(key.getEndTime())
+                    && (best == null || value.getLastOpenTime().isAfter(best.getLastOpenTime()))) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    private void put(CacheKey key, CacheEntry entry) {
+        synchronized (entries) {
+            CacheEntry previous = entries.put(key, entry);
+            cachedBars += entry.getWeight() - (previous == null ? 0 : previous.getWeight());
+
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (cachedBars > maxBars && iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                cachedBars -= eldest.getValue().getWeight();
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private List<CandlestickEntity> load(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        List<CandlestickEntity> candles = historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(
+                symbol, interval, startTime.format(dateFormat), endTime.format(dateFormat));
+        if (candles == null) {
+            return Collections.emptyList();
+        }
+        return candles.stream()
+                .filter(candle -> candle.getOpenTime() != null)
+                .distinct()
+                .sorted(Comparator.comparing(CandlestickEntity::getOpenTime))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按是否已收盘拆分按开盘时间升序的K线
+     */
+    private static void splitConfirmed(List<CandlestickEntity> candles, LocalDateTime confirmedUntil,
+                                       List<CandlestickEntity> confirmed, List<CandlestickEntity> pending) {
+        for (CandlestickEntity candle : candles) {
+            if (candle.getOpenTime().isAfter(confirmedUntil)) {
+                pending.add(candle);
+            } else {
+                confirmed.add(candle);
+            }
+        }
+    }
+
+    private static List<CandlestickEntity> appendCandles(List<CandlestickEntity> base, List<CandlestickEntity> tail) {
+        List<CandlestickEntity> merged = new ArrayList<>(base.size() + tail.size());
+        merged.addAll(base);
+        LocalDateTime lastOpenTime = base.isEmpty() ? null : base.get(base.size() - 1).getOpenTime();
+        for (CandlestickEntity candle : tail) {
+            if (lastOpenTime == null || candle.getOpenTime().isAfter(lastOpenTime)) {
+                merged.add(candle);
+                lastOpenTime = candle.getOpenTime();
+            }
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheKey {
+        private String kind;
+        private String symbol;
+        private String interval;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private String numType;
+
+        boolean sameSeries(CacheKey other) {
+            return kind.equals(other.kind) && symbol.equals(other.symbol) && interval.equals(other.interval)
+                    && startTime.equals(other.startTime) && numType.equals(other.numType);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private Object value;
+        // 缓存值中最后一根已收盘K线的开盘时间
+        private LocalDateTime lastOpenTime;
+        // 请求范围内的K线在加载时已全部收盘，可以直接命中
+        private boolean complete;
+        private int weight;
+    }
+}
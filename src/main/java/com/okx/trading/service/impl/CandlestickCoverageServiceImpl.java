@@ -0,0 +1,475 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.TimeSlice;
+import com.okx.trading.model.entity.CandlestickCoverageEntity;
+import com.okx.trading.repository.CandlestickCoverageRepository;
+import com.okx.trading.repository.CandlestickRepository;
+import com.okx.trading.service.CandlestickCoverageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * K线覆盖索引服务实现类
+ * 槽位 = floor(开盘时间分钟数 / 间隔分钟数)，周线从纪元后第一个周一起算，每 SLOTS_PER_CHUNK 个槽位为一个分块，
+ * 分块位图缓存在内存并以压缩字节持久化到 candlestick_coverage 表，首次访问未建索引的分块时从K线表回填。
+ * 每个(交易对, 间隔)在内存中最多保留 max-cached-chunks 个最近访问的分块，超出的已持久化分块被淘汰，再次访问时从表中读取。
+ * 月线没有固定的分钟长度，不进入位图索引，直接按每月1日的开盘时间查询K线表
+ */
+@Slf4j
+@Service
+public class CandlestickCoverageServiceImpl implements CandlestickCoverageService {
+
+    /**
+     * 每个分块的槽位数，1m周期下恰好为一天
+     */
+    static final int SLOTS_PER_CHUNK = 1440;
+
+    private static final long MINUTES_PER_WEEK = 7 * 1440;
+
+    /**
+     * 周线在周一开盘，纪元第0天(1970-01-01)是周四，周线槽位从1970-01-05起算
+     */
+    private static final long WEEK_ORIGIN_MINUTES = 4 * 1440;
+
+    /**
+     * 从K线表回填索引时单次查询覆盖的最大分块数
+     */
+    private static final int BOOTSTRAP_CHUNKS_PER_QUERY = 30;
+
+    /**
+     * 每个(交易对, 间隔)在内存中保留的分块数，1m周期下默认约一年
+     */
+    @Value("${okx.historical-data.coverage.max-cached-chunks:366}")
+    private int maxCachedChunks = 366;
+
+    private final CandlestickCoverageRepository coverageRepository;
+    private final CandlestickRepository candlestickRepository;
+
+    /**
+     * key: symbol:interval
+     */
+    private final ConcurrentMap<String, SeriesCoverage> seriesCoverages = new ConcurrentHashMap<>();
+
+    public CandlestickCoverageServiceImpl(CandlestickCoverageRepository coverageRepository,
+                                          CandlestickRepository candlestickRepository) {
+        this.coverageRepository = coverageRepository;
+        this.candlestickRepository = candlestickRepository;
+    }
+
+    /**
+     * 单个分块的内存状态
+     */
+    private static class Chunk {
+        private Long id;
+        private final BitSet bits;
+
+        Chunk(Long id, BitSet bits) {
+            this.id = id;
+            this.bits = bits;
+        }
+    }
+
+    /**
+     * 单个(交易对, 间隔)的覆盖索引，所有读写都在对象锁内完成，分块按访问顺序排列
+     */
+    private static class SeriesCoverage {
+        private final Map<Long, Chunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public List<TimeSlice> findMissingRanges(String symbol, String interval, long intervalMinutes,
+                                             LocalDateTime startTime, LocalDateTime endTime) {
+        if (isMonthly(interval)) {
+            return findMissingMonths(symbol, interval, startTime, endTime);
+        }
+        // 开始时间向下对齐到K线开盘时间，未对齐的开始时间不会把已有K线误判为缺失
+        long firstSlot = slotOf(startTime, intervalMinutes);
+        LocalDateTime alignedStart = timeOfSlot(firstSlot, intervalMinutes);
+        long count = countExpectedSlots(intervalMinutes, alignedStart, endTime);
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        long lastSlot = firstSlot + count - 1;
+
+        List<long[]> runs = new ArrayList<>();
+        SeriesCoverage coverage = seriesCoverage(symbol, interval);
+        synchronized (coverage) {
+            Map<Long, Chunk> chunks = loadChunks(coverage, symbol, interval, intervalMinutes,
+                    chunkOf(firstSlot), chunkOf(lastSlot));
+            for (long chunkIndex = chunkOf(firstSlot); chunkIndex <= chunkOf(lastSlot); chunkIndex++) {
+                long chunkBase = chunkIndex * SLOTS_PER_CHUNK;
+                int from = (int) (Math.max(firstSlot, chunkBase) - chunkBase);
+                int to = (int) (Math.min(lastSlot, chunkBase + SLOTS_PER_CHUNK - 1) - chunkBase);
+                BitSet bits = chunks.get(chunkIndex).bits;
+
+                int clear = bits.nextClearBit(from);
+                while (clear <= to) {
+                    int set = bits.nextSetBit(clear);
+                    int runEnd = (set < 0 || set > to) ? to : set - 1;
+                    appendRun(runs, chunkBase + clear, chunkBase + runEnd);
+                    clear = bits.nextClearBit(runEnd + 1);
+                }
+            }
+            evictChunks(coverage);
+        }
+
+        List<TimeSlice> ranges = new ArrayList<>(runs.size());
+        for (long[] run : runs) {
+            ranges.add(new TimeSlice(timeOfSlot(run[0], intervalMinutes), timeOfSlot(run[1], intervalMinutes)));
+        }
+        return ranges;
+    }
+
+    @Override
+    public long countPresent(String symbol, String interval, long intervalMinutes,
+                             LocalDateTime startTime, LocalDateTime endTime) {
+        if (isMonthly(interval)) {
+            LocalDateTime alignedStart = monthOpenTime(startTime, monthsOf(interval));
+            if (alignedStart.isAfter(endTime)) {
+                return 0;
+            }
+            return candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(
+                    symbol, interval, alignedStart, endTime.plusSeconds(1)).size();
+        }
+        long firstSlot = slotOf(startTime, intervalMinutes);
+        long count = countExpectedSlots(intervalMinutes, timeOfSlot(firstSlot, intervalMinutes), endTime);
+        if (count <= 0) {
+            return 0;
+        }
+        long lastSlot = firstSlot + count - 1;
+
+        long present = 0;
+        SeriesCoverage coverage = seriesCoverage(symbol, interval);
+        synchronized (coverage) {
+            Map<Long, Chunk> chunks = loadChunks(coverage, symbol, interval, intervalMinutes,
+                    chunkOf(firstSlot), chunkOf(lastSlot));
+            for (long chunkIndex = chunkOf(firstSlot); chunkIndex <= chunkOf(lastSlot); chunkIndex++) {
+                long chunkBase = chunkIndex * SLOTS_PER_CHUNK;
+                int from = (int) (Math.max(firstSlot, chunkBase) - chunkBase);
+                int to = (int) (Math.min(lastSlot, chunkBase + SLOTS_PER_CHUNK - 1) - chunkBase);
+                present += chunks.get(chunkIndex).bits.get(from, to + 1).cardinality();
+            }
+            evictChunks(coverage);
+        }
+        return present;
+    }
+
+    @Override
+    public void markPresent(String symbol, String interval, long intervalMinutes, Collection<LocalDateTime> openTimes) {
+        if (openTimes == null || openTimes.isEmpty() || isMonthly(interval)) {
+            return;
+        }
+
+        // 按分块归类需要置位的槽位
+        TreeMap<Long, List<Integer>> offsetsByChunk = new TreeMap<>();
+        for (LocalDateTime openTime : openTimes) {
+            if (openTime == null) {
+                continue;
+            }
+            long slot = slotOf(openTime, intervalMinutes);
+            offsetsByChunk.computeIfAbsent(chunkOf(slot), k -> new ArrayList<>())
+                    .add((int) (slot - chunkOf(slot) * SLOTS_PER_CHUNK));
+        }
+        if (offsetsByChunk.isEmpty()) {
+            return;
+        }
+
+        SeriesCoverage coverage = seriesCoverage(symbol, interval);
+        synchronized (coverage) {
+            Map<Long, Chunk> chunks = loadChunks(coverage, symbol, interval, intervalMinutes,
+                    offsetsByChunk.firstKey(), offsetsByChunk.lastKey());
+
+            for (Map.Entry<Long, List<Integer>> entry : offsetsByChunk.entrySet()) {
+                Chunk chunk = chunks.get(entry.getKey());
+                int before = chunk.bits.cardinality();
+                for (Integer offset : entry.getValue()) {
+                    chunk.bits.set(offset);
+                }
+                if (chunk.bits.cardinality() != before) {
+                    persistChunk(symbol, interval, entry.getKey(), chunk);
+                }
+            }
+            evictChunks(coverage);
+        }
+    }
+
+    @Override
+    public void rebuild(String symbol, String interval) {
+        SeriesCoverage coverage = seriesCoverage(symbol, interval);
+        synchronized (coverage) {
+            coverage.chunks.clear();
+            int deleted = coverageRepository.deleteBySymbolAndInterval(symbol, interval);
+            log.info("已清除 {} {} 的K线覆盖索引 {} 条，下次查询时重建", symbol, interval, deleted);
+        }
+    }
+
+    /**
+     * 月线直接从K线表读取已有的开盘时间，区间内最多几百根，不需要索引
+     */
+    private List<TimeSlice> findMissingMonths(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        int months = monthsOf(interval);
+        LocalDateTime alignedStart = monthOpenTime(startTime, months);
+        if (alignedStart.isAfter(endTime)) {
+            return Collections.emptyList();
+        }
+        Set<LocalDateTime> existing = new HashSet<>(candlestickRepository
+                .findExistingOpenTimesBySymbolAndIntervalBetween(symbol, interval, alignedStart, endTime.plusSeconds(1)));
+
+        List<TimeSlice> ranges = new ArrayList<>();
+        LocalDateTime runStart = null;
+        LocalDateTime runEnd = null;
+        for (LocalDateTime openTime = alignedStart; !openTime.isAfter(endTime); openTime = openTime.plusMonths(months)) {
+            if (existing.contains(openTime)) {
+                if (runStart != null) {
+                    ranges.add(new TimeSlice(runStart, runEnd));
+                    runStart = null;
+                }
+            } else {
+                if (runStart == null) {
+                    runStart = openTime;
+                }
+                runEnd = openTime;
+            }
+        }
+        if (runStart != null) {
+            ranges.add(new TimeSlice(runStart, runEnd));
+        }
+        return ranges;
+    }
+
+    /**
+     * 一次操作结束后淘汰最久未访问的分块，操作期间用到的分块都保留在内存中；
+     * 未能持久化的分块不淘汰，避免归档后的数据只能从K线表回填而被误判为缺失
+     * 调用方需持有coverage锁
+     */
+    private void evictChunks(SeriesCoverage coverage) {
+        Iterator<Chunk> iterator = coverage.chunks.values().iterator();
+        while (coverage.chunks.size() > maxCachedChunks && iterator.hasNext()) {
+            if (iterator.next().id != null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private SeriesCoverage seriesCoverage(String symbol, String interval) {
+        return seriesCoverages.computeIfAbsent(symbol + ":" + interval, k -> new SeriesCoverage());
+    }
+
+    /**
+     * 确保[fromChunk, toChunk]内的分块都已加载到内存：先读持久化的位图，再从K线表回填未建索引的分块
+     * 调用方需持有coverage锁
+     */
+    private Map<Long, Chunk> loadChunks(SeriesCoverage coverage, String symbol, String interval, long intervalMinutes,
+                                        long fromChunk, long toChunk) {
+        boolean allLoaded = true;
+        for (long chunkIndex = fromChunk; chunkIndex <= toChunk; chunkIndex++) {
+            if (!coverage.chunks.containsKey(chunkIndex)) {
+                allLoaded = false;
+                break;
+            }
+        }
+        if (allLoaded) {
+            return coverage.chunks;
+        }
+
+        for (CandlestickCoverageEntity entity : coverageRepository.findChunksBetween(symbol, interval, fromChunk, toChunk)) {
+            BitSet bits = decompress(entity.getBitmap());
+            if (bits != null) {
+                coverage.chunks.putIfAbsent(entity.getChunkIndex(), new Chunk(entity.getId(), bits));
+            }
+        }
+
+        // 未建索引的连续分块按批次回填
+        long runStart = -1;
+        for (long chunkIndex = fromChunk; chunkIndex <= toChunk; chunkIndex++) {
+            if (coverage.chunks.containsKey(chunkIndex)) {
+                if (runStart >= 0) {
+                    bootstrapChunks(coverage, symbol, interval, intervalMinutes, runStart, chunkIndex - 1);
+                    runStart = -1;
+                }
+            } else if (runStart < 0) {
+                runStart = chunkIndex;
+            } else if (chunkIndex - runStart + 1 > BOOTSTRAP_CHUNKS_PER_QUERY) {
+                bootstrapChunks(coverage, symbol, interval, intervalMinutes, runStart, chunkIndex - 1);
+                runStart = chunkIndex;
+            }
+        }
+        if (runStart >= 0) {
+            bootstrapChunks(coverage, symbol, interval, intervalMinutes, runStart, toChunk);
+        }
+        return coverage.chunks;
+    }
+
+    /**
+     * 从K线表回填一段连续分块的位图，并持久化
+     */
+    private void bootstrapChunks(SeriesCoverage coverage, String symbol, String interval, long intervalMinutes,
+                                 long fromChunk, long toChunk) {
+        LocalDateTime from = timeOfSlot(fromChunk * SLOTS_PER_CHUNK, intervalMinutes);
+        LocalDateTime to = timeOfSlot((toChunk + 1) * SLOTS_PER_CHUNK, intervalMinutes);
+        List<LocalDateTime> openTimes = candlestickRepository
+                .findExistingOpenTimesBySymbolAndIntervalBetween(symbol, interval, from, to);
+
+        Map<Long, BitSet> bitsByChunk = new HashMap<>();
+        for (long chunkIndex = fromChunk; chunkIndex <= toChunk; chunkIndex++) {
+            bitsByChunk.put(chunkIndex, new BitSet(SLOTS_PER_CHUNK));
+        }
+        for (LocalDateTime openTime : openTimes) {
+            long slot = slotOf(openTime, intervalMinutes);
+            BitSet bits = bitsByChunk.get(chunkOf(slot));
+            if (bits != null) {
+                bits.set((int) (slot - chunkOf(slot) * SLOTS_PER_CHUNK));
+            }
+        }
+
+        for (Map.Entry<Long, BitSet> entry : bitsByChunk.entrySet()) {
+            Chunk chunk = new Chunk(null, entry.getValue());
+            persistChunk(symbol, interval, entry.getKey(), chunk);
+            coverage.chunks.put(entry.getKey(), chunk);
+        }
+        log.debug("从K线表回填覆盖索引: {} {} 分块 {} ~ {}, 已有K线 {} 条", symbol, interval, fromChunk, toChunk, openTimes.size());
+    }
+
+    private void persistChunk(String symbol, String interval, long chunkIndex, Chunk chunk) {
+        try {
+            CandlestickCoverageEntity saved = coverageRepository.save(CandlestickCoverageEntity.builder()
+                    .id(chunk.id)
+                    .symbol(symbol)
+                    .intervalVal(interval)
+                    .chunkIndex(chunkIndex)
+                    .presentCount(chunk.bits.cardinality())
+                    .bitmap(compress(chunk.bits))
+                    .updateTime(LocalDateTime.now())
+                    .build());
+            chunk.id = saved.getId();
+        } catch (Exception e) {
+            // 持久化失败不影响内存索引，重启后会从K线表重新回填
+            log.warn("保存K线覆盖索引失败: {} {} 分块 {}: {}", symbol, interval, chunkIndex, e.getMessage());
+        }
+    }
+
+    /**
+     * 合并相邻的缺失区间(跨分块边界时首尾相连)
+     */
+    private static void appendRun(List<long[]> runs, long from, long to) {
+        if (!runs.isEmpty()) {
+            long[] last = runs.get(runs.size() - 1);
+            if (last[1] + 1 == from) {
+                last[1] = to;
+                return;
+            }
+        }
+        runs.add(new long[]{from, to});
+    }
+
+    /**
+     * 时间范围内预期的K线数量: startTime, startTime + interval, ... 且不晚于 endTime
+     */
+    static long countExpectedSlots(long intervalMinutes, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime.isAfter(endTime)) {
+            return 0;
+        }
+        return ChronoUnit.MINUTES.between(startTime, endTime) / intervalMinutes + 1;
+    }
+
+    static long slotOf(LocalDateTime time, long intervalMinutes) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) / 60 - originOf(intervalMinutes), intervalMinutes);
+    }
+
+    static long chunkOf(long slot) {
+        return Math.floorDiv(slot, SLOTS_PER_CHUNK);
+    }
+
+    private static LocalDateTime timeOfSlot(long slot, long intervalMinutes) {
+        return LocalDateTime.ofEpochSecond((slot * intervalMinutes + originOf(intervalMinutes)) * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * 槽位起点相对纪元的分钟数，只有按周计的间隔需要对齐到周一
+     */
+    private static long originOf(long intervalMinutes) {
+        return intervalMinutes % MINUTES_PER_WEEK == 0 ? WEEK_ORIGIN_MINUTES : 0;
+    }
+
+    static boolean isMonthly(String interval) {
+        return interval.endsWith("M");
+    }
+
+    private static int monthsOf(String interval) {
+        return Integer.parseInt(interval.substring(0, interval.length() - 1));
+    }
+
+    /**
+     * 向下对齐到月线开盘时间，多月周期从1月起按周期对齐
+     */
+    static LocalDateTime monthOpenTime(LocalDateTime time, int months) {
+        int monthIndex = time.getYear() * 12 + time.getMonthValue() - 1;
+        int aligned = Math.floorDiv(monthIndex, months) * months;
+        return LocalDateTime.of(Math.floorDiv(aligned, 12), aligned % 12 + 1, 1, 0, 0);
+    }
+
+    static byte[] compress(BitSet bits) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bits.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+            byte[] buffer = new byte[256];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static BitSet decompress(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new BitSet(SLOTS_PER_CHUNK);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(SLOTS_PER_CHUNK / 8);
+            byte[] buffer = new byte[256];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            return BitSet.valueOf(out.toByteArray());
+        } catch (DataFormatException e) {
+            // 返回null使该分块从K线表重新回填
+            log.warn("K线覆盖位图解压失败: {}", e.getMessage());
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.repository.CandlestickRepository;
+import com.okx.trading.service.CandlestickCoverageService;
+import com.okx.trading.service.CandlestickPartitionService;
+import com.okx.trading.service.HistoricalDataService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * K线表分区管理服务实现类
+ * 分区命名为 pYYYYMM，边界为次月1日；p_history 存放2019年以前的数据，p_max 为兜底分区且应始终为空。
+ * 所有DDL都基于 information_schema.PARTITIONS 判断当前状态，未执行迁移脚本的未分区表会被自动跳过
+ */
+@Slf4j
+@Service
+public class CandlestickPartitionServiceImpl implements CandlestickPartitionService {
+
+    static final String HOT_TABLE = "candlestick_history";
+    static final String ARCHIVE_TABLE = "candlestick_history_archive";
+    // 与K线表结构一致的未分区中转表，冷分区通过EXCHANGE PARTITION整体换出后再写入归档表
+    static final String STAGING_TABLE = "candlestick_history_archive_staging";
+    static final String MAX_PARTITION = "p_max";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CandlestickCoverageService coverageService;
+    private final HistoricalDataService historicalDataService;
+
+    /**
+     * 提前创建的月分区数
+     */
+    @Value("${okx.historical-data.partition.months-ahead:3}")
+    private int monthsAhead = 3;
+
+    /**
+     * 早于当前月N个月的分区迁入归档表，0表示不归档
+     */
+    @Value("${okx.historical-data.partition.archive-after-months:0}")
+    private int archiveAfterMonths = 0;
+
+    /**
+     * 归档表中最新的K线开盘时间，null表示没有归档数据
+     */
+    private volatile LocalDateTime archivedUntil;
+
+    private volatile boolean pruningVerified = false;
+
+    @Autowired
+    public CandlestickPartitionServiceImpl(JdbcTemplate jdbcTemplate,
+                                           CandlestickCoverageService coverageService,
+                                           @Lazy HistoricalDataService historicalDataService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.coverageService = coverageService;
+        this.historicalDataService = historicalDataService;
+    }
+
+    /**
+     * 启动时读取归档边界，分区维护首次执行前的查询也能正确合并归档表
+     */
+    @PostConstruct
+    public void init() {
+        refreshArchivedUntil();
+    }
+
+    /**
+     * 启动1分钟后执行一次，之后每6小时执行一次分区维护
+     */
+    @Scheduled(initialDelay = 60_000L, fixedDelay = 6 * 3600_000L)
+    public void maintainPartitions() {
+        try {
+            ensureFuturePartitions();
+            archiveColdPartitions();
+            refreshArchivedUntil();
+            if (!pruningVerified) {
+                verifyPruning();
+            }
+        } catch (Exception e) {
+            log.error("K线表分区维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int ensureFuturePartitions() {
+        List<PartitionInfo> partitions = loadPartitions();
+        if (partitions.isEmpty()) {
+            log.debug("{} 未分区，跳过分区维护", HOT_TABLE);
+            return 0;
+        }
+
+        LocalDate lastBound = null;
+        boolean hasMaxPartition = false;
+        for (PartitionInfo partition : partitions) {
+            if (partition.upperBound == null) {
+                hasMaxPartition = MAX_PARTITION.equals(partition.name);
+            } else if (lastBound == null || partition.upperBound.isAfter(lastBound)) {
+                lastBound = partition.upperBound;
+            }
+        }
+        if (lastBound == null) {
+            log.warn("{} 没有带边界的分区，跳过分区维护", HOT_TABLE);
+            return 0;
+        }
+
+        LocalDate targetBound = LocalDate.now().withDayOfMonth(1).plusMonths(monthsAhead + 1L);
+        String sql = buildCreatePartitionSql(lastBound, targetBound, hasMaxPartition);
+        if (sql == null) {
+            return 0;
+        }
+
+        int created = countMonths(lastBound, targetBound);
+        log.info("创建K线表月分区: {} ~ {}, 共 {} 个", lastBound, targetBound.minusMonths(1), created);
+        jdbcTemplate.execute(sql);
+        return created;
+    }
+
+    @Override
+    public int archiveColdPartitions() {
+        if (archiveAfterMonths <= 0) {
+            return 0;
+        }
+        List<PartitionInfo> partitions = loadPartitions();
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths);
+
+        // 上次归档在换出之后中断时，中转表里还留着换出的K线
+        drainStaging();
+
+        int archived = 0;
+        for (PartitionInfo partition : partitions) {
+            if (partition.upperBound == null || partition.upperBound.isAfter(cutoff)) {
+                continue;
+            }
+            List<Map<String, Object>> series = jdbcTemplate.queryForList(
+                    "SELECT symbol, interval_val, MIN(open_time) AS min_time, MAX(open_time) AS max_time FROM "
+                            + HOT_TABLE + " PARTITION (" + partition.name + ") GROUP BY symbol, interval_val");
+            if (series.isEmpty()) {
+                continue;
+            }
+
+            // 先把分区内每个(交易对, 间隔)的覆盖位图落库，归档后缺失检测不再依赖K线表
+            for (Map<String, Object> row : series) {
+                String symbol = (String) row.get("symbol");
+                String interval = (String) row.get("interval_val");
+                coverageService.countPresent(symbol, interval, historicalDataService.getIntervalMinutes(interval),
+                        toLocalDateTime(row.get("min_time")), toLocalDateTime(row.get("max_time")));
+            }
+
+            // 先复制再换出：复制期间分区仍可读写；EXCHANGE PARTITION原子地把整个分区（包括复制之后写入的K线）换到中转表，
+            // 再从中转表补齐复制后新增的K线。换出之后写入该月的K线留在热表，下次维护时再次归档，不会被删除
+            // INSERT IGNORE保证中途失败后重跑是幂等的
+            int copied = jdbcTemplate.update("INSERT IGNORE INTO " + ARCHIVE_TABLE + " (" + CandlestickRepository.ARCHIVE_COLUMNS + ") SELECT "
+                    + CandlestickRepository.ARCHIVE_COLUMNS + " FROM " + HOT_TABLE + " PARTITION (" + partition.name + ")");
+            jdbcTemplate.execute("ALTER TABLE " + HOT_TABLE + " EXCHANGE PARTITION " + partition.name + " WITH TABLE " + STAGING_TABLE);
+            copied += drainStaging();
+            archived++;
+            log.info("K线分区 {} 已归档: {} 个交易对/间隔, {} 条K线", partition.name, series.size(), copied);
+        }
+        if (archived > 0) {
+            refreshArchivedUntil();
+        }
+        return archived;
+    }
+
+    /**
+     * 把中转表中的K线写入归档表后清空中转表，中转表只由归档使用，两步之间不会有新的写入
+     *
+     * @return 写入归档表的K线数
+     */
+    private int drainStaging() {
+        int copied = jdbcTemplate.update("INSERT IGNORE INTO " + ARCHIVE_TABLE + " (" + CandlestickRepository.ARCHIVE_COLUMNS + ") SELECT "
+                + CandlestickRepository.ARCHIVE_COLUMNS + " FROM " + STAGING_TABLE);
+        jdbcTemplate.execute("TRUNCATE TABLE " + STAGING_TABLE);
+        return copied;
+    }
+
+    @Override
+    public boolean isArchived(LocalDateTime startTime) {
+        LocalDateTime until = archivedUntil;
+        return until != null && (startTime == null || !startTime.isAfter(until));
+    }
+
+    @Override
+    public List<String> explainPartitions(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        // 与仓库中的范围查询保持相同的谓词和绑定参数方式，EXPLAIN结果即为实际查询的裁剪效果
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT open_time FROM " + HOT_TABLE
+                        + " WHERE symbol = ? AND interval_val = ? AND open_time BETWEEN ? AND ?",
+                symbol, interval, Timestamp.valueOf(startTime), Timestamp.valueOf(endTime));
+        if (plan.isEmpty() || plan.get(0).get("partitions") == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(plan.get(0).get("partitions").toString().split(","));
+    }
+
+    /**
+     * 用当前月的查询验证分区裁剪，BETWEEN包含两端，结束时间取月末最后一秒，命中分区超过2个说明裁剪未生效
+     */
+    private void verifyPruning() {
+        LocalDateTime monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        List<String> hit = explainPartitions("BTC-USDT", "1m", monthStart, monthStart.plusMonths(1).minusSeconds(1));
+        if (hit.isEmpty()) {
+            return;
+        }
+        pruningVerified = true;
+        if (hit.size() > 2) {
+            log.warn("K线表分区裁剪未生效，单月查询命中 {} 个分区: {}", hit.size(), hit);
+        } else {
+            log.info("K线表分区裁剪验证通过，单月查询命中分区: {}", hit);
+        }
+    }
+
+    private void refreshArchivedUntil() {
+        try {
+            archivedUntil = toLocalDateTime(jdbcTemplate.queryForObject(
+                    "SELECT MAX(open_time) FROM " + ARCHIVE_TABLE, Object.class));
+        } catch (Exception e) {
+            // 归档表不存在时按无归档处理
+            archivedUntil = null;
+            log.debug("读取归档表边界失败: {}", e.getMessage());
+        }
+    }
+
+    private List<PartitionInfo> loadPartitions() {
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY PARTITION_ORDINAL_POSITION", HOT_TABLE)) {
+            Object name = row.get("PARTITION_NAME");
+            if (name != null) {
+                partitions.add(new PartitionInfo(name.toString(), parseUpperBound((String) row.get("PARTITION_DESCRIPTION"))));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * 生成从 lastBound 所在月到 targetBound 前一个月的分区DDL，有p_max时从p_max拆分，否则直接追加
+     *
+     * @return DDL语句，不需要新建分区时为null
+     */
+    static String buildCreatePartitionSql(LocalDate lastBound, LocalDate targetBound, boolean hasMaxPartition) {
+        if (!lastBound.isBefore(targetBound)) {
+            return null;
+        }
+        StringBuilder partitions = new StringBuilder();
+        for (LocalDate month = lastBound; month.isBefore(targetBound); month = month.plusMonths(1)) {
+            if (partitions.length() > 0) {
+                partitions.append(", ");
+            }
+            partitions.append("PARTITION ").append(month.format(PARTITION_NAME_FORMAT))
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).format(BOUND_FORMAT)).append("')");
+        }
+        if (hasMaxPartition) {
+            return "ALTER TABLE " + HOT_TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                    + partitions + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))";
+        }
+        return "ALTER TABLE " + HOT_TABLE + " ADD PARTITION (" + partitions + ")";
+    }
+
+    /**
+     * 解析 RANGE COLUMNS 分区的上界，如 '2024-02-01 00:00:00'，MAXVALUE 返回null
+     */
+    static LocalDate parseUpperBound(String description) {
+        if (description == null || description.trim().equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return LocalDate.parse(value.substring(0, 10), BOUND_FORMAT);
+    }
+
+    private static int countMonths(LocalDate from, LocalDate to) {
+        return (to.getYear() - from.getYear()) * 12 + to.getMonthValue() - from.getMonthValue();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static class PartitionInfo {
+        private final String name;
+        // 分区上界(不包含)，MAXVALUE为null
+        private final LocalDate upperBound;
+
+        PartitionInfo(String name, LocalDate upperBound) {
+            this.name = name;
+            this.upperBound = upperBound;
+        }
+    }
+}
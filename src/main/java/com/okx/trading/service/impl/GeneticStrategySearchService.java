@@ -0,0 +1,618 @@
+package com.okx.trading.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.okx.trading.backtest.EquityTracker;
+import com.okx.trading.backtest.PruningPolicy;
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.GeneticCandidateDTO;
+import com.okx.trading.model.dto.GeneticSearchRequestDTO;
+import com.okx.trading.model.dto.GeneticSearchResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.BacktestTradeService;
+import com.okx.trading.strategy.BacktestMetricsCalculator;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.Rule;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 规则组合遗传搜索服务
+ * 把已注册策略的入场规则和出场规则当作基因，个体是若干入场规则的AND/OR组合加若干出场规则的AND/OR组合。
+ * 每一代在线程池中并行评估：每个线程持有自己的一套基因策略，指标缓存在同一线程评估的所有组合和各代之间复用，
+ * 回测循环中净值回撤超过阈值的组合按剪枝策略提前终止。选择采用NSGA-II：按总收益率、最大回撤和综合评分做非支配排序，
+ * 同层按拥挤度排序，父代与子代合并后保留最好的一个种群
+ */
+@Service
+public class GeneticStrategySearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneticStrategySearchService.class);
+
+    public static final String STRATEGY_CODE = "GENETIC";
+
+    static final int MAX_POPULATION_SIZE = 200;
+    static final int MAX_GENERATIONS = 100;
+    static final int MAX_RULES = 4;
+
+    private final ExecutorService computeExecutorService;
+    private final BacktestTradeService backtestTradeService;
+
+    @Autowired
+    public GeneticStrategySearchService(@Qualifier("backtestComputeExecutorService") ExecutorService computeExecutorService,
+                                        BacktestTradeService backtestTradeService) {
+        this.computeExecutorService = computeExecutorService;
+        this.backtestTradeService = backtestTradeService;
+    }
+
+    /**
+     * 执行遗传搜索
+     *
+     * @param series                完整时间范围的条形系列，搜索过程中只读
+     * @param benchmarkCandlesticks 计算综合评分用的基准K线
+     * @param request               搜索参数
+     * @return 搜索结果，最终种群的帕累托前沿按请求保存到回测汇总表
+     */
+    public GeneticSearchResultDTO search(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks, GeneticSearchRequestDTO request) {
+        long startMillis = System.currentTimeMillis();
+        GeneticSearchResultDTO result = new GeneticSearchResultDTO();
+        String error = validate(request);
+        if (error != null) {
+            result.setSuccess(false);
+            result.setErrorMessage(error);
+            return result;
+        }
+
+        List<String> requested = request.getStrategyCodes() == null || request.getStrategyCodes().isEmpty()
+                ? new ArrayList<>(new TreeSet<>(StrategyRegisterCenter.strategyCreators.keySet()))
+                : request.getStrategyCodes();
+        GenePool firstPool = GenePool.create(series, requested);
+        List<String> codes = firstPool.codes;
+        result.setGeneCount(codes.size());
+        if (codes.isEmpty()) {
+            result.setSuccess(false);
+            result.setErrorMessage("没有可用的基因策略");
+            return result;
+        }
+
+        SearchContext context = new SearchContext(series, benchmarkCandlesticks, request, codes);
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), request.getPopulationSize()));
+        GenePool[] pools = new GenePool[workers];
+        pools[0] = firstPool;
+        Random random = request.getSeed() != null ? new Random(request.getSeed()) : new Random();
+        Map<String, Candidate> evaluated = new HashMap<>();
+
+        List<Genome> initial = new ArrayList<>();
+        for (int attempt = 0; initial.size() < request.getPopulationSize() && attempt < request.getPopulationSize() * 20; attempt++) {
+            Genome genome = Genome.random(random, codes.size(), request.getMaxEntryRules(), request.getMaxExitRules());
+            if (!evaluated.containsKey(genome.key) && initial.stream().noneMatch(g -> g.key.equals(genome.key))) {
+                initial.add(genome);
+            }
+        }
+        List<Candidate> population = evaluateAll(initial, pools, context, evaluated);
+        rank(population);
+        List<BigDecimal> bestScores = new ArrayList<>();
+        bestScores.add(bestScore(population));
+
+        int generation = 1;
+        for (; generation < request.getGenerations(); generation++) {
+            List<Genome> children = new ArrayList<>();
+            for (int attempt = 0; children.size() < request.getPopulationSize() && attempt < request.getPopulationSize() * 20; attempt++) {
+                Genome child = Genome.crossover(random, tournament(random, population).genome, tournament(random, population).genome,
+                        request.getMaxEntryRules(), request.getMaxExitRules());
+                if (random.nextDouble() < request.getMutationRate()) {
+                    child = child.mutate(random, codes.size(), request.getMaxEntryRules(), request.getMaxExitRules());
+                }
+                Genome candidate = child;
+                if (!evaluated.containsKey(candidate.key) && children.stream().noneMatch(g -> g.key.equals(candidate.key))) {
+                    children.add(candidate);
+                }
+            }
+            if (children.isEmpty()) {
+                log.info("遗传搜索第 {} 代没有产生新的组合，提前结束", generation + 1);
+                break;
+            }
+            List<Candidate> combined = new ArrayList<>(population);
+            combined.addAll(evaluateAll(children, pools, context, evaluated));
+            rank(combined);
+            combined.sort(RANKING);
+            population = new ArrayList<>(combined.subList(0, Math.min(request.getPopulationSize(), combined.size())));
+            rank(population);
+            bestScores.add(bestScore(population));
+        }
+
+        population.sort(RANKING);
+        List<GeneticCandidateDTO> front = new ArrayList<>();
+        for (Candidate candidate : population) {
+            if (candidate.pruned || candidate.rank > 0) {
+                break;
+            }
+            front.add(toDTO(candidate, codes));
+        }
+
+        if (request.getSaveTopN() > 0 && !front.isEmpty()) {
+            String batchBacktestId = UUID.randomUUID().toString();
+            saveFront(population, front, pools[0], context, batchBacktestId);
+            result.setBatchBacktestId(batchBacktestId);
+        }
+
+        result.setSuccess(true);
+        result.setGenerations(generation);
+        result.setEvaluatedCandidates(evaluated.size());
+        result.setPrunedCandidates((int) evaluated.values().stream().filter(c -> c.pruned).count());
+        result.setBestScoreByGeneration(bestScores);
+        result.setParetoFront(front);
+        result.setElapsedMillis(System.currentTimeMillis() - startMillis);
+        log.info("遗传搜索完成: {} 个基因, {} 代, 评估 {} 个组合, 剪枝 {} 个, 帕累托前沿 {} 个, 耗时 {} ms",
+                codes.size(), generation, result.getEvaluatedCandidates(), result.getPrunedCandidates(), front.size(), result.getElapsedMillis());
+        return result;
+    }
+
+    private static String validate(GeneticSearchRequestDTO request) {
+        if (request.getPopulationSize() < 2 || request.getPopulationSize() > MAX_POPULATION_SIZE) {
+            return "种群大小必须在2到" + MAX_POPULATION_SIZE + "之间";
+        }
+        if (request.getGenerations() < 1 || request.getGenerations() > MAX_GENERATIONS) {
+            return "迭代代数必须在1到" + MAX_GENERATIONS + "之间";
+        }
+        if (request.getMaxEntryRules() < 1 || request.getMaxEntryRules() > MAX_RULES
+                || request.getMaxExitRules() < 1 || request.getMaxExitRules() > MAX_RULES) {
+            return "入场和出场规则数量必须在1到" + MAX_RULES + "之间";
+        }
+        if (request.getMaxDrawdownLimit() <= 0 || request.getMaxDrawdownLimit() > 1) {
+            return "回撤剪枝阈值必须在(0, 1]之间";
+        }
+        return null;
+    }
+
+    /**
+     * 把待评估的组合按线程分组并行评估，每组使用该线程独占的基因策略
+     */
+    private List<Candidate> evaluateAll(List<Genome> genomes, GenePool[] pools, SearchContext context, Map<String, Candidate> evaluated) {
+        Candidate[] candidates = new Candidate[genomes.size()];
+        int groupCount = Math.min(pools.length, genomes.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int g = 0; g < groupCount; g++) {
+            int group = g;
+            int from = (int) ((long) genomes.size() * g / groupCount);
+            int to = (int) ((long) genomes.size() * (g + 1) / groupCount);
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (pools[group] == null) {
+                    pools[group] = GenePool.create(context.series, context.codes);
+                }
+                for (int i = from; i < to; i++) {
+                    candidates[i] = evaluate(genomes.get(i), pools[group], context, true);
+                    // 交易记录只在保存结果时需要，届时重新回放
+                    candidates[i].record = null;
+                }
+            }, computeExecutorService));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        List<Candidate> result = new ArrayList<>(Arrays.asList(candidates));
+        for (Candidate candidate : result) {
+            evaluated.put(candidate.genome.key, candidate);
+        }
+        return result;
+    }
+
+    /**
+     * 单次遍历回测一个组合，按收盘价全仓复利跟踪净值，回撤超过阈值时提前终止
+     */
+    static Candidate evaluate(Genome genome, GenePool pool, SearchContext context, boolean prune) {
+        BarSeries series = context.series;
+        Candidate candidate = new Candidate(genome);
+        TradingRecord record = new BaseTradingRecord(Trade.TradeType.BUY, new ZeroCostModel(), new ZeroCostModel());
+        candidate.record = record;
+        Strategy strategy;
+        try {
+            strategy = pool.build(genome);
+        } catch (Exception e) {
+            log.debug("组合 {} 创建失败: {}", genome.describe(context.codes), e.getMessage());
+            candidate.pruned = true;
+            return candidate;
+        }
+
+        EquityTracker tracker = new EquityTracker(series.getBeginIndex(), series.getEndIndex(), context.fee);
+        Num amount = series.numOf(1);
+        try {
+            for (int i = series.getBeginIndex(); i <= series.getEndIndex(); i++) {
+                Num closePrice = series.getBar(i).getClosePrice();
+                boolean operated = strategy.shouldOperate(i, record);
+                if (operated) {
+                    record.operate(i, closePrice, amount);
+                }
+                tracker.update(closePrice.doubleValue(), operated, record);
+                if (prune && context.pruningPolicy.check(tracker) != null) {
+                    candidate.pruned = true;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("组合 {} 回测失败: {}", genome.describe(context.codes), e.getMessage());
+            candidate.pruned = true;
+        }
+        candidate.totalReturn = tracker.getTotalReturn();
+        candidate.maxDrawdown = tracker.getMaxDrawdown();
+        candidate.trades = tracker.getClosedTrades();
+        if (candidate.pruned) {
+            return candidate;
+        }
+
+        BacktestResultDTO metrics = context.metrics(record, genome.describe(context.codes));
+        if (metrics != null && metrics.isSuccess() && metrics.getComprehensiveScore() != null) {
+            candidate.score = metrics.getComprehensiveScore().doubleValue();
+        }
+        return candidate;
+    }
+
+    /**
+     * 保存帕累托前沿中排在最前的若干组合，共用一个批量回测ID
+     */
+    private void saveFront(List<Candidate> population, List<GeneticCandidateDTO> front, GenePool pool,
+                           SearchContext context, String batchBacktestId) {
+        GeneticSearchRequestDTO request = context.request;
+        for (int k = 0; k < front.size() && k < request.getSaveTopN(); k++) {
+            Candidate candidate = population.get(k);
+            GeneticCandidateDTO dto = front.get(k);
+            try {
+                Candidate replay = evaluate(candidate.genome, pool, context, false);
+                BacktestResultDTO backtestResult = context.metrics(replay.record, dto.getDescription());
+                if (backtestResult == null || !backtestResult.isSuccess()) {
+                    continue;
+                }
+                backtestResult.setStrategyCode(STRATEGY_CODE);
+                backtestResult.setStrategyName(dto.getDescription());
+                String params = describeParams(dto);
+                String backtestId = backtestTradeService.saveBacktestTrades(request.getSymbol(), backtestResult, params);
+                backtestTradeService.saveBacktestSummary(backtestResult, params, request.getSymbol(), request.getInterval(),
+                        request.getStartTime(), request.getEndTime(), backtestId, batchBacktestId);
+                dto.setBacktestId(backtestId);
+            } catch (Exception e) {
+                log.error("保存遗传搜索组合 {} 失败: {}", dto.getDescription(), e.getMessage());
+            }
+        }
+    }
+
+    private static String describeParams(GeneticCandidateDTO dto) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("entryRules", dto.getEntryRules());
+        params.put("entryOperator", dto.getEntryOperator());
+        params.put("exitRules", dto.getExitRules());
+        params.put("exitOperator", dto.getExitOperator());
+        return JSON.toJSONString(params);
+    }
+
+    private static GeneticCandidateDTO toDTO(Candidate candidate, List<String> codes) {
+        GeneticCandidateDTO dto = new GeneticCandidateDTO();
+        dto.setDescription(candidate.genome.describe(codes));
+        dto.setEntryRules(candidate.genome.codes(candidate.genome.entry, codes));
+        dto.setEntryOperator(candidate.genome.entryAnd ? "AND" : "OR");
+        dto.setExitRules(candidate.genome.codes(candidate.genome.exit, codes));
+        dto.setExitOperator(candidate.genome.exitAnd ? "AND" : "OR");
+        dto.setTotalReturn(WalkForwardAnalysisService.scale(candidate.totalReturn));
+        dto.setMaxDrawdown(WalkForwardAnalysisService.scale(candidate.maxDrawdown));
+        dto.setComprehensiveScore(BigDecimal.valueOf(candidate.score).setScale(4, RoundingMode.HALF_UP));
+        dto.setNumberOfTrades(candidate.trades);
+        dto.setParetoRank(candidate.rank);
+        dto.setPruned(candidate.pruned);
+        return dto;
+    }
+
+    private static BigDecimal bestScore(List<Candidate> population) {
+        double best = population.stream().filter(c -> !c.pruned).mapToDouble(c -> c.score).max().orElse(0);
+        return BigDecimal.valueOf(best).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 规模为2的锦标赛选择
+     */
+    private static Candidate tournament(Random random, List<Candidate> population) {
+        Candidate a = population.get(random.nextInt(population.size()));
+        Candidate b = population.get(random.nextInt(population.size()));
+        return RANKING.compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * 排序：未剪枝优先，再按非支配层级升序、拥挤度降序
+     */
+    static final Comparator<Candidate> RANKING = Comparator.<Candidate, Boolean>comparing(c -> c.pruned)
+            .thenComparingInt(c -> c.rank)
+            .thenComparing(Comparator.<Candidate>comparingDouble(c -> c.crowding).reversed())
+            .thenComparing(c -> c.genome.key);
+
+    /**
+     * 非支配排序并计算每层的拥挤度；被剪枝的组合不参与排序，层级为最大值
+     */
+    static void rank(List<Candidate> candidates) {
+        List<Candidate> remaining = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            candidate.crowding = 0;
+            if (candidate.pruned) {
+                candidate.rank = Integer.MAX_VALUE;
+            } else {
+                remaining.add(candidate);
+            }
+        }
+        for (int level = 0; !remaining.isEmpty(); level++) {
+            List<Candidate> front = new ArrayList<>();
+            for (Candidate candidate : remaining) {
+                boolean dominated = false;
+                for (Candidate other : remaining) {
+                    if (other != candidate && other.dominates(candidate)) {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (!dominated) {
+                    front.add(candidate);
+                }
+            }
+            for (Candidate candidate : front) {
+                candidate.rank = level;
+            }
+            assignCrowding(front);
+            remaining.removeAll(front);
+        }
+    }
+
+    private static void assignCrowding(List<Candidate> front) {
+        List<Comparator<Candidate>> objectives = Arrays.asList(
+                Comparator.comparingDouble(c -> c.totalReturn),
+                Comparator.comparingDouble(c -> -c.maxDrawdown),
+                Comparator.comparingDouble(c -> c.score));
+        List<Candidate> sorted = new ArrayList<>(front);
+        for (int o = 0; o < objectives.size(); o++) {
+            sorted.sort(objectives.get(o));
+            int last = sorted.size() - 1;
+            sorted.get(0).crowding = Double.POSITIVE_INFINITY;
+            sorted.get(last).crowding = Double.POSITIVE_INFINITY;
+            double range = sorted.get(last).objective(o) - sorted.get(0).objective(o);
+            if (range <= 0) {
+                continue;
+            }
+            for (int i = 1; i < last; i++) {
+                sorted.get(i).crowding += (sorted.get(i + 1).objective(o) - sorted.get(i - 1).objective(o)) / range;
+            }
+        }
+    }
+
+    /**
+     * 一次搜索中不变的输入
+     */
+    static class SearchContext {
+        final BarSeries series;
+        final List<CandlestickEntity> benchmarkCandlesticks;
+        final GeneticSearchRequestDTO request;
+        final List<String> codes;
+        final double fee;
+        final PruningPolicy pruningPolicy;
+
+        SearchContext(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks, GeneticSearchRequestDTO request, List<String> codes) {
+            this.series = series;
+            this.benchmarkCandlesticks = benchmarkCandlesticks;
+            this.request = request;
+            this.codes = codes;
+            this.fee = request.getFeeRatio() == null ? 0 : request.getFeeRatio().doubleValue();
+            this.pruningPolicy = PruningPolicy.of(0, request.getMaxDrawdownLimit(), 0, 1);
+        }
+
+        /**
+         * 计算完整回测指标，失败时返回null
+         */
+        BacktestResultDTO metrics(TradingRecord record, String description) {
+            try {
+                return new BacktestMetricsCalculator(series, record, request.getInitialAmount(), STRATEGY_CODE, description,
+                        request.getFeeRatio(), request.getInterval(), benchmarkCandlesticks).getResult();
+            } catch (Exception e) {
+                log.debug("组合 {} 计算回测指标失败: {}", description, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 一个线程独占的基因策略，入场和出场规则取自同一个策略实例，指标缓存随实例复用
+     */
+    static class GenePool {
+        final List<String> codes;
+        final Strategy[] strategies;
+
+        private GenePool(List<String> codes, Strategy[] strategies) {
+            this.codes = codes;
+            this.strategies = strategies;
+        }
+
+        /**
+         * 按代码创建基因策略，创建失败的代码被剔除
+         */
+        static GenePool create(BarSeries series, List<String> requested) {
+            List<String> codes = new ArrayList<>();
+            List<Strategy> strategies = new ArrayList<>();
+            for (String code : requested) {
+                try {
+                    strategies.add(StrategyRegisterCenter.createStrategy(series, code));
+                    codes.add(code);
+                } catch (Exception e) {
+                    log.debug("策略 {} 无法作为基因: {}", code, e.getMessage());
+                }
+            }
+            return new GenePool(Collections.unmodifiableList(codes), strategies.toArray(new Strategy[0]));
+        }
+
+        Strategy build(Genome genome) {
+            Rule entry = strategies[genome.entry[0]].getEntryRule();
+            int unstablePeriod = strategies[genome.entry[0]].getUnstablePeriod();
+            for (int k = 1; k < genome.entry.length; k++) {
+                Strategy source = strategies[genome.entry[k]];
+                entry = genome.entryAnd ? entry.and(source.getEntryRule()) : entry.or(source.getEntryRule());
+                unstablePeriod = Math.max(unstablePeriod, source.getUnstablePeriod());
+            }
+            Rule exit = strategies[genome.exit[0]].getExitRule();
+            unstablePeriod = Math.max(unstablePeriod, strategies[genome.exit[0]].getUnstablePeriod());
+            for (int k = 1; k < genome.exit.length; k++) {
+                Strategy source = strategies[genome.exit[k]];
+                exit = genome.exitAnd ? exit.and(source.getExitRule()) : exit.or(source.getExitRule());
+                unstablePeriod = Math.max(unstablePeriod, source.getUnstablePeriod());
+            }
+            return new BaseStrategy(entry, exit, unstablePeriod);
+        }
+    }
+
+    /**
+     * 个体：入场、出场基因下标（升序去重）及各自的组合方式
+     */
+    static class Genome {
+        final int[] entry;
+        final boolean entryAnd;
+        final int[] exit;
+        final boolean exitAnd;
+        final String key;
+
+        Genome(int[] entry, boolean entryAnd, int[] exit, boolean exitAnd) {
+            this.entry = Arrays.stream(entry).distinct().sorted().toArray();
+            this.exit = Arrays.stream(exit).distinct().sorted().toArray();
+            // 只有一个规则时组合方式没有意义，统一为AND便于去重
+            this.entryAnd = entryAnd || this.entry.length == 1;
+            this.exitAnd = exitAnd || this.exit.length == 1;
+            this.key = (this.entryAnd ? "A" : "O") + Arrays.toString(this.entry) + (this.exitAnd ? "A" : "O") + Arrays.toString(this.exit);
+        }
+
+        static Genome random(Random random, int geneCount, int maxEntry, int maxExit) {
+            return new Genome(randomGenes(random, geneCount, 1 + random.nextInt(maxEntry)), random.nextBoolean(),
+                    randomGenes(random, geneCount, 1 + random.nextInt(maxExit)), random.nextBoolean());
+        }
+
+        /**
+         * 子代的每一侧从双亲该侧基因的并集中随机抽取，组合方式随机继承一方
+         */
+        static Genome crossover(Random random, Genome a, Genome b, int maxEntry, int maxExit) {
+            return new Genome(pick(random, a.entry, b.entry, maxEntry), random.nextBoolean() ? a.entryAnd : b.entryAnd,
+                    pick(random, a.exit, b.exit, maxExit), random.nextBoolean() ? a.exitAnd : b.exitAnd);
+        }
+
+        /**
+         * 随机做一种变异：替换、增加或删除一个基因，或翻转组合方式
+         */
+        Genome mutate(Random random, int geneCount, int maxEntry, int maxExit) {
+            boolean onEntry = random.nextBoolean();
+            int[] genes = onEntry ? entry.clone() : exit.clone();
+            int max = onEntry ? maxEntry : maxExit;
+            boolean and = onEntry ? entryAnd : exitAnd;
+            switch (random.nextInt(4)) {
+                case 0:
+                    genes[random.nextInt(genes.length)] = random.nextInt(geneCount);
+                    break;
+                case 1:
+                    if (genes.length < max) {
+                        genes = Arrays.copyOf(genes, genes.length + 1);
+                        genes[genes.length - 1] = random.nextInt(geneCount);
+                    }
+                    break;
+                case 2:
+                    if (genes.length > 1) {
+                        int removed = random.nextInt(genes.length);
+                        genes[removed] = genes[genes.length - 1];
+                        genes = Arrays.copyOf(genes, genes.length - 1);
+                    }
+                    break;
+                default:
+                    and = !and;
+                    break;
+            }
+            return onEntry ? new Genome(genes, and, exit, exitAnd) : new Genome(entry, entryAnd, genes, and);
+        }
+
+        String describe(List<String> codes) {
+            return "(" + String.join(entryAnd ? " AND " : " OR ", codes(entry, codes)) + ") -> ("
+                    + String.join(exitAnd ? " AND " : " OR ", codes(exit, codes)) + ")";
+        }
+
+        List<String> codes(int[] genes, List<String> codes) {
+            List<String> result = new ArrayList<>(genes.length);
+            for (int gene : genes) {
+                result.add(codes.get(gene));
+            }
+            return result;
+        }
+
+        private static int[] randomGenes(Random random, int geneCount, int size) {
+            int[] genes = new int[size];
+            for (int k = 0; k < size; k++) {
+                genes[k] = random.nextInt(geneCount);
+            }
+            return genes;
+        }
+
+        private static int[] pick(Random random, int[] a, int[] b, int max) {
+            List<Integer> union = new ArrayList<>(new TreeSet<>(concat(a, b)));
+            Collections.shuffle(union, random);
+            int size = 1 + random.nextInt(Math.min(max, union.size()));
+            return union.subList(0, size).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static List<Integer> concat(int[] a, int[] b) {
+            List<Integer> result = new ArrayList<>(a.length + b.length);
+            Arrays.stream(a).forEach(result::add);
+            Arrays.stream(b).forEach(result::add);
+            return result;
+        }
+    }
+
+    /**
+     * 已评估的个体及其目标值
+     */
+    static class Candidate {
+        final Genome genome;
+        TradingRecord record;
+        double totalReturn;
+        double maxDrawdown;
+        double score;
+        int trades;
+        boolean pruned;
+        int rank;
+        double crowding;
+
+        Candidate(Genome genome) {
+            this.genome = genome;
+        }
+
+        /**
+         * 三个目标都不差且至少一个更好
+         */
+        boolean dominates(Candidate other) {
+            boolean notWorse = totalReturn >= other.totalReturn && maxDrawdown <= other.maxDrawdown && score >= other.score;
+            boolean better = totalReturn > other.totalReturn || maxDrawdown < other.maxDrawdown || score > other.score;
+            return notWorse && better;
+        }
+
+        double objective(int index) {
+            return index == 0 ? totalReturn : index == 1 ? -maxDrawdown : score;
+        }
+    }
+}
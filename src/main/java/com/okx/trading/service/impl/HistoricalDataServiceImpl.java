@@ -1,21 +1,24 @@
 package com.okx.trading.service.impl;
 
 import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.event.HistoricalDataChangedEvent;
+import com.okx.trading.model.TimeSlice;
 import com.okx.trading.model.common.ApiResponse;
 import com.okx.trading.model.entity.CandlestickEntity;
 import com.okx.trading.model.entity.StrategyInfoEntity;
 import com.okx.trading.model.market.Candlestick;
 import com.okx.trading.repository.CandlestickRepository;
+import com.okx.trading.service.CandlestickCoverageService;
+import com.okx.trading.service.CandlestickPartitionService;
 import com.okx.trading.service.HistoricalDataService;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RedisCacheService;
-import lombok.AllArgsConstructor;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -24,14 +27,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.ta4j.core.BarSeries;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,6 +50,12 @@ import java.util.stream.Stream;
 @Service
 public class HistoricalDataServiceImpl implements HistoricalDataService {
 
+    // 合并读取归档表时代替"不限时间"的查询边界
+    private static final LocalDateTime EARLIEST_OPEN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_OPEN_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+    // 并发加载合并的分块大小(K线根数)，按开盘时间对齐
+    private static final long LOAD_CHUNK_BARS = 1000;
+
     private final OkxApiService okxApiService;
     private final CandlestickRepository candlestickRepository;
     private final ExecutorService executorService;
@@ -61,37 +74,38 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
     @Autowired
     private RedisCacheService redisCacheService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final CandlestickBarSeriesConverter barSeriesConverter;
+    // K线覆盖位图索引，用于缺失区间检测
+    private final CandlestickCoverageService coverageService;
+    // K线表分区管理，用于判断查询是否需要合并读取归档表
+    private final CandlestickPartitionService partitionService;
+    // 进行中的历史K线分块加载，key为 交易对:间隔:分块序号
+    private final ConcurrentMap<String, List<InFlightLoad>> inFlightLoads = new ConcurrentHashMap<>();
     private DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    /**
-     * 时间分片类
-     */
-    @Data
-    @AllArgsConstructor
-    private static class TimeSlice {
-        private LocalDateTime start;
-        private LocalDateTime end;
-
-        @Override
-        public String toString() {
-            return String.format("[%s - %s]", start, end);
-        }
-    }
-
     @Autowired
     public HistoricalDataServiceImpl(@Lazy OkxApiService okxApiService,
                                      CandlestickRepository candlestickRepository,
                                      @Qualifier("historicalDataExecutorService") ExecutorService executorService,
                                      @Qualifier("batchHistoricalDataExecutorService") ExecutorService batchExecutorService,
                                      @Qualifier("historicalDataExecutorService")
-                                     ExecutorService historicalDataExecutorService, CandlestickBarSeriesConverter barSeriesConverter) {
+                                     ExecutorService historicalDataExecutorService, CandlestickBarSeriesConverter barSeriesConverter,
+                                     CandlestickCoverageService coverageService,
+                                     CandlestickPartitionService partitionService) {
         this.okxApiService = okxApiService;
         this.candlestickRepository = candlestickRepository;
         this.executorService = executorService;
         this.batchExecutorService = batchExecutorService;
         this.historicalDataExecutorService = historicalDataExecutorService;
         this.barSeriesConverter = barSeriesConverter;
+        this.coverageService = coverageService;
+        this.partitionService = partitionService;
     }
 
     @Override
@@ -172,10 +186,8 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
 
                     if (!isComplete) {
                         log.info("日期 {} 的数据仍不完整，尝试填充缺失数据点", dayStart.toLocalDate());
-                        CandlestickEntity candlestickEntity = new CandlestickEntity();
-                        candlestickEntity.setSymbol(symbol);
-                        candlestickEntity.setIntervalVal(interval);
-                        List<LocalDateTime> missingTimes = checkDataIntegrity(Arrays.asList(candlestickEntity), dayStart, dayEnd);
+                        List<LocalDateTime> missingTimes = expandMissingRanges(
+                                findMissingRanges(symbol, interval, dayStart, dayEnd.minusSeconds(1)), getIntervalMinutes(interval));
 
                         if (!missingTimes.isEmpty()) {
                             log.info("日期 {} 有 {} 个缺失的数据点，尝试单点填充", dayStart.toLocalDate(), missingTimes.size());
@@ -216,6 +228,7 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
 
     /**
      * 获取不完整的天数列表
+     * 整个时间范围只做一次位图差集，再把缺失区间映射回所在的天
      *
      * @param symbol    交易对
      * @param interval  时间间隔
@@ -226,32 +239,33 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
     private List<TimeSlice> getIncompleteDays(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
         List<TimeSlice> incompleteDays = new ArrayList<>();
 
-
         // 获取时间范围内的所有天数
         LocalDateTime currentDay = startTime;
         LocalDateTime lastDay = endTime.minusSeconds(1);
+        List<TimeSlice> missingRanges = findMissingRanges(symbol, interval, startTime, lastDay);
+        if (missingRanges.isEmpty()) {
+            return incompleteDays;
+        }
         if (startTime.getDayOfYear() == endTime.getDayOfYear()) {
-            // 检查当天数据是否完整
-            if (!isDayDataComplete(symbol, interval, currentDay, lastDay)) {
-                incompleteDays.add(new TimeSlice(currentDay, lastDay));
-                return incompleteDays;
-            }
+            incompleteDays.add(new TimeSlice(currentDay, lastDay));
+            return incompleteDays;
         }
 
-        while (!currentDay.isAfter(lastDay)) {
-            // 计算当天结束时间（次日0点）-1 秒
+        int rangeIndex = 0;
+        while (!currentDay.isAfter(lastDay) && rangeIndex < missingRanges.size()) {
+            // 计算当天结束时间（次日0点）
             LocalDateTime nextDay = currentDay.plusDays(1);
             if (nextDay.isAfter(endTime)) {
                 nextDay = endTime;
             }
 
-            // 检查当天数据是否完整
-            if (!isDayDataComplete(symbol, interval, currentDay, nextDay)) {
+            // 跳过已结束于当天之前的缺失区间，剩余的第一个区间若开始于次日之前则当天不完整
+            while (rangeIndex < missingRanges.size() && missingRanges.get(rangeIndex).getEnd().isBefore(currentDay)) {
+                rangeIndex++;
+            }
+            if (rangeIndex < missingRanges.size() && missingRanges.get(rangeIndex).getStart().isBefore(nextDay)) {
                 incompleteDays.add(new TimeSlice(currentDay, nextDay));
             }
-//            else{
-//                log.info("{} 的数据已完整，跳过获取", currentDay.toLocalDate());
-//            }
 
             currentDay = nextDay;
         }
@@ -260,7 +274,7 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
     }
 
     /**
-     * 检查某一天的数据是否完整
+     * 检查某一天的数据是否完整，[dayStart, dayEnd)
      *
      * @param symbol   交易对
      * @param interval 时间间隔
@@ -269,41 +283,58 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
      * @return 数据是否完整
      */
     private boolean isDayDataComplete(String symbol, String interval, LocalDateTime dayStart, LocalDateTime dayEnd) {
-        // 获取预期的所有时间点
-        List<LocalDateTime> expectedTimes = generateExpectedTimePoints(interval, dayStart, dayEnd);
-
-        // 获取数据库中已存在的时间点
-        List<LocalDateTime> existingTimes = candlestickRepository
-                .findExistingOpenTimesBySymbolAndIntervalBetween(symbol, interval, dayStart, dayEnd);
-
-        // 如果预期时间点数量与已存在时间点数量相同，则认为数据完整
-        Set<String> expectedStr = expectedTimes.stream().map(LocalDateTime::toString).collect(Collectors.toSet());
-        Set<String> existingStr = existingTimes.stream().map(LocalDateTime::toString).collect(Collectors.toSet());
-        expectedStr.removeAll(existingStr);
-
-        if (expectedStr.isEmpty()) {
-            // 进一步检查是否所有预期时间点都存在
-            Set<LocalDateTime> existingTimeSet = new HashSet<>(existingTimes);
-            boolean isComplete = expectedTimes.stream().allMatch(existingTimeSet::contains);
-
-            if (isComplete) {
-                log.debug("{} 的数据已完整，共{}个数据点", dayStart.toLocalDate(), expectedTimes.size());
-                return true;
-            }
+        List<TimeSlice> missingRanges = findMissingRanges(symbol, interval, dayStart, dayEnd.minusSeconds(1));
+        if (missingRanges.isEmpty()) {
+            log.debug("{} 的数据已完整", dayStart.toLocalDate());
+            return true;
         }
 
-        log.info("{} 的数据不完整，预期{}个数据点，实际{}个数据点",
-                dayStart.toLocalDate(), expectedTimes.size(), existingTimes.size());
+        log.info("{} 的数据不完整，缺失{}段", dayStart.toLocalDate(), missingRanges.size());
         return false;
     }
 
+    /**
+     * 通过覆盖位图查找缺失的K线区间，start/end均为缺失K线的开盘时间(包含)
+     */
+    private List<TimeSlice> findMissingRanges(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        return coverageService.findMissingRanges(symbol, interval, getIntervalMinutes(interval), startTime, endTime);
+    }
+
+    /**
+     * 将缺失区间展开为缺失时间点，仅用于单天或单个时间片段这类有界范围
+     */
+    private List<LocalDateTime> expandMissingRanges(List<TimeSlice> missingRanges, long intervalMinutes) {
+        List<LocalDateTime> missingTimes = new ArrayList<>();
+        for (TimeSlice range : missingRanges) {
+            for (LocalDateTime time = range.getStart(); !time.isAfter(range.getEnd()); time = time.plusMinutes(intervalMinutes)) {
+                missingTimes.add(time);
+            }
+        }
+        return missingTimes;
+    }
+
     @Override
     public List<CandlestickEntity> getHistoricalData(String symbol, String interval,
                                                      LocalDateTime startTime, LocalDateTime endTime) {
+        if (partitionService.isArchived(startTime)) {
+            return candlestickRepository.findWithArchiveBySymbolAndIntervalAndOpenTimeBetween(
+                    symbol, interval, startTime, endTime);
+        }
         return candlestickRepository.findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
                 symbol, interval, startTime, endTime);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public <R> R streamHistoricalData(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime,
+                                      Function<Stream<CandlestickEntity>, R> reader) {
+        try (Stream<CandlestickEntity> stream = partitionService.isArchived(startTime)
+                ? candlestickRepository.streamWithArchiveBySymbolAndIntervalAndOpenTimeBetween(symbol, interval, startTime, endTime)
+                : candlestickRepository.streamBySymbolAndIntervalAndOpenTimeBetween(symbol, interval, startTime, endTime)) {
+            return reader.apply(stream.peek(entityManager::detach));
+        }
+    }
+
     @Override
     public List<CandlestickEntity> fetchAndSaveHistoryWithIntegrityCheck(String symbol, String interval, String endTimeStr, int limit) {
         String startTimeStr = LocalDateTime.parse(endTimeStr, dateFormat).minusMinutes(getIntervalMinutes(interval) * limit).format(dateFormat);
@@ -325,12 +356,169 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
             log.info("⚠️ 检测到查询时间包含未完成的周期，已调整结束时间: {} → {}", endTime, adjustedEndTime);
             endTime = adjustedEndTime;
         }
+        if (endTime.isBefore(startTime)) {
+            return new ArrayList<>();
+        }
+
+        return loadHistoryWithSingleFlight(symbol, interval, startTime, endTime);
+    }
+
+    /**
+     * 按(交易对, 间隔, 分块)合并并发的相同加载
+     * 时间范围按对齐的分块拆分，已有进行中的加载覆盖本次所需的分块子范围时直接等待它的结果；
+     * 其余分块由当前线程作为leader，按连续分块合并成一次加载，完成后按分块分发给等待者
+     */
+    private List<CandlestickEntity> loadHistoryWithSingleFlight(String symbol, String interval,
+                                                                LocalDateTime startTime, LocalDateTime endTime) {
+        long intervalMinutes = getIntervalMinutes(interval);
+        long firstChunk = loadChunkOf(startTime, intervalMinutes);
+        long lastChunk = loadChunkOf(endTime, intervalMinutes);
+
+        List<CompletableFuture<List<CandlestickEntity>>> chunkFutures = new ArrayList<>();
+        List<InFlightLoad> leading = new ArrayList<>();
+        for (long chunk = firstChunk; chunk <= lastChunk; chunk++) {
+            LocalDateTime chunkStart = max(startTime, loadChunkStart(chunk, intervalMinutes));
+            LocalDateTime chunkEnd = min(endTime, loadChunkStart(chunk + 1, intervalMinutes).minusSeconds(1));
+            String key = symbol + ":" + interval + ":" + chunk;
+
+            InFlightLoad[] joined = new InFlightLoad[1];
+            InFlightLoad created = new InFlightLoad(key, chunk, chunkStart, chunkEnd);
+            inFlightLoads.compute(key, (k, loads) -> {
+                List<InFlightLoad> current = loads == null ? new ArrayList<>() : loads;
+                for (InFlightLoad load : current) {
+                    if (!load.start.isAfter(chunkStart) && !load.end.isBefore(chunkEnd)) {
+                        joined[0] = load;
+                        return current;
+                    }
+                }
+                current.add(created);
+                return current;
+            });
+
+            if (joined[0] != null) {
+                chunkFutures.add(joined[0].future);
+            } else {
+                chunkFutures.add(created.future);
+                leading.add(created);
+            }
+        }
+
+        if (leading.size() < chunkFutures.size()) {
+            log.info("🤝 {} {} 共 {} 个分块，其中 {} 个分块复用进行中的加载",
+                    symbol, interval, chunkFutures.size(), chunkFutures.size() - leading.size());
+        }
+
+        // 连续的leader分块合并为一次加载
+        int runFrom = 0;
+        try {
+            for (int i = 1; i <= leading.size(); i++) {
+                if (i == leading.size() || leading.get(i).chunk != leading.get(i - 1).chunk + 1) {
+                    loadLeadingRun(symbol, interval, intervalMinutes, leading.subList(runFrom, i));
+                    runFrom = i;
+                }
+            }
+        } catch (Throwable e) {
+            // 后面还没加载的分块也以同一异常结束，等待它们的请求不会永久阻塞
+            List<InFlightLoad> pending = leading.subList(runFrom, leading.size());
+            failLoads(pending, e);
+            releaseLoads(pending);
+            throw e;
+        }
+
+        List<CandlestickEntity> allData = new ArrayList<>();
+        for (CompletableFuture<List<CandlestickEntity>> future : chunkFutures) {
+            try {
+                allData.addAll(future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+            }
+        }
+        // 复用的分块可能比本次请求更宽，按请求范围过滤
+        return allData.stream()
+                .filter(entity -> !entity.getOpenTime().isBefore(startTime) && !entity.getOpenTime().isAfter(endTime))
+                .collect(Collectors.toList());
+    }
+
+    private void loadLeadingRun(String symbol, String interval, long intervalMinutes, List<InFlightLoad> run) {
+        try {
+            List<CandlestickEntity> data = loadHistoryRange(symbol, interval, run.get(0).start, run.get(run.size() - 1).end);
+            Map<Long, List<CandlestickEntity>> byChunk = new HashMap<>();
+            for (CandlestickEntity entity : data) {
+                byChunk.computeIfAbsent(loadChunkOf(entity.getOpenTime(), intervalMinutes), k -> new ArrayList<>()).add(entity);
+            }
+            for (InFlightLoad load : run) {
+                load.future.complete(Collections.unmodifiableList(byChunk.getOrDefault(load.chunk, Collections.emptyList())));
+            }
+        } catch (Throwable e) {
+            // OOM等Error同样要结束共享的future，再交给调用方处理
+            failLoads(run, e);
+            throw e;
+        } finally {
+            releaseLoads(run);
+        }
+    }
+
+    private static void failLoads(List<InFlightLoad> loads, Throwable cause) {
+        for (InFlightLoad load : loads) {
+            load.future.completeExceptionally(cause);
+        }
+    }
+
+    private void releaseLoads(List<InFlightLoad> run) {
+        for (InFlightLoad load : run) {
+            inFlightLoads.computeIfPresent(load.key, (k, loads) -> {
+                loads.remove(load);
+                return loads.isEmpty() ? null : loads;
+            });
+        }
+    }
+
+    private static long loadChunkOf(LocalDateTime time, long intervalMinutes) {
+        long slot = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) / 60, intervalMinutes);
+        return Math.floorDiv(slot, LOAD_CHUNK_BARS);
+    }
+
+    private static LocalDateTime loadChunkStart(long chunk, long intervalMinutes) {
+        return LocalDateTime.ofEpochSecond(chunk * LOAD_CHUNK_BARS * intervalMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * 进行中的分块加载，start/end为该分块内实际加载的开盘时间范围(包含)
+     */
+    private static class InFlightLoad {
+        private final String key;
+        private final long chunk;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final CompletableFuture<List<CandlestickEntity>> future = new CompletableFuture<>();
+
+        InFlightLoad(String key, long chunk, LocalDateTime start, LocalDateTime end) {
+            this.key = key;
+            this.chunk = chunk;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * 智能获取一段已调整过结束时间的历史K线：依次尝试Redis、MySQL，缺失部分并行从API补齐
+     */
+    private List<CandlestickEntity> loadHistoryRange(String symbol, String interval, LocalDateTime startTime, LocalDateTime endTime) {
+        String startTimeStr = startTime.format(dateFormat);
 
         // 计算需要获取的K线数量（基于时间范围和间隔）
         long intervalMinutes = getIntervalMinutes(interval);
-//        long totalExpectedCount = ChronoUnit.MINUTES.between(startTime, endTime) / intervalMinutes;
-        List<String> rangePoints = calculateTimeRangePoints(startTime, endTime, interval);
-        log.info("📊 根据时间范围计算，预期需要获取的K线数量: {}", rangePoints.size());
+        long expectedCount = countTimeRangePoints(startTime, endTime, intervalMinutes);
+        log.info("📊 根据时间范围计算，预期需要获取的K线数量: {}", expectedCount);
 
         TreeSet<CandlestickEntity> cachedData = new TreeSet<>();
         long startTimestamp = startTime.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
@@ -351,7 +539,7 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
                     }
                 }
 
-                if (!cachedData.isEmpty() && rangePoints.size() == cachedData.size()) {
+                if (!cachedData.isEmpty() && expectedCount == cachedData.size()) {
                     log.info("📦 从Redis Sorted Set获取历史K线数据, symbol: {}, interval: {}, 数量: {}, 时间范围: {} ~ {}",
                             symbol, interval, cachedData.size(), startTimeStr, endTime.toString());
                     return cachedData.stream().collect(Collectors.toList());
@@ -370,7 +558,7 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         log.info("💾 MySQL中已存在的K线数量: {}", existingCount);
 
         // 3. 计算需要新获取的数量
-        long neededCount = rangePoints.size() - existingCount;
+        long neededCount = expectedCount - existingCount;
         log.info("🔢 需要新获取的K线数量: {}", neededCount);
 
         // 如果MySQL的数据已经足够，直接返回
@@ -391,17 +579,11 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
             return existingData;
         }
 
-        // 4. 检查数据完整性，找出缺失的时间范围
-        if (existingData.isEmpty()) {
-            CandlestickEntity candlestick = new CandlestickEntity();
-            candlestick.setSymbol(symbol);
-            candlestick.setIntervalVal(interval);
-            existingData.add(candlestick);
-        }
-        List<LocalDateTime> missingTimePoints = checkDataIntegrity(existingData, startTime, endTime);
-        log.info("🔍 发现 {} 个缺失的时间点需要获取", missingTimePoints.size());
+        // 4. 通过覆盖位图直接得到缺失的连续时间范围
+        List<TimeSlice> timeRanges = findMissingRanges(symbol, interval, startTime, endTime);
+        log.info("🔍 缺失数据被分为 {} 个连续时间范围", timeRanges.size());
 
-        if (missingTimePoints.isEmpty()) {
+        if (timeRanges.isEmpty()) {
             log.info("✅ 数据完整性检查通过，直接返回MySQL中的 {} 条数据", existingCount);
             return existingData;
         }
@@ -410,23 +592,17 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         List<CandlestickEntity> newlyFetchedData = Collections.synchronizedList(new ArrayList<>());
         int batchSize = 300;
 
-        // 将缺失时间点按连续范围分组，便于批量处理
-        List<List<LocalDateTime>> timeRanges = groupConsecutiveTimePoints(missingTimePoints, intervalMinutes);
-        log.info("📦 缺失数据被分为 {} 个连续时间范围", timeRanges.size());
-
         // 创建并行任务列表
         List<CompletableFuture<List<CandlestickEntity>>> futures = new ArrayList<>();
 
         for (int i = 0; i < timeRanges.size(); i++) {
-            List<LocalDateTime> range = timeRanges.get(i);
-            if (range.isEmpty()) continue;
-
-            LocalDateTime rangeStart = range.get(0);
-            LocalDateTime rangeEnd = range.get(range.size() - 1);
+            TimeSlice range = timeRanges.get(i);
+            LocalDateTime rangeStart = range.getStart();
+            LocalDateTime rangeEnd = range.getEnd();
             final int rangeIndex = i + 1;
 
             log.info("🔄 准备并行处理第 {} 个时间范围: {} 到 {} ({} 个数据点)",
-                    rangeIndex, rangeStart, rangeEnd, range.size());
+                    rangeIndex, rangeStart, rangeEnd, countTimeRangePoints(rangeStart, rangeEnd, intervalMinutes));
 
             // 创建异步任务
             CompletableFuture<List<CandlestickEntity>> future = CompletableFuture
@@ -495,7 +671,7 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         }
 
         log.info("✨ 智能获取历史K线数据完成，最终返回 {} 条数据 (原有: {}, 新获取: {})，预期返回{} 条数据，还差{}条",
-                allData.size(), existingCount, newlyFetchedData.size(), rangePoints.size(), rangePoints.size() - allData.size());
+                allData.size(), existingCount, newlyFetchedData.size(), expectedCount, expectedCount - allData.size());
 
         // 将结果存入Codis的Sorted Set（24小时过期）
         try {
@@ -551,28 +727,44 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
 
     @Override
     public List<CandlestickEntity> getHistoricalData(String symbol, String interval) {
+        if (partitionService.isArchived(null)) {
+            return candlestickRepository.findWithArchiveBySymbolAndIntervalAndOpenTimeBetween(
+                    symbol, interval, EARLIEST_OPEN_TIME, LATEST_OPEN_TIME);
+        }
         return candlestickRepository.findBySymbolAndIntervalAsc(symbol, interval);
     }
 
     @Override
     public List<LocalDateTime> checkDataIntegrity(List<CandlestickEntity> data, LocalDateTime startTime, LocalDateTime endTime) {
-        String symbol = data.get(0).getSymbol();
         String interval = data.get(0).getIntervalVal();
-//        log.info("检查数据完整性: symbol={}, interval={}, startTime={}, endTime={}", data.get(0), interval, startTime, endTime);
-        // 获取预期的所有时间点
-        List<LocalDateTime> expectedTimes = generateExpectedTimePoints(interval, startTime, endTime);
-        log.info("预期数据点数量: {}", expectedTimes.size());
+        long intervalMinutes = getIntervalMinutes(interval);
+        long expectedCount = countTimeRangePoints(startTime, endTime, intervalMinutes);
+        log.info("预期数据点数量: {}", expectedCount);
+        if (expectedCount <= 0) {
+            return new ArrayList<>();
+        }
 
-        // 获取数据库中已存在的时间点
-        List<LocalDateTime> existingTimes = data.stream().filter(candlestick -> candlestick.getOpenTime() != null)
-                .map(CandlestickEntity::getOpenTime).collect(Collectors.toList());
-        log.info("数据库中已有数据点数量: {}", existingTimes.size());
+        // 以相对startTime的间隔偏移作为位下标，只标记与预期时间点对齐的数据
+        BitSet present = new BitSet((int) expectedCount);
+        int existingCount = 0;
+        for (CandlestickEntity candlestick : data) {
+            if (candlestick.getOpenTime() == null || candlestick.getOpenTime().isBefore(startTime)) {
+                continue;
+            }
+            existingCount++;
+            long minutes = ChronoUnit.MINUTES.between(startTime, candlestick.getOpenTime());
+            if (minutes % intervalMinutes == 0 && minutes / intervalMinutes < expectedCount
+                    && startTime.plusMinutes(minutes).equals(candlestick.getOpenTime())) {
+                present.set((int) (minutes / intervalMinutes));
+            }
+        }
+        log.info("数据库中已有数据点数量: {}", existingCount);
 
         // 计算缺失的时间点
-        Set<LocalDateTime> existingTimeSet = new HashSet<>(existingTimes);
-        List<LocalDateTime> missingTimes = expectedTimes.stream()
-                .filter(time -> !existingTimeSet.contains(time))
-                .collect(Collectors.toList());
+        List<LocalDateTime> missingTimes = new ArrayList<>();
+        for (int i = present.nextClearBit(0); i < expectedCount; i = present.nextClearBit(i + 1)) {
+            missingTimes.add(startTime.plusMinutes(i * intervalMinutes));
+        }
 
         log.info("缺失的数据点数量: {}", missingTimes.size());
         return missingTimes;
@@ -803,24 +995,6 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         }
     }
 
-    /**
-     * 生成预期的时间点列表
-     */
-    private List<LocalDateTime> generateExpectedTimePoints(String interval, LocalDateTime startTime, LocalDateTime endTime) {
-        List<LocalDateTime> timePoints = new ArrayList<>();
-        endTime = endTime;
-
-        long intervalMinutes = getIntervalMinutes(interval);
-
-        LocalDateTime current = startTime;
-        while (!current.isAfter(endTime)) {
-            timePoints.add(current);
-            current = current.plusMinutes(intervalMinutes);
-        }
-
-        return timePoints;
-    }
-
     /**
      * 将LocalDateTime转换为毫秒时间戳
      */
@@ -881,8 +1055,13 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
 
             if (minTime != null && maxTime != null) {
                 // 查询已存在的数据
-                List<CandlestickEntity> existingEntities = candlestickRepository
-                        .findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(symbol, interval, minTime, maxTime);
+                List<CandlestickEntity> existingEntities = new ArrayList<>(candlestickRepository
+                        .findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(symbol, interval, minTime, maxTime));
+                // 已归档的K线不在K线表中，重新获取归档区间时同样要跳过，否则合并读取会返回重复K线
+                if (partitionService.isArchived(minTime)) {
+                    existingEntities.addAll(candlestickRepository
+                            .findArchivedBySymbolAndIntervalAndOpenTimeBetween(symbol, interval, minTime, maxTime));
+                }
 
                 // 创建已存在数据的时间点集合，用于过滤
                 Set<String> existingTimePoints = existingEntities.stream()
@@ -904,11 +1083,18 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
                 }).collect(Collectors.toList());
 
                 // 只保存新数据
-                if (!newEntities.isEmpty()) {
-                    return candlestickRepository.saveAll(newEntities);
-                } else {
-                    return Collections.emptyList();
+                List<CandlestickEntity> saved = newEntities.isEmpty()
+                        ? Collections.emptyList() : candlestickRepository.saveAll(newEntities);
+
+                // 新旧数据此时都已在库中，一并更新覆盖索引
+                coverageService.markPresent(symbol, interval, getIntervalMinutes(interval),
+                        entities.stream().map(CandlestickEntity::getOpenTime).collect(Collectors.toList()));
+                if (!saved.isEmpty()) {
+                    eventPublisher.publishEvent(new HistoricalDataChangedEvent(this, symbol, interval,
+                            newEntities.stream().map(CandlestickEntity::getOpenTime).min(LocalDateTime::compareTo).orElse(minTime),
+                            newEntities.stream().map(CandlestickEntity::getOpenTime).max(LocalDateTime::compareTo).orElse(maxTime)));
                 }
+                return saved;
             }
 
             // 如果没有时间范围信息，直接保存所有数据
@@ -1038,10 +1224,8 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
 
                     if (!isComplete) {
                         log.info("日期 {} 的数据仍不完整，尝试填充缺失数据点", dayStart.toLocalDate());
-                        CandlestickEntity candlestickEntity = new CandlestickEntity();
-                        candlestickEntity.setSymbol(symbol);
-                        candlestickEntity.setIntervalVal(interval);
-                        List<LocalDateTime> missingTimes = checkDataIntegrity(Arrays.asList(candlestickEntity), dayStart, dayEnd);
+                        List<LocalDateTime> missingTimes = expandMissingRanges(
+                                findMissingRanges(symbol, interval, dayStart, dayEnd.minusSeconds(1)), getIntervalMinutes(interval));
 
                         if (!missingTimes.isEmpty()) {
                             log.info("日期 {} 有 {} 个缺失的数据点，尝试单点填充", dayStart.toLocalDate(), missingTimes.size());
@@ -1123,19 +1307,13 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
                 log.info("时间片段 {} 成功保存 {} 条数据", sliceKey, savedEntities.size());
 
                 // 检查是否完整获取
-                List<LocalDateTime> expectedTimes = generateExpectedTimePoints(interval, startTime, endTime);
-                List<LocalDateTime> existingTimes = savedEntities.stream()
-                        .map(CandlestickEntity::getOpenTime)
-                        .collect(Collectors.toList());
+                List<LocalDateTime> missingTimes = expandMissingRanges(
+                        findMissingRanges(symbol, interval, startTime, endTime), getIntervalMinutes(interval));
 
-                Set<LocalDateTime> expectedSet = new HashSet<>(expectedTimes);
-                expectedSet.removeAll(existingTimes);
-
-                if (!expectedSet.isEmpty()) {
-                    log.warn("时间片段 {} 仍有 {} 个缺失的数据点", sliceKey, expectedSet.size());
+                if (!missingTimes.isEmpty()) {
+                    log.warn("时间片段 {} 仍有 {} 个缺失的数据点", sliceKey, missingTimes.size());
 
                     // 尝试直接填充缺失点
-                    List<LocalDateTime> missingTimes = new ArrayList<>(expectedSet);
                     try {
                         int filledCount = fillMissingData(symbol, interval, missingTimes, failedRequests).get();
                         log.info("时间片段 {} 成功填充 {} 个缺失数据点", sliceKey, filledCount);
@@ -1189,41 +1367,6 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         return endTime.isBefore(adjustedEndTime) ? endTime : adjustedEndTime;
     }
 
-    /**
-     * 将缺失时间点按连续范围分组
-     */
-    private List<List<LocalDateTime>> groupConsecutiveTimePoints(List<LocalDateTime> timePoints, long intervalMinutes) {
-        List<List<LocalDateTime>> groups = new ArrayList<>();
-        if (timePoints.isEmpty()) {
-            return groups;
-        }
-
-        List<LocalDateTime> currentGroup = new ArrayList<>();
-        currentGroup.add(timePoints.get(0));
-
-        for (int i = 1; i < timePoints.size(); i++) {
-            LocalDateTime current = timePoints.get(i);
-            LocalDateTime previous = timePoints.get(i - 1);
-
-            // 如果当前时间点与前一个时间点相差正好一个间隔，则属于同一组
-            if (ChronoUnit.MINUTES.between(previous, current) == intervalMinutes) {
-                currentGroup.add(current);
-            } else {
-                // 否则开始新的一组
-                groups.add(new ArrayList<>(currentGroup));
-                currentGroup.clear();
-                currentGroup.add(current);
-            }
-        }
-
-        // 添加最后一组
-        if (!currentGroup.isEmpty()) {
-            groups.add(currentGroup);
-        }
-
-        return groups;
-    }
-
     /**
      * 按每批100条分批获取指定时间范围的数据（使用多线程并行处理）
      */
@@ -1352,16 +1495,14 @@ public class HistoricalDataServiceImpl implements HistoricalDataService {
         }
     }
 
-    public List<String> calculateTimeRangePoints(LocalDateTime startTime, LocalDateTime endTime, String interval) {
-        List<String> timePoints = new ArrayList<>();
-        while (startTime.isBefore(endTime)) {
-            timePoints.add(endTime.format(dateFormat));
-            endTime = endTime.minusMinutes(getIntervalMinutes(interval));
-        }
-        if (startTime.equals(endTime)) {
-            timePoints.add(endTime.format(dateFormat));
+    /**
+     * 计算时间范围内预期的K线数量，[startTime, endTime] 按间隔对齐到startTime
+     */
+    private long countTimeRangePoints(LocalDateTime startTime, LocalDateTime endTime, long intervalMinutes) {
+        if (startTime.isAfter(endTime)) {
+            return 0;
         }
-        return timePoints;
+        return ChronoUnit.MINUTES.between(startTime, endTime) / intervalMinutes + 1;
     }
 
 }
@@ -0,0 +1,237 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.backtest.BacktestCheckpoint;
+import com.okx.trading.backtest.IndicatorWarmer;
+import com.okx.trading.event.HistoricalDataChangedEvent;
+import com.okx.trading.event.StrategyChangedEvent;
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.IncrementalBacktestResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.BarSeriesCacheService;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Strategy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 增量回测服务
+ * 为 策略+交易对+间隔+开始时间+资金参数 保存回测检查点，之后的刷新只加载检查点之后新收盘的K线，
+ * 追加到检查点独占的条形系列上并从上次停下的位置继续遍历，刷新耗时与新增K线数成正比。
+ * 检查点只包含已收盘K线；历史K线回补落在检查点范围内时丢弃检查点，下一次刷新重新计算
+ */
+@Service
+public class IncrementalBacktestService {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalBacktestService.class);
+
+    private final HistoricalDataService historicalDataService;
+    private final CandlestickBarSeriesConverter barSeriesConverter;
+    private final BarSeriesCacheService barSeriesCacheService;
+    private final Ta4jBacktestService ta4jBacktestService;
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 保留的检查点数上限，超过后按LRU淘汰
+     */
+    @Value("${okx.backtest.checkpoint.max-entries:64}")
+    private int maxEntries = 64;
+
+    // 按访问顺序排列，读写都需要持有自身的锁；检查点本身由各自的Holder锁保护
+    private final LinkedHashMap<String, Holder> checkpoints = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Autowired
+    public IncrementalBacktestService(HistoricalDataService historicalDataService,
+                                      CandlestickBarSeriesConverter barSeriesConverter,
+                                      BarSeriesCacheService barSeriesCacheService,
+                                      Ta4jBacktestService ta4jBacktestService) {
+        this.historicalDataService = historicalDataService;
+        this.barSeriesConverter = barSeriesConverter;
+        this.barSeriesCacheService = barSeriesCacheService;
+        this.ta4jBacktestService = ta4jBacktestService;
+    }
+
+    /**
+     * 刷新回测：没有检查点时完整回测一次并保存检查点，否则只处理新收盘的K线
+     *
+     * @param strategyCode  策略代码
+     * @param symbol        交易对
+     * @param interval      K线间隔
+     * @param startTime     回测开始时间
+     * @param initialAmount 初始资金
+     * @param feeRatio      手续费率
+     * @param fullMetrics   是否计算完整指标；完整指标需要遍历全部K线，耗时与历史长度有关
+     * @return 增量回测结果
+     */
+    public IncrementalBacktestResultDTO refresh(String strategyCode, String symbol, String interval, LocalDateTime startTime,
+                                                BigDecimal initialAmount, BigDecimal feeRatio, boolean fullMetrics) {
+        long startMillis = System.currentTimeMillis();
+        long intervalMinutes = historicalDataService.getIntervalMinutes(interval);
+        // 开盘时间晚于该时间的K线尚未收盘
+        LocalDateTime confirmedUntil = LocalDateTime.now().minusMinutes(intervalMinutes);
+        Holder holder = getHolder(checkpointKey(strategyCode, symbol, interval, startTime, initialAmount, feeRatio));
+
+        synchronized (holder) {
+            holder.startTime = startTime;
+            IncrementalBacktestResultDTO dto = new IncrementalBacktestResultDTO();
+            dto.setResumed(holder.checkpoint != null);
+            if (holder.checkpoint == null) {
+                List<CandlestickEntity> candles = loadConfirmed(symbol, interval, startTime, confirmedUntil);
+                if (candles.isEmpty()) {
+                    BacktestResultDTO result = new BacktestResultDTO();
+                    result.setSuccess(false);
+                    result.setErrorMessage("未找到指定条件的历史数据");
+                    dto.setResult(result);
+                    return dto;
+                }
+                BarSeries series = barSeriesConverter.convert(candles,
+                        CandlestickBarSeriesConverter.createSeriesName(symbol, interval));
+                Strategy strategy = StrategyRegisterCenter.createStrategy(series, strategyCode);
+                // 首次完整回测前预热指标缓存，之后续跑时新K线上的指标只需向前计算一步
+                IndicatorWarmer.warm(series, Collections.singletonList(strategy));
+                holder.checkpoint = new BacktestCheckpoint(series, strategy, initialAmount, feeRatio);
+                holder.lastOpenTime = candles.get(candles.size() - 1).getOpenTime();
+            } else {
+                LocalDateTime from = holder.lastOpenTime.plusMinutes(intervalMinutes);
+                if (!from.isAfter(confirmedUntil)) {
+                    List<CandlestickEntity> tail = loadConfirmed(symbol, interval, from, confirmedUntil);
+                    if (barSeriesConverter.append(holder.checkpoint.getSeries(), tail) > 0) {
+                        holder.lastOpenTime = tail.get(tail.size() - 1).getOpenTime();
+                    }
+                }
+            }
+
+            BacktestCheckpoint checkpoint = holder.checkpoint;
+            int newBars = checkpoint.advance();
+            BacktestResultDTO result;
+            if (fullMetrics) {
+                List<CandlestickEntity> benchmarkCandlesticks = barSeriesCacheService.getBenchmark("BTC-USDT", interval, startTime, holder.lastOpenTime);
+                result = ta4jBacktestService.evaluate(checkpoint.getSeries(), checkpoint.getTradingRecord(), benchmarkCandlesticks,
+                        strategyCode, initialAmount, feeRatio, interval);
+            } else {
+                result = checkpoint.toResult(strategyCode);
+            }
+            result.setStrategyCode(strategyCode);
+
+            dto.setResult(result);
+            dto.setNewBars(newBars);
+            dto.setProcessedBars(checkpoint.getProcessedBars());
+            dto.setLastBarTime(checkpoint.getLastBarTime() == null ? null : checkpoint.getLastBarTime().toLocalDateTime());
+            dto.setPositionOpen(checkpoint.isPositionOpen());
+            dto.setEquity(BigDecimal.valueOf(checkpoint.getEquity()).setScale(8, RoundingMode.HALF_UP));
+            dto.setEquityMaxDrawdown(BigDecimal.valueOf(checkpoint.getEquityMaxDrawdown()).setScale(8, RoundingMode.HALF_UP));
+            dto.setElapsedMillis(System.currentTimeMillis() - startMillis);
+            log.info("增量回测 {} {} {}: {}检查点, 新增K线 {} 根, 累计 {} 根, 耗时 {} ms", strategyCode, symbol, interval,
+                    dto.isResumed() ? "续跑" : "新建", newBars, dto.getProcessedBars(), dto.getElapsedMillis());
+            return dto;
+        }
+    }
+
+    /**
+     * 丢弃交易对和间隔的全部检查点，用于历史K线被回补修正之后
+     *
+     * @return 丢弃的检查点数
+     */
+    public int reset(String symbol, String interval) {
+        String infix = "|" + symbol + "|" + interval + "|";
+        return removeIf(key -> key.contains(infix));
+    }
+
+    /**
+     * 回补的K线落在检查点已处理的范围内时，检查点的条形系列和交易记录都已过时，丢弃后下一次刷新重新计算；
+     * 刷新时加载的检查点之后的新K线不影响检查点
+     * 事件可能在刷新持有检查点锁时同步发布，这里只读取volatile字段，不获取检查点锁
+     */
+    @EventListener
+    public void onHistoricalDataChanged(HistoricalDataChangedEvent event) {
+        String infix = "|" + event.getSymbol() + "|" + event.getInterval() + "|";
+        int removed;
+        synchronized (checkpoints) {
+            int before = checkpoints.size();
+            checkpoints.entrySet().removeIf(entry -> entry.getKey().contains(infix)
+                    && entry.getValue().lastOpenTime != null
+                    && event.overlaps(entry.getValue().startTime, entry.getValue().lastOpenTime));
+            removed = before - checkpoints.size();
+        }
+        if (removed > 0) {
+            log.debug("{} {} 历史K线已回补，丢弃 {} 个回测检查点", event.getSymbol(), event.getInterval(), removed);
+        }
+    }
+
+    @EventListener
+    public void onStrategyChanged(StrategyChangedEvent event) {
+        String prefix = event.getStrategyCode() + "|";
+        int removed = removeIf(key -> key.startsWith(prefix));
+        if (removed > 0) {
+            log.debug("策略 {} 已变更，丢弃 {} 个回测检查点", event.getStrategyCode(), removed);
+        }
+    }
+
+    private Holder getHolder(String key) {
+        synchronized (checkpoints) {
+            Holder holder = checkpoints.computeIfAbsent(key, k -> new Holder());
+            Iterator<Map.Entry<String, Holder>> iterator = checkpoints.entrySet().iterator();
+            while (checkpoints.size() > maxEntries && iterator.hasNext()) {
+                if (iterator.next().getValue() != holder) {
+                    iterator.remove();
+                }
+            }
+            return holder;
+        }
+    }
+
+    private int removeIf(Predicate<String> predicate) {
+        synchronized (checkpoints) {
+            int before = checkpoints.size();
+            checkpoints.keySet().removeIf(predicate);
+            return before - checkpoints.size();
+        }
+    }
+
+    private List<CandlestickEntity> loadConfirmed(String symbol, String interval, LocalDateTime from, LocalDateTime confirmedUntil) {
+        List<CandlestickEntity> candles = historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(
+                symbol, interval, from.format(dateFormat), confirmedUntil.format(dateFormat));
+        if (candles == null) {
+            return Collections.emptyList();
+        }
+        return candles.stream()
+                .filter(candle -> candle.getOpenTime() != null && !candle.getOpenTime().isBefore(from)
+                        && !candle.getOpenTime().isAfter(confirmedUntil))
+                .distinct()
+                .sorted(Comparator.comparing(CandlestickEntity::getOpenTime))
+                .collect(Collectors.toList());
+    }
+
+    private static String checkpointKey(String strategyCode, String symbol, String interval, LocalDateTime startTime,
+                                        BigDecimal initialAmount, BigDecimal feeRatio) {
+        return String.join("|", strategyCode, symbol, interval, String.valueOf(startTime),
+                initialAmount.stripTrailingZeros().toPlainString(), feeRatio.stripTrailingZeros().toPlainString());
+    }
+
+    private static class Holder {
+        private BacktestCheckpoint checkpoint;
+        // 回测开始时间
+        private volatile LocalDateTime startTime;
+        // 检查点中最后一根K线的开盘时间
+        private volatile LocalDateTime lastOpenTime;
+    }
+}
@@ -0,0 +1,275 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.controller.TradeController;
+import com.okx.trading.model.dto.LiveReplayResultDTO;
+import com.okx.trading.model.dto.LiveSignalCheckDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.RealTimeOrderService;
+import com.okx.trading.strategy.EvaluationMode;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BarSeriesManager;
+import org.ta4j.core.Position;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.okx.trading.constant.IndicatorInfo.BUY;
+import static com.okx.trading.constant.IndicatorInfo.FILLED;
+import static com.okx.trading.constant.IndicatorInfo.SELL;
+
+/**
+ * 实时策略历史回放服务
+ * 用历史K线驱动实时策略的处理路径：为每次回放新建一个独立的实时策略管理器，不影响正在运行的策略；
+ * 前若干根K线作为预热初始化条形系列，其余K线作为完结K线逐根交给handleNewKlineData，不等待、不限速。
+ * 信号下单经TradeController进入按K线收盘价立即成交的模拟交易所，结果只记在内存中，不写数据库。
+ * <p>
+ * 回放结束后用同样的K线对每个策略跑一次回测，按K线开盘时间逐个比对两条路径的买卖信号
+ */
+@Service
+public class LiveReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveReplayService.class);
+
+    /**
+     * 单次回放允许的最大策略实例数
+     */
+    public static final int MAX_STRATEGY_INSTANCES = 10000;
+
+    private final HistoricalDataService historicalDataService;
+    private final RealTimeOrderService realTimeOrderService;
+    private final CandlestickBarSeriesConverter barSeriesConverter;
+
+    @Autowired
+    public LiveReplayService(HistoricalDataService historicalDataService,
+                             RealTimeOrderService realTimeOrderService,
+                             CandlestickBarSeriesConverter barSeriesConverter) {
+        this.historicalDataService = historicalDataService;
+        this.realTimeOrderService = realTimeOrderService;
+        this.barSeriesConverter = barSeriesConverter;
+    }
+
+    /**
+     * 执行一次历史回放
+     *
+     * @param candlesticks  历史K线，顺序不限，同一开盘时间只保留一根
+     * @param symbol        交易对
+     * @param interval      K线间隔
+     * @param strategyCodes 参与回放的策略代码
+     * @param copies        每个策略的实例数，大于1时用于压测，只有第一个实例参与信号比对
+     * @param warmupBars    预热K线数
+     * @param tradeAmount   每个策略实例的下单金额
+     * @return 回放结果
+     */
+    public LiveReplayResultDTO replay(List<CandlestickEntity> candlesticks, String symbol, String interval,
+                                      List<String> strategyCodes, int copies, int warmupBars, BigDecimal tradeAmount) {
+        LiveReplayResultDTO result = new LiveReplayResultDTO();
+        result.setSymbol(symbol);
+        result.setInterval(interval);
+        result.setWarmupBars(warmupBars);
+
+        List<CandlestickEntity> candles = sortByOpenTime(candlesticks);
+        if (warmupBars < 1 || candles.size() <= warmupBars) {
+            result.setSuccess(false);
+            result.setErrorMessage("K线数量不足: " + candles.size() + "，预热需要 " + warmupBars + " 根");
+            return result;
+        }
+        if (copies < 1 || (long) copies * strategyCodes.size() > MAX_STRATEGY_INSTANCES) {
+            result.setSuccess(false);
+            result.setErrorMessage("策略实例数必须在1到" + MAX_STRATEGY_INSTANCES + "之间");
+            return result;
+        }
+        Map<LocalDateTime, Integer> barIndexes = new HashMap<>();
+        for (int i = 0; i < candles.size(); i++) {
+            barIndexes.put(candles.get(i).getOpenTime(), i);
+        }
+
+        // 每次回放使用独立的管理器和模拟交易所，成交记录器代替数据库；回放逐根K线同步成交，不做信号轧差
+        OkxApiMockServiceImpl exchange = new OkxApiMockServiceImpl(true);
+        RealTimeStrategyManager manager = new RealTimeStrategyManager(null, realTimeOrderService, new TradeController(exchange),
+                historicalDataService, null, barSeriesConverter, null, null, Optional.empty());
+        BarSeries liveSeries = barSeriesConverter.convert(candles.subList(0, warmupBars), symbol + "_" + interval);
+        liveSeries.setMaximumBarCount(manager.getMaxLiveBars());
+        manager.getRunningBarSeries().put(symbol + "_" + interval, liveSeries);
+
+        Map<String, LiveSignalCheckDTO> checks = new LinkedHashMap<>();
+        Map<RealTimeStrategyEntity, String> primaryStates = new IdentityHashMap<>();
+        Map<String, List<String>> liveSignals = new HashMap<>();
+        int[] orders = {0, 0};
+        for (String code : strategyCodes) {
+            LiveSignalCheckDTO check = new LiveSignalCheckDTO();
+            check.setStrategyCode(code);
+            checks.put(code, check);
+            for (int copy = 0; copy < copies; copy++) {
+                Strategy strategy;
+                try {
+                    strategy = StrategyRegisterCenter.createStrategy(liveSeries, code);
+                } catch (Exception e) {
+                    check.setErrorMessage("创建策略失败: " + e.getMessage());
+                    break;
+                }
+                RealTimeStrategyEntity state = new RealTimeStrategyEntity(code, symbol, interval,
+                        candles.get(warmupBars).getOpenTime(), tradeAmount.doubleValue(), code + "#" + copy);
+                state.setStrategy(strategy);
+                state.setEvaluationMode(EvaluationMode.ON_CLOSE.name());
+                manager.getRunningStrategies().put(code + "#" + copy + "_" + symbol + "_" + interval, state);
+                if (copy == 0) {
+                    primaryStates.put(state, code);
+                    liveSignals.put(code, new ArrayList<>());
+                }
+            }
+        }
+        int instances = manager.getRunningStrategies().size();
+        if (instances == 0) {
+            result.setSuccess(false);
+            result.setErrorMessage("没有可以运行的策略");
+            result.getSignalChecks().addAll(checks.values());
+            return result;
+        }
+        manager.setTradeRecorder((state, candlestick, order) -> {
+            orders[0]++;
+            if (FILLED.equals(order.getStatus())) {
+                orders[1]++;
+            }
+            String code = primaryStates.get(state);
+            if (code != null) {
+                liveSignals.get(code).add(order.getSide() + "@" + barIndexes.get(candlestick.getOpenTime()));
+            }
+        });
+
+        log.info("开始实时策略历史回放: symbol={}, interval={}, K线 {} 根, 预热 {} 根, 策略实例 {} 个",
+                symbol, interval, candles.size() - warmupBars, warmupBars, instances);
+        long startNanos = System.nanoTime();
+        for (int i = warmupBars; i < candles.size(); i++) {
+            Candlestick candlestick = toConfirmedCandlestick(candles.get(i), symbol, interval);
+            exchange.updateMarketPrice(symbol, candlestick.getClose(), candlestick.getCloseTime());
+            manager.handleNewKlineData(symbol, interval, candlestick);
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+
+        int replayed = candles.size() - warmupBars;
+        result.setStartTime(candles.get(warmupBars).getOpenTime());
+        result.setEndTime(candles.get(candles.size() - 1).getOpenTime());
+        result.setCandles(replayed);
+        result.setStrategyInstances(instances);
+        result.setElapsedMillis(elapsedNanos / 1_000_000L);
+        result.setCandlesPerSecond(replayed * 1e9 / elapsedNanos);
+        result.setStrategyEvaluationsPerSecond((double) replayed * instances * 1e9 / elapsedNanos);
+        result.setOrders(orders[0]);
+        result.setFilledOrders(orders[1]);
+
+        // 同样的K线跑回测，逐个比对信号
+        BarSeries fullSeries = barSeriesConverter.convert(candles, symbol + "_" + interval);
+        int matchedStrategies = 0;
+        for (LiveSignalCheckDTO check : checks.values()) {
+            if (check.getErrorMessage() == null) {
+                compareSignals(check, liveSignals.get(check.getStrategyCode()), fullSeries, warmupBars, candles);
+                if (check.isMatched()) {
+                    matchedStrategies++;
+                }
+            }
+            result.getSignalChecks().add(check);
+        }
+        result.setMatchedStrategies(matchedStrategies);
+        result.setSuccess(true);
+        log.info("实时策略历史回放完成: K线 {} 根, 耗时 {} ms, {} 根/秒, {} 次评估/秒, 订单 {} 个, 信号一致的策略 {}/{}",
+                replayed, result.getElapsedMillis(), Math.round(result.getCandlesPerSecond()),
+                Math.round(result.getStrategyEvaluationsPerSecond()), orders[0], matchedStrategies, checks.size());
+        return result;
+    }
+
+    /**
+     * 用完整系列回测同一个策略，与实时路径的信号按顺序比对
+     */
+    private void compareSignals(LiveSignalCheckDTO check, List<String> live, BarSeries fullSeries, int warmupBars,
+                                List<CandlestickEntity> candles) {
+        List<String> backtest = new ArrayList<>();
+        try {
+            Strategy strategy = StrategyRegisterCenter.createStrategy(fullSeries, check.getStrategyCode());
+            BarSeriesManager seriesManager = new BarSeriesManager(fullSeries, new ZeroCostModel(), new ZeroCostModel());
+            TradingRecord record = seriesManager.run(strategy, Trade.TradeType.BUY, warmupBars, fullSeries.getEndIndex());
+            for (Position position : record.getPositions()) {
+                backtest.add(BUY + "@" + position.getEntry().getIndex());
+                backtest.add(SELL + "@" + position.getExit().getIndex());
+            }
+            if (record.getCurrentPosition().isOpened()) {
+                backtest.add(BUY + "@" + record.getCurrentPosition().getEntry().getIndex());
+            }
+        } catch (Exception e) {
+            check.setErrorMessage("回测失败: " + e.getMessage());
+            return;
+        }
+
+        int matched = 0;
+        while (matched < live.size() && matched < backtest.size() && live.get(matched).equals(backtest.get(matched))) {
+            matched++;
+        }
+        check.setLiveSignals(live.size());
+        check.setBacktestSignals(backtest.size());
+        check.setMatchedSignals(matched);
+        check.setMatched(matched == live.size() && matched == backtest.size());
+        if (!check.isMatched()) {
+            check.setFirstMismatch("第" + (matched + 1) + "个信号 实时: " + describe(live, matched, candles)
+                    + ", 回测: " + describe(backtest, matched, candles));
+        }
+    }
+
+    private static String describe(List<String> signals, int position, List<CandlestickEntity> candles) {
+        if (position >= signals.size()) {
+            return "无";
+        }
+        String[] parts = signals.get(position).split("@");
+        return parts[0] + " " + candles.get(Integer.parseInt(parts[1])).getOpenTime();
+    }
+
+    /**
+     * 按开盘时间升序排列，同一开盘时间只保留最后一根
+     */
+    private static List<CandlestickEntity> sortByOpenTime(List<CandlestickEntity> candlesticks) {
+        TreeMap<LocalDateTime, CandlestickEntity> sorted = new TreeMap<>(Comparator.naturalOrder());
+        for (CandlestickEntity candle : candlesticks) {
+            if (candle != null && candle.getOpenTime() != null) {
+                sorted.put(candle.getOpenTime(), candle);
+            }
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    private static Candlestick toConfirmedCandlestick(CandlestickEntity entity, String symbol, String interval) {
+        return Candlestick.builder()
+                .symbol(symbol)
+                .intervalVal(interval)
+                .openTime(entity.getOpenTime())
+                .closeTime(entity.getCloseTime())
+                .open(entity.getOpen())
+                .high(entity.getHigh())
+                .low(entity.getLow())
+                .close(entity.getClose())
+                .volume(entity.getVolume())
+                .quoteVolume(entity.getQuoteVolume())
+                .state(1)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.config.OkxApiConfig;
+import com.okx.trading.exception.BusinessException;
+import com.okx.trading.model.dto.MarketDataReplayResultDTO;
+import com.okx.trading.service.MarketDataReplayService;
+import com.okx.trading.util.MarketDataJournal;
+import com.okx.trading.util.WebSocketUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 行情日志回放服务实现类
+ * 按记录的接收时间间隔控制节奏，同一时间只允许一个回放任务，回放的消息不会再次写入日志。
+ * 回放的消息会交给实时策略、价格缓存和订单推送等已注册的处理器，与真实行情无法区分，
+ * 因此只允许在模拟数据模式（okx.api.use-mock-data=true）下执行，避免历史行情驱动实盘下单
+ */
+@Slf4j
+@Service
+public class MarketDataReplayServiceImpl implements MarketDataReplayService {
+
+    private final WebSocketUtil webSocketUtil;
+    private final MarketDataJournal marketDataJournal;
+    private final OkxApiConfig okxApiConfig;
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    /**
+     * @param marketDataJournal 行情日志，未启用时为null
+     */
+    @Autowired
+    public MarketDataReplayServiceImpl(WebSocketUtil webSocketUtil, @Nullable MarketDataJournal marketDataJournal,
+                                       OkxApiConfig okxApiConfig) {
+        this.webSocketUtil = webSocketUtil;
+        this.marketDataJournal = marketDataJournal;
+        this.okxApiConfig = okxApiConfig;
+    }
+
+    @Override
+    public boolean isJournalEnabled() {
+        return marketDataJournal != null;
+    }
+
+    @Override
+    public MarketDataReplayResultDTO replay(LocalDateTime startTime, LocalDateTime endTime, double speed) {
+        if (marketDataJournal == null) {
+            throw new BusinessException("行情日志未启用，请配置 okx.market-data.journal.enabled=true");
+        }
+        if (!okxApiConfig.isUseMockData()) {
+            throw new BusinessException("回放的行情会交给实时策略和订单处理器，只允许在模拟数据模式下执行，请配置 okx.api.use-mock-data=true");
+        }
+        if (startTime == null || endTime == null || startTime.isAfter(endTime)) {
+            throw new BusinessException("回放时间范围无效");
+        }
+        if (!replaying.compareAndSet(false, true)) {
+            throw new BusinessException("已有行情回放正在进行");
+        }
+        try {
+            ZoneId zone = ZoneId.systemDefault();
+            long from = startTime.atZone(zone).toInstant().toEpochMilli();
+            long to = endTime.atZone(zone).toInstant().toEpochMilli();
+            log.info("开始回放行情日志: {} ~ {}, 速度: {}", startTime, endTime, speed);
+
+            long startNanos = System.nanoTime();
+            long[] firstReceiveTime = {Long.MIN_VALUE};
+            long[] lastReceiveTime = {Long.MIN_VALUE};
+            long[] delivered = {0};
+            boolean[] interrupted = {false};
+            marketDataJournal.read(from, to, record -> {
+                if (interrupted[0]) {
+                    return;
+                }
+                if (firstReceiveTime[0] == Long.MIN_VALUE) {
+                    firstReceiveTime[0] = record.getReceiveTime();
+                }
+                lastReceiveTime[0] = record.getReceiveTime();
+                if (speed > 0) {
+                    // 按原始接收间隔换算出本条消息应在回放开始后多久交付
+                    long dueNanos = (long) ((record.getReceiveTime() - firstReceiveTime[0]) * 1_000_000L / speed);
+                    long waitNanos = dueNanos - (System.nanoTime() - startNanos);
+                    if (waitNanos > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            interrupted[0] = true;
+                            return;
+                        }
+                    }
+                }
+                try {
+                    webSocketUtil.replayMessage(record.getPayload());
+                    delivered[0]++;
+                } catch (Exception e) {
+                    log.error("回放行情消息失败: {}", e.getMessage(), e);
+                }
+            });
+            long messages = delivered[0];
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+            MarketDataReplayResultDTO result = new MarketDataReplayResultDTO();
+            result.setStartTime(startTime);
+            result.setEndTime(endTime);
+            result.setSpeed(speed);
+            result.setMessages(messages);
+            result.setJournalSpanMillis(messages > 0 ? lastReceiveTime[0] - firstReceiveTime[0] : 0);
+            result.setElapsedMillis(elapsedMillis);
+            result.setMessagesPerSecond(elapsedMillis > 0 ? messages * 1000.0 / elapsedMillis : messages);
+            result.setInterrupted(interrupted[0]);
+            log.info("行情日志回放完成: {} 条消息, 耗时 {} ms", messages, elapsedMillis);
+            return result;
+        } finally {
+            replaying.set(false);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,8 +44,11 @@ public class MarketDataServiceImpl implements MarketDataService {
         double actualStdDev = stdDev != null ? stdDev : 2.0;
         int actualLimit = limit != null ? limit : 500;
 
-        // 获取历史K线数据
-        List<CandlestickEntity> candlesticks = historicalDataService.getHistoricalData(symbol,interval);
+        // 只取计算最新limit条布林带所需的最近K线，按开盘时间倒序查询后翻转为升序
+        int windowSize = actualLimit + actualPeriod - 1;
+        List<CandlestickEntity> candlesticks = new ArrayList<>(
+                historicalDataService.getLatestHistoricalData(symbol, interval, windowSize));
+        Collections.reverse(candlesticks);
 
         if (candlesticks.size() < actualPeriod) {
             log.warn("获取到的K线数据不足以计算布林带,symbol:{},interval:{},期望数量:{},实际数量:{}",
@@ -65,13 +69,12 @@ public class MarketDataServiceImpl implements MarketDataService {
         List<BollingerBandsDTO> result = new ArrayList<>();
         for (int i = actualPeriod - 1; i < candlesticks.size(); i++) {
             CandlestickEntity candle = candlesticks.get(i);
-            int bbIndex = i - actualPeriod + 1;
 
-            // 计算%B值 (Price - Lower) / (Upper - Lower)
+            // 计算%B值 (Price - Lower) / (Upper - Lower)，布林带结果列表前period-1个位置为空值，与K线下标对齐
             BigDecimal price = candle.getClose();
-            BigDecimal upper = bollingerBands.getUpper().get(bbIndex);
-            BigDecimal middle = bollingerBands.getMiddle().get(bbIndex);
-            BigDecimal lower = bollingerBands.getLower().get(bbIndex);
+            BigDecimal upper = bollingerBands.getUpper().get(i);
+            BigDecimal middle = bollingerBands.getMiddle().get(i);
+            BigDecimal lower = bollingerBands.getLower().get(i);
 
             BigDecimal percentB = null;
             BigDecimal bandwidth = null;
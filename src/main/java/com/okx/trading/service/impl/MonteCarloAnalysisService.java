@@ -0,0 +1,409 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.MonteCarloDistributionDTO;
+import com.okx.trading.model.dto.MonteCarloResultDTO;
+import com.okx.trading.model.dto.TradeRecordDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 蒙特卡洛稳健性分析服务
+ * 对一次已完成回测的交易序列做重排和有放回重采样，对逐K线收益做循环分块自助法，得到最终资金、最大回撤和夏普比率的分布。
+ * 模拟只在原始类型数组上进行，每个并行分片持有独立拆分的SplittableRandom和一份复用的排列数组，单次模拟不分配对象。
+ * 分片按固定的模拟次数划分，与CPU核数无关，相同种子在不同机器上得到相同结果；
+ * 分块自助法每个起点的整块统计量只预计算一次，单次模拟按块累加而不是逐K线重算
+ */
+@Service
+public class MonteCarloAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(MonteCarloAnalysisService.class);
+
+    private static final double MINUTES_PER_YEAR = 525600;
+    /**
+     * 每个并行分片的模拟次数，固定值保证分片划分和随机数拆分与运行环境无关
+     */
+    static final int SIMULATIONS_PER_CHUNK = 256;
+
+    private final ExecutorService computeExecutorService;
+
+    @Autowired
+    public MonteCarloAnalysisService(@Qualifier("backtestComputeExecutorService") ExecutorService computeExecutorService) {
+        this.computeExecutorService = computeExecutorService;
+    }
+
+    /**
+     * 对回测结果执行蒙特卡洛分析
+     *
+     * @param series      回测使用的条形系列，用于还原逐K线收益
+     * @param backtest    回测结果，需要包含交易明细
+     * @param feeRatio    单边手续费率
+     * @param simulations 每种方法的模拟次数
+     * @param blockSize   分块自助法的块长度，小于等于0时取K线数的立方根
+     * @param seed        随机数种子，为null时随机生成
+     * @return 蒙特卡洛分析结果
+     */
+    public MonteCarloResultDTO analyze(BarSeries series, BacktestResultDTO backtest, BigDecimal feeRatio,
+                                       int simulations, int blockSize, Long seed) {
+        long startMillis = System.currentTimeMillis();
+        MonteCarloResultDTO result = new MonteCarloResultDTO();
+        result.setSimulations(simulations);
+        result.setInitialAmount(backtest.getInitialAmount());
+        result.setPointFinalAmount(backtest.getFinalAmount());
+        result.setPointMaxDrawdown(backtest.getMaxDrawdown());
+        result.setPointSharpeRatio(backtest.getSharpeRatio());
+
+        double[] tradeReturns = extractTradeReturns(backtest.getTrades());
+        if (tradeReturns.length == 0 || simulations <= 0 || series.isEmpty()) {
+            result.setSuccess(false);
+            result.setErrorMessage("没有已平仓交易，无法进行蒙特卡洛分析");
+            return result;
+        }
+        double[] barReturns = extractBarReturns(series, backtest.getTrades(), feeRatio == null ? 0 : feeRatio.doubleValue());
+        int effectiveBlockSize = blockSize > 0 ? Math.min(blockSize, barReturns.length)
+                : Math.max(1, (int) Math.round(Math.cbrt(barReturns.length)));
+        long effectiveSeed = seed != null ? seed : System.nanoTime();
+        result.setSeed(effectiveSeed);
+        result.setTradeCount(tradeReturns.length);
+        result.setBarCount(barReturns.length);
+        result.setBlockSize(effectiveBlockSize);
+
+        long periodMinutes = Math.max(1, series.getFirstBar().getTimePeriod().toMinutes());
+        double years = barReturns.length * periodMinutes / MINUTES_PER_YEAR;
+        double tradeAnnualization = Math.sqrt(years > 0 ? tradeReturns.length / years : tradeReturns.length);
+        double barAnnualization = Math.sqrt(MINUTES_PER_YEAR / periodMinutes);
+
+        Samples samples = new Samples(simulations);
+        BootstrapBlocks blocks = new BootstrapBlocks(barReturns, effectiveBlockSize);
+        // 在调用线程中按顺序拆分随机数生成器，保证相同种子的结果与线程调度和核数无关
+        SplittableRandom root = new SplittableRandom(effectiveSeed);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < simulations; from += SIMULATIONS_PER_CHUNK) {
+            int start = from;
+            int end = Math.min(simulations, from + SIMULATIONS_PER_CHUNK);
+            SplittableRandom random = root.split();
+            futures.add(CompletableFuture.runAsync(() -> simulate(tradeReturns, blocks,
+                    tradeAnnualization, barAnnualization, start, end, random, samples), computeExecutorService));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        BigDecimal initialAmount = backtest.getInitialAmount() != null ? backtest.getInitialAmount() : BigDecimal.ONE;
+        result.setReshuffleMaxDrawdown(distribution(samples.reshuffleMaxDrawdown, BigDecimal.ONE));
+        result.setResampleFinalAmount(distribution(samples.resampleEquity, initialAmount));
+        result.setResampleMaxDrawdown(distribution(samples.resampleMaxDrawdown, BigDecimal.ONE));
+        result.setResampleSharpeRatio(distribution(samples.resampleSharpe, BigDecimal.ONE));
+        result.setResampleLossProbability(lossProbability(samples.resampleEquity));
+        result.setBootstrapFinalAmount(distribution(samples.bootstrapEquity, initialAmount));
+        result.setBootstrapMaxDrawdown(distribution(samples.bootstrapMaxDrawdown, BigDecimal.ONE));
+        result.setBootstrapSharpeRatio(distribution(samples.bootstrapSharpe, BigDecimal.ONE));
+        result.setBootstrapLossProbability(lossProbability(samples.bootstrapEquity));
+        result.setSuccess(true);
+        result.setElapsedMillis(System.currentTimeMillis() - startMillis);
+        log.debug("蒙特卡洛分析完成: {} 笔交易, {} 根K线, 每种方法 {} 次模拟, 耗时 {} ms",
+                tradeReturns.length, barReturns.length, simulations, result.getElapsedMillis());
+        return result;
+    }
+
+    /**
+     * 执行一个分片内的全部模拟，结果写入samples中 [start, end) 区间
+     */
+    static void simulate(double[] tradeReturns, BootstrapBlocks blocks, double tradeAnnualization,
+                         double barAnnualization, int start, int end, SplittableRandom random, Samples samples) {
+        int tradeCount = tradeReturns.length;
+        double[] permutation = tradeReturns.clone();
+
+        for (int s = start; s < end; s++) {
+            // 交易重排：Fisher-Yates洗牌，复用同一个数组
+            for (int i = tradeCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double swap = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = swap;
+            }
+            double equity = 1;
+            double peak = 1;
+            double maxDrawdown = 0;
+            for (int i = 0; i < tradeCount; i++) {
+                equity *= 1 + permutation[i];
+                peak = Math.max(peak, equity);
+                maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+            }
+            samples.reshuffleMaxDrawdown[s] = maxDrawdown;
+
+            // 交易有放回重采样
+            equity = 1;
+            peak = 1;
+            maxDrawdown = 0;
+            double sum = 0;
+            double sumSquares = 0;
+            for (int i = 0; i < tradeCount; i++) {
+                double r = tradeReturns[random.nextInt(tradeCount)];
+                equity *= 1 + r;
+                peak = Math.max(peak, equity);
+                maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+                sum += r;
+                sumSquares += r * r;
+            }
+            samples.resampleEquity[s] = equity;
+            samples.resampleMaxDrawdown[s] = maxDrawdown;
+            samples.resampleSharpe[s] = sharpe(sum, sumSquares, tradeCount, tradeAnnualization);
+
+            bootstrap(blocks, barAnnualization, s, random, samples);
+        }
+    }
+
+    /**
+     * 逐K线收益循环分块自助法，保留块内的波动聚集和自相关。
+     * 整块直接使用预计算的统计量，只有末尾不足一块的部分逐K线累加
+     */
+    static void bootstrap(BootstrapBlocks blocks, double annualization, int s, SplittableRandom random, Samples samples) {
+        double[] barReturns = blocks.returns;
+        int barCount = barReturns.length;
+        int blockSize = blocks.blockSize;
+        double equity = 1;
+        double peak = 1;
+        double maxDrawdown = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        int filled = 0;
+        while (filled < barCount) {
+            int index = random.nextInt(barCount);
+            if (barCount - filled >= blockSize) {
+                // 块内任一位置的回撤要么来自块前的高点，要么来自块内的高点
+                maxDrawdown = Math.max(maxDrawdown, Math.max(blocks.drawdown[index],
+                        (peak - equity * blocks.minGrowth[index]) / peak));
+                peak = Math.max(peak, equity * blocks.maxGrowth[index]);
+                equity *= blocks.growth[index];
+                sum += blocks.sum[index];
+                sumSquares += blocks.sumSquares[index];
+                filled += blockSize;
+                continue;
+            }
+            for (; filled < barCount; filled++) {
+                double r = barReturns[index];
+                equity *= 1 + r;
+                peak = Math.max(peak, equity);
+                maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+                sum += r;
+                sumSquares += r * r;
+                if (++index == barCount) {
+                    index = 0;
+                }
+            }
+        }
+        samples.bootstrapEquity[s] = equity;
+        samples.bootstrapMaxDrawdown[s] = maxDrawdown;
+        samples.bootstrapSharpe[s] = sharpe(sum, sumSquares, barCount, annualization);
+    }
+
+    /**
+     * 计算每笔已平仓交易扣除手续费后的收益率
+     */
+    static double[] extractTradeReturns(List<TradeRecordDTO> trades) {
+        if (trades == null) {
+            return new double[0];
+        }
+        double[] returns = new double[trades.size()];
+        int count = 0;
+        for (TradeRecordDTO trade : trades) {
+            if (trade.isClosed() && trade.getEntryAmount() != null && trade.getExitAmount() != null
+                    && trade.getEntryAmount().signum() > 0) {
+                returns[count++] = trade.getExitAmount().doubleValue() / trade.getEntryAmount().doubleValue() - 1;
+            }
+        }
+        return Arrays.copyOf(returns, count);
+    }
+
+    /**
+     * 按交易明细的进出场时间还原逐K线收益：持仓期间取收盘价涨跌幅，进出场K线各扣一次手续费，空仓为0
+     */
+    static double[] extractBarReturns(BarSeries series, List<TradeRecordDTO> trades, double fee) {
+        int barCount = series.getBarCount();
+        double[] closes = new double[barCount];
+        long[] endSeconds = new long[barCount];
+        for (int i = 0; i < barCount; i++) {
+            closes[i] = series.getBar(i).getClosePrice().doubleValue();
+            endSeconds[i] = series.getBar(i).getEndTime().toEpochSecond();
+        }
+        ZoneId zone = series.getFirstBar().getEndTime().getZone();
+
+        double[] returns = new double[barCount];
+        for (TradeRecordDTO trade : trades) {
+            if (!trade.isClosed() || trade.getEntryTime() == null || trade.getExitTime() == null) {
+                continue;
+            }
+            int entry = Arrays.binarySearch(endSeconds, trade.getEntryTime().atZone(zone).toEpochSecond());
+            int exit = Arrays.binarySearch(endSeconds, trade.getExitTime().atZone(zone).toEpochSecond());
+            if (entry < 0 || exit < entry) {
+                continue;
+            }
+            double direction = "SELL".equals(trade.getType()) ? -1 : 1;
+            for (int i = entry + 1; i <= exit; i++) {
+                returns[i] = direction * (closes[i] / closes[i - 1] - 1);
+            }
+            returns[entry] = (1 + returns[entry]) * (1 - fee) - 1;
+            returns[exit] = (1 + returns[exit]) * (1 - fee) - 1;
+        }
+        return returns;
+    }
+
+    private static double sharpe(double sum, double sumSquares, int count, double annualization) {
+        double mean = sum / count;
+        double variance = sumSquares / count - mean * mean;
+        return variance > 0 ? mean / Math.sqrt(variance) * annualization : 0;
+    }
+
+    /**
+     * 对样本排序后计算分布，scale用于把资金倍数换算为资金
+     */
+    static MonteCarloDistributionDTO distribution(double[] values, BigDecimal scale) {
+        Arrays.sort(values);
+        double sum = 0;
+        double sumSquares = 0;
+        for (double value : values) {
+            sum += value;
+            sumSquares += value * value;
+        }
+        double mean = sum / values.length;
+        double factor = scale.doubleValue();
+
+        MonteCarloDistributionDTO distribution = new MonteCarloDistributionDTO();
+        distribution.setMean(decimal(mean * factor));
+        distribution.setStdDev(decimal(Math.sqrt(Math.max(0, sumSquares / values.length - mean * mean)) * factor));
+        distribution.setMin(decimal(values[0] * factor));
+        distribution.setP5(decimal(percentile(values, 0.05) * factor));
+        distribution.setP25(decimal(percentile(values, 0.25) * factor));
+        distribution.setP50(decimal(percentile(values, 0.50) * factor));
+        distribution.setP75(decimal(percentile(values, 0.75) * factor));
+        distribution.setP95(decimal(percentile(values, 0.95) * factor));
+        distribution.setMax(decimal(values[values.length - 1] * factor));
+        return distribution;
+    }
+
+    /**
+     * 已排序数组的线性插值分位数
+     */
+    static double percentile(double[] sorted, double quantile) {
+        double position = quantile * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(sorted.length - 1, lower + 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
+
+    private static BigDecimal lossProbability(double[] equities) {
+        int losses = 0;
+        for (double equity : equities) {
+            if (equity < 1) {
+                losses++;
+            }
+        }
+        return decimal((double) losses / equities.length);
+    }
+
+    private static BigDecimal decimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(value).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 循环分块自助法中以每根K线为起点的整块统计量，所有模拟共用
+     */
+    static class BootstrapBlocks {
+        final double[] returns;
+        final int blockSize;
+        /**
+         * 整块的资金倍数
+         */
+        final double[] growth;
+        /**
+         * 块内各K线收盘后相对块起点资金倍数的最大值和最小值
+         */
+        final double[] maxGrowth;
+        final double[] minGrowth;
+        /**
+         * 只看块内高点的最大回撤
+         */
+        final double[] drawdown;
+        final double[] sum;
+        final double[] sumSquares;
+
+        BootstrapBlocks(double[] returns, int blockSize) {
+            int barCount = returns.length;
+            this.returns = returns;
+            this.blockSize = blockSize;
+            growth = new double[barCount];
+            maxGrowth = new double[barCount];
+            minGrowth = new double[barCount];
+            drawdown = new double[barCount];
+            sum = new double[barCount];
+            sumSquares = new double[barCount];
+            for (int start = 0; start < barCount; start++) {
+                double equity = 1;
+                double peak = 1;
+                double high = Double.NEGATIVE_INFINITY;
+                double low = Double.POSITIVE_INFINITY;
+                double maxDrawdown = 0;
+                double total = 0;
+                double totalSquares = 0;
+                for (int j = 0, index = start; j < blockSize; j++) {
+                    double r = returns[index];
+                    equity *= 1 + r;
+                    peak = Math.max(peak, equity);
+                    high = Math.max(high, equity);
+                    low = Math.min(low, equity);
+                    maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+                    total += r;
+                    totalSquares += r * r;
+                    if (++index == barCount) {
+                        index = 0;
+                    }
+                }
+                growth[start] = equity;
+                maxGrowth[start] = high;
+                minGrowth[start] = low;
+                drawdown[start] = maxDrawdown;
+                sum[start] = total;
+                sumSquares[start] = totalSquares;
+            }
+        }
+    }
+
+    /**
+     * 所有模拟的结果数组，各分片只写入自己的下标区间
+     */
+    static class Samples {
+        final double[] reshuffleMaxDrawdown;
+        final double[] resampleEquity;
+        final double[] resampleMaxDrawdown;
+        final double[] resampleSharpe;
+        final double[] bootstrapEquity;
+        final double[] bootstrapMaxDrawdown;
+        final double[] bootstrapSharpe;
+
+        Samples(int simulations) {
+            reshuffleMaxDrawdown = new double[simulations];
+            resampleEquity = new double[simulations];
+            resampleMaxDrawdown = new double[simulations];
+            resampleSharpe = new double[simulations];
+            bootstrapEquity = new double[simulations];
+            bootstrapMaxDrawdown = new double[simulations];
+            bootstrapSharpe = new double[simulations];
+        }
+    }
+}
@@ -1,27 +1,38 @@
 package com.okx.trading.service.impl;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.okx.trading.event.MarketDataEventBus;
+import com.okx.trading.exchange.MatchingEngine;
 import com.okx.trading.model.account.AccountBalance;
 import com.okx.trading.model.market.Candlestick;
 import com.okx.trading.model.market.Ticker;
 import com.okx.trading.model.trade.Order;
 import com.okx.trading.model.trade.OrderRequest;
 import com.okx.trading.service.OkxApiService;
+import com.okx.trading.util.WebSocketUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Primary;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * OKX API模拟服务实现类
- * 用于在不调用真实API的情况下模拟数据
+ * 用于在不调用真实API的情况下模拟数据，下单经内存撮合引擎按价格优先、时间优先成交，
+ * 订单状态变化按私有频道orders的消息格式推送
  */
 @Slf4j
 @Service
@@ -29,10 +40,85 @@ import java.util.stream.Collectors;
 @ConditionalOnProperty(name = "okx.api.use-mock-data", havingValue = "true")
 public class OkxApiMockServiceImpl implements OkxApiService {
 
+    private static final BigDecimal FEE_RATE = new BigDecimal("0.001");
+    /**
+     * 做市报价每侧的数量（按撮合精度换算），足够吸收任何模拟订单
+     */
+    private static final long HOUSE_QUANTITY = 1_000_000_000_000_000L;
+
     private final Map<String, List<Candlestick>> candlestickCache = new ConcurrentHashMap<>();
     private final Map<String,Ticker> tickerCache = new ConcurrentHashMap<>();
     private final Map<String, Order> ordersCache = new ConcurrentHashMap<>();
     private final AtomicLong orderIdGenerator = new AtomicLong(1);
+    private final MatchingEngine matchingEngine = new MatchingEngine(new OrderExecutionHandler());
+    private final Set<String> quotedSymbols = ConcurrentHashMap.newKeySet();
+    /**
+     * 是否按最新价提供做市流动性；关闭时只有用户订单之间互相成交，市价单没有对手盘会被撤销
+     */
+    private final boolean provideLiquidity;
+    /**
+     * 订单状态推送，消息格式与OKX私有频道orders一致
+     */
+    private volatile Consumer<String> orderPushListener;
+
+    public OkxApiMockServiceImpl() {
+        this(false);
+    }
+
+    /**
+     * @param provideLiquidity 是否按最新价提供做市流动性
+     */
+    @Autowired
+    public OkxApiMockServiceImpl(@Value("${okx.api.mock.provide-liquidity:true}") boolean provideLiquidity) {
+        this.provideLiquidity = provideLiquidity;
+    }
+
+    /**
+     * 订单状态变化通过WebSocket消息处理链路推送，与实盘orders频道走同一套处理器
+     */
+    @Autowired(required = false)
+    public void setWebSocketUtil(WebSocketUtil webSocketUtil) {
+        this.orderPushListener = webSocketUtil::replayMessage;
+    }
+
+    /**
+     * 订阅行情事件总线，每次收到K线更新都按收盘价重新报价，挂单随实时行情成交
+     */
+    @Autowired(required = false)
+    public void setMarketDataEventBus(MarketDataEventBus marketDataEventBus) {
+        marketDataEventBus.subscribe("mock-exchange", (symbol, interval, candlestick) ->
+                updateMarketPrice(symbol, candlestick.getClose(), LocalDateTime.now()));
+    }
+
+    public void setOrderPushListener(Consumer<String> orderPushListener) {
+        this.orderPushListener = orderPushListener;
+    }
+
+    public MatchingEngine getMatchingEngine() {
+        return matchingEngine;
+    }
+
+    /**
+     * 设置交易对的最新成交价，开启流动性时在该价格重新挂出做市报价，穿价的挂单随之成交
+     * 实时行情由行情事件总线的消费者调用，回放历史K线时由回放驱动按每根K线的收盘价调用
+     *
+     * @param symbol 交易对，如BTC-USDT
+     * @param price  最新成交价
+     * @param time   行情时间
+     */
+    public void updateMarketPrice(String symbol, BigDecimal price, LocalDateTime time) {
+        Ticker ticker = new Ticker();
+        ticker.setSymbol(symbol);
+        ticker.setLastPrice(price);
+        ticker.setBidPrice(price);
+        ticker.setAskPrice(price);
+        ticker.setTimestamp(time);
+        tickerCache.put(symbol, ticker);
+        if (provideLiquidity) {
+            quotedSymbols.add(symbol);
+            quote(symbol, ticker);
+        }
+    }
 
     /**
      * 获取K线数据
@@ -141,16 +227,12 @@ public class OkxApiMockServiceImpl implements OkxApiService {
      */
     @Override
     public boolean cancelOrder(String symbol, String orderId) {
-        if (ordersCache.containsKey(orderId)) {
-            Order order = ordersCache.get(orderId);
-            if (symbol.equals(order.getSymbol())) {
-                order.setStatus("CANCELED");
-                order.setUpdateTime(LocalDateTime.now());
-                ordersCache.put(orderId, order);
-                return true;
-            }
+        Order order = ordersCache.get(orderId);
+        if (order == null || !symbol.equals(order.getSymbol())) {
+            return false;
         }
-        return false;
+        // 已成交或已撤销的订单不在订单簿中，撤单失败
+        return matchingEngine.cancel(symbol, Long.parseLong(orderId));
     }
 
     /**
@@ -436,8 +518,6 @@ public class OkxApiMockServiceImpl implements OkxApiService {
             throw new IllegalArgumentException("下单失败：计算得到的数量必须大于0");
         }
 
-        // 生成手续费，通常是订单金额的0.1%
-        BigDecimal fee = price.multiply(quantity).multiply(new BigDecimal("0.001"));
         String feeCurrency = quoteAsset; // 使用计价货币作为手续费
 
         // 创建订单对象
@@ -456,15 +536,145 @@ public class OkxApiMockServiceImpl implements OkxApiService {
         order.setCreateTime(LocalDateTime.now());
         order.setUpdateTime(LocalDateTime.now());
         order.setSimulated(orderRequest.getSimulated() != null ? orderRequest.getSimulated() : false);
-        order.setFee(fee);
+        // 手续费为成交金额的0.1%，随成交累加
+        order.setFee(BigDecimal.ZERO);
         order.setFeeCurrency(feeCurrency);
 
-        // 保存到订单缓存
+        // 先保存到订单缓存，撮合回报按订单号更新
         ordersCache.put(orderId, order);
 
+        if (provideLiquidity && quotedSymbols.add(order.getSymbol())) {
+            quote(order.getSymbol(), ticker);
+        }
+        MatchingEngine.OrderType type;
+        if (!"LIMIT".equalsIgnoreCase(orderRequest.getType())) {
+            type = MatchingEngine.OrderType.MARKET;
+        } else if ("IOC".equalsIgnoreCase(order.getTimeInForce())) {
+            type = MatchingEngine.OrderType.IOC;
+        } else {
+            type = MatchingEngine.OrderType.LIMIT;
+        }
+        matchingEngine.submit(order.getSymbol(), Long.parseLong(orderId), isBuy, type,
+                MatchingEngine.toUnits(price), MatchingEngine.toUnits(quantity));
+        if ("NEW".equals(order.getStatus())) {
+            // 未成交的限价单已挂入订单簿
+            pushOrder(order, null, null);
+        }
+
         return order;
     }
 
+    /**
+     * 按行情的买一卖一价挂出做市报价
+     */
+    private void quote(String symbol, Ticker ticker) {
+        BigDecimal bid = ticker.getBidPrice() != null ? ticker.getBidPrice() : ticker.getLastPrice();
+        BigDecimal ask = ticker.getAskPrice() != null ? ticker.getAskPrice() : ticker.getLastPrice();
+        matchingEngine.quote(symbol, MatchingEngine.toUnits(bid), MatchingEngine.toUnits(ask), HOUSE_QUANTITY);
+    }
+
+    /**
+     * 按OKX私有频道orders的格式推送订单状态
+     *
+     * @param fillPrice    本次成交价格，没有成交时为null
+     * @param fillQuantity 本次成交数量，没有成交时为null
+     */
+    private void pushOrder(Order order, BigDecimal fillPrice, BigDecimal fillQuantity) {
+        Consumer<String> listener = orderPushListener;
+        if (listener == null) {
+            return;
+        }
+        boolean limit = "LIMIT".equalsIgnoreCase(order.getType());
+        JSONObject data = new JSONObject();
+        data.put("instId", order.getSymbol());
+        data.put("ordId", order.getOrderId());
+        data.put("clOrdId", order.getClientOrderId());
+        data.put("px", limit ? order.getPrice().toPlainString() : "");
+        data.put("sz", order.getOrigQty().toPlainString());
+        data.put("ordType", !limit ? "market" : "IOC".equalsIgnoreCase(order.getTimeInForce()) ? "ioc" : "limit");
+        data.put("side", order.getSide().toLowerCase());
+        data.put("state", toOkxState(order.getStatus()));
+        data.put("accFillSz", order.getExecutedQty().toPlainString());
+        data.put("fillPx", fillPrice != null ? fillPrice.toPlainString() : "");
+        data.put("fillSz", fillQuantity != null ? fillQuantity.toPlainString() : "0");
+        data.put("avgPx", order.getExecutedQty().signum() > 0
+                ? order.getCummulativeQuoteQty().divide(order.getExecutedQty(), 8, RoundingMode.HALF_UP).toPlainString() : "");
+        // OKX的手续费以负数表示扣除
+        data.put("fee", order.getFee().negate().toPlainString());
+        data.put("feeCcy", order.getFeeCurrency());
+        data.put("cTime", String.valueOf(toEpochMilli(order.getCreateTime())));
+        data.put("uTime", String.valueOf(toEpochMilli(order.getUpdateTime())));
+
+        JSONObject arg = new JSONObject();
+        arg.put("channel", "orders");
+        arg.put("instType", order.getSymbol().endsWith("-SWAP") ? "SWAP" : "SPOT");
+        arg.put("instId", order.getSymbol());
+        JSONObject message = new JSONObject();
+        message.put("arg", arg);
+        JSONArray dataArray = new JSONArray();
+        dataArray.add(data);
+        message.put("data", dataArray);
+        try {
+            listener.accept(message.toJSONString());
+        } catch (Exception e) {
+            log.error("推送模拟订单状态失败, 订单ID: {}, 错误: {}", order.getOrderId(), e.getMessage(), e);
+        }
+    }
+
+    private static String toOkxState(String status) {
+        switch (status) {
+            case "PARTIALLY_FILLED":
+                return "partially_filled";
+            case "FILLED":
+                return "filled";
+            case "CANCELED":
+                return "canceled";
+            default:
+                return "live";
+        }
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 撮合回报：更新订单缓存中的成交数量、均价、手续费和状态，并推送订单状态
+     */
+    private class OrderExecutionHandler implements MatchingEngine.ExecutionListener {
+
+        @Override
+        public void onFill(String symbol, long orderId, long price, long quantity, long leaves) {
+            Order order = ordersCache.get(String.valueOf(orderId));
+            if (order == null) {
+                return;
+            }
+            BigDecimal fillPrice = MatchingEngine.fromUnits(price);
+            BigDecimal fillQuantity = MatchingEngine.fromUnits(quantity);
+            order.setExecutedQty(order.getExecutedQty().add(fillQuantity));
+            order.setCummulativeQuoteQty(order.getCummulativeQuoteQty().add(fillPrice.multiply(fillQuantity)));
+            order.setFee(order.getCummulativeQuoteQty().multiply(FEE_RATE));
+            if (!"LIMIT".equalsIgnoreCase(order.getType())) {
+                // 市价单的价格取成交均价
+                order.setPrice(order.getCummulativeQuoteQty().divide(order.getExecutedQty(), 8, RoundingMode.HALF_UP));
+            }
+            order.setStatus(leaves == 0 ? "FILLED" : "PARTIALLY_FILLED");
+            order.setUpdateTime(LocalDateTime.now());
+            pushOrder(order, fillPrice, fillQuantity);
+        }
+
+        @Override
+        public void onCancel(String symbol, long orderId, long quantity) {
+            Order order = ordersCache.get(String.valueOf(orderId));
+            if (order == null) {
+                return;
+            }
+            order.setStatus("CANCELED");
+            order.setUpdateTime(LocalDateTime.now());
+            pushOrder(order, null, null);
+        }
+    }
+
     /**
      * 根据币种获取基础价格
      *
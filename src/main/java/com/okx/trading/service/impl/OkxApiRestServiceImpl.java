@@ -11,7 +11,8 @@ import com.okx.trading.model.market.Ticker;
 import com.okx.trading.model.trade.Order;
 import com.okx.trading.model.trade.OrderRequest;
 import com.okx.trading.service.OkxApiService;
-import com.okx.trading.service.RedisCacheService;
+import com.okx.trading.service.OrderStateService;
+import com.okx.trading.service.PriceBookService;
 import com.okx.trading.util.HttpUtil;
 import com.okx.trading.util.SignatureUtil;
 import lombok.RequiredArgsConstructor;
@@ -42,11 +43,14 @@ public class OkxApiRestServiceImpl implements OkxApiService{
 
     private final OkHttpClient okHttpClient;
     private final OkxApiConfig okxApiConfig;
-    private final RedisCacheService redisCacheService;
+    private final PriceBookService priceBookService;
     private static final String API_PATH = "/api/v5";
     private static final String MARKET_PATH = API_PATH + "/market";
     private static final String ACCOUNT_PATH = API_PATH + "/account";
     private static final String TRADE_PATH = API_PATH + "/trade";
+    // 市价单的下单响应只有订单ID，按此间隔查询直到订单完结，超过次数后返回最后一次查询到的状态
+    private static final int FILL_POLL_ATTEMPTS = 10;
+    private static final long FILL_POLL_INTERVAL_MS = 200;
 
     /**
      * 获取K线数据
@@ -143,10 +147,10 @@ public class OkxApiRestServiceImpl implements OkxApiService{
             BigDecimal open24h = new BigDecimal(data.getString("open24h"));
             BigDecimal priceChange = ticker.getLastPrice().subtract(open24h);
             ticker.setPriceChange(priceChange);
-            // 将最新价格写入Redis缓存
+            // 将最新价格写入内存价格簿，由定时任务批量同步到Redis
             BigDecimal lastPrice = ticker.getLastPrice();
             if(lastPrice != null){
-                redisCacheService.updateCoinPrice(symbol, lastPrice);
+                priceBookService.updatePrice(symbol, lastPrice, System.currentTimeMillis());
             }
             // 计算24小时价格变动百分比
             if(open24h.compareTo(BigDecimal.ZERO) > 0){
@@ -315,56 +319,7 @@ public class OkxApiRestServiceImpl implements OkxApiService{
             List<Order> result = new ArrayList<>();
 
             for(int i = 0;i < dataArray.size();i++){
-                JSONObject item = dataArray.getJSONObject(i);
-
-                Order order = new Order();
-                order.setOrderId(item.getString("ordId"));
-                order.setClientOrderId(item.getString("clOrdId"));
-                order.setSymbol(item.getString("instId"));
-                order.setPrice(new BigDecimal(item.getString("px")));
-                order.setOrigQty(new BigDecimal(item.getString("sz")));
-                order.setExecutedQty(new BigDecimal(item.getString("accFillSz")));
-
-                // 成交金额需要计算
-                BigDecimal avgPx = new BigDecimal(item.getString("avgPx"));
-                order.setCummulativeQuoteQty(order.getExecutedQty().multiply(avgPx));
-
-                // 状态映射，OKX可能使用不同的状态码
-                String okxStatus = item.getString("state");
-                order.setStatus(mapOrderStatus(okxStatus));
-
-                // 订单类型映射
-                String okxType = item.getString("ordType");
-                order.setType(mapOrderType(okxType));
-
-                // 交易方向映射
-                String okxSide = item.getString("side");
-                order.setSide(okxSide.toUpperCase());
-
-                // 其他字段
-                order.setStopPrice(new BigDecimal(item.getString("slTriggerPx")));
-                order.setTriggerPrice(new BigDecimal(item.getString("tpTriggerPx")));
-                order.setTimeInForce(item.getString("tgtCcy"));
-
-                // 时间转换
-                long cTime = item.getLongValue("cTime");
-                order.setCreateTime(LocalDateTime.ofInstant(
-                    Instant.ofEpochMilli(cTime),
-                    ZoneId.systemDefault()));
-
-                long uTime = item.getLongValue("uTime");
-                order.setUpdateTime(LocalDateTime.ofInstant(
-                    Instant.ofEpochMilli(uTime),
-                    ZoneId.systemDefault()));
-
-                // 设置模拟标志
-                order.setSimulated(false);
-
-                // 手续费信息
-                order.setFee(new BigDecimal(item.getString("fee")));
-                order.setFeeCurrency(item.getString("feeCcy"));
-
-                result.add(order);
+                result.add(parseOrder(dataArray.getJSONObject(i), false));
             }
 
             return result;
@@ -376,6 +331,74 @@ public class OkxApiRestServiceImpl implements OkxApiService{
         }
     }
 
+    /**
+     * 按订单ID查询单个订单
+     *
+     * @param symbol  交易对，如BTC-USDT
+     * @param orderId 订单ID
+     * @return 订单，不存在时返回null
+     */
+    @Override
+    public Order getOrder(String symbol, String orderId){
+        return queryOrder(symbol, orderId, false);
+    }
+
+    private Order queryOrder(String symbol, String orderId, boolean isSimulated){
+        try{
+            String requestPath = TRADE_PATH + "/order?instId=" + symbol + "&ordId=" + orderId;
+            String timestamp = SignatureUtil.getIsoTimestamp();
+            Map<String,String> headers = buildHeaders(timestamp, "GET", requestPath, null, isSimulated);
+
+            String response = HttpUtil.get(okHttpClient, okxApiConfig.getBaseUrl() + requestPath, headers);
+            JSONObject jsonResponse = JSON.parseObject(response);
+
+            if(! "0".equals(jsonResponse.getString("code"))){
+                throw new OkxApiException(jsonResponse.getIntValue("code"), jsonResponse.getString("msg"));
+            }
+
+            JSONArray data = jsonResponse.getJSONArray("data");
+            return data == null || data.isEmpty() ? null : parseOrder(data.getJSONObject(0), isSimulated);
+        }catch(OkxApiException e){
+            throw e;
+        }catch(Exception e){
+            log.error("查询订单异常", e);
+            throw new OkxApiException("查询订单失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 市价单在交易所撮合后才有成交，查询订单直到完结再返回，调用方拿到的是成交结果而不是刚受理的订单；
+     * 限价单和被拒绝的订单原样返回
+     */
+    private Order awaitMarketFill(Order order, OrderRequest orderRequest, boolean isSimulated){
+        boolean market = orderRequest.getType() == null || "MARKET".equalsIgnoreCase(orderRequest.getType());
+        if(! market || order.getOrderId() == null || OrderStateService.isFinished(order)){
+            return order;
+        }
+        Order latest = order;
+        for(int attempt = 0;attempt < FILL_POLL_ATTEMPTS;attempt++){
+            try{
+                Order queried = queryOrder(order.getSymbol(), order.getOrderId(), isSimulated);
+                if(queried != null){
+                    latest = queried;
+                    if(OrderStateService.isFinished(latest)){
+                        return latest;
+                    }
+                }
+            }catch(OkxApiException e){
+                log.warn("查询市价单成交失败, orderId: {}, error: {}", order.getOrderId(), e.getMessage());
+            }
+            try{
+                Thread.sleep(FILL_POLL_INTERVAL_MS);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("市价单在等待时间内未完结, orderId: {}, status: {}", order.getOrderId(), latest.getStatus());
+        return latest;
+    }
+
     /**
      * 创建现货订单
      *
@@ -413,50 +436,7 @@ public class OkxApiRestServiceImpl implements OkxApiService{
             String url = okxApiConfig.getBaseUrl() + TRADE_PATH + "/order";
             // 按金额下单,按数量下单,限价单,市价单
 
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("instId", orderRequest.getSymbol());
-            requestBody.put("tdMode", "cash"); // 资金模式，cash为现钞
-            requestBody.put("side", orderRequest.getSide().toLowerCase());
-            if(orderRequest.getType() != null){
-                requestBody.put("ordType", mapToOkxOrderType(orderRequest.getType()));
-            }else{
-                requestBody.put("ordType", "market");
-            }
-            // 处理市价单和限价单逻辑
-            //币币市价单委托数量sz的单位,base_ccy: 交易货币 ；quote_ccy：计价货币,仅适用于币币市价订单,默认买单为quote_ccy，卖单为base_ccy
-            if(orderRequest.getAmount() != null){
-                // 市价\限价,指定金额
-                requestBody.put("sz", orderRequest.getAmount().toString());
-                requestBody.put("tgtCcy", "quote_ccy");
-            }else if(orderRequest.getQuantity() != null){
-                //指定数量,市价单不指定价格,限价单指定价格
-                requestBody.put("sz", orderRequest.getQuantity().toString());
-                requestBody.put("tgtCcy", "base_ccy");
-                if(orderRequest.getPrice() != null){
-                    requestBody.put("px", orderRequest.getPrice().toString());
-                }else{
-                    BigDecimal coinPrice = redisCacheService.getCoinPrice(orderRequest.getSymbol());
-                    requestBody.put("px", coinPrice.toString());
-                }
-            }
-            if(orderRequest.getClientOrderId() != null){
-                requestBody.put("clOrdId", orderRequest.getClientOrderId());
-            }
-
-            // 设置杠杆倍数（合约交易）
-            if("SWAP".equals(instType) && orderRequest.getLeverage() != null){
-                requestBody.put("lever", orderRequest.getLeverage().toString());
-            }
-
-            // 设置订单有效期
-//            if (orderRequest.getTimeInForce() != null) {
-//                requestBody.put("tgtCcy", mapToOkxTimeInForce(orderRequest.getTimeInForce()));
-//            }
-
-//            // 设置被动委托
-//            if(orderRequest.getPostOnly() != null && orderRequest.getPostOnly()){
-//                requestBody.put("postOnly", "1");
-//            }
+            JSONObject requestBody = buildOrderBody(orderRequest, instType);
 
             String requestBodyStr = requestBody.toJSONString();
             String timestamp = SignatureUtil.getIsoTimestamp();
@@ -479,24 +459,7 @@ public class OkxApiRestServiceImpl implements OkxApiService{
 
             JSONObject data = jsonResponse.getJSONArray("data").getJSONObject(0);
 
-            // 构建返回的订单对象
-            Order order = new Order();
-            order.setOrderId(data.getString("ordId"));
-            order.setClientOrderId(data.getString("clOrdId"));
-            order.setSymbol(orderRequest.getSymbol());
-            order.setPrice(orderRequest.getPrice());
-            order.setOrigQty(orderRequest.getQuantity());
-            order.setExecutedQty(BigDecimal.ZERO); // 新订单未成交
-            order.setCummulativeQuoteQty(BigDecimal.ZERO); // 新订单未成交
-            order.setStatus("NEW");
-            order.setType(orderRequest.getType());
-            order.setSide(orderRequest.getSide());
-            order.setTimeInForce(orderRequest.getTimeInForce());
-            order.setCreateTime(LocalDateTime.now());
-            order.setUpdateTime(LocalDateTime.now());
-            order.setSimulated(isSimulated);
-
-            return order;
+            return awaitMarketFill(toNewOrder(data, orderRequest, isSimulated), orderRequest, isSimulated);
         }catch(OkxApiException e){
             throw e;
         }catch(Exception e){
@@ -505,6 +468,216 @@ public class OkxApiRestServiceImpl implements OkxApiService{
         }
     }
 
+    /**
+     * 批量创建现货订单，一次请求提交，单个订单被拒时以REJECTED状态返回
+     *
+     * @param orderRequests 订单请求参数，最多20个，模拟交易标志以第一个订单为准
+     * @return 与请求顺序一致的订单
+     */
+    @Override
+    public List<Order> createSpotOrders(List<OrderRequest> orderRequests){
+        if(orderRequests == null || orderRequests.isEmpty()){
+            return Collections.emptyList();
+        }
+        if(orderRequests.size() > BATCH_ORDER_LIMIT){
+            throw new OkxApiException("批量下单每次最多" + BATCH_ORDER_LIMIT + "个订单");
+        }
+        try{
+            boolean isSimulated = orderRequests.get(0).getSimulated() != null && orderRequests.get(0).getSimulated();
+            String requestPath = TRADE_PATH + "/batch-orders";
+            String url = okxApiConfig.getBaseUrl() + requestPath;
+
+            JSONArray requestBody = new JSONArray();
+            for(OrderRequest orderRequest: orderRequests){
+                JSONObject orderBody = buildOrderBody(orderRequest, "SPOT");
+                if(orderRequest.getClientOrderId() == null){
+                    // 批量响应按clOrdId对应回请求，未指定时生成一个
+                    orderRequest.setClientOrderId(System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8));
+                    orderBody.put("clOrdId", orderRequest.getClientOrderId());
+                }
+                requestBody.add(orderBody);
+            }
+
+            String requestBodyStr = requestBody.toJSONString();
+            String timestamp = SignatureUtil.getIsoTimestamp();
+            Map<String,String> headers = buildHeaders(timestamp, "POST", requestPath, requestBodyStr, isSimulated);
+
+            String response = HttpUtil.post(okHttpClient, url, headers, requestBodyStr);
+            JSONObject jsonResponse = JSON.parseObject(response);
+            JSONArray data = jsonResponse.getJSONArray("data");
+            if(data == null || data.isEmpty()){
+                throw new OkxApiException("批量创建订单失败: " + jsonResponse.getString("msg"));
+            }
+
+            // 部分订单被拒时整体code非0，以每个订单的sCode为准
+            Map<String,JSONObject> results = new HashMap<>();
+            for(int i = 0; i < data.size(); i++){
+                JSONObject result = data.getJSONObject(i);
+                results.put(result.getString("clOrdId"), result);
+            }
+            List<Order> orders = new ArrayList<>(orderRequests.size());
+            for(OrderRequest orderRequest: orderRequests){
+                JSONObject result = results.get(orderRequest.getClientOrderId());
+                if(result != null && result.getIntValue("sCode") == 0){
+                    orders.add(awaitMarketFill(toNewOrder(result, orderRequest, isSimulated), orderRequest, isSimulated));
+                }else{
+                    Order rejected = toNewOrder(result != null ? result : new JSONObject(), orderRequest, isSimulated);
+                    rejected.setClientOrderId(orderRequest.getClientOrderId());
+                    rejected.setStatus("REJECTED");
+                    if(result != null){
+                        rejected.setSCode(result.getIntValue("sCode"));
+                        rejected.setSMsg(result.getString("sMsg"));
+                    }
+                    log.warn("批量下单中的订单被拒绝: clientOrderId={}, sMsg={}", orderRequest.getClientOrderId(), rejected.getSMsg());
+                    orders.add(rejected);
+                }
+            }
+            return orders;
+        }catch(OkxApiException e){
+            throw e;
+        }catch(Exception e){
+            log.error("批量创建订单异常", e);
+            throw new OkxApiException("批量创建订单失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 构建单个订单的请求体，单笔下单和批量下单共用
+     */
+    private JSONObject buildOrderBody(OrderRequest orderRequest, String instType){
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("instId", orderRequest.getSymbol());
+        requestBody.put("tdMode", "cash"); // 资金模式，cash为现钞
+        requestBody.put("side", orderRequest.getSide().toLowerCase());
+        if(orderRequest.getType() != null){
+            requestBody.put("ordType", mapToOkxOrderType(orderRequest.getType()));
+        }else{
+            requestBody.put("ordType", "market");
+        }
+        // 处理市价单和限价单逻辑
+        //币币市价单委托数量sz的单位,base_ccy: 交易货币 ；quote_ccy：计价货币,仅适用于币币市价订单,默认买单为quote_ccy，卖单为base_ccy
+        if(orderRequest.getAmount() != null){
+            // 市价\限价,指定金额
+            requestBody.put("sz", orderRequest.getAmount().toString());
+            requestBody.put("tgtCcy", "quote_ccy");
+        }else if(orderRequest.getQuantity() != null){
+            //指定数量,市价单不指定价格,限价单指定价格
+            requestBody.put("sz", orderRequest.getQuantity().toString());
+            requestBody.put("tgtCcy", "base_ccy");
+            if(orderRequest.getPrice() != null){
+                requestBody.put("px", orderRequest.getPrice().toString());
+            }else{
+                BigDecimal coinPrice = priceBookService.getPrice(orderRequest.getSymbol());
+                requestBody.put("px", coinPrice.toString());
+            }
+        }
+        if(orderRequest.getClientOrderId() != null){
+            requestBody.put("clOrdId", orderRequest.getClientOrderId());
+        }
+
+        // 设置杠杆倍数（合约交易）
+        if("SWAP".equals(instType) && orderRequest.getLeverage() != null){
+            requestBody.put("lever", orderRequest.getLeverage().toString());
+        }
+
+        // 设置订单有效期
+//            if (orderRequest.getTimeInForce() != null) {
+//                requestBody.put("tgtCcy", mapToOkxTimeInForce(orderRequest.getTimeInForce()));
+//            }
+
+//            // 设置被动委托
+//            if(orderRequest.getPostOnly() != null && orderRequest.getPostOnly()){
+//                requestBody.put("postOnly", "1");
+//            }
+        return requestBody;
+    }
+
+    /**
+     * 下单响应只有订单ID，按请求构建一个未成交的新订单
+     */
+    private Order toNewOrder(JSONObject data, OrderRequest orderRequest, boolean isSimulated){
+        Order order = new Order();
+        order.setOrderId(data.getString("ordId"));
+        order.setClientOrderId(data.getString("clOrdId"));
+        order.setSymbol(orderRequest.getSymbol());
+        order.setPrice(orderRequest.getPrice());
+        order.setOrigQty(orderRequest.getQuantity());
+        order.setExecutedQty(BigDecimal.ZERO); // 新订单未成交
+        order.setCummulativeQuoteQty(BigDecimal.ZERO); // 新订单未成交
+        order.setStatus("NEW");
+        order.setType(orderRequest.getType());
+        order.setSide(orderRequest.getSide());
+        order.setTimeInForce(orderRequest.getTimeInForce());
+        order.setCreateTime(LocalDateTime.now());
+        order.setUpdateTime(LocalDateTime.now());
+        order.setSimulated(isSimulated);
+
+        return order;
+    }
+
+    /**
+     * 解析订单查询接口返回的单个订单，订单列表和单个订单查询共用
+     * 市价单的px、未成交订单的avgPx等字段为空字符串
+     */
+    private Order parseOrder(JSONObject item, boolean isSimulated){
+        Order order = new Order();
+        order.setOrderId(item.getString("ordId"));
+        order.setClientOrderId(item.getString("clOrdId"));
+        order.setSymbol(item.getString("instId"));
+        order.setPrice(decimal(item.getString("px")));
+        order.setOrigQty(decimal(item.getString("sz")));
+        order.setExecutedQty(quantity(item.getString("accFillSz")));
+
+        // 成交金额需要计算
+        BigDecimal avgPx = quantity(item.getString("avgPx"));
+        order.setCummulativeQuoteQty(order.getExecutedQty().multiply(avgPx));
+
+        // 状态映射，OKX可能使用不同的状态码
+        String okxStatus = item.getString("state");
+        order.setStatus(mapOrderStatus(okxStatus));
+
+        // 订单类型映射
+        String okxType = item.getString("ordType");
+        order.setType(mapOrderType(okxType));
+
+        // 交易方向映射
+        String okxSide = item.getString("side");
+        order.setSide(okxSide.toUpperCase());
+
+        // 其他字段
+        order.setStopPrice(decimal(item.getString("slTriggerPx")));
+        order.setTriggerPrice(decimal(item.getString("tpTriggerPx")));
+        order.setTimeInForce(item.getString("tgtCcy"));
+
+        // 时间转换
+        long cTime = item.getLongValue("cTime");
+        order.setCreateTime(LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(cTime),
+            ZoneId.systemDefault()));
+
+        long uTime = item.getLongValue("uTime");
+        order.setUpdateTime(LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(uTime),
+            ZoneId.systemDefault()));
+
+        // 设置模拟标志
+        order.setSimulated(isSimulated);
+
+        // 手续费信息
+        order.setFee(quantity(item.getString("fee")));
+        order.setFeeCurrency(item.getString("feeCcy"));
+
+        return order;
+    }
+
+    private static BigDecimal decimal(String value){
+        return value == null || value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    private static BigDecimal quantity(String value){
+        return value == null || value.isEmpty() ? BigDecimal.ZERO : new BigDecimal(value);
+    }
+
     /**
      * 取消订单
      *
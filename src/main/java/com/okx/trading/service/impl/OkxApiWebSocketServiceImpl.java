@@ -3,16 +3,21 @@ package com.okx.trading.service.impl;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.okx.trading.config.OkxApiConfig;
+import com.okx.trading.event.MarketDataEventBus;
+import com.okx.trading.event.WebSocketReconnectEvent;
 import com.okx.trading.exception.BusinessException;
 import com.okx.trading.exception.OkxApiException;
 import com.okx.trading.model.account.AccountBalance;
 import com.okx.trading.model.account.AccountBalance.AssetBalance;
 import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.model.market.PricePoint;
 import com.okx.trading.model.market.Ticker;
 import com.okx.trading.model.trade.Order;
 import com.okx.trading.model.trade.OrderRequest;
 import com.okx.trading.service.KlineCacheService;
 import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.OrderStateService;
+import com.okx.trading.service.PriceBookService;
 import com.okx.trading.service.RedisCacheService;
 import com.okx.trading.strategy.RealTimeStrategyManager;
 import com.okx.trading.util.HttpUtil;
@@ -22,8 +27,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
@@ -35,6 +42,7 @@ import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import okhttp3.Request;
 import okhttp3.Response;
@@ -59,17 +67,21 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     private final OkHttpClient okHttpClient;
     @Lazy
     private final KlineCacheService klineCacheService;
+    private final MarketDataEventBus marketDataEventBus;
+    private final PriceBookService priceBookService;
+    private final OrderStateService orderStateService;
 
     @Lazy
     @Autowired(required = false)
     private RealTimeStrategyManager realTimeStrategyManager;
 
+    @Autowired
+    @Qualifier("websocketReconnectScheduler")
+    private ScheduledExecutorService reconnectScheduler;
+
     // 缓存和回调
     private final Map<String, CompletableFuture<Ticker>> tickerFutures = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<List<Candlestick>>> klineFutures = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<AccountBalance>> balanceFutures = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<List<Order>>> ordersFutures = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<Order>> orderFutures = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<Boolean>> cancelOrderFutures = new ConcurrentHashMap<>();
 
     // 跟踪当前已订阅的币种+周期
@@ -104,6 +116,19 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         webSocketUtil.registerHandler("account", this::handleAccountMessage);
         webSocketUtil.registerHandler("orders", this::handleOrdersMessage);
         webSocketUtil.registerHandler("order", this::handleOrderMessage);
+        webSocketUtil.registerHandler("batch-orders", this::handleOrderMessage);
+        webSocketUtil.registerHandler("cancel-order", this::handleCancelOrderMessage);
+
+        // 订单和余额状态由私有频道推送维护，登录完成前订阅请求在待执行队列中等待
+        subscribePrivateChannels();
+
+        // 行情消费者在各自的线程上处理K线，读线程只负责解析、更新内存价格簿和发布
+        marketDataEventBus.subscribe("strategy", (symbol, interval, candlestick) -> {
+            // 通知实时策略管理器处理新的K线数据
+            if (realTimeStrategyManager != null) {
+                realTimeStrategyManager.handleNewKlineData(symbol, interval, candlestick);
+            }
+        });
     }
 
     /**
@@ -176,14 +201,13 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
                 if (candlestick != null) {
                     candlestick.setIntervalVal(interval);
 //                    redisCacheService.updateCandlestick(candlestick);
-                    redisCacheService.updateCoinPrice(symbol, candlestick.getClose());
                     log.debug("获取实时标记价格k线数据: {}", candlestick);
 //                    candlesticks.add(candlestick);
 
-                    // 通知实时策略管理器处理新的K线数据
-                    if (realTimeStrategyManager != null) {
-                        realTimeStrategyManager.handleNewKlineData(symbol, interval, candlestick);
-                    }
+                    // 内存价格簿的更新是一次无锁写入，直接在读线程完成，由定时任务批量同步到Redis
+                    priceBookService.updatePrice(symbol, candlestick.getClose(), System.currentTimeMillis());
+                    // 实时策略由行情事件总线的消费者线程处理
+                    marketDataEventBus.publishKline(channel, symbol, interval, candlestick);
                 }
             }
             // 如果解析到了数据，完成等待中的Future
@@ -262,11 +286,8 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
                 JSONObject balanceData = data.getJSONObject(0);
                 AccountBalance accountBalance = parseAccountBalance(balanceData);
 
-                String key = message.getJSONObject("arg").containsKey("simulated") ? "simulated" : "real";
-                CompletableFuture<AccountBalance> future = balanceFutures.get(key);
-                if (future != null && !future.isDone()) {
-                    future.complete(accountBalance);
-                }
+                boolean simulated = message.getJSONObject("arg").containsKey("simulated");
+                orderStateService.onBalanceUpdate(accountBalance, simulated);
             }
         } catch (Exception e) {
             log.error("处理账户消息失败", e);
@@ -274,68 +295,111 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     }
 
     /**
-     * 处理订单列表消息
+     * 处理订单频道推送，更新订单状态并唤醒等待该订单的调用方
      */
     private void handleOrdersMessage(JSONObject message) {
         try {
-            String symbol = message.getJSONObject("arg").getString("instId");
             JSONArray data = message.getJSONArray("data");
             if (data != null) {
-                List<Order> orders = new ArrayList<>();
                 for (int i = 0; i < data.size(); i++) {
-                    JSONObject orderData = data.getJSONObject(i);
-                    Order order = parseOrder(orderData);
-                    orders.add(order);
+                    orderStateService.onOrderUpdate(parseOrder(data.getJSONObject(i)));
                 }
+            }
+        } catch (Exception e) {
+            log.error("处理订单推送消息失败", e);
+        }
+    }
 
-                String key = symbol + "_orders";
-                CompletableFuture<List<Order>> future = ordersFutures.get(key);
-                if (future != null && !future.isDone()) {
-                    future.complete(orders);
+    /**
+     * 处理下单和批量下单请求的响应，订单状态以orders频道推送为准，这里只处理拒单
+     */
+    private void handleOrderMessage(JSONObject message) {
+        try {
+            JSONArray data = message.getJSONArray("data");
+            if (data != null) {
+                // 批量下单的响应每个订单一条，部分被拒时整体code非0，以各条的sCode为准
+                for (int i = 0; i < data.size(); i++) {
+                    JSONObject orderData = data.getJSONObject(i);
+                    String clientOrderId = orderData.getString("clOrdId");
+                    log.info("收到下单响应: orderId={}, clientOrderId={}, sCode={}, sMsg={}",
+                            orderData.getString("ordId"), clientOrderId, orderData.getString("sCode"), orderData.getString("sMsg"));
+                    int code = orderData.getIntValue("sCode");
+                    if (code != 0) {
+                        orderStateService.onOrderRejected(clientOrderId,
+                                new BusinessException(code, clientOrderId + ": " + orderData.getString("sMsg")));
+                    }
                 }
             }
         } catch (Exception e) {
-            log.error("处理订单列表消息失败", e);
+            log.error("处理下单响应失败", e);
         }
     }
 
     /**
-     * 处理订单消息
+     * 处理撤单请求的响应，撤单被拒时立即返回失败，成功时等待orders频道推送撤销状态
      */
-    private void handleOrderMessage(JSONObject message) {
+    private void handleCancelOrderMessage(JSONObject message) {
         try {
             JSONArray data = message.getJSONArray("data");
             if (data != null && !data.isEmpty()) {
                 JSONObject orderData = data.getJSONObject(0);
-                Order order = parseOrder(orderData);
-
-                // 使用clOrdId查找对应的future，而不是ordId
-                String clientOrderId = orderData.getString("clOrdId");
-                log.info("收到订单消息: orderId={}, clientOrderId={}, status={}, sMsg={}",
-                        orderData.getString("ordId"), clientOrderId, orderData.getString("state"), orderData.getString("sMsg"));
-                if (order.getSCode() != 0) {
-                    throw new BusinessException(order.getSCode(), order.getClientOrderId() + ": " + order.getSMsg());
-                }
-
-                CompletableFuture<Order> future = orderFutures.get(clientOrderId);
-                if (future != null && !future.isDone()) {
-                    future.complete(order);
-                }
-
-                // 处理取消订单的响应
-                if ("canceled".equals(orderData.getString("state"))) {
-                    String orderId = orderData.getString("ordId");
-                    CompletableFuture<Boolean> cancelFuture = cancelOrderFutures.get(orderId);
-                    if (cancelFuture != null && !cancelFuture.isDone()) {
-                        cancelFuture.complete(true);
+                String orderId = orderData.getString("ordId");
+                if (orderData.getIntValue("sCode") != 0) {
+                    log.warn("撤单被拒绝: orderId={}, sMsg={}", orderId, orderData.getString("sMsg"));
+                    CompletableFuture<Boolean> future = cancelOrderFutures.get(orderId);
+                    if (future != null) {
+                        future.complete(false);
                     }
                 }
             }
         } catch (Exception e) {
-            log.error("处理订单消息失败", e);
+            log.error("处理撤单响应失败", e);
         }
     }
 
+    /**
+     * 订阅私有频道的订单和账户推送
+     */
+    private void subscribePrivateChannels() {
+        JSONObject ordersArg = new JSONObject();
+        ordersArg.put("channel", "orders");
+        ordersArg.put("instType", "ANY");
+        JSONObject accountArg = new JSONObject();
+        accountArg.put("channel", "account");
+
+        JSONObject requestMessage = new JSONObject();
+        requestMessage.put("op", "subscribe");
+        requestMessage.put("args", new JSONObject[]{ordersArg, accountArg});
+        webSocketUtil.sendPrivateRequest(requestMessage.toJSONString());
+    }
+
+    /**
+     * 私有频道重连后重新订阅推送，并用REST查询断线期间未完结订单的最新状态
+     * 查询在WebSocket重连线程池执行，不阻塞WebSocket读线程
+     */
+    @EventListener
+    public void reconcileOrdersOnReconnect(WebSocketReconnectEvent event) {
+        if (event.getType() != WebSocketReconnectEvent.ReconnectType.PRIVATE) {
+            return;
+        }
+        subscribePrivateChannels();
+        List<Order> openOrders = orderStateService.getOpenOrders();
+        if (openOrders.isEmpty()) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            int updated = 0;
+            for (Order open : openOrders) {
+                Order latest = queryOrder(open.getSymbol(), open.getOrderId(), null,
+                        Boolean.TRUE.equals(open.getSimulated()));
+                if (latest != null && orderStateService.onOrderUpdate(latest)) {
+                    updated++;
+                }
+            }
+            log.info("私有频道重连对账完成: 未完结订单{}个，状态有变化{}个", openOrders.size(), updated);
+        }, reconnectScheduler);
+    }
+
     @Override
     public List<Candlestick> getKlineData(String symbol, String interval, Integer limit) {
         try {
@@ -385,19 +449,19 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             // 检查是否已订阅，避免重复订阅
             if (subscribedSymbols.contains(symbol)) {
                 log.debug("币种 {} 已经订阅，跳过重复订阅", symbol);
-                // 从Redis获取最新价格
-                BigDecimal price = redisCacheService.getCoinPrice(symbol);
-                if (price != null) {
+                // 从内存价格簿获取最新价格
+                PricePoint point = priceBookService.getPricePoint(symbol);
+                if (point != null) {
                     Ticker ticker = new Ticker();
                     ticker.setSymbol(symbol);
-                    ticker.setLastPrice(price);
-                    ticker.setTimestamp(LocalDateTime.now());
+                    ticker.setLastPrice(point.getPrice());
+                    ticker.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(point.getTimestamp()), ZoneId.systemDefault()));
                     return ticker;
                 }
 
-                // 如果Redis中没有价格，可能是连接重置后未收到新的价格更新
+                // 如果价格簿中没有价格，可能是连接重置后未收到新的价格更新
                 // 主动重新订阅以获取最新数据
-                log.info("币种 {} 已订阅但Redis中无价格数据，重新触发订阅", symbol);
+                log.info("币种 {} 已订阅但价格簿中无价格数据，重新触发订阅", symbol);
             }
 
             String channel = "tickers";
@@ -447,17 +511,12 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     @Override
     public AccountBalance getAccountBalance() {
         try {
-            CompletableFuture<AccountBalance> future = new CompletableFuture<>();
-            balanceFutures.put("real", future);
-
-            webSocketUtil.subscribePrivateTopic("account");
+            // 账户频道订阅后持续推送，已有余额时直接返回，否则等待首次推送
+            CompletableFuture<AccountBalance> future = orderStateService.awaitBalance(false);
 
             // 获取配置的超时时间
             int timeout = okxApiConfig.getTimeout() > 0 ? okxApiConfig.getTimeout() : 10;
-            AccountBalance accountBalance = future.get(timeout, TimeUnit.SECONDS);
-            balanceFutures.remove("real");
-
-            return accountBalance;
+            return future.get(timeout, TimeUnit.SECONDS);
         } catch (Exception e) {
             log.error("获取账户余额失败", e);
             throw new OkxApiException("获取账户余额失败: " + e.getMessage(), e);
@@ -467,8 +526,11 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     @Override
     public AccountBalance getSimulatedAccountBalance() {
         try {
-            CompletableFuture<AccountBalance> future = new CompletableFuture<>();
-            balanceFutures.put("simulated", future);
+            AccountBalance cached = orderStateService.getBalance(true);
+            if (cached != null) {
+                return cached;
+            }
+            CompletableFuture<AccountBalance> future = orderStateService.awaitBalance(true);
 
             // 向服务器发送请求获取模拟账户信息
             JSONObject requestMessage = new JSONObject();
@@ -487,10 +549,7 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
 
             // 获取配置的超时时间
             int timeout = okxApiConfig.getTimeout() > 0 ? okxApiConfig.getTimeout() : 10;
-            AccountBalance accountBalance = future.get(timeout, TimeUnit.SECONDS);
-            balanceFutures.remove("simulated");
-
-            return accountBalance;
+            return future.get(timeout, TimeUnit.SECONDS);
         } catch (Exception e) {
             log.error("获取模拟账户余额失败", e);
             throw new OkxApiException("获取模拟账户余额失败: " + e.getMessage(), e);
@@ -499,42 +558,15 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
 
     @Override
     public List<Order> getOrders(String symbol, String status, Integer limit) {
-        try {
-            String key = symbol + "_orders";
-            CompletableFuture<List<Order>> future = new CompletableFuture<>();
-            ordersFutures.put(key, future);
-
-            // 向服务器发送请求获取订单列表
-            JSONObject requestMessage = new JSONObject();
-            requestMessage.put("id", messageIdGenerator.getAndIncrement());
-            requestMessage.put("op", "subscribe");
-
-            JSONObject arg = new JSONObject();
-            arg.put("channel", "orders");
-            arg.put("instId", symbol);
-            if (status != null && !status.isEmpty()) {
-                arg.put("state", mapToOkxOrderStatus(status));
-            }
-            if (limit != null && limit > 0) {
-                arg.put("limit", limit.toString());
-            }
-
-            JSONObject[] args = new JSONObject[]{arg};
-            requestMessage.put("args", args);
-
-            // 发送请求
-            webSocketUtil.sendPrivateRequest(requestMessage.toJSONString());
-
-            // 获取配置的超时时间
-            int timeout = okxApiConfig.getTimeout() > 0 ? okxApiConfig.getTimeout() : 10;
-            List<Order> orders = future.get(timeout, TimeUnit.SECONDS);
-            ordersFutures.remove(key);
+        // 订单状态由orders频道推送维护，查询不再经过交易所
+        return orderStateService.getOrders(symbol, status, limit);
+    }
 
-            return orders;
-        } catch (Exception e) {
-            log.error("获取订单列表失败", e);
-            throw new OkxApiException("获取订单列表失败: " + e.getMessage(), e);
-        }
+    @Override
+    public Order getOrder(String symbol, String orderId) {
+        // 没有收到过推送的订单才查询交易所
+        Order order = orderStateService.getByOrderId(orderId);
+        return order != null ? order : queryOrder(symbol, orderId, null, false);
     }
 
     @Override
@@ -547,20 +579,64 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         return createOrder(orderRequest, "SWAP", orderRequest.getSimulated() != null && orderRequest.getSimulated());
     }
 
+    @Override
+    public List<Order> createSpotOrders(List<OrderRequest> orderRequests) {
+        if (orderRequests == null || orderRequests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (orderRequests.size() > BATCH_ORDER_LIMIT) {
+            throw new OkxApiException("批量下单每次最多" + BATCH_ORDER_LIMIT + "个订单");
+        }
+        try {
+            // 所有订单先登记等待，再用一个batch-orders请求发出，逐个等待推送，共用一个超时期限
+            List<String> clientOrderIds = new ArrayList<>(orderRequests.size());
+            List<CompletableFuture<Order>> pushed = new ArrayList<>(orderRequests.size());
+            JSONArray args = new JSONArray();
+            for (OrderRequest orderRequest : orderRequests) {
+                String clientOrderId = nextClientOrderId(orderRequest);
+                clientOrderIds.add(clientOrderId);
+                pushed.add(awaitOrderPush(orderRequest, clientOrderId));
+                args.add(buildOrderArg(orderRequest, "SPOT", isSimulated(orderRequest), clientOrderId));
+            }
+
+            JSONObject requestMessage = new JSONObject();
+            requestMessage.put("id", messageIdGenerator.getAndIncrement());
+            requestMessage.put("op", "batch-orders");
+            requestMessage.put("args", args);
+            log.info("发送批量订单请求: {}个订单", orderRequests.size());
+            sendOrderRequest(requestMessage);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(orderTimeoutSeconds());
+            List<Order> orders = new ArrayList<>(orderRequests.size());
+            for (int i = 0; i < orderRequests.size(); i++) {
+                OrderRequest orderRequest = orderRequests.get(i);
+                String clientOrderId = clientOrderIds.get(i);
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    orders.add(resolveOrder(pushed.get(i), orderRequest, clientOrderId, remaining));
+                } catch (OkxApiException e) {
+                    // 单个订单失败不影响同批其他订单，以REJECTED状态返回
+                    orders.add(rejectedOrder(orderRequest, clientOrderId, e.getMessage()));
+                }
+            }
+            return orders;
+        } catch (OkxApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量创建订单失败: {}", e.getMessage(), e);
+            throw new OkxApiException("批量创建订单失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 创建订单
      */
     private Order createOrder(OrderRequest orderRequest, String instType, boolean isSimulated) {
         try {
-            // 生成订单ID
-            String orderId = UUID.randomUUID().toString();
-            String clientOrderId = orderRequest.getClientOrderId() != null ?
-                    orderRequest.getClientOrderId() : System.currentTimeMillis() + orderId.substring(0, 8);
-
-            CompletableFuture<Order> future = new CompletableFuture<>();
+            String clientOrderId = nextClientOrderId(orderRequest);
 
-            // 将future与clientOrderId关联，而不是orderId
-            orderFutures.put(clientOrderId, future);
+            // 发送前登记等待，避免推送先于登记到达
+            CompletableFuture<Order> pushed = awaitOrderPush(orderRequest, clientOrderId);
 
             log.info("准备创建订单, symbol: {}, type: {}, side: {}, clientOrderId: {}",
                     orderRequest.getSymbol(), orderRequest.getType(), orderRequest.getSide(), clientOrderId);
@@ -569,168 +645,162 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             JSONObject requestMessage = new JSONObject();
             requestMessage.put("id", messageIdGenerator.getAndIncrement());
             requestMessage.put("op", "order");
+            JSONObject[] args = new JSONObject[]{buildOrderArg(orderRequest, instType, isSimulated, clientOrderId)};
+            requestMessage.put("args", args);
 
-            JSONObject arg = new JSONObject();
-            arg.put("instId", orderRequest.getSymbol());
-            arg.put("tdMode", "cash"); // 资金模式，cash为现钞
-            arg.put("side", orderRequest.getSide().toLowerCase());
-            if (orderRequest.getType() != null) {
-                arg.put("ordType", mapToOkxOrderType(orderRequest.getType())); // MARKET LIMIT
-            } else {
-                arg.put("ordType", "market");
-            }
+            // 记录发送的订单请求
+            log.info("发送订单请求: {}", requestMessage.toJSONString());
+            sendOrderRequest(requestMessage);
 
+            return resolveOrder(pushed, orderRequest, clientOrderId, TimeUnit.SECONDS.toNanos(orderTimeoutSeconds()));
+        } catch (OkxApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("创建订单失败: {}", e.getMessage(), e);
+            throw new OkxApiException("创建订单失败: " + e.getMessage(), e);
+        }
+    }
 
-            //币币市价单委托数量sz的单位,base_ccy: 交易货币 ；quote_ccy：计价货币,仅适用于币币市价订单,默认买单为quote_ccy，卖单为base_ccy
-            if (orderRequest.getAmount() != null) {
-                // 市价\限价,指定金额
-                arg.put("sz", orderRequest.getAmount().toString());
-                arg.put("tgtCcy", "quote_ccy");
-            } else if (orderRequest.getQuantity() != null) {
-                //指定数量,市价单不指定价格,限价单指定价格
-                arg.put("sz", orderRequest.getQuantity().toString());
-                arg.put("tgtCcy", "base_ccy");
-                // 限价单指定价格
-                if (orderRequest.getType() != null && orderRequest.getType().equals("LIMIT")) {
-                    if (orderRequest.getPrice() != null) {
-                        arg.put("px", orderRequest.getPrice().toString());
-                    } else {
-                        BigDecimal coinPrice = redisCacheService.getCoinPrice(orderRequest.getSymbol());
-                        arg.put("px", coinPrice.toString());
-                    }
-                }
+    private static String nextClientOrderId(OrderRequest orderRequest) {
+        return orderRequest.getClientOrderId() != null ?
+                orderRequest.getClientOrderId() : System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8);
+    }
 
-            }
+    private static boolean isSimulated(OrderRequest orderRequest) {
+        return orderRequest.getSimulated() != null && orderRequest.getSimulated();
+    }
 
-            // 设置客户端订单ID
-            arg.put("clOrdId", clientOrderId);
+    private int orderTimeoutSeconds() {
+        return okxApiConfig.getTimeout() > 0 ? okxApiConfig.getTimeout() : 10;
+    }
 
-            // 设置杠杆倍数（合约交易）
-            if ("SWAP".equals(instType) && orderRequest.getLeverage() != null) {
-                arg.put("lever", orderRequest.getLeverage().toString());
-            }
+    /**
+     * 市价单等待成交结果，限价单收到挂单推送即可返回
+     */
+    private CompletableFuture<Order> awaitOrderPush(OrderRequest orderRequest, String clientOrderId) {
+        return orderStateService.awaitByClientOrderId(clientOrderId, orderPushCondition(orderRequest.getType()));
+    }
 
-            // 设置模拟交易
-            if (isSimulated) {
-                arg.put("simulated", "1");
-            }
+    /**
+     * 市价单每笔成交都会推送一次部分成交，必须等到完结状态才能拿到完整的成交数量和金额
+     */
+    static Predicate<Order> orderPushCondition(String orderType) {
+        if ("LIMIT".equalsIgnoreCase(orderType)) {
+            return order -> true;
+        }
+        return OrderStateService::isFinished;
+    }
 
-            JSONObject[] args = new JSONObject[]{arg};
-            requestMessage.put("args", args);
+    /**
+     * 构建单个订单的请求参数，单笔下单和批量下单共用
+     */
+    private JSONObject buildOrderArg(OrderRequest orderRequest, String instType, boolean isSimulated, String clientOrderId) {
+        JSONObject arg = new JSONObject();
+        arg.put("instId", orderRequest.getSymbol());
+        arg.put("tdMode", "cash"); // 资金模式，cash为现钞
+        arg.put("side", orderRequest.getSide().toLowerCase());
+        if (orderRequest.getType() != null) {
+            arg.put("ordType", mapToOkxOrderType(orderRequest.getType())); // MARKET LIMIT
+        } else {
+            arg.put("ordType", "market");
+        }
 
-            // 记录发送的订单请求
-            log.info("发送订单请求: {}", requestMessage.toJSONString());
 
-            // 检查WebSocket连接状态
-            if (!webSocketUtil.isPrivateSocketConnected()) {
-                log.error("私有WebSocket未连接，无法发送订单请求");
-                throw new OkxApiException("WebSocket连接已断开，请重新连接后再尝试");
+        //币币市价单委托数量sz的单位,base_ccy: 交易货币 ；quote_ccy：计价货币,仅适用于币币市价订单,默认买单为quote_ccy，卖单为base_ccy
+        if (orderRequest.getAmount() != null) {
+            // 市价\限价,指定金额
+            arg.put("sz", orderRequest.getAmount().toString());
+            arg.put("tgtCcy", "quote_ccy");
+        } else if (orderRequest.getQuantity() != null) {
+            //指定数量,市价单不指定价格,限价单指定价格
+            arg.put("sz", orderRequest.getQuantity().toString());
+            arg.put("tgtCcy", "base_ccy");
+            // 限价单指定价格
+            if (orderRequest.getType() != null && orderRequest.getType().equals("LIMIT")) {
+                if (orderRequest.getPrice() != null) {
+                    arg.put("px", orderRequest.getPrice().toString());
+                } else {
+                    BigDecimal coinPrice = priceBookService.getPrice(orderRequest.getSymbol());
+                    arg.put("px", coinPrice.toString());
+                }
             }
 
-            // 发送请求
-            webSocketUtil.sendPrivateRequest(requestMessage.toJSONString());
+        }
 
-            // 增加订单超时处理
-            Order order = null;
-            try {
-                // 睡眠1秒确保订单有时间处理
-                Thread.sleep(1000);
-
-                // 使用正确的API接口：直接使用order接口按clientOrderId查询单个订单
-                // 构建API请求路径
-                StringBuilder apiUrlBuilder = new StringBuilder(okxApiConfig.getBaseUrl())
-                        .append("/api/v5/trade/order?instId=")
-                        .append(orderRequest.getSymbol())
-                        .append("&clOrdId=")
-                        .append(clientOrderId);
-
-                // 记录API请求路径
-                log.info("查询订单API URL: {}", apiUrlBuilder.toString());
-
-                // 确保时间戳精确
-                String timestamp = SignatureUtil.getIsoTimestamp();
-
-                // 构建请求路径（不含baseUrl，用于签名）
-                String requestPath = "/api/v5/trade/order?instId="
-                        + orderRequest.getSymbol() + "&clOrdId=" + clientOrderId;
-
-                // 生成签名
-                String sign = SignatureUtil.sign(timestamp, "GET", requestPath, "", okxApiConfig.getSecretKey());
-
-                Request.Builder requestBuilder = new Request.Builder()
-                        .url(apiUrlBuilder.toString())
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("OK-ACCESS-KEY", okxApiConfig.getApiKey())
-                        .addHeader("OK-ACCESS-SIGN", sign)
-                        .addHeader("OK-ACCESS-TIMESTAMP", timestamp)
-                        .addHeader("OK-ACCESS-PASSPHRASE", okxApiConfig.getPassphrase());
-
-                // 如果是模拟交易需要额外添加标志
-                if (isSimulated) {
-                    requestBuilder.addHeader("x-simulated-trading", "1");
-                }
+        // 设置客户端订单ID
+        arg.put("clOrdId", clientOrderId);
 
-                Request request = requestBuilder.get().build();
-
-                try (Response response = okHttpClient.newCall(request).execute()) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        String responseBody = response.body().string();
-                        log.info("REST API查询订单响应: {}", responseBody);
-
-                        JSONObject responseJson = JSONObject.parseObject(responseBody);
-
-                        if ("0".equals(responseJson.getString("code"))) {
-                            JSONArray data = responseJson.getJSONArray("data");
-                            if (data != null && !data.isEmpty()) {
-                                // 直接解析第一个订单，因为是按clientOrderId精确查询的
-                                JSONObject orderData = data.getJSONObject(0);
-                                order = parseOrder(orderData);
-                                log.info("通过REST API查询到订单: clientOrderId={}, orderId={}, status={}",
-                                        clientOrderId, order.getOrderId(), order.getStatus());
-                            } else {
-                                // 尝试查询活跃订单
-                                log.info("通过clientOrderId未查询到订单，尝试查询活跃订单列表");
-                                Order pendingOrder = findOrderInPendingList(clientOrderId, orderRequest.getSymbol(), isSimulated);
-                                if (pendingOrder != null) {
-                                    order = pendingOrder;
-                                } else {
-                                    log.error("REST API未查询到订单, clientOrderId: {}", clientOrderId);
-                                    throw new OkxApiException("订单请求超时且未找到对应订单，请稍后通过查询接口确认订单状态");
-                                }
-                            }
-                        } else {
-                            log.error("REST API查询订单失败, code: {}, msg: {}",
-                                    responseJson.getString("code"), responseJson.getString("msg"));
-                            throw new OkxApiException("查询订单失败: " + responseJson.getString("msg"));
-                        }
-                    } else {
-                        log.error("REST API请求失败, 状态码: {}", response.code());
-                        throw new OkxApiException("REST API请求失败，状态码: " + response.code());
-                    }
-                }
-            } catch (Exception e) {
-                log.error("订单请求异常, symbol: {}, type: {}, side: {}, clientOrderId: {}, 错误: {}",
-                        orderRequest.getSymbol(), orderRequest.getType(), orderRequest.getSide(),
-                        clientOrderId, e.getMessage(), e);
-                throw new OkxApiException("订单请求异常: " + e.getMessage(), e);
-            } finally {
-                // 清理资源
-                orderFutures.remove(clientOrderId);
+        // 设置杠杆倍数（合约交易）
+        if ("SWAP".equals(instType) && orderRequest.getLeverage() != null) {
+            arg.put("lever", orderRequest.getLeverage().toString());
+        }
+
+        // 设置模拟交易
+        if (isSimulated) {
+            arg.put("simulated", "1");
+        }
+        return arg;
+    }
+
+    private static Order rejectedOrder(OrderRequest orderRequest, String clientOrderId, String message) {
+        return Order.builder()
+                .clientOrderId(clientOrderId)
+                .symbol(orderRequest.getSymbol())
+                .side(orderRequest.getSide())
+                .type(orderRequest.getType())
+                .status("REJECTED")
+                .sMsg(message)
+                .simulated(isSimulated(orderRequest))
+                .build();
+    }
+
+    private void sendOrderRequest(JSONObject requestMessage) {
+        // 检查WebSocket连接状态
+        if (!webSocketUtil.isPrivateSocketConnected()) {
+            log.error("私有WebSocket未连接，无法发送订单请求");
+            throw new OkxApiException("WebSocket连接已断开，请重新连接后再尝试");
+        }
+        webSocketUtil.sendPrivateRequest(requestMessage.toJSONString());
+    }
+
+    /**
+     * 等待订单推送，推送丢失或延迟时用REST查询一次，结果写回状态服务
+     * 不再等待推送时取消登记的等待，由状态服务定期清理
+     */
+    private Order resolveOrder(CompletableFuture<Order> pushed, OrderRequest orderRequest, String clientOrderId,
+                               long timeoutNanos) throws InterruptedException {
+        try {
+            Order order = pushed.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            log.info("收到订单推送: clientOrderId={}, orderId={}, status={}",
+                    clientOrderId, order.getOrderId(), order.getStatus());
+            return order;
+        } catch (TimeoutException e) {
+            pushed.cancel(false);
+            log.warn("等待订单推送超时，通过REST查询订单: clientOrderId={}", clientOrderId);
+            Order order = queryOrder(orderRequest.getSymbol(), null, clientOrderId, isSimulated(orderRequest));
+            if (order == null) {
+                throw new OkxApiException("订单请求超时且未找到对应订单，请稍后通过查询接口确认订单状态");
             }
+            orderStateService.onOrderUpdate(order);
             return order;
-        } catch (OkxApiException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("创建订单失败: {}", e.getMessage(), e);
-            throw new OkxApiException("创建订单失败: " + e.getMessage(), e);
+        } catch (ExecutionException e) {
+            pushed.cancel(false);
+            log.error("订单请求被拒绝, symbol: {}, side: {}, clientOrderId: {}, 错误: {}",
+                    orderRequest.getSymbol(), orderRequest.getSide(), clientOrderId, e.getCause().getMessage());
+            throw new OkxApiException("订单请求异常: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
     @Override
     public boolean cancelOrder(String symbol, String orderId) {
+        CompletableFuture<Order> finished = null;
         try {
+            // 订单推送为撤销时撤单成功，撤单前已成交或以其他方式完结则失败；撤单请求被拒时由响应处理器直接返回失败
             CompletableFuture<Boolean> future = new CompletableFuture<>();
             cancelOrderFutures.put(orderId, future);
+            finished = orderStateService.awaitByOrderId(orderId, OrderStateService::isFinished);
+            finished.thenAccept(order -> future.complete(
+                    "CANCELED".equals(order.getStatus()) || "MMP_CANCELED".equals(order.getStatus())));
 
             // 构建取消订单请求
             JSONObject requestMessage = new JSONObject();
@@ -749,13 +819,15 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
 
             // 获取配置的超时时间
             int timeout = okxApiConfig.getTimeout() > 0 ? okxApiConfig.getTimeout() : 10;
-            boolean success = future.get(timeout, TimeUnit.SECONDS);
-            cancelOrderFutures.remove(orderId);
-
-            return success;
+            return future.get(timeout, TimeUnit.SECONDS);
         } catch (Exception e) {
             log.error("取消订单失败", e);
             throw new OkxApiException("取消订单失败: " + e.getMessage(), e);
+        } finally {
+            cancelOrderFutures.remove(orderId);
+            if (finished != null) {
+                finished.cancel(false);
+            }
         }
     }
 
@@ -812,6 +884,7 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         candlestick.setVolume(new BigDecimal(candleData.getString(5)));
         candlestick.setVolCcy(new BigDecimal(candleData.getString(6)));
         candlestick.setQuoteVolume(new BigDecimal(candleData.getString(7)));
+        // confirm字段：0 代表 K 线未完结，1 代表 K 线已完结，实时策略据此决定是否评估
         candlestick.setState(Integer.parseInt(candleData.getString(8)));
 
         return candlestick;
@@ -878,13 +951,18 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             order.setExecutedQty(new BigDecimal(orderData.getString("accFillSz")));
         }
 
-        if (orderData.containsKey("fillPx") && !orderData.getString("fillPx").isEmpty()) {
-            BigDecimal fillPrice = new BigDecimal(orderData.getString("fillPx"));
-            BigDecimal fillSize = new BigDecimal(orderData.getString("accFillSz"));
-            order.setCummulativeQuoteQty(fillPrice.multiply(fillSize));
+        // 未成交的订单fillPx和avgPx为空字符串；累计成交额优先按成交均价计算
+        String averagePrice = orderData.getString("avgPx");
+        String fillPrice = orderData.getString("fillPx");
+        if (order.getExecutedQty() != null) {
+            if (averagePrice != null && !averagePrice.isEmpty()) {
+                order.setCummulativeQuoteQty(new BigDecimal(averagePrice).multiply(order.getExecutedQty()));
+            } else if (fillPrice != null && !fillPrice.isEmpty()) {
+                order.setCummulativeQuoteQty(new BigDecimal(fillPrice).multiply(order.getExecutedQty()));
+            }
         }
-        if (orderData.containsKey("fillPx")) {
-            order.setPrice(new BigDecimal(orderData.getString("fillPx")));
+        if (fillPrice != null && !fillPrice.isEmpty()) {
+            order.setPrice(new BigDecimal(fillPrice));
         }
 
         if (orderData.containsKey("state")) {
@@ -915,7 +993,7 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             long updateTime = Long.parseLong(orderData.getString("uTime"));
             order.setUpdateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(updateTime), ZoneId.systemDefault()));
         }
-        log.info("返回订单信息:{}", order);
+        log.debug("返回订单信息:{}", order);
         return order;
     }
 
@@ -1223,80 +1301,51 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     }
 
     /**
-     * 在活跃订单列表中查找指定订单
+     * 通过REST查询单个订单，只用于推送超时和重连后的对账
      *
-     * @param clientOrderId 客户端订单ID
      * @param symbol        交易对
+     * @param orderId       订单ID，为null时按客户端订单ID查询
+     * @param clientOrderId 客户端订单ID
      * @param isSimulated   是否是模拟交易
-     * @return 找到的订单，未找到则返回null
+     * @return 订单，查询失败或不存在返回null
      */
-    private Order findOrderInPendingList(String clientOrderId, String symbol, boolean isSimulated) {
+    private Order queryOrder(String symbol, String orderId, String clientOrderId, boolean isSimulated) {
         try {
-            // 构建API请求路径，查询活跃订单
-            StringBuilder apiUrlBuilder = new StringBuilder(okxApiConfig.getBaseUrl())
-                    .append("/api/v5/trade/orders-pending?instType=SPOT&instId=")
-                    .append(symbol);
-
-            log.info("查询活跃订单API URL: {}", apiUrlBuilder.toString());
-
-            // 时间戳
-            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-
-            // 构建请求路径（用于签名）
-            String requestPath = "/api/v5/trade/orders-pending?instType=SPOT&instId=" + symbol;
-
-            // 生成签名
+            String requestPath = "/api/v5/trade/order?instId=" + symbol
+                    + (orderId != null ? "&ordId=" + orderId : "&clOrdId=" + clientOrderId);
+            String timestamp = SignatureUtil.getIsoTimestamp();
             String sign = SignatureUtil.sign(timestamp, "GET", requestPath, "", okxApiConfig.getSecretKey());
 
             Request.Builder requestBuilder = new Request.Builder()
-                    .url(apiUrlBuilder.toString())
+                    .url(okxApiConfig.getBaseUrl() + requestPath)
                     .addHeader("Content-Type", "application/json")
                     .addHeader("OK-ACCESS-KEY", okxApiConfig.getApiKey())
                     .addHeader("OK-ACCESS-SIGN", sign)
                     .addHeader("OK-ACCESS-TIMESTAMP", timestamp)
                     .addHeader("OK-ACCESS-PASSPHRASE", okxApiConfig.getPassphrase());
 
-            // 如果是模拟交易
+            // 如果是模拟交易需要额外添加标志
             if (isSimulated) {
                 requestBuilder.addHeader("x-simulated-trading", "1");
             }
 
-            Request request = requestBuilder.get().build();
-
-            try (Response response = okHttpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    log.info("活跃订单查询响应: {}", responseBody);
-
-                    JSONObject responseJson = JSONObject.parseObject(responseBody);
-
-                    if ("0".equals(responseJson.getString("code"))) {
-                        JSONArray data = responseJson.getJSONArray("data");
-                        if (data != null && !data.isEmpty()) {
-                            // 遍历所有活跃订单，查找匹配的clientOrderId
-                            for (int i = 0; i < data.size(); i++) {
-                                JSONObject orderData = data.getJSONObject(i);
-                                String respClientOrderId = orderData.getString("clOrdId");
-
-                                if (clientOrderId.equals(respClientOrderId)) {
-                                    Order order = parseOrder(orderData);
-                                    log.info("在活跃订单中找到匹配订单: clientOrderId={}, orderId={}, status={}",
-                                            clientOrderId, order.getOrderId(), order.getStatus());
-                                    return order;
-                                }
-                            }
-                        }
-                    } else {
-                        log.warn("活跃订单查询失败: code={}, msg={}",
-                                responseJson.getString("code"), responseJson.getString("msg"));
-                    }
+            try (Response response = okHttpClient.newCall(requestBuilder.get().build()).execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    log.warn("REST查询订单失败, 状态码: {}", response.code());
+                    return null;
+                }
+                String responseBody = response.body().string();
+                log.info("REST API查询订单响应: {}", responseBody);
+                JSONObject responseJson = JSONObject.parseObject(responseBody);
+                if (!"0".equals(responseJson.getString("code"))) {
+                    log.warn("REST查询订单失败, code: {}, msg: {}", responseJson.getString("code"), responseJson.getString("msg"));
+                    return null;
                 }
+                JSONArray data = responseJson.getJSONArray("data");
+                return data == null || data.isEmpty() ? null : parseOrder(data.getJSONObject(0));
             }
-
-            // 如果没找到，返回null
-            return null;
         } catch (Exception e) {
-            log.warn("查询活跃订单列表异常", e);
+            log.warn("REST查询订单异常, orderId: {}, clientOrderId: {}", orderId, clientOrderId, e);
             return null;
         }
     }
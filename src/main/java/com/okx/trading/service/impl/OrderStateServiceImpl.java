@@ -0,0 +1,314 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.account.AccountBalance;
+import com.okx.trading.model.trade.Order;
+import com.okx.trading.service.OrderStateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 订单与余额状态服务实现类
+ * 订单快照按推送整体替换，读取不加锁；更新和登记等待在同一把锁内进行，保证等待方不会错过状态变化。
+ * 同一订单的推送可能乱序到达，已完结或已成交数量更大的状态不会被较旧的推送覆盖
+ */
+@Slf4j
+@Service
+public class OrderStateServiceImpl implements OrderStateService {
+
+    private static final String CLIENT_KEY = "c:";
+    private static final String ORDER_KEY = "o:";
+
+    private final Map<String, Order> ordersByClientOrderId = new ConcurrentHashMap<>();
+    private final Map<String, Order> ordersByOrderId = new ConcurrentHashMap<>();
+    private final Map<String, List<Waiter>> waiters = new HashMap<>();
+    private final Map<Boolean, AccountBalance> balances = new ConcurrentHashMap<>();
+    private final Map<Boolean, List<CompletableFuture<AccountBalance>>> balanceWaiters = new HashMap<>();
+    private final Object lock = new Object();
+
+    /**
+     * 完结订单在内存中保留的分钟数
+     */
+    @Value("${okx.order-state.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    @Override
+    public boolean onOrderUpdate(Order update) {
+        if (update == null || (isEmpty(update.getClientOrderId()) && isEmpty(update.getOrderId()))) {
+            return false;
+        }
+        List<Waiter> completed = new ArrayList<>();
+        Order order;
+        synchronized (lock) {
+            Order current = find(update.getClientOrderId(), update.getOrderId());
+            if (isStale(current, update)) {
+                log.debug("忽略过期的订单推送: orderId={}, status={}", update.getOrderId(), update.getStatus());
+                return false;
+            }
+            order = merge(current, update);
+            if (!isEmpty(order.getClientOrderId())) {
+                ordersByClientOrderId.put(order.getClientOrderId(), order);
+            }
+            if (!isEmpty(order.getOrderId())) {
+                ordersByOrderId.put(order.getOrderId(), order);
+            }
+            collect(CLIENT_KEY + order.getClientOrderId(), order, completed);
+            collect(ORDER_KEY + order.getOrderId(), order, completed);
+        }
+        // 在锁外完成等待，避免等待方的回调阻塞推送处理
+        for (Waiter waiter : completed) {
+            waiter.future.complete(order);
+        }
+        return true;
+    }
+
+    @Override
+    public void onOrderRejected(String clientOrderId, Throwable cause) {
+        List<Waiter> rejected;
+        synchronized (lock) {
+            rejected = waiters.remove(CLIENT_KEY + clientOrderId);
+        }
+        if (rejected != null) {
+            for (Waiter waiter : rejected) {
+                waiter.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    @Override
+    public void onBalanceUpdate(AccountBalance balance, boolean simulated) {
+        if (balance == null) {
+            return;
+        }
+        List<CompletableFuture<AccountBalance>> completed;
+        AccountBalance merged;
+        synchronized (lock) {
+            merged = mergeBalance(balances.get(simulated), balance, simulated);
+            balances.put(simulated, merged);
+            completed = balanceWaiters.remove(simulated);
+        }
+        if (completed != null) {
+            for (CompletableFuture<AccountBalance> future : completed) {
+                future.complete(merged);
+            }
+        }
+    }
+
+    @Override
+    public Order getByClientOrderId(String clientOrderId) {
+        return clientOrderId == null ? null : ordersByClientOrderId.get(clientOrderId);
+    }
+
+    @Override
+    public Order getByOrderId(String orderId) {
+        return orderId == null ? null : ordersByOrderId.get(orderId);
+    }
+
+    @Override
+    public List<Order> getOrders(String symbol, String status, Integer limit) {
+        return ordersByOrderId.values().stream()
+                .filter(order -> symbol == null || symbol.equals(order.getSymbol()))
+                .filter(order -> status == null || status.equalsIgnoreCase(order.getStatus()))
+                .sorted(Comparator.comparing(Order::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(limit != null && limit > 0 ? limit : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Order> getOpenOrders() {
+        return ordersByOrderId.values().stream()
+                .filter(order -> !OrderStateService.isFinished(order))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public AccountBalance getBalance(boolean simulated) {
+        return balances.get(simulated);
+    }
+
+    @Override
+    public CompletableFuture<Order> awaitByClientOrderId(String clientOrderId, Predicate<Order> condition) {
+        return await(CLIENT_KEY + clientOrderId, () -> ordersByClientOrderId.get(clientOrderId), condition);
+    }
+
+    @Override
+    public CompletableFuture<Order> awaitByOrderId(String orderId, Predicate<Order> condition) {
+        return await(ORDER_KEY + orderId, () -> ordersByOrderId.get(orderId), condition);
+    }
+
+    @Override
+    public CompletableFuture<AccountBalance> awaitBalance(boolean simulated) {
+        synchronized (lock) {
+            AccountBalance balance = balances.get(simulated);
+            if (balance != null) {
+                return CompletableFuture.completedFuture(balance);
+            }
+            CompletableFuture<AccountBalance> future = new CompletableFuture<>();
+            balanceWaiters.computeIfAbsent(simulated, k -> new ArrayList<>()).add(future);
+            return future;
+        }
+    }
+
+    /**
+     * 每分钟清理一次保留期之前完结的订单，并丢弃已被调用方放弃的等待
+     */
+    @Override
+    @Scheduled(fixedDelay = 60_000)
+    public int evictFinishedOrders() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        int evicted = 0;
+        synchronized (lock) {
+            Iterator<Order> iterator = ordersByOrderId.values().iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                if (OrderStateService.isFinished(order) && order.getUpdateTime() != null && order.getUpdateTime().isBefore(threshold)) {
+                    iterator.remove();
+                    if (!isEmpty(order.getClientOrderId())) {
+                        ordersByClientOrderId.remove(order.getClientOrderId());
+                    }
+                    evicted++;
+                }
+            }
+            waiters.values().forEach(list -> list.removeIf(waiter -> waiter.future.isDone()));
+            waiters.values().removeIf(List::isEmpty);
+        }
+        if (evicted > 0) {
+            log.debug("清理完结订单{}个，剩余跟踪订单{}个", evicted, ordersByOrderId.size());
+        }
+        return evicted;
+    }
+
+    private CompletableFuture<Order> await(String key, Supplier<Order> current, Predicate<Order> condition) {
+        synchronized (lock) {
+            Order order = current.get();
+            if (order != null && condition.test(order)) {
+                return CompletableFuture.completedFuture(order);
+            }
+            CompletableFuture<Order> future = new CompletableFuture<>();
+            waiters.computeIfAbsent(key, k -> new ArrayList<>()).add(new Waiter(condition, future));
+            return future;
+        }
+    }
+
+    private void collect(String key, Order order, List<Waiter> completed) {
+        List<Waiter> list = waiters.get(key);
+        if (list == null) {
+            return;
+        }
+        Iterator<Waiter> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter.future.isDone()) {
+                iterator.remove();
+            } else if (waiter.condition.test(order)) {
+                iterator.remove();
+                completed.add(waiter);
+            }
+        }
+        if (list.isEmpty()) {
+            waiters.remove(key);
+        }
+    }
+
+    private Order find(String clientOrderId, String orderId) {
+        Order order = isEmpty(orderId) ? null : ordersByOrderId.get(orderId);
+        if (order == null && !isEmpty(clientOrderId)) {
+            order = ordersByClientOrderId.get(clientOrderId);
+        }
+        return order;
+    }
+
+    /**
+     * 已完结的订单不会回到未完结状态，已成交数量不会减少
+     */
+    private static boolean isStale(Order current, Order update) {
+        if (current == null) {
+            return false;
+        }
+        if (OrderStateService.isFinished(current) && !OrderStateService.isFinished(update)) {
+            return true;
+        }
+        if (quantity(update.getExecutedQty()).compareTo(quantity(current.getExecutedQty())) < 0) {
+            return true;
+        }
+        return current.getUpdateTime() != null && update.getUpdateTime() != null
+                && update.getUpdateTime().isBefore(current.getUpdateTime());
+    }
+
+    /**
+     * 推送是订单的完整快照，只补齐推送中缺少的标识和创建时间
+     */
+    private static Order merge(Order current, Order update) {
+        if (current == null) {
+            return update;
+        }
+        if (isEmpty(update.getClientOrderId())) {
+            update.setClientOrderId(current.getClientOrderId());
+        }
+        if (isEmpty(update.getOrderId())) {
+            update.setOrderId(current.getOrderId());
+        }
+        if (update.getCreateTime() == null) {
+            update.setCreateTime(current.getCreateTime());
+        }
+        if (update.getSimulated() == null) {
+            update.setSimulated(current.getSimulated());
+        }
+        return update;
+    }
+
+    /**
+     * 事件触发的账户推送只包含有变化的币种，按币种合并到上一次的余额
+     */
+    private static AccountBalance mergeBalance(AccountBalance current, AccountBalance update, boolean simulated) {
+        Map<String, AccountBalance.AssetBalance> assets = new LinkedHashMap<>();
+        if (current != null && current.getAssetBalances() != null) {
+            current.getAssetBalances().forEach(asset -> assets.put(asset.getAsset(), asset));
+        }
+        if (update.getAssetBalances() != null) {
+            update.getAssetBalances().forEach(asset -> assets.put(asset.getAsset(), asset));
+        }
+        return AccountBalance.builder()
+                .totalEquity(update.getTotalEquity())
+                .accountType(simulated ? 1 : 0)
+                .accountId(update.getAccountId())
+                .availableBalance(update.getAvailableBalance())
+                .frozenBalance(update.getFrozenBalance())
+                .assetBalances(new ArrayList<>(assets.values()))
+                .build();
+    }
+
+    private static BigDecimal quantity(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static final class Waiter {
+        private final Predicate<Order> condition;
+        private final CompletableFuture<Order> future;
+
+        private Waiter(Predicate<Order> condition, CompletableFuture<Order> future) {
+            this.condition = condition;
+            this.future = future;
+        }
+    }
+}
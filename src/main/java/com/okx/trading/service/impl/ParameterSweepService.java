@@ -0,0 +1,194 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.backtest.EquityTracker;
+import com.okx.trading.backtest.FusedStrategyRunner;
+import com.okx.trading.backtest.PrefixSumIndicatorBank;
+import com.okx.trading.backtest.PrefixSumIndicatorBank.Source;
+import com.okx.trading.backtest.PruningPolicy;
+import com.okx.trading.model.dto.ParameterSweepEntryDTO;
+import com.okx.trading.model.dto.ParameterSweepResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.rules.CrossedDownIndicatorRule;
+import org.ta4j.core.rules.CrossedUpIndicatorRule;
+import org.ta4j.core.rules.OverIndicatorRule;
+import org.ta4j.core.rules.UnderIndicatorRule;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 指标周期参数扫描服务
+ * 所有周期的策略都基于同一个前缀和指标库，均线、标准差、通道和RSI在任意周期上都是O(1)取值，
+ * 再用融合K线循环一次遍历完成全部周期的回测；开启剪枝时没有希望的周期在遍历中途停止
+ */
+@Service
+public class ParameterSweepService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParameterSweepService.class);
+
+    public static final String FAMILY_SMA = "SMA";
+    public static final String FAMILY_BOLLINGER = "BOLLINGER";
+    public static final String FAMILY_DONCHIAN = "DONCHIAN";
+    public static final String FAMILY_RSI = "RSI";
+
+    /**
+     * 单次扫描的周期数上限
+     */
+    static final int MAX_PERIODS = 1000;
+
+    private final ExecutorService computeExecutorService;
+
+    @Autowired
+    public ParameterSweepService(@Qualifier("backtestComputeExecutorService") ExecutorService computeExecutorService) {
+        this.computeExecutorService = computeExecutorService;
+    }
+
+    /**
+     * 对一组周期执行参数扫描
+     *
+     * @param series     条形系列
+     * @param family     策略族：SMA（收盘价上穿/下穿均线）、BOLLINGER（跌破下轨买入、突破上轨卖出）、
+     *                   DONCHIAN（突破前N根最高价买入、跌破前N根最低价卖出）、RSI（低于30买入、高于70卖出）
+     * @param periods    周期列表
+     * @param multiplier 布林带标准差倍数
+     * @param feeRatio   手续费率
+     * @return 扫描结果
+     */
+    public ParameterSweepResultDTO sweep(BarSeries series, String family, List<Integer> periods, double multiplier, BigDecimal feeRatio) {
+        return sweep(series, family, periods, multiplier, feeRatio, PruningPolicy.disabled());
+    }
+
+    /**
+     * 对一组周期执行参数扫描，命中剪枝条件的周期提前终止，只保留部分统计
+     *
+     * @param policy 剪枝策略
+     * @return 扫描结果
+     */
+    public ParameterSweepResultDTO sweep(BarSeries series, String family, List<Integer> periods, double multiplier,
+                                         BigDecimal feeRatio, PruningPolicy policy) {
+        ParameterSweepResultDTO result = new ParameterSweepResultDTO();
+        result.setFamily(family);
+        result.setMultiplier(multiplier);
+        result.setBarCount(series.getBarCount());
+        if (periods.isEmpty() || periods.size() > MAX_PERIODS || periods.stream().anyMatch(period -> period < 2)) {
+            result.setSuccess(false);
+            result.setErrorMessage("周期数量必须在1到" + MAX_PERIODS + "之间，且每个周期不小于2");
+            return result;
+        }
+
+        long startMillis = System.currentTimeMillis();
+        PrefixSumIndicatorBank bank = PrefixSumIndicatorBank.of(series);
+        List<Strategy> strategies = new ArrayList<>(periods.size());
+        for (int period : periods) {
+            Strategy strategy = createStrategy(bank, family, period, multiplier);
+            if (strategy == null) {
+                result.setSuccess(false);
+                result.setErrorMessage("不支持的策略族: " + family);
+                return result;
+            }
+            strategies.add(strategy);
+        }
+
+        double fee = feeRatio.doubleValue();
+        FusedStrategyRunner.Result runResult = FusedStrategyRunner.run(series, strategies, computeExecutorService,
+                Runtime.getRuntime().availableProcessors(), policy, fee);
+
+        double[] closes = new double[series.getEndIndex() + 1];
+        for (int i = series.getBeginIndex(); i <= series.getEndIndex(); i++) {
+            closes[i] = series.getBar(i).getClosePrice().doubleValue();
+        }
+        int annualizationFactor = WalkForwardAnalysisService.annualizationFactor(series);
+        int prunedCount = 0;
+
+        List<ParameterSweepEntryDTO> entries = new ArrayList<>(periods.size());
+        for (int k = 0; k < periods.size(); k++) {
+            if (runResult.getError(k) != null) {
+                log.debug("参数扫描 {} 周期 {} 执行失败: {}", family, periods.get(k), runResult.getError(k).getMessage());
+                continue;
+            }
+            if (runResult.getPruneReason(k) != null) {
+                entries.add(createPrunedEntry(periods.get(k), runResult.getTracker(k), runResult.getPruneReason(k)));
+                prunedCount++;
+                continue;
+            }
+            WalkForwardAnalysisService.SegmentStats stats = WalkForwardAnalysisService.evaluateSegment(closes,
+                    runResult.getRecord(k), series.getBeginIndex(), series.getEndIndex(), fee, annualizationFactor, null);
+            ParameterSweepEntryDTO entry = new ParameterSweepEntryDTO();
+            entry.setPeriod(periods.get(k));
+            entry.setTotalReturn(WalkForwardAnalysisService.scale(stats.totalReturn));
+            entry.setSharpeRatio(WalkForwardAnalysisService.scale(stats.sharpeRatio));
+            entry.setMaxDrawdown(WalkForwardAnalysisService.scale(stats.maxDrawdown));
+            entry.setNumberOfTrades(stats.trades);
+            entry.setWinRate(WalkForwardAnalysisService.scale(stats.trades == 0 ? 0 : (double) stats.profitableTrades / stats.trades));
+            entries.add(entry);
+        }
+        entries.sort(Comparator.comparing(ParameterSweepEntryDTO::isPruned)
+                .thenComparing(ParameterSweepEntryDTO::getSharpeRatio, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparingInt(ParameterSweepEntryDTO::getPeriod));
+
+        result.setSuccess(true);
+        result.setEntries(entries);
+        result.setPrunedCount(prunedCount);
+        result.setBestPeriod(entries.isEmpty() || entries.get(0).isPruned() ? null : entries.get(0).getPeriod());
+        result.setElapsedMillis(System.currentTimeMillis() - startMillis);
+        log.info("参数扫描完成: {} {} 个周期, 剪枝 {} 个, {} 根K线, 耗时 {} ms",
+                family, periods.size(), prunedCount, series.getBarCount(), result.getElapsedMillis());
+        return result;
+    }
+
+    private static ParameterSweepEntryDTO createPrunedEntry(int period, EquityTracker tracker, String reason) {
+        ParameterSweepEntryDTO entry = new ParameterSweepEntryDTO();
+        entry.setPeriod(period);
+        entry.setPruned(true);
+        entry.setPruneReason(reason);
+        entry.setTotalReturn(WalkForwardAnalysisService.scale(tracker.getTotalReturn()));
+        entry.setMaxDrawdown(WalkForwardAnalysisService.scale(tracker.getMaxDrawdown()));
+        entry.setNumberOfTrades(tracker.getClosedTrades());
+        entry.setWinRate(WalkForwardAnalysisService.scale(tracker.getClosedTrades() == 0 ? 0
+                : (double) tracker.getProfitableTrades() / tracker.getClosedTrades()));
+        return entry;
+    }
+
+    /**
+     * 用指标库为一个周期创建策略，未知策略族返回null
+     */
+    static Strategy createStrategy(PrefixSumIndicatorBank bank, String family, int period, double multiplier) {
+        int beginIndex = bank.getSeries().getBeginIndex();
+        Indicator<Num> close = bank.adapter(index -> bank.value(Source.CLOSE, index));
+        switch (family) {
+            case FAMILY_SMA: {
+                Indicator<Num> sma = bank.sma(Source.CLOSE, period);
+                return new BaseStrategy(new CrossedUpIndicatorRule(close, sma), new CrossedDownIndicatorRule(close, sma), period);
+            }
+            case FAMILY_BOLLINGER:
+                return new BaseStrategy(new UnderIndicatorRule(close, bank.bollingerLower(Source.CLOSE, period, multiplier)),
+                        new OverIndicatorRule(close, bank.bollingerUpper(Source.CLOSE, period, multiplier)), period);
+            case FAMILY_DONCHIAN: {
+                // 与前N根K线（不含当前K线）的通道比较
+                Indicator<Num> upper = bank.adapter(index -> index > beginIndex
+                        ? bank.highestValue(Source.HIGH, period, index - 1) : Double.MAX_VALUE);
+                Indicator<Num> lower = bank.adapter(index -> index > beginIndex
+                        ? bank.lowestValue(Source.LOW, period, index - 1) : -Double.MAX_VALUE);
+                return new BaseStrategy(new OverIndicatorRule(close, upper), new UnderIndicatorRule(close, lower), period);
+            }
+            case FAMILY_RSI: {
+                Indicator<Num> rsi = bank.rsi(period);
+                return new BaseStrategy(new UnderIndicatorRule(rsi, 30), new OverIndicatorRule(rsi, 70), period);
+            }
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.backtest.PortfolioBacktestEngine;
+import com.okx.trading.model.dto.PortfolioBacktestResultDTO;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 多品种组合回测服务
+ * 各品种的历史数据并行流式读取并转换为条形系列，计算出信号后立即交给组合引擎压缩为原始类型数组，
+ * 条形系列随即释放，同一时刻只有计算线程数个BarSeries在内存中
+ */
+@Service
+public class PortfolioBacktestService {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioBacktestService.class);
+
+    private final HistoricalDataService historicalDataService;
+    private final CandlestickBarSeriesConverter barSeriesConverter;
+    private final ExecutorService computeExecutorService;
+
+    @Autowired
+    public PortfolioBacktestService(HistoricalDataService historicalDataService,
+                                    CandlestickBarSeriesConverter barSeriesConverter,
+                                    @Qualifier("backtestComputeExecutorService") ExecutorService computeExecutorService) {
+        this.historicalDataService = historicalDataService;
+        this.barSeriesConverter = barSeriesConverter;
+        this.computeExecutorService = computeExecutorService;
+    }
+
+    /**
+     * 执行组合回测
+     *
+     * @param symbols       交易对列表
+     * @param strategyCodes 策略代码，与symbols一一对应；只有一个时所有品种使用同一策略
+     * @param interval      K线间隔
+     * @param startTime     开始时间
+     * @param endTime       结束时间
+     * @param initialAmount 初始资金
+     * @param feeRatio      手续费率
+     * @param maxPositions  同时持仓的品种数上限，小于等于0时等于品种数
+     * @return 组合回测结果
+     */
+    public PortfolioBacktestResultDTO backtest(List<String> symbols, List<String> strategyCodes, String interval,
+                                               LocalDateTime startTime, LocalDateTime endTime,
+                                               BigDecimal initialAmount, BigDecimal feeRatio, int maxPositions) {
+        if (strategyCodes.isEmpty() || (strategyCodes.size() != 1 && strategyCodes.size() != symbols.size())) {
+            PortfolioBacktestResultDTO result = new PortfolioBacktestResultDTO();
+            result.setSuccess(false);
+            result.setErrorMessage("策略代码数量必须为1或与交易对数量相同");
+            return result;
+        }
+
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(initialAmount, feeRatio,
+                maxPositions > 0 ? maxPositions : symbols.size());
+        Map<String, String> failedSymbols = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            String strategyCode = strategyCodes.size() == 1 ? strategyCodes.get(0) : strategyCodes.get(i);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    String seriesName = CandlestickBarSeriesConverter.createSeriesName(symbol, interval);
+                    BarSeries series = historicalDataService.streamHistoricalData(symbol, interval, startTime, endTime,
+                            candlesticks -> barSeriesConverter.convert(candlesticks, seriesName));
+                    if (series.isEmpty()) {
+                        failedSymbols.put(symbol, "未找到指定条件的历史数据");
+                        return;
+                    }
+                    engine.addSymbol(symbol, strategyCode, series, StrategyRegisterCenter.createStrategy(series, strategyCode));
+                } catch (Exception e) {
+                    log.warn("组合回测加载品种 {} 失败: {}", symbol, e.getMessage());
+                    failedSymbols.put(symbol, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+            }, computeExecutorService));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        PortfolioBacktestResultDTO result = engine.run();
+        result.setInterval(interval);
+        result.setFailedSymbols(failedSymbols);
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.PricePoint;
+import com.okx.trading.service.PriceBookService;
+import com.okx.trading.service.RedisCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内价格簿服务实现类
+ * 价格快照不可变，更新时整体替换，读写都不加锁；有变化的交易对记入待同步集合，
+ * 定时任务把它们合并成一次HMSET写入Redis，Redis写入次数从每次推送一次降为每个同步周期一次
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceBookServiceImpl implements PriceBookService {
+
+    private final RedisCacheService redisCacheService;
+
+    private final Map<String, PricePoint> prices = new ConcurrentHashMap<>();
+    private final Set<String> dirtySymbols = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void updatePrice(String symbol, BigDecimal price, long timestamp) {
+        if (symbol == null || price == null) {
+            return;
+        }
+        prices.put(symbol, new PricePoint(price, timestamp));
+        dirtySymbols.add(symbol);
+    }
+
+    @Override
+    public BigDecimal getPrice(String symbol) {
+        PricePoint point = prices.get(symbol);
+        if (point != null) {
+            return point.getPrice();
+        }
+        // 本进程没有收到过该交易对的推送，读取其他进程同步到Redis的价格
+        return redisCacheService.getCoinPrice(symbol);
+    }
+
+    @Override
+    public PricePoint getPricePoint(String symbol) {
+        return prices.get(symbol);
+    }
+
+    @Override
+    public Map<String, PricePoint> getAllPricePoints() {
+        return Collections.unmodifiableMap(prices);
+    }
+
+    /**
+     * 按配置的间隔把有变化的价格同步到Redis，默认500毫秒
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${okx.market-data.price-flush-interval-ms:500}")
+    public int flush() {
+        if (dirtySymbols.isEmpty()) {
+            return 0;
+        }
+        Map<String, BigDecimal> batch = new HashMap<>();
+        Iterator<String> iterator = dirtySymbols.iterator();
+        while (iterator.hasNext()) {
+            String symbol = iterator.next();
+            // 先移出待同步集合再读取价格，之后的更新会重新加入，下个周期写入
+            iterator.remove();
+            batch.put(symbol, prices.get(symbol).getPrice());
+        }
+        if (!redisCacheService.updateCoinPrices(batch)) {
+            dirtySymbols.addAll(batch.keySet());
+            return 0;
+        }
+        return batch.size();
+    }
+
+    /**
+     * 停止前写入最后一批价格
+     */
+    @PreDestroy
+    public void shutdown() {
+        int flushed = flush();
+        log.info("价格簿已同步 {} 个交易对的价格到Redis", flushed);
+    }
+}
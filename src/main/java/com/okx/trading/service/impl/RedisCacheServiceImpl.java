@@ -66,6 +66,26 @@ public class RedisCacheServiceImpl implements RedisCacheService {
 
     }
 
+    @Override
+    public boolean updateCoinPrices(Map<String, BigDecimal> prices) {
+        if (prices.isEmpty()) {
+            return true;
+        }
+        try {
+            // HMSET coin-rt-price BTC-USDT 价格 ETH-USDT 价格 ...
+            Map<String, String> values = new HashMap<>(prices.size() * 2);
+            for (Map.Entry<String, BigDecimal> entry : prices.entrySet()) {
+                values.put(entry.getKey(), entry.getValue().toString());
+            }
+            redisTemplate.opsForHash().putAll(COIN_PRICE_KEY, values);
+            log.debug("批量更新 {} 个币种实时价格", prices.size());
+            return true;
+        } catch (Exception e) {
+            log.error("批量更新币种实时价格到Redis失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
     @Override
     public void updateCandlestick(Candlestick candlestick) {
         try {
@@ -1,11 +1,13 @@
 package com.okx.trading.service.impl;
 
+import com.okx.trading.event.StrategyChangedEvent;
 import com.okx.trading.model.entity.StrategyInfoEntity;
 import com.okx.trading.repository.StrategyInfoRepository;
 import com.okx.trading.service.StrategyInfoService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +25,7 @@ import java.util.Optional;
 public class StrategyInfoServiceImpl implements StrategyInfoService {
 
     private final StrategyInfoRepository strategyInfoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<StrategyInfoEntity> getAllStrategies() {
@@ -46,23 +49,30 @@ public class StrategyInfoServiceImpl implements StrategyInfoService {
 
     @Override
     public StrategyInfoEntity saveStrategy(StrategyInfoEntity strategyInfo) {
-        return strategyInfoRepository.save(strategyInfo);
+        StrategyInfoEntity saved = strategyInfoRepository.save(strategyInfo);
+        eventPublisher.publishEvent(new StrategyChangedEvent(this, saved.getStrategyCode()));
+        return saved;
     }
 
     @Override
     public List<StrategyInfoEntity> saveAllStrategies(List<StrategyInfoEntity> strategyInfoList) {
-        return strategyInfoRepository.saveAll(strategyInfoList);
+        List<StrategyInfoEntity> saved = strategyInfoRepository.saveAll(strategyInfoList);
+        saved.forEach(strategy -> eventPublisher.publishEvent(new StrategyChangedEvent(this, strategy.getStrategyCode())));
+        return saved;
     }
 
     @Override
     public void deleteStrategy(Long id) {
+        Optional<StrategyInfoEntity> strategy = strategyInfoRepository.findById(id);
         strategyInfoRepository.deleteById(id);
+        strategy.ifPresent(s -> eventPublisher.publishEvent(new StrategyChangedEvent(this, s.getStrategyCode())));
     }
 
     @Override
     @Transactional
     public void deleteStrategyByCode(String strategyCode) {
         strategyInfoRepository.deleteByStrategyCode(strategyCode);
+        eventPublisher.publishEvent(new StrategyChangedEvent(this, strategyCode));
     }
 
     @Override
@@ -7,11 +7,17 @@ import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.core.joran.spi.JoranException;
+import com.okx.trading.backtest.FusedStrategyRunner;
+import com.okx.trading.backtest.EquityTracker;
+import com.okx.trading.backtest.IndicatorWarmer;
+import com.okx.trading.backtest.PruningPolicy;
 import com.okx.trading.model.entity.CandlestickEntity;
 import com.okx.trading.strategy.BacktestMetricsCalculator;
 import com.okx.trading.strategy.StrategyRegisterCenter;
@@ -19,6 +25,8 @@ import com.okx.trading.adapter.CandlestickBarSeriesConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.ta4j.core.*;
@@ -43,6 +51,16 @@ public class Ta4jBacktestService {
     @Autowired
     private CandlestickBarSeriesConverter barSeriesConverter;
 
+    @Qualifier("backtestComputeExecutorService")
+    @Autowired
+    private ExecutorService computeExecutorService;
+
+    /**
+     * 回测循环之前是否按依赖顺序迭代预热指标缓存，避免长序列上的深递归
+     */
+    @Value("${okx.backtest.indicator-warmup.enabled:true}")
+    private boolean indicatorWarmupEnabled = true;
+
     /**
      * 执行回测
      *
@@ -54,14 +72,41 @@ public class Ta4jBacktestService {
      */
     public BacktestResultDTO backtest(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks, String strategyType,
                                       BigDecimal initialAmount, BigDecimal feeRatio, String interval) {
+        return backtest(series, benchmarkCandlesticks, strategyType, initialAmount, feeRatio, interval, PruningPolicy.disabled());
+    }
+
+    /**
+     * 执行回测，命中剪枝条件时提前终止并返回只有部分统计的结果
+     *
+     * @param policy 剪枝策略
+     * @return 回测结果
+     */
+    public BacktestResultDTO backtest(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks, String strategyType,
+                                      BigDecimal initialAmount, BigDecimal feeRatio, String interval, PruningPolicy policy) {
         // loadLoggerConfiguration();
         try {
             // 使用策略工厂创建策略
             Strategy strategy = StrategyRegisterCenter.createStrategy(series, strategyType);
+            if (indicatorWarmupEnabled) {
+                IndicatorWarmer.warm(series, Collections.singletonList(strategy), computeExecutorService);
+            }
 
             // 执行回测
-            BarSeriesManager seriesManager = new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel());
-            TradingRecord tradingRecord = seriesManager.run(strategy, Trade.TradeType.BUY);
+            TradingRecord tradingRecord;
+            if (policy.isEnabled()) {
+                FusedStrategyRunner.Result runResult = FusedStrategyRunner.run(series, Collections.singletonList(strategy),
+                        policy, feeRatio.doubleValue());
+                if (runResult.getError(0) != null) {
+                    throw runResult.getError(0);
+                }
+                if (runResult.getPruneReason(0) != null) {
+                    return createPrunedResult(strategyType, initialAmount, runResult.getTracker(0), runResult.getPruneReason(0));
+                }
+                tradingRecord = runResult.getRecord(0);
+            } else {
+                BarSeriesManager seriesManager = new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel());
+                tradingRecord = seriesManager.run(strategy, Trade.TradeType.BUY);
+            }
 
             // unloadLoggerConfiguration();
             // 计算回测指标
@@ -75,6 +120,137 @@ public class Ta4jBacktestService {
         }
     }
 
+    /**
+     * 以融合模式执行多个策略的回测：所有策略共用一次K线遍历，策略按顺序切分为groups组并行遍历，
+     * 之后各策略的指标计算也在executor中并行进行
+     *
+     * @param strategyTypes 策略类型列表
+     * @param executor      执行遍历和指标计算的线程池
+     * @param groups        遍历分组数
+     * @return 按策略类型索引的回测结果，顺序与strategyTypes相同
+     */
+    public Map<String, BacktestResultDTO> backtestFused(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks,
+                                                        List<String> strategyTypes, BigDecimal initialAmount,
+                                                        BigDecimal feeRatio, String interval,
+                                                        ExecutorService executor, int groups) {
+        return backtestFused(series, benchmarkCandlesticks, strategyTypes, initialAmount, feeRatio, interval, executor, groups,
+                PruningPolicy.disabled());
+    }
+
+    /**
+     * 以融合模式执行多个策略的回测，命中剪枝条件的策略提前停止遍历，只返回部分统计，不计算完整指标
+     *
+     * @param policy 剪枝策略
+     * @return 按策略类型索引的回测结果，顺序与strategyTypes相同
+     */
+    public Map<String, BacktestResultDTO> backtestFused(BarSeries series, List<CandlestickEntity> benchmarkCandlesticks,
+                                                        List<String> strategyTypes, BigDecimal initialAmount,
+                                                        BigDecimal feeRatio, String interval,
+                                                        ExecutorService executor, int groups, PruningPolicy policy) {
+        Map<String, BacktestResultDTO> failedResults = new HashMap<>();
+        List<String> runnableTypes = new ArrayList<>();
+        List<Strategy> strategies = new ArrayList<>();
+        for (String strategyType : strategyTypes) {
+            try {
+                strategies.add(StrategyRegisterCenter.createStrategy(series, strategyType));
+                runnableTypes.add(strategyType);
+            } catch (Exception e) {
+                log.error("创建策略 {} 失败: {}", strategyType, e.getMessage());
+                failedResults.put(strategyType, createErrorResult("回测过程中发生错误: " + e.getMessage()));
+            }
+        }
+
+        long startMillis = System.currentTimeMillis();
+        if (indicatorWarmupEnabled) {
+            IndicatorWarmer.warm(series, strategies, executor);
+        }
+        FusedStrategyRunner.Result fusedResult = FusedStrategyRunner.run(series, strategies, executor, groups,
+                policy, feeRatio.doubleValue());
+        log.info("融合回测遍历完成: {} 个策略, {} 根K线, 耗时 {} ms",
+                strategies.size(), series.getBarCount(), System.currentTimeMillis() - startMillis);
+
+        List<CompletableFuture<BacktestResultDTO>> futures = new ArrayList<>();
+        for (int s = 0; s < runnableTypes.size(); s++) {
+            String strategyType = runnableTypes.get(s);
+            TradingRecord tradingRecord = fusedResult.getRecord(s);
+            Exception error = fusedResult.getError(s);
+            String pruneReason = fusedResult.getPruneReason(s);
+            EquityTracker tracker = fusedResult.getTracker(s);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                if (error != null) {
+                    log.error("策略 {} 融合回测执行失败: {}", strategyType, error.getMessage());
+                    return createErrorResult("回测过程中发生错误: " + error.getMessage());
+                }
+                if (pruneReason != null) {
+                    return createPrunedResult(strategyType, initialAmount, tracker, pruneReason);
+                }
+                try {
+                    return calculateBacktestMetrics(series, tradingRecord, initialAmount, strategyType, "", feeRatio, interval, benchmarkCandlesticks);
+                } catch (Exception e) {
+                    log.error("策略 {} 计算回测指标失败: {}", strategyType, e.getMessage(), e);
+                    return createErrorResult("回测过程中发生错误: " + e.getMessage());
+                }
+            }, executor));
+        }
+        Map<String, BacktestResultDTO> results = new LinkedHashMap<>();
+        for (String strategyType : strategyTypes) {
+            int index = runnableTypes.indexOf(strategyType);
+            results.put(strategyType, index >= 0 ? futures.get(index).join() : failedResults.get(strategyType));
+        }
+        return results;
+    }
+
+    /**
+     * 对已有的交易记录计算完整回测指标，用于检查点续跑后的完整报告
+     *
+     * @param series        交易记录对应的条形系列
+     * @param tradingRecord 交易记录
+     * @return 回测结果
+     */
+    public BacktestResultDTO evaluate(BarSeries series, TradingRecord tradingRecord, List<CandlestickEntity> benchmarkCandlesticks,
+                                      String strategyType, BigDecimal initialAmount, BigDecimal feeRatio, String interval) {
+        try {
+            return calculateBacktestMetrics(series, tradingRecord, initialAmount, strategyType, "", feeRatio, interval, benchmarkCandlesticks);
+        } catch (Exception e) {
+            log.error("计算回测指标时发生错误: {}", e.getMessage(), e);
+            return createErrorResult("回测过程中发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 被剪枝策略的轻量结果：只有净值跟踪中的部分统计，没有交易明细和完整指标
+     */
+    private static BacktestResultDTO createPrunedResult(String strategyType, BigDecimal initialAmount,
+                                                        EquityTracker tracker, String reason) {
+        BacktestResultDTO result = new BacktestResultDTO();
+        result.setSuccess(true);
+        result.setPruned(true);
+        result.setPruneReason(reason);
+        result.setProcessedBars(tracker.getProcessedBars());
+        result.setStrategyName(strategyType);
+        result.setStrategyCode(strategyType);
+        result.setInitialAmount(initialAmount);
+        BigDecimal equity = BigDecimal.valueOf(tracker.getEquity());
+        result.setFinalAmount(initialAmount.multiply(equity).setScale(8, RoundingMode.HALF_UP));
+        result.setTotalProfit(result.getFinalAmount().subtract(initialAmount));
+        result.setTotalReturn(BigDecimal.valueOf(tracker.getTotalReturn()).setScale(8, RoundingMode.HALF_UP));
+        result.setMaxDrawdown(BigDecimal.valueOf(tracker.getMaxDrawdown()).setScale(8, RoundingMode.HALF_UP));
+        result.setNumberOfTrades(tracker.getClosedTrades());
+        result.setProfitableTrades(tracker.getProfitableTrades());
+        result.setUnprofitableTrades(tracker.getClosedTrades() - tracker.getProfitableTrades());
+        result.setWinRate(tracker.getClosedTrades() == 0 ? BigDecimal.ZERO
+                : BigDecimal.valueOf((double) tracker.getProfitableTrades() / tracker.getClosedTrades()).setScale(4, RoundingMode.HALF_UP));
+        result.setTrades(Collections.emptyList());
+        return result;
+    }
+
+    private static BacktestResultDTO createErrorResult(String errorMessage) {
+        BacktestResultDTO result = new BacktestResultDTO();
+        result.setSuccess(false);
+        result.setErrorMessage(errorMessage);
+        return result;
+    }
+
     /**
      * 计算回测指标
      *
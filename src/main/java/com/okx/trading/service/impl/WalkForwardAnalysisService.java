@@ -0,0 +1,356 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.WalkForwardFoldDTO;
+import com.okx.trading.model.dto.WalkForwardResultDTO;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BarSeriesManager;
+import org.ta4j.core.Position;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 走步分析服务
+ * 把时间范围切分为滚动的样本内/样本外折叠，样本内从候选策略中选出优化目标最好的一个，再在紧随其后的样本外区间评估。
+ * 所有任务共享同一个BarSeries和收盘价数组；每个任务为一个候选策略创建一次Strategy并顺序跑完分到的折叠，
+ * 指标缓存在折叠之间复用，任务按 候选策略 × 折叠分组 并行
+ */
+@Service
+public class WalkForwardAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(WalkForwardAnalysisService.class);
+
+    public static final String OBJECTIVE_SHARPE = "SHARPE";
+    public static final String OBJECTIVE_RETURN = "RETURN";
+
+    private final ExecutorService computeExecutorService;
+
+    @Autowired
+    public WalkForwardAnalysisService(@Qualifier("backtestComputeExecutorService") ExecutorService computeExecutorService) {
+        this.computeExecutorService = computeExecutorService;
+    }
+
+    /**
+     * 执行走步分析
+     *
+     * @param series          完整时间范围的条形系列，分析过程中只读
+     * @param candidates      候选策略代码
+     * @param folds           折叠数
+     * @param inSampleRatio   每个折叠中样本内所占比例，取值(0, 1)
+     * @param objective       样本内优化目标：SHARPE 或 RETURN
+     * @param initialAmount   初始资金
+     * @param feeRatio        单边手续费率
+     * @return 走步分析结果
+     */
+    public WalkForwardResultDTO analyze(BarSeries series, List<String> candidates, int folds, double inSampleRatio,
+                                        String objective, BigDecimal initialAmount, BigDecimal feeRatio) {
+        long startMillis = System.currentTimeMillis();
+        WalkForwardResultDTO result = new WalkForwardResultDTO();
+        result.setObjective(objective);
+        result.setInitialAmount(initialAmount);
+        result.setCandidateCount(candidates.size());
+
+        int[] plan = planFolds(series.getBarCount(), folds, inSampleRatio);
+        if (plan == null) {
+            result.setSuccess(false);
+            result.setErrorMessage("K线数量不足以切分 " + folds + " 个折叠: " + series.getBarCount());
+            return result;
+        }
+        int inSampleBars = plan[0];
+        int outOfSampleBars = plan[1];
+        result.setInSampleBars(inSampleBars);
+        result.setOutOfSampleBars(outOfSampleBars);
+
+        double[] closes = new double[series.getBarCount()];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = series.getBar(i).getClosePrice().doubleValue();
+        }
+        double fee = feeRatio == null ? 0 : feeRatio.doubleValue();
+        int annualizationFactor = annualizationFactor(series);
+
+        // 候选数少于CPU核数时把折叠再分组，保证所有核都有任务
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int foldGroups = Math.min(folds, Math.max(1, (parallelism + candidates.size() - 1) / candidates.size()));
+        int foldsPerGroup = (folds + foldGroups - 1) / foldGroups;
+
+        FoldBoard[] boards = new FoldBoard[folds];
+        for (int k = 0; k < folds; k++) {
+            boards[k] = new FoldBoard(outOfSampleBars);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            for (int firstFold = 0; firstFold < folds; firstFold += foldsPerGroup) {
+                int candidateIndex = c;
+                int from = firstFold;
+                int to = Math.min(folds, firstFold + foldsPerGroup);
+                futures.add(CompletableFuture.runAsync(() -> evaluateCandidate(series, closes, candidates, candidateIndex,
+                        from, to, inSampleBars, outOfSampleBars, fee, annualizationFactor, objective, boards), computeExecutorService));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        aggregate(result, series, candidates, boards, inSampleBars, outOfSampleBars, annualizationFactor, initialAmount);
+        result.setElapsedMillis(System.currentTimeMillis() - startMillis);
+        log.info("走步分析完成: {} 个候选策略, {} 个折叠, 样本内/样本外 {}/{} 根K线, 耗时 {} ms",
+                candidates.size(), folds, inSampleBars, outOfSampleBars, result.getElapsedMillis());
+        return result;
+    }
+
+    /**
+     * 计算滚动折叠的样本内和样本外长度：样本内 + 折叠数 × 样本外 = 总K线数
+     *
+     * @return [样本内K线数, 样本外K线数]，K线不足时返回null
+     */
+    static int[] planFolds(int barCount, int folds, double inSampleRatio) {
+        if (folds <= 0 || inSampleRatio <= 0 || inSampleRatio >= 1) {
+            return null;
+        }
+        double inSamplePerOutOfSample = inSampleRatio / (1 - inSampleRatio);
+        int outOfSampleBars = (int) Math.floor(barCount / (folds + inSamplePerOutOfSample));
+        int inSampleBars = barCount - folds * outOfSampleBars;
+        if (outOfSampleBars < 2 || inSampleBars < 2) {
+            return null;
+        }
+        return new int[]{inSampleBars, outOfSampleBars};
+    }
+
+    private void evaluateCandidate(BarSeries series, double[] closes, List<String> candidates, int candidateIndex,
+                                   int fromFold, int toFold, int inSampleBars, int outOfSampleBars, double fee,
+                                   int annualizationFactor, String objective, FoldBoard[] boards) {
+        String strategyCode = candidates.get(candidateIndex);
+        Strategy strategy;
+        try {
+            strategy = StrategyRegisterCenter.createStrategy(series, strategyCode);
+        } catch (Exception e) {
+            log.debug("走步分析跳过策略 {}: {}", strategyCode, e.getMessage());
+            return;
+        }
+        BarSeriesManager seriesManager = new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel());
+
+        for (int k = fromFold; k < toFold; k++) {
+            int inStart = k * outOfSampleBars;
+            int inEnd = inStart + inSampleBars - 1;
+            int outStart = inEnd + 1;
+            int outEnd = outStart + outOfSampleBars - 1;
+            try {
+                TradingRecord inRecord = seriesManager.run(strategy, Trade.TradeType.BUY, inStart, inEnd);
+                SegmentStats inStats = evaluateSegment(closes, inRecord, inStart, inEnd, fee, annualizationFactor, null);
+                double score = OBJECTIVE_RETURN.equalsIgnoreCase(objective) ? inStats.totalReturn : inStats.sharpeRatio;
+                if (!boards[k].isCandidateBetter(score, candidateIndex)) {
+                    continue;
+                }
+
+                double[] outReturns = new double[outOfSampleBars];
+                TradingRecord outRecord = seriesManager.run(strategy, Trade.TradeType.BUY, outStart, outEnd);
+                SegmentStats outStats = evaluateSegment(closes, outRecord, outStart, outEnd, fee, annualizationFactor, outReturns);
+                boards[k].offer(candidateIndex, score, inStats, outStats, outReturns);
+            } catch (Exception e) {
+                log.debug("走步分析策略 {} 折叠 {} 执行失败: {}", strategyCode, k + 1, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 计算一段区间内的收益指标：在信号K线收盘价成交，进出场各扣一次手续费，区间结束时未平仓的持仓按收盘价计值
+     *
+     * @param returnsOut 非null时写入区间内每根K线的收益率，长度需为 to - from + 1
+     */
+    static SegmentStats evaluateSegment(double[] closes, TradingRecord record, int from, int to, double fee,
+                                        int annualizationFactor, double[] returnsOut) {
+        int length = to - from + 1;
+        double[] returns = returnsOut != null ? returnsOut : new double[length];
+        int trades = 0;
+        int profitableTrades = 0;
+
+        List<Position> positions = new ArrayList<>(record.getPositions());
+        if (record.getCurrentPosition() != null && record.getCurrentPosition().isOpened()) {
+            positions.add(record.getCurrentPosition());
+        }
+        for (Position position : positions) {
+            int entry = position.getEntry().getIndex();
+            int exit = position.isClosed() ? position.getExit().getIndex() : to;
+            if (entry > to || exit < from) {
+                continue;
+            }
+            entry = Math.max(entry, from);
+            exit = Math.min(exit, to);
+            for (int i = entry + 1; i <= exit; i++) {
+                returns[i - from] = closes[i] / closes[i - 1] - 1;
+            }
+            returns[entry - from] = (1 + returns[entry - from]) * (1 - fee) - 1;
+            returns[exit - from] = (1 + returns[exit - from]) * (1 - fee) - 1;
+
+            trades++;
+            if (closes[exit] / closes[entry] * (1 - fee) * (1 - fee) > 1) {
+                profitableTrades++;
+            }
+        }
+
+        SegmentStats stats = summarize(returns, annualizationFactor);
+        stats.trades = trades;
+        stats.profitableTrades = profitableTrades;
+        return stats;
+    }
+
+    private void aggregate(WalkForwardResultDTO result, BarSeries series, List<String> candidates, FoldBoard[] boards,
+                           int inSampleBars, int outOfSampleBars, int annualizationFactor, BigDecimal initialAmount) {
+        List<WalkForwardFoldDTO> foldResults = new ArrayList<>();
+        Map<String, Integer> selectionCounts = new LinkedHashMap<>();
+        double[] stitched = new double[boards.length * outOfSampleBars];
+        int trades = 0;
+        int profitableTrades = 0;
+        double inSampleMeanSum = 0;
+        double outOfSampleMeanSum = 0;
+        int selectedFolds = 0;
+
+        for (int k = 0; k < boards.length; k++) {
+            FoldBoard board = boards[k];
+            int inStart = k * outOfSampleBars;
+            int outStart = inStart + inSampleBars;
+            WalkForwardFoldDTO fold = new WalkForwardFoldDTO();
+            fold.setFoldIndex(k + 1);
+            fold.setInSampleStart(series.getBar(inStart).getEndTime().toLocalDateTime());
+            fold.setInSampleEnd(series.getBar(outStart - 1).getEndTime().toLocalDateTime());
+            fold.setOutOfSampleStart(series.getBar(outStart).getEndTime().toLocalDateTime());
+            fold.setOutOfSampleEnd(series.getBar(outStart + outOfSampleBars - 1).getEndTime().toLocalDateTime());
+
+            // 没有任何候选成功时该折叠视为空仓
+            if (board.candidateIndex >= 0) {
+                String strategyCode = candidates.get(board.candidateIndex);
+                fold.setSelectedStrategyCode(strategyCode);
+                fold.setInSampleScore(scale(board.score));
+                fold.setInSampleReturn(scale(board.inStats.totalReturn));
+                fold.setOutOfSampleReturn(scale(board.outStats.totalReturn));
+                fold.setOutOfSampleSharpeRatio(scale(board.outStats.sharpeRatio));
+                fold.setOutOfSampleMaxDrawdown(scale(board.outStats.maxDrawdown));
+                fold.setOutOfSampleTrades(board.outStats.trades);
+                System.arraycopy(board.outReturns, 0, stitched, k * outOfSampleBars, outOfSampleBars);
+
+                selectionCounts.merge(strategyCode, 1, Integer::sum);
+                trades += board.outStats.trades;
+                profitableTrades += board.outStats.profitableTrades;
+                inSampleMeanSum += board.inStats.meanReturn;
+                outOfSampleMeanSum += board.outStats.meanReturn;
+                selectedFolds++;
+            }
+            foldResults.add(fold);
+        }
+
+        SegmentStats total = summarize(stitched, annualizationFactor);
+        BigDecimal finalAmount = initialAmount.multiply(BigDecimal.valueOf(1 + total.totalReturn)).setScale(8, RoundingMode.HALF_UP);
+        double years = (double) stitched.length / annualizationFactor;
+
+        result.setSuccess(true);
+        result.setFolds(foldResults);
+        result.setSelectionCounts(selectionCounts);
+        result.setFinalAmount(finalAmount);
+        result.setTotalReturn(scale(total.totalReturn));
+        result.setAnnualizedReturn(scale(years > 0 && total.totalReturn > -1 ? Math.pow(1 + total.totalReturn, 1 / years) - 1 : 0));
+        result.setSharpeRatio(scale(total.sharpeRatio));
+        result.setMaxDrawdown(scale(total.maxDrawdown));
+        result.setNumberOfTrades(trades);
+        result.setWinRate(scale(trades == 0 ? 0 : (double) profitableTrades / trades));
+        result.setWalkForwardEfficiency(selectedFolds == 0 || inSampleMeanSum == 0
+                ? BigDecimal.ZERO : scale(outOfSampleMeanSum / inSampleMeanSum));
+    }
+
+    private static SegmentStats summarize(double[] returns, int annualizationFactor) {
+        SegmentStats stats = new SegmentStats();
+        if (returns.length == 0) {
+            return stats;
+        }
+        double equity = 1;
+        double peak = 1;
+        double sum = 0;
+        double sumSquares = 0;
+        for (double r : returns) {
+            equity *= 1 + r;
+            peak = Math.max(peak, equity);
+            stats.maxDrawdown = Math.max(stats.maxDrawdown, (peak - equity) / peak);
+            sum += r;
+            sumSquares += r * r;
+        }
+        stats.totalReturn = equity - 1;
+        stats.meanReturn = sum / returns.length;
+        double variance = sumSquares / returns.length - stats.meanReturn * stats.meanReturn;
+        stats.sharpeRatio = variance > 0 ? stats.meanReturn / Math.sqrt(variance) * Math.sqrt(annualizationFactor) : 0;
+        return stats;
+    }
+
+    /**
+     * 按K线周期计算年化因子，与BacktestMetricsCalculator的分档一致：一年按365天计
+     */
+    static int annualizationFactor(BarSeries series) {
+        long minutes = series.isEmpty() ? 0 : series.getFirstBar().getTimePeriod().toMinutes();
+        if (minutes <= 0) {
+            return 252;
+        }
+        return (int) Math.max(1, 525600 / minutes);
+    }
+
+    static BigDecimal scale(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(value).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 区间收益指标
+     */
+    static class SegmentStats {
+        double totalReturn;
+        double meanReturn;
+        double sharpeRatio;
+        double maxDrawdown;
+        int trades;
+        int profitableTrades;
+    }
+
+    /**
+     * 单个折叠当前样本内表现最好的候选，只保留它的样本外收益序列
+     * 目标值相同时取候选序号小的，保证并行执行结果确定
+     */
+    private static class FoldBoard {
+        private int candidateIndex = -1;
+        private double score;
+        private SegmentStats inStats;
+        private SegmentStats outStats;
+        private double[] outReturns;
+
+        FoldBoard(int outOfSampleBars) {
+            this.outReturns = new double[outOfSampleBars];
+        }
+
+        synchronized boolean isCandidateBetter(double candidateScore, int index) {
+            return candidateIndex < 0 || candidateScore > score || (candidateScore == score && index < candidateIndex);
+        }
+
+        synchronized void offer(int index, double candidateScore, SegmentStats in, SegmentStats out, double[] returns) {
+            if (isCandidateBetter(candidateScore, index)) {
+                candidateIndex = index;
+                score = candidateScore;
+                inStats = in;
+                outStats = out;
+                outReturns = returns;
+            }
+        }
+    }
+}
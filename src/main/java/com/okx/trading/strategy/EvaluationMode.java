@@ -0,0 +1,58 @@
+package com.okx.trading.strategy;
+
+/**
+ * 实时策略的评估时机
+ * OKX的candle频道在一根K线内会推送很多次未完结的更新，每次都完整评估策略开销很大，
+ * 而且未完结K线上的信号在收盘前可能反复变化
+ */
+public enum EvaluationMode {
+
+    /**
+     * 只在K线完结（confirm=1）时评估一次
+     */
+    ON_CLOSE,
+
+    /**
+     * K线完结时评估，K线内按固定间隔节流评估
+     */
+    THROTTLED,
+
+    /**
+     * 每次推送都评估
+     */
+    EVERY_TICK;
+
+    /**
+     * 解析评估时机，为空或无法识别时使用ON_CLOSE
+     */
+    public static EvaluationMode of(String name) {
+        if (name == null) {
+            return ON_CLOSE;
+        }
+        for (EvaluationMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return ON_CLOSE;
+    }
+
+    /**
+     * 判断本次推送是否需要评估策略
+     *
+     * @param confirmed            推送的K线是否已完结
+     * @param nowMillis            当前时间
+     * @param lastEvaluationMillis 上次评估时间
+     * @param intervalMillis       THROTTLED模式下K线内两次评估的最小间隔
+     */
+    public boolean shouldEvaluate(boolean confirmed, long nowMillis, long lastEvaluationMillis, long intervalMillis) {
+        switch (this) {
+            case EVERY_TICK:
+                return true;
+            case THROTTLED:
+                return confirmed || nowMillis - lastEvaluationMillis >= intervalMillis;
+            default:
+                return confirmed;
+        }
+    }
+}
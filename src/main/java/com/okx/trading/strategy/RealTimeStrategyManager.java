@@ -7,6 +7,7 @@ import com.okx.trading.model.entity.RealTimeStrategyEntity;
 import com.okx.trading.adapter.CandlestickBarSeriesConverter;
 import com.okx.trading.repository.RealTimeStrategyRepository;
 import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.OrderStateService;
 import com.okx.trading.service.RealTimeOrderService;
 import com.okx.trading.service.RealTimeStrategyService;
 import com.okx.trading.controller.TradeController;
@@ -52,14 +53,21 @@ public class RealTimeStrategyManager implements ApplicationRunner {
     private final CandlestickBarSeriesConverter barSeriesConverter;
     private final StrategyInfoService strategyInfoService;
     private final RealTimeStrategyRepository realTimeStrategyRepository;
+    // 信号轧差执行器，为null或未启用时每个信号单独下单
+    private final SignalNettingExecutor signalNetting;
     private final int kLineNum = 100;
+    /**
+     * 实时条形系列保留的最大K线数，超过后最早的K线被移除
+     */
+    private final int maxLiveBars = 1000;
 
     public RealTimeStrategyManager(@Lazy OkxApiWebSocketServiceImpl webSocketService,
                                    RealTimeOrderService realTimeOrderService,
                                    TradeController tradeController,
                                    HistoricalDataService historicalDataService,
                                    @Lazy RealTimeStrategyService realTimeStrategyService,
-                                   CandlestickBarSeriesConverter barSeriesConverter, StrategyInfoService strategyInfoService, RealTimeStrategyRepository realTimeStrategyRepository) {
+                                   CandlestickBarSeriesConverter barSeriesConverter, StrategyInfoService strategyInfoService, RealTimeStrategyRepository realTimeStrategyRepository,
+                                   Optional<SignalNettingExecutor> signalNetting) {
         this.webSocketService = webSocketService;
         this.realTimeOrderService = realTimeOrderService;
         this.tradeController = tradeController;
@@ -68,12 +76,23 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         this.barSeriesConverter = barSeriesConverter;
         this.strategyInfoService = strategyInfoService;
         this.realTimeStrategyRepository = realTimeStrategyRepository;
+        this.signalNetting = signalNetting.orElse(null);
     }
 
     // 存储正在运行的策略信息
     // key: strategyCode_symbol_interval, value: 策略运行状态
     private final Map<String, RealTimeStrategyEntity> runningStrategies = new ConcurrentHashMap<>();
     private final Map<String, BarSeries> runningBarSeries = new ConcurrentHashMap<>();
+    // 每个条形系列最后一根已完结K线的开盘时间，key: symbol_interval
+    private final Map<String, LocalDateTime> lastConfirmedBars = new ConcurrentHashMap<>();
+    // 正在补齐断线缺口的条形系列，补齐期间到达的实时K线先缓存，补齐后按顺序处理
+    private final Map<String, List<Candlestick>> replayBuffers = new ConcurrentHashMap<>();
+    // 成交记录器，为null时信号下单的结果写入数据库；历史回放时设置，结果只交给记录器
+    private volatile TradeRecorder tradeRecorder;
+    // 已提交轧差、尚未收到成交结果的策略，结果返回前不再评估，避免重复下单
+    private final Set<String> pendingSignals = ConcurrentHashMap.newKeySet();
+    // 已被交易所受理、尚未完结的订单，完结前策略停留在pendingSignals中，key: strategyCode_symbol_interval
+    private final Map<String, PendingOrder> pendingOrders = new ConcurrentHashMap<>();
 
     /**
      * 启动实时策略
@@ -120,6 +139,9 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         String key = buildStrategyKey(strategyCode, symbol, interval);
 
         RealTimeStrategyEntity state = runningStrategies.remove(key);
+        if (pendingOrders.remove(key) != null) {
+            pendingSignals.remove(key);
+        }
         if (state != null) {
             // 取消订阅K线数据（如果没有其他策略使用）
             if (!isSymbolIntervalInUse(symbol, interval)) {
@@ -143,44 +165,211 @@ public class RealTimeStrategyManager implements ApplicationRunner {
 
     /**
      * 处理新的K线数据
-     * 由WebSocket服务调用
+     * 由WebSocket服务调用。每次推送只原地更新一次共享的条形系列（同一周期替换最后一根，新周期追加），
+     * 再按各策略的评估时机决定是否评估：默认只在K线完结时评估，K线内的推送只更新系列。
+     * 条形系列正在补齐断线缺口时，推送先缓存，等补齐的K线处理完后再按顺序处理
      */
     public void handleNewKlineData(String symbol, String interval, Candlestick candlestick) {
         // 查找使用该symbol和interval的所有策略
         if (runningStrategies.isEmpty()) {
             return;
         }
-        runningStrategies.entrySet().stream()
-                .filter(entry -> {
-                    RealTimeStrategyEntity state = entry.getValue();
-                    return state.getSymbol().equals(symbol) && state.getInterval().equals(interval);
-                })
-                .forEach(entry -> {
-                    RealTimeStrategyEntity state = entry.getValue();
-                    try {
-                        if (state.getStrategy() != null) {
-                            processStrategySignal(state, candlestick);
-                        }
-                    } catch (Exception e) {
-                        log.error("处理策略信号失败: key={}, error={}", buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval()), e.getMessage(), e);
+        String seriesKey = symbol + "_" + interval;
+        List<Candlestick> buffer = replayBuffers.get(seriesKey);
+        if (buffer != null) {
+            synchronized (buffer) {
+                if (replayBuffers.get(seriesKey) == buffer) {
+                    buffer.add(candlestick);
+                    return;
+                }
+            }
+        }
+        applyKline(symbol, interval, candlestick, true);
+    }
+
+    /**
+     * 用一根K线更新条形系列，需要时按各策略的评估时机评估
+     *
+     * @return K线是否更新到了条形系列，过时的K线返回false
+     */
+    private boolean applyKline(String symbol, String interval, Candlestick candlestick, boolean evaluate) {
+        String seriesKey = symbol + "_" + interval;
+        BarSeries series = runningBarSeries.get(seriesKey);
+        if (series == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (series) {
+            Bar newBar = createBarFromCandlestick(candlestick);
+            // 补齐缺口后，缓存中早于系列最后一根的推送已经过时
+            if (!series.isEmpty() && newBar.getEndTime().isBefore(series.getLastBar().getEndTime())) {
+                log.debug("忽略过时的K线: key={}, openTime={}", seriesKey, candlestick.getOpenTime());
+                return false;
+            }
+            series.addBar(newBar, shouldReplaceLastBar(series, newBar, interval));
+            if (candlestick.isConfirmed() && candlestick.getOpenTime() != null) {
+                lastConfirmedBars.merge(seriesKey, candlestick.getOpenTime(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+            if (!evaluate) {
+                return true;
+            }
+
+            SignalNettingExecutor netting = signalNetting;
+            List<SignalNettingExecutor.Signal> signals = netting != null && netting.isEnabled() ? new ArrayList<>() : null;
+            for (RealTimeStrategyEntity state : runningStrategies.values()) {
+                if (!state.getSymbol().equals(symbol) || !state.getInterval().equals(interval) || state.getStrategy() == null) {
+                    continue;
+                }
+                String key = buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval());
+                if (pendingSignals.contains(key) && !resolvePendingOrder(key)) {
+                    continue;
+                }
+                try {
+                    if (shouldEvaluate(state, candlestick, now)) {
+                        processStrategySignal(state, series, candlestick, signals);
+                    }
+                } catch (Exception e) {
+                    log.error("处理策略信号失败: key={}, error={}", key, e.getMessage(), e);
+                }
+            }
+            // 同一根K线上各策略的信号一起交给轧差执行器
+            if (signals != null && !signals.isEmpty()) {
+                boolean submitted = false;
+                try {
+                    netting.submit(signals);
+                    submitted = true;
+                } catch (Exception e) {
+                    log.error("提交轧差信号失败: symbol={}, interval={}, error={}", symbol, interval, e.getMessage(), e);
+                } finally {
+                    // 没有交给执行器的信号按未成交结束，策略恢复评估
+                    if (!submitted) {
+                        signals.forEach(signal -> signal.complete(null));
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 开始补齐断线缺口：之后到达的实时K线先缓存，直到调用{@link #finishReplay}
+     * 已经在补齐中的条形系列不会重复返回
+     *
+     * @return 需要补齐的条形系列（symbol_interval）及其最后一根已完结K线的开盘时间，
+     * 没有收到过完结K线时取系列最后一根的开盘时间
+     */
+    public Map<String, LocalDateTime> beginReplay() {
+        Map<String, LocalDateTime> gaps = new LinkedHashMap<>();
+        for (Map.Entry<String, BarSeries> entry : runningBarSeries.entrySet()) {
+            String seriesKey = entry.getKey();
+            LocalDateTime since = lastConfirmedBars.get(seriesKey);
+            if (since == null) {
+                BarSeries series = entry.getValue();
+                synchronized (series) {
+                    if (series.isEmpty()) {
+                        continue;
                     }
-                });
+                    since = series.getLastBar().getBeginTime().toLocalDateTime();
+                }
+            }
+            if (replayBuffers.putIfAbsent(seriesKey, new ArrayList<>()) == null) {
+                gaps.put(seriesKey, since);
+            }
+        }
+        return gaps;
     }
 
     /**
-     * 处理策略信号
-     * 真正执行实时策略逻辑，判断买卖信号的地方
+     * 按时间顺序补入断线期间缺失的K线，再处理补齐期间缓存的实时K线，之后恢复实时处理
+     * 缺失的K线都会更新条形系列，但只有最新的一根参与策略评估，避免按已经过去的信号以当前价格下单
+     *
+     * @param bars 断线期间已完结的K线，顺序不限；获取失败时传空列表，只恢复实时处理
+     * @return 补入的K线数，早于系列最后一根的K线不计入
+     */
+    public int finishReplay(String symbol, String interval, List<Candlestick> bars) {
+        String seriesKey = symbol + "_" + interval;
+        List<Candlestick> buffer = replayBuffers.get(seriesKey);
+        if (buffer == null) {
+            return 0;
+        }
+        LocalDateTime since = lastConfirmedBars.get(seriesKey);
+        List<Candlestick> missed = new ArrayList<>();
+        for (Candlestick bar : bars) {
+            if (bar.getOpenTime() != null && (since == null || bar.getOpenTime().isAfter(since))) {
+                missed.add(bar);
+            }
+        }
+        missed.sort(Comparator.comparing(Candlestick::getOpenTime));
+
+        int applied = 0;
+        synchronized (buffer) {
+            try {
+                for (int i = 0; i < missed.size(); i++) {
+                    if (applyKline(symbol, interval, missed.get(i), i == missed.size() - 1)) {
+                        applied++;
+                    }
+                }
+                for (Candlestick candlestick : buffer) {
+                    applyKline(symbol, interval, candlestick, true);
+                }
+                log.info("条形系列缺口补齐完成: key={}, 补入 {} 根K线, 处理缓存推送 {} 条", seriesKey, applied, buffer.size());
+            } catch (Exception e) {
+                log.error("补齐条形系列缺口失败: key={}, error={}", seriesKey, e.getMessage(), e);
+            } finally {
+                replayBuffers.remove(seriesKey);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 按策略的评估时机判断本次推送是否需要评估，需要时记录评估时间
      */
-    private void processStrategySignal(RealTimeStrategyEntity state, Candlestick candlestick) {
+    private boolean shouldEvaluate(RealTimeStrategyEntity state, Candlestick candlestick, long now) {
+        boolean confirmed = candlestick.isConfirmed();
+        // 同一根完结K线重复推送时只评估一次
+        if (confirmed && candlestick.getOpenTime() != null && candlestick.getOpenTime().equals(state.getLastConfirmedBarTime())) {
+            return false;
+        }
+        long intervalMillis = state.getEvaluationIntervalMs() == null ? 0 : state.getEvaluationIntervalMs();
+        if (!EvaluationMode.of(state.getEvaluationMode()).shouldEvaluate(confirmed, now, state.getLastEvaluationMillis(), intervalMillis)) {
+            return false;
+        }
+        state.setLastEvaluationMillis(now);
+        if (confirmed) {
+            state.setLastConfirmedBarTime(candlestick.getOpenTime());
+        }
+        return true;
+    }
 
-        // 更新BarSeries - 智能判断是更新还是添加新bar
-        Bar newBar = createBarFromCandlestick(candlestick);
-        BarSeries series = runningBarSeries.get(state.getSymbol() + "_" + state.getInterval());
-        boolean shouldReplace = shouldReplaceLastBar(series, newBar, state.getInterval());
-        series.addBar(newBar, shouldReplace);
-        if (!shouldReplace) {
-            series = series.getSubSeries(series.getBeginIndex() + 1, series.getEndIndex() + 1);
+    /**
+     * 更新运行中策略的评估时机并保存到数据库
+     *
+     * @return 策略未在运行时返回null
+     */
+    public RealTimeStrategyEntity updateEvaluationPolicy(String strategyCode, String symbol, String interval,
+                                                         EvaluationMode mode, long intervalMillis) {
+        RealTimeStrategyEntity state = runningStrategies.get(buildStrategyKey(strategyCode, symbol, interval));
+        if (state == null) {
+            return null;
+        }
+        state.setEvaluationMode(mode.name());
+        state.setEvaluationIntervalMs(intervalMillis);
+        try {
+            realTimeStrategyRepository.save(state);
+        } catch (Exception e) {
+            log.warn("保存策略评估时机失败: strategyCode={}, error={}", strategyCode, e.getMessage());
         }
+        log.info("策略评估时机已更新: key={}, mode={}, intervalMs={}", buildStrategyKey(strategyCode, symbol, interval), mode, intervalMillis);
+        return state;
+    }
+
+    /**
+     * 处理策略信号
+     * 真正执行实时策略逻辑，判断买卖信号的地方
+     */
+    private void processStrategySignal(RealTimeStrategyEntity state, BarSeries series, Candlestick candlestick,
+                                       List<SignalNettingExecutor.Signal> signals) {
 
         // 检查交易信号
         int currentIndex = series.getEndIndex();
@@ -189,12 +378,12 @@ public class RealTimeStrategyManager implements ApplicationRunner {
 
         // 处理买入信号 - 只有在上一次不是买入时才触发
         if (shouldBuy && (state.getLastTradeType() == null || !BUY.equals(state.getLastTradeType()))) {
-            executeTradeSignal(state, candlestick, BUY);
+            executeTradeSignal(state, candlestick, BUY, signals);
         }
 
         // 处理卖出信号 - 只有在上一次是买入时才触发
         if (shouldSell && BUY.equals(state.getLastTradeType())) {
-            executeTradeSignal(state, candlestick, SELL);
+            executeTradeSignal(state, candlestick, SELL, signals);
         }
     }
 
@@ -226,9 +415,12 @@ public class RealTimeStrategyManager implements ApplicationRunner {
 
     /**
      * 执行交易信号
+     *
+     * @param signals 不为null时信号交给轧差执行器，成交结果返回后再更新策略状态
      */
     @Async("databaseUpdateScheduler")
-    private void executeTradeSignal(RealTimeStrategyEntity state, Candlestick candlestick, String side) {
+    private void executeTradeSignal(RealTimeStrategyEntity state, Candlestick candlestick, String side,
+                                    List<SignalNettingExecutor.Signal> signals) {
         try {
             BigDecimal preAmount = null;
             BigDecimal preQuantity = null;
@@ -236,7 +428,7 @@ public class RealTimeStrategyManager implements ApplicationRunner {
             // 计算交易数量
             if (BUY.equals(side)) {
                 // 买入：按照给定金额买入
-                if (state.getLastTradeType().equals(SELL)) {
+                if (SELL.equals(state.getLastTradeType())) {
                     // 上次卖出剩下的钱
                     preAmount = BigDecimal.valueOf(state.getLastTradeAmount());
                 } else {
@@ -253,6 +445,33 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                 }
             }
 
+            if (signals != null) {
+                String key = buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval());
+                BigDecimal amount = preAmount;
+                BigDecimal quantity = preQuantity;
+                pendingSignals.add(key);
+                signals.add(new SignalNettingExecutor.Signal(state.getSymbol(), side, preAmount, preQuantity, candlestick.getClose(),
+                        order -> {
+                            try {
+                                if (order == null) {
+                                    log.warn("轧差下单失败或未成交，本次信号不改变策略状态: key={}, side={}", key, side);
+                                    return;
+                                }
+                                // 结果在轧差线程返回，与K线评估互斥地更新策略状态
+                                Object lock = runningBarSeries.get(state.getSymbol() + "_" + state.getInterval());
+                                synchronized (lock != null ? lock : state) {
+                                    applyOrderResult(state, candlestick, side, order, amount, quantity);
+                                }
+                            } finally {
+                                // 订单已受理但未完结时继续等待，不放开评估
+                                if (!pendingOrders.containsKey(key)) {
+                                    pendingSignals.remove(key);
+                                }
+                            }
+                        }));
+                return;
+            }
+
             Order order = tradeController.createSpotOrder(
                     state.getSymbol(),
                     null,
@@ -263,7 +482,32 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                     null, null, null, null,
                     false
             ).getData();
+            applyOrderResult(state, candlestick, side, order, preAmount, preQuantity);
+        } catch (Exception e) {
+            log.error("执行{}订单失败: {}", side, e.getMessage(), e);
+        }
+    }
 
+    /**
+     * 按订单成交结果保存订单记录并更新策略状态，单独下单和轧差分摊的结果共用
+     */
+    private void applyOrderResult(RealTimeStrategyEntity state, Candlestick candlestick, String side, Order order,
+                                  BigDecimal preAmount, BigDecimal preQuantity) {
+        try {
+            if (order != null && (order.getExecutedQty() == null || order.getExecutedQty().signum() <= 0)) {
+                if (order.getOrderId() != null && !OrderStateService.isFinished(order)) {
+                    // 已受理还没有成交（如REST下单只返回订单ID），等订单完结后再更新状态，期间不重复下单
+                    String key = buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval());
+                    pendingOrders.put(key, new PendingOrder(state, candlestick, side, order, preAmount, preQuantity));
+                    pendingSignals.add(key);
+                    log.info("{}订单已受理，等待成交: strategyCode={}, orderId={}, status={}", side, state.getStrategyCode(),
+                            order.getOrderId(), order.getStatus());
+                    return;
+                }
+                // 没有成交的订单不是一次交易，不改变持仓状态，下一次信号可以重新下单
+                log.warn("{}订单未成交，策略状态不变: strategyCode={}, status={}", side, state.getStrategyCode(), order.getStatus());
+                return;
+            }
             if (order != null) {
                 // 保存订单记录
                 RealTimeOrderEntity orderEntity = realTimeOrderService.createOrderRecord(
@@ -277,34 +521,50 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                         preAmount,
                         preQuantity);  // 打算买入金额，不是成交金额
 
-                // 利润统计
-                // 更新累计统计信息
-                if (orderEntity.getSide().equals(SELL)) {
-                    state.setTotalProfit(state.getTotalProfit() + (orderEntity.getExecutedAmount().doubleValue() - state.getLastTradeAmount()));
-                }
-                // 费用每次都有
-                state.setTotalFees(state.getTotalFees() + orderEntity.getFee().doubleValue());
-                // 更新策略状态
-                state.setLastTradeType(orderEntity.getSide());
-                // 买入时记录购买数量
-                state.setLastTradeAmount(orderEntity.getExecutedAmount().doubleValue());
-                state.setLastTradeQuantity(orderEntity.getExecutedQty().doubleValue());
-                state.setLastTradePrice(orderEntity.getPrice().doubleValue());
-                if (BUY.equals(side)) {
-                    state.setIsInPosition(true);
+                double executedQty = orderEntity.getExecutedQty().doubleValue();
+                if (SELL.equals(side) && preQuantity != null && executedQty < preQuantity.doubleValue()) {
+                    // 部分卖出：按卖出比例结转成本，剩余数量仍然持仓，下一次卖出信号继续卖出剩余部分
+                    double soldCost = state.getLastTradeAmount() * executedQty / preQuantity.doubleValue();
+                    state.setTotalProfit(state.getTotalProfit() + (orderEntity.getExecutedAmount().doubleValue() - soldCost));
+                    state.setTotalFees(state.getTotalFees() + orderEntity.getFee().doubleValue());
+                    state.setLastTradeAmount(state.getLastTradeAmount() - soldCost);
+                    state.setLastTradeQuantity(preQuantity.doubleValue() - executedQty);
+                    state.setLastTradePrice(orderEntity.getPrice().doubleValue());
                 } else {
-                    state.setIsInPosition(false);
+                    // 利润统计
+                    // 更新累计统计信息
+                    if (orderEntity.getSide().equals(SELL)) {
+                        state.setTotalProfit(state.getTotalProfit() + (orderEntity.getExecutedAmount().doubleValue() - state.getLastTradeAmount()));
+                    }
+                    // 费用每次都有
+                    state.setTotalFees(state.getTotalFees() + orderEntity.getFee().doubleValue());
+                    // 更新策略状态
+                    state.setLastTradeType(orderEntity.getSide());
+                    // 买入时记录购买数量
+                    state.setLastTradeAmount(orderEntity.getExecutedAmount().doubleValue());
+                    state.setLastTradeQuantity(executedQty);
+                    state.setLastTradePrice(orderEntity.getPrice().doubleValue());
+                    if (BUY.equals(side)) {
+                        state.setIsInPosition(true);
+                    } else {
+                        state.setIsInPosition(false);
+                    }
                 }
                 // 成交次数统计
                 state.setTotalTrades(state.getTotalTrades() + 1);
                 if (FILLED.equals(order.getStatus())) {
                     state.setSuccessfulTrades(state.getSuccessfulTrades() + 1);
                 }
-                // 更新数据库中的交易信息
-                RealTimeStrategyEntity realTimeStrategy = realTimeStrategyService.updateTradeInfo(state);
-                // 更新订单信息
-                orderEntity.setStrategyId(realTimeStrategy.getId());
-                realTimeOrderService.saveOrder(orderEntity);
+                TradeRecorder recorder = tradeRecorder;
+                if (recorder != null) {
+                    recorder.record(state, candlestick, orderEntity);
+                } else {
+                    // 更新数据库中的交易信息
+                    RealTimeStrategyEntity realTimeStrategy = realTimeStrategyService.updateTradeInfo(state);
+                    // 更新订单信息
+                    orderEntity.setStrategyId(realTimeStrategy.getId());
+                    realTimeOrderService.saveOrder(orderEntity);
+                }
 
                 log.info("执行{}订单成功: symbol={}, price={}, amount={}, quantity={}", side, state.getSymbol(), state.getLastTradePrice(),
                         state.getLastTradeAmount(), state.getLastTradeQuantity());
@@ -314,6 +574,32 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         }
     }
 
+    /**
+     * 查询挂起订单的最新状态，订单完结后按成交结果更新策略状态并恢复评估
+     *
+     * @return 策略是否可以继续评估；轧差结果尚未返回或订单仍未完结时返回false
+     */
+    private boolean resolvePendingOrder(String key) {
+        PendingOrder pending = pendingOrders.get(key);
+        if (pending == null) {
+            return false;
+        }
+        Order order;
+        try {
+            order = tradeController.getOrder(pending.state.getSymbol(), pending.order.getOrderId()).getData();
+        } catch (Exception e) {
+            log.warn("查询挂起订单失败: key={}, orderId={}, error={}", key, pending.order.getOrderId(), e.getMessage());
+            return false;
+        }
+        if (!OrderStateService.isFinished(order)) {
+            return false;
+        }
+        pendingOrders.remove(key);
+        pendingSignals.remove(key);
+        applyOrderResult(pending.state, pending.candlestick, pending.side, order, pending.preAmount, pending.preQuantity);
+        return true;
+    }
+
     /**
      * 从Candlestick创建Bar
      */
@@ -421,6 +707,7 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         if (!runningBarSeries.containsKey(barSeriesKey)) {
             BarSeries barSeries = historicalDataService.fetchLastestedBars(strategyEntity.getSymbol(), strategyEntity.getInterval(), kLineNum);
             if (barSeries != null) {
+                barSeries.setMaximumBarCount(maxLiveBars);
                 runningBarSeries.put(barSeriesKey, barSeries);
             }
         }
@@ -558,4 +845,26 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                 (double) state.getSuccessfulTrades() / state.getTotalTrades() : 0.0);
         return result;
     }
+
+    /**
+     * 已受理未完结的订单及下单时的策略上下文
+     */
+    private static final class PendingOrder {
+        private final RealTimeStrategyEntity state;
+        private final Candlestick candlestick;
+        private final String side;
+        private final Order order;
+        private final BigDecimal preAmount;
+        private final BigDecimal preQuantity;
+
+        private PendingOrder(RealTimeStrategyEntity state, Candlestick candlestick, String side, Order order,
+                             BigDecimal preAmount, BigDecimal preQuantity) {
+            this.state = state;
+            this.candlestick = candlestick;
+            this.side = side;
+            this.order = order;
+            this.preAmount = preAmount;
+            this.preQuantity = preQuantity;
+        }
+    }
 }
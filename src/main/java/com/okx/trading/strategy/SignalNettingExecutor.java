@@ -0,0 +1,373 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.controller.TradeController;
+import com.okx.trading.model.trade.Order;
+import com.okx.trading.model.trade.OrderRequest;
+import com.okx.trading.service.OkxApiService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.okx.trading.constant.IndicatorInfo.BUY;
+import static com.okx.trading.constant.IndicatorInfo.FILLED;
+import static com.okx.trading.constant.IndicatorInfo.SELL;
+
+/**
+ * 策略信号轧差执行器
+ * 同一交易对上多个策略在一个窗口内产生的信号先合并：方向相反的数量按信号K线收盘价内部对冲，不经过交易所，
+ * 剩余的净数量每个交易对合成一个市价单，各交易对的净额订单通过批量下单接口一次提交。
+ * 成交结果按数量比例分摊回各个信号，每个信号收到一个与单独下单时结构相同的订单
+ */
+@Slf4j
+@Component
+public class SignalNettingExecutor {
+
+    private static final int SCALE = 8;
+
+    private final TradeController tradeController;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final long windowMillis;
+
+    // 窗口内待轧差的信号，key: 交易对
+    private final Map<String, List<Signal>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    @Autowired
+    public SignalNettingExecutor(TradeController tradeController,
+                                 @Qualifier("signalNettingScheduler") ScheduledExecutorService scheduler,
+                                 @Value("${okx.trading.signal-netting.enabled:false}") boolean enabled,
+                                 @Value("${okx.trading.signal-netting.window-ms:200}") long windowMillis) {
+        this.tradeController = tradeController;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交一组信号，窗口为0时立即轧差执行，否则在窗口结束时与其他信号一起执行
+     * 每个信号的回调恰好被调用一次，下单失败或没有成交时收到null；单个信号的订单已受理但未成交时收到该订单
+     */
+    public void submit(List<Signal> signals) {
+        if (signals.isEmpty()) {
+            return;
+        }
+        if (windowMillis <= 0) {
+            execute(group(signals));
+            return;
+        }
+        synchronized (pending) {
+            for (Signal signal : signals) {
+                pending.computeIfAbsent(signal.getSymbol(), k -> new ArrayList<>()).add(signal);
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 执行窗口内收集的全部信号
+     */
+    public void flush() {
+        Map<String, List<Signal>> groups;
+        synchronized (pending) {
+            groups = new LinkedHashMap<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+        try {
+            execute(groups);
+        } catch (Exception e) {
+            log.error("信号轧差执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, List<Signal>> group(List<Signal> signals) {
+        Map<String, List<Signal>> groups = new LinkedHashMap<>();
+        for (Signal signal : signals) {
+            groups.computeIfAbsent(signal.getSymbol(), k -> new ArrayList<>()).add(signal);
+        }
+        return groups;
+    }
+
+    private void execute(Map<String, List<Signal>> groups) {
+        List<Netting> nettings = new ArrayList<>(groups.size());
+        List<Netting> external = new ArrayList<>();
+        for (List<Signal> signals : groups.values()) {
+            try {
+                Netting netting = new Netting(signals);
+                nettings.add(netting);
+                if (netting.request != null) {
+                    external.add(netting);
+                }
+            } catch (Exception e) {
+                // 一个交易对的信号无法轧差时只放弃该交易对，不影响同一窗口内的其他交易对
+                log.error("信号轧差失败，放弃本次信号: symbol={}, error={}", signals.get(0).getSymbol(), e.getMessage(), e);
+                signals.forEach(signal -> signal.complete(null));
+            }
+        }
+
+        // 净额订单按批量下单上限分批提交，一批失败只影响该批的交易对
+        for (int from = 0; from < external.size(); from += OkxApiService.BATCH_ORDER_LIMIT) {
+            List<Netting> batch = external.subList(from, Math.min(from + OkxApiService.BATCH_ORDER_LIMIT, external.size()));
+            List<OrderRequest> requests = new ArrayList<>(batch.size());
+            batch.forEach(netting -> requests.add(netting.request));
+            try {
+                List<Order> orders = requests.size() == 1
+                        ? singletonOrder(requests.get(0))
+                        : tradeController.createSpotOrders(requests).getData();
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).external = orders != null && i < orders.size() ? orders.get(i) : null;
+                }
+            } catch (Exception e) {
+                log.error("净额订单提交失败: 交易对数={}, error={}", batch.size(), e.getMessage(), e);
+            }
+        }
+
+        for (Netting netting : nettings) {
+            try {
+                netting.allocate();
+            } catch (Exception e) {
+                log.error("分摊轧差成交失败: symbol={}, error={}", netting.signals.get(0).getSymbol(), e.getMessage(), e);
+            } finally {
+                // 分摊中途失败时，尚未收到结果的信号按未成交处理
+                netting.signals.forEach(signal -> signal.complete(null));
+            }
+        }
+    }
+
+    private List<Order> singletonOrder(OrderRequest request) {
+        Order order = tradeController.createSpotOrder(request.getSymbol(), request.getType(), request.getSide(), null,
+                request.getQuantity(), request.getAmount(), null, null, request.getClientOrderId(), null, false).getData();
+        List<Order> orders = new ArrayList<>(1);
+        orders.add(order);
+        return orders;
+    }
+
+    /**
+     * 一个交易对的轧差：净方向（netSide）的信号分摊内部对冲数量和净额订单的成交，反方向的信号全部按参考价内部成交
+     */
+    private static final class Netting {
+        private final List<Signal> signals;
+        private final BigDecimal price;
+        private final String netSide;
+        private final BigDecimal netSideQty;
+        private final BigDecimal crossedQty;
+        private final String batchId = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        private final OrderRequest request;
+        private Order external;
+
+        private Netting(List<Signal> signals) {
+            this.signals = signals;
+            // 同一窗口内同一交易对的信号以最后一个信号的收盘价为参考价
+            this.price = signals.get(signals.size() - 1).getReferencePrice();
+            if (price == null || price.signum() <= 0) {
+                throw new IllegalArgumentException("参考价无效: " + price);
+            }
+            BigDecimal buyQty = BigDecimal.ZERO;
+            BigDecimal sellQty = BigDecimal.ZERO;
+            for (Signal signal : signals) {
+                BigDecimal size = BUY.equals(signal.getSide()) ? signal.getAmount() : signal.getQuantity();
+                if (size == null || size.signum() <= 0) {
+                    throw new IllegalArgumentException(signal.getSide() + "信号缺少下单数量");
+                }
+                signal.baseQty = BUY.equals(signal.getSide())
+                        ? signal.getAmount().divide(price, SCALE, RoundingMode.DOWN)
+                        : signal.getQuantity();
+                if (BUY.equals(signal.getSide())) {
+                    buyQty = buyQty.add(signal.baseQty);
+                } else {
+                    sellQty = sellQty.add(signal.baseQty);
+                }
+            }
+            this.netSide = buyQty.compareTo(sellQty) >= 0 ? BUY : SELL;
+            this.netSideQty = BUY.equals(netSide) ? buyQty : sellQty;
+            this.crossedQty = BUY.equals(netSide) ? sellQty : buyQty;
+            this.request = buildRequest();
+        }
+
+        private OrderRequest buildRequest() {
+            String symbol = signals.get(0).getSymbol();
+            if (signals.size() == 1) {
+                // 单个信号按原样下单，与不轧差时一致
+                Signal signal = signals.get(0);
+                return OrderRequest.builder().symbol(symbol).type("MARKET").side(signal.getSide())
+                        .amount(signal.getAmount()).quantity(signal.getQuantity())
+                        .clientOrderId(batchId).simulated(false).build();
+            }
+            BigDecimal netQty = netSideQty.subtract(crossedQty);
+            if (netQty.signum() == 0) {
+                return null;
+            }
+            OrderRequest.OrderRequestBuilder builder = OrderRequest.builder().symbol(symbol).type("MARKET")
+                    .side(netSide).clientOrderId(batchId).simulated(false);
+            if (BUY.equals(netSide)) {
+                // 买入以计价货币金额下单，与单个策略下单方式一致
+                builder.amount(netQty.multiply(price).setScale(SCALE, RoundingMode.DOWN));
+            } else {
+                builder.quantity(netQty);
+            }
+            return builder.build();
+        }
+
+        private void allocate() {
+            boolean externalOk = external != null && !"REJECTED".equals(external.getStatus());
+            if (signals.size() == 1) {
+                // 已受理未成交的订单也交给策略，由策略等待订单完结
+                signals.get(0).complete(externalOk ? external : null);
+                return;
+            }
+            if (request != null && !externalOk) {
+                log.warn("净额订单未成交，只分摊内部对冲部分: symbol={}, side={}, netQty={}",
+                        request.getSymbol(), netSide, netSideQty.subtract(crossedQty));
+            }
+            BigDecimal externalQty = externalOk ? quantity(external.getExecutedQty()) : BigDecimal.ZERO;
+            BigDecimal externalQuote = externalOk ? quantity(external.getCummulativeQuoteQty()) : BigDecimal.ZERO;
+            BigDecimal externalFee = externalOk ? quantity(external.getFee()) : BigDecimal.ZERO;
+            // 净方向总成交 = 内部对冲数量 + 净额订单成交数量
+            BigDecimal netSideFilled = crossedQty.add(externalQty);
+            BigDecimal netSideQuote = crossedQty.multiply(price).add(externalQuote);
+            boolean fullyFilled = request == null || (externalOk && FILLED.equals(external.getStatus()));
+
+            int index = 0;
+            for (Signal signal : signals) {
+                Order order;
+                if (!netSide.equals(signal.getSide())) {
+                    order = syntheticOrder(signal, index, signal.baseQty, signal.baseQty.multiply(price), BigDecimal.ZERO, FILLED);
+                } else {
+                    BigDecimal share = netSideQty.signum() == 0 ? BigDecimal.ZERO
+                            : signal.baseQty.divide(netSideQty, 16, RoundingMode.HALF_UP);
+                    BigDecimal filled = netSideFilled.multiply(share).setScale(SCALE, RoundingMode.DOWN);
+                    if (filled.signum() == 0) {
+                        // 净额订单被拒且没有内部对冲，与单独下单失败一样不改变策略状态
+                        signal.complete(null);
+                        index++;
+                        continue;
+                    }
+                    String status = fullyFilled ? FILLED : "PARTIALLY_FILLED";
+                    order = syntheticOrder(signal, index, filled,
+                            netSideQuote.multiply(share), externalFee.multiply(share), status);
+                    if (externalOk) {
+                        order.setOrderId(external.getOrderId());
+                        order.setFeeCurrency(external.getFeeCurrency());
+                    }
+                }
+                signal.complete(order);
+                index++;
+            }
+            log.info("信号轧差完成: symbol={}, 信号数={}, 内部对冲={}, 净额订单={}", signals.get(0).getSymbol(),
+                    signals.size(), crossedQty, request == null ? "无" : netSide + " " + (externalOk ? externalQty : BigDecimal.ZERO));
+        }
+
+        private Order syntheticOrder(Signal signal, int index, BigDecimal executedQty, BigDecimal quote, BigDecimal fee, String status) {
+            LocalDateTime now = LocalDateTime.now();
+            BigDecimal avgPrice = executedQty.signum() > 0 ? quote.divide(executedQty, SCALE, RoundingMode.HALF_UP) : price;
+            return Order.builder()
+                    .orderId("NET-" + batchId)
+                    .clientOrderId(batchId + "-" + index)
+                    .symbol(signal.getSymbol())
+                    .side(signal.getSide())
+                    .type("MARKET")
+                    .price(avgPrice)
+                    .origQty(signal.baseQty)
+                    .executedQty(executedQty)
+                    .cummulativeQuoteQty(quote.setScale(SCALE, RoundingMode.HALF_UP))
+                    .fee(fee.setScale(SCALE, RoundingMode.HALF_UP))
+                    .status(status)
+                    .simulated(false)
+                    .createTime(now)
+                    .updateTime(now)
+                    .build();
+        }
+
+        private static BigDecimal quantity(BigDecimal value) {
+            return value == null ? BigDecimal.ZERO : value;
+        }
+    }
+
+    /**
+     * 一个策略的交易信号：买入指定计价货币金额，卖出指定数量
+     */
+    public static final class Signal {
+        private final String symbol;
+        private final String side;
+        private final BigDecimal amount;
+        private final BigDecimal quantity;
+        private final BigDecimal referencePrice;
+        private final Consumer<Order> callback;
+        // 折算为交易货币的数量
+        private BigDecimal baseQty;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        public Signal(String symbol, String side, BigDecimal amount, BigDecimal quantity,
+                      BigDecimal referencePrice, Consumer<Order> callback) {
+            this.symbol = symbol;
+            this.side = side;
+            this.amount = amount;
+            this.quantity = quantity;
+            this.referencePrice = referencePrice;
+            this.callback = callback;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public String getSide() {
+            return side;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public BigDecimal getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getReferencePrice() {
+            return referencePrice;
+        }
+
+        public Consumer<Order> getCallback() {
+            return callback;
+        }
+
+        /**
+         * 回调成交结果，只有第一次调用生效
+         *
+         * @param order 分摊到该信号的订单，下单失败或没有成交时为null
+         */
+        public void complete(Order order) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                callback.accept(order);
+            } catch (Exception e) {
+                log.error("处理信号成交结果失败: symbol={}, side={}, error={}", symbol, side, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.model.entity.RealTimeOrderEntity;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.model.market.Candlestick;
+
+/**
+ * 实时策略成交记录器
+ * 设置到{@link RealTimeStrategyManager}后，信号下单的结果交给记录器，不再写入数据库，供历史回放使用
+ */
+@FunctionalInterface
+public interface TradeRecorder {
+
+    /**
+     * 记录一次信号下单
+     *
+     * @param state       已按成交结果更新的策略状态
+     * @param candlestick 触发信号的K线
+     * @param order       订单记录
+     */
+    void record(RealTimeStrategyEntity state, Candlestick candlestick, RealTimeOrderEntity order);
+}
@@ -0,0 +1,407 @@
+package com.okx.trading.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 行情日志
+ * 把收到的每条行情消息追加写入内存映射的二进制文件，供审计和按时间窗口回放。
+ * <p>
+ * 文件按天滚动，一天内写满一个段后开启下一个段，段文件名为 yyyyMMdd-序号.journal。
+ * 每条记录的格式为：记录长度(int)、接收时间(long)、交易所时间(long)、频道长度(short)、交易对长度(short)、
+ * 消息长度(int)，之后依次是频道、交易对和消息的UTF-8字节。记录长度在记录内容写完后才写入，
+ * 读取时遇到长度为0即认为到达段末尾，进程中途退出不会留下半条记录。
+ * <p>
+ * 每个段配有一个同名的 .index 稀疏索引，每隔固定时间记录一次（接收时间，记录偏移），
+ * 按时间窗口读取时先用索引定位到窗口开始前最近的记录，不必从段头扫描。
+ * <p>
+ * 写入只是向映射内存复制字节，不产生系统调用，可以直接在WebSocket读线程上调用
+ */
+public class MarketDataJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataJournal.class);
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String INDEX_SUFFIX = ".index";
+    /**
+     * 记录头：长度、接收时间、交易所时间、频道长度、交易对长度、消息长度
+     */
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 2 + 2 + 4;
+    /**
+     * 索引项：接收时间、记录偏移
+     */
+    private static final int INDEX_ENTRY_BYTES = 8 + 4;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long indexIntervalMillis;
+    private final int indexBytes;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private Segment segment;
+    private long lastIndexedMillis = Long.MIN_VALUE;
+    private long records;
+    private long bytes;
+    private long dropped;
+    private boolean closed;
+
+    /**
+     * @param directory           日志目录，不存在时自动创建
+     * @param segmentBytes        单个段文件的大小，单个内存映射最大为2GB
+     * @param indexIntervalMillis 索引间隔（毫秒）
+     */
+    public MarketDataJournal(Path directory, long segmentBytes, long indexIntervalMillis) {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("行情日志段大小必须在 " + HEADER_BYTES + " 字节到 2GB 之间: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) segmentBytes;
+        this.indexIntervalMillis = Math.max(1, indexIntervalMillis);
+        // 一天的索引项足够覆盖一个段，段写满前不会用完
+        this.indexBytes = (int) Math.min(Integer.MAX_VALUE,
+                (86_400_000L / this.indexIntervalMillis + 2) * INDEX_ENTRY_BYTES);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建行情日志目录失败: " + directory, e);
+        }
+    }
+
+    /**
+     * 记录一条收到的消息，频道、交易对和交易所时间从消息文本中提取
+     * 接收时间在持有写锁后才取，多个连接并发写入时段内的接收时间保持递增，按时间窗口读取依赖这个顺序
+     */
+    public synchronized void append(String frame) {
+        append(frame, System.currentTimeMillis());
+    }
+
+    /**
+     * 记录一条消息
+     *
+     * @param frame       消息文本
+     * @param receiveTime 接收时间（毫秒）
+     * @return 是否写入，日志关闭或写入失败时返回false
+     */
+    public synchronized boolean append(String frame, long receiveTime) {
+        if (closed) {
+            return false;
+        }
+        byte[] channel = ascii(extractString(frame, "\"channel\":\""));
+        byte[] instId = ascii(extractString(frame, "\"instId\":\""));
+        byte[] payload = frame.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + channel.length + instId.length + payload.length;
+        try {
+            if (length > segmentBytes) {
+                dropped++;
+                log.warn("行情消息超过日志段大小，未记录: {} 字节", length);
+                return false;
+            }
+            LocalDate day = Instant.ofEpochMilli(receiveTime).atZone(zone).toLocalDate();
+            if (segment == null || !segment.day.equals(day) || segment.data.remaining() < length + 4) {
+                roll(day);
+            }
+            MappedByteBuffer data = segment.data;
+            int position = data.position();
+            data.position(position + 4);
+            data.putLong(receiveTime);
+            data.putLong(extractExchangeTime(frame));
+            data.putShort((short) channel.length);
+            data.putShort((short) instId.length);
+            data.putInt(payload.length);
+            data.put(channel);
+            data.put(instId);
+            data.put(payload);
+            data.putInt(position, length);
+
+            if (receiveTime - lastIndexedMillis >= indexIntervalMillis && segment.index.remaining() >= INDEX_ENTRY_BYTES * 2) {
+                segment.index.putLong(receiveTime);
+                segment.index.putInt(position);
+                lastIndexedMillis = receiveTime;
+            }
+            records++;
+            bytes += length;
+            return true;
+        } catch (Exception e) {
+            dropped++;
+            log.error("写入行情日志失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 读取接收时间在[from, to]内的记录，按写入顺序交给consumer
+     *
+     * @return 读取的记录数
+     */
+    public long read(long from, long to, Consumer<Record> consumer) {
+        LocalDate firstDay = Instant.ofEpochMilli(from).atZone(zone).toLocalDate();
+        LocalDate lastDay = Instant.ofEpochMilli(to).atZone(zone).toLocalDate();
+        long count = 0;
+        for (Path file : listSegments(firstDay, lastDay)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                data.position(seekIndex(indexFile(file), from));
+                while (data.remaining() >= HEADER_BYTES) {
+                    int position = data.position();
+                    int length = data.getInt();
+                    if (length <= 0 || position + length > data.limit()) {
+                        break;
+                    }
+                    long receiveTime = data.getLong();
+                    if (receiveTime > to) {
+                        return count;
+                    }
+                    if (receiveTime < from) {
+                        data.position(position + length);
+                        continue;
+                    }
+                    long exchangeTime = data.getLong();
+                    byte[] channelBytes = new byte[data.getShort()];
+                    byte[] instIdBytes = new byte[data.getShort()];
+                    byte[] payload = new byte[data.getInt()];
+                    data.get(channelBytes);
+                    data.get(instIdBytes);
+                    data.get(payload);
+                    consumer.accept(new Record(receiveTime, exchangeTime,
+                            new String(channelBytes, StandardCharsets.US_ASCII),
+                            new String(instIdBytes, StandardCharsets.US_ASCII),
+                            new String(payload, StandardCharsets.UTF_8)));
+                    count++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取行情日志失败: " + file, e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 把已写入的内容刷到磁盘
+     */
+    public synchronized void force() {
+        if (segment != null) {
+            segment.data.force();
+            segment.index.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeSegment();
+        log.info("行情日志已关闭，共记录 {} 条消息，{} 字节，未记录 {} 条", records, bytes, dropped);
+    }
+
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 开启新的段，同一天内序号递增，不会覆盖已有的段
+     */
+    private void roll(LocalDate day) throws IOException {
+        closeSegment();
+        int sequence = 0;
+        for (Path file : listSegments(day, day)) {
+            sequence = Math.max(sequence, sequenceOf(file) + 1);
+        }
+        Path file = directory.resolve(DAY.format(day) + "-" + String.format("%04d", sequence) + SEGMENT_SUFFIX);
+        segment = new Segment(day, map(file, segmentBytes), map(indexFile(file), indexBytes));
+        lastIndexedMillis = Long.MIN_VALUE;
+        log.info("行情日志开启新段: {}", file.getFileName());
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            segment.data.force();
+            segment.index.force();
+            segment = null;
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭后仍然有效；新文件按映射大小扩展，未写入的部分读出为0
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 在索引中查找接收时间不晚于from的最后一个索引项，返回其记录偏移
+     */
+    private static int seekIndex(Path indexFile, long from) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return 0;
+        }
+        int offset = 0;
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (index.remaining() >= INDEX_ENTRY_BYTES) {
+                long time = index.getLong();
+                int position = index.getInt();
+                if (time == 0 || time > from) {
+                    break;
+                }
+                offset = position;
+            }
+        }
+        return offset;
+    }
+
+    private List<Path> listSegments(LocalDate firstDay, LocalDate lastDay) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String day = file.getFileName().toString().substring(0, 8);
+                if (day.compareTo(DAY.format(firstDay)) >= 0 && day.compareTo(DAY.format(lastDay)) <= 0) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("列出行情日志段失败: " + directory, e);
+        }
+        // 文件名为日期加定长序号，按名称排序即按写入顺序
+        files.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        return files;
+    }
+
+    private static int sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(9, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Path indexFile(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return segmentFile.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    /**
+     * 提取key之后到下一个引号之间的字符串，不解析整条JSON
+     */
+    static String extractString(String frame, String key) {
+        int start = frame.indexOf(key);
+        if (start < 0) {
+            return "";
+        }
+        start += key.length();
+        int end = frame.indexOf('"', start);
+        return end < 0 ? "" : frame.substring(start, end);
+    }
+
+    /**
+     * 提取交易所时间：对象格式的数据取ts字段，K线等数组格式的数据取第一个元素
+     */
+    static long extractExchangeTime(String frame) {
+        String ts = extractString(frame, "\"ts\":\"");
+        if (ts.isEmpty()) {
+            ts = extractString(frame, "\"data\":[[\"");
+        }
+        if (ts.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(ts);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Segment {
+        final LocalDate day;
+        final MappedByteBuffer data;
+        final MappedByteBuffer index;
+
+        Segment(LocalDate day, MappedByteBuffer data, MappedByteBuffer index) {
+            this.day = day;
+            this.data = data;
+            this.index = index;
+        }
+    }
+
+    /**
+     * 日志记录
+     */
+    public static final class Record {
+
+        private final long receiveTime;
+        private final long exchangeTime;
+        private final String channel;
+        private final String instId;
+        private final String payload;
+
+        Record(long receiveTime, long exchangeTime, String channel, String instId, String payload) {
+            this.receiveTime = receiveTime;
+            this.exchangeTime = exchangeTime;
+            this.channel = channel;
+            this.instId = instId;
+            this.payload = payload;
+        }
+
+        /**
+         * 本地接收时间（毫秒）
+         */
+        public long getReceiveTime() {
+            return receiveTime;
+        }
+
+        /**
+         * 交易所时间（毫秒），消息中没有时为0
+         */
+        public long getExchangeTime() {
+            return exchangeTime;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getInstId() {
+            return instId;
+        }
+
+        /**
+         * 原始消息文本
+         */
+        public String getPayload() {
+            return payload;
+        }
+    }
+}
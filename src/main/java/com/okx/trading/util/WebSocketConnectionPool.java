@@ -0,0 +1,688 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.okx.trading.config.OkxApiConfig;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket分片连接池
+ * 同一个频道地址建立多个连接，订阅按交易对哈希分配到各连接，同一交易对的所有频道落在同一个连接上。
+ * 订阅和取消订阅先进入各连接的待发送队列，在合并窗口结束时按OKX的限制（每个请求的参数个数和字节数、
+ * 每个连接每小时的请求数）合并成多参数的请求发送。
+ * <p>
+ * 连接断开时，它上面的订阅临时迁移到其他在线的连接，数据不中断；连接恢复后迁回并重新发送订阅。
+ * 只有一个连接时与原来的行为一致：断开期间订阅保留，恢复后一次性重新订阅
+ */
+public class WebSocketConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketConnectionPool.class);
+
+    private static final long ONE_HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 连接池事件回调
+     */
+    public interface Callback {
+
+        /**
+         * 收到文本消息，在连接的读线程上调用
+         */
+        void onMessage(String text);
+
+        /**
+         * 分片连接建立
+         *
+         * @param shard     分片序号
+         * @param reconnect 是否为断线后的重连
+         */
+        void onShardOpen(int shard, boolean reconnect);
+    }
+
+    private final String name;
+    private final String url;
+    private final WebSocket.Factory factory;
+    private final ScheduledExecutorService scheduler;
+    private final Callback callback;
+    private final int maxArgsPerFrame;
+    private final int maxFrameBytes;
+    private final int maxRequestsPerHour;
+    private final long batchMillis;
+    private final long idleTimeoutMillis;
+
+    private final Shard[] shards;
+    // 所有订阅，key为频道:交易对，按订阅顺序保存
+    private final Map<String, Topic> topics = new LinkedHashMap<>();
+    private volatile boolean shutdown;
+
+    /**
+     * @param name              连接池名称，用于日志和统计
+     * @param url               频道地址
+     * @param shardCount        连接数，小于1时按1处理
+     * @param config            订阅合并和限流配置，非正数的配置项使用默认值
+     * @param idleTimeoutMillis 连接超过该时间没有收到消息即重连，0表示不检查
+     * @param factory           WebSocket工厂，通常是OkHttpClient
+     * @param scheduler         合并发送和重连使用的调度器
+     * @param callback          事件回调
+     */
+    public WebSocketConnectionPool(String name, String url, int shardCount, OkxApiConfig.WebSocketConfig config,
+                                   long idleTimeoutMillis, WebSocket.Factory factory,
+                                   ScheduledExecutorService scheduler, Callback callback) {
+        this.name = name;
+        this.url = url;
+        this.factory = factory;
+        this.scheduler = scheduler;
+        this.callback = callback;
+        this.maxArgsPerFrame = config.getMaxArgsPerFrame() > 0 ? config.getMaxArgsPerFrame() : 100;
+        this.maxFrameBytes = config.getMaxFrameBytes() > 0 ? config.getMaxFrameBytes() : 60000;
+        this.maxRequestsPerHour = config.getMaxRequestsPerHour() > 0 ? config.getMaxRequestsPerHour() : 480;
+        this.batchMillis = Math.max(0, config.getSubscribeBatchMillis());
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * 建立所有分片连接
+     */
+    public void start() {
+        log.info("{}建立 {} 个连接: {}", name, shards.length, url);
+        for (Shard shard : shards) {
+            connect(shard);
+        }
+    }
+
+    /**
+     * 订阅，已订阅的主题会重新发送一次订阅请求以获取最新快照
+     *
+     * @param arg 订阅参数，包含channel和instId
+     * @return 是否为新增的订阅
+     */
+    public synchronized boolean subscribe(JSONObject arg) {
+        String key = topicKey(arg);
+        Topic topic = topics.get(key);
+        boolean added = topic == null;
+        if (added) {
+            int home = Math.floorMod(hashKey(arg, key).hashCode(), shards.length);
+            topic = new Topic(key, arg, home);
+            Shard fallback = shards[home].connected ? null : findFallback(home);
+            topic.current = fallback == null ? home : fallback.index;
+            topics.put(key, topic);
+        }
+        Shard shard = shards[topic.current];
+        if (shard.connected) {
+            shard.pendingUnsubscribe.remove(key);
+            shard.pendingSubscribe.put(key, topic.arg);
+            scheduleFlush(shard, batchMillis);
+        }
+        return added;
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @param arg 订阅参数，包含channel和instId
+     * @return 是否存在该订阅
+     */
+    public synchronized boolean unsubscribe(JSONObject arg) {
+        String key = topicKey(arg);
+        Topic topic = topics.remove(key);
+        if (topic == null) {
+            return false;
+        }
+        Shard shard = shards[topic.current];
+        // 还没有发出的订阅直接撤销，已发出的才需要取消订阅请求
+        if (shard.pendingSubscribe.remove(key) == null && shard.connected) {
+            shard.pendingUnsubscribe.put(key, topic.arg);
+            scheduleFlush(shard, batchMillis);
+        }
+        return true;
+    }
+
+    /**
+     * 向所有在线连接发送ping，超过空闲时间没有收到消息的连接重连
+     */
+    public void ping() {
+        long now = System.currentTimeMillis();
+        for (Shard shard : shards) {
+            WebSocket socket = shard.socket;
+            if (!shard.connected || socket == null) {
+                continue;
+            }
+            if (idleTimeoutMillis > 0 && now - shard.lastMessageTime > idleTimeoutMillis) {
+                log.warn("{}连接 #{} 超过 {} 秒没有收到消息，触发重连", name, shard.index, idleTimeoutMillis / 1000);
+                markDown(shard, shard.generation);
+                continue;
+            }
+            if (!socket.send("ping")) {
+                log.warn("{}连接 #{} 发送ping失败，将尝试重连", name, shard.index);
+                markDown(shard, shard.generation);
+            }
+        }
+    }
+
+    /**
+     * 检查所有分片，未连接且没有在重连的分片安排重连
+     */
+    public void checkConnections() {
+        for (Shard shard : shards) {
+            if (!shard.connected) {
+                scheduleReconnect(shard);
+            }
+        }
+    }
+
+    /**
+     * 是否至少有一个连接在线
+     */
+    public boolean isConnected() {
+        for (Shard shard : shards) {
+            if (shard.connected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否所有连接都在线
+     */
+    public boolean isFullyConnected() {
+        for (Shard shard : shards) {
+            if (!shard.connected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 订阅当前所在的分片序号，未订阅返回-1
+     */
+    public synchronized int getShardOf(JSONObject arg) {
+        Topic topic = topics.get(topicKey(arg));
+        return topic == null ? -1 : topic.current;
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Shard shard : shards) {
+            WebSocket socket = shard.socket;
+            if (socket != null) {
+                socket.close(1000, "Application shutting down");
+            }
+        }
+    }
+
+    /**
+     * 各连接的吞吐统计
+     */
+    public synchronized List<ConnectionStats> getStats() {
+        long now = System.currentTimeMillis();
+        int[] topicCounts = new int[shards.length];
+        for (Topic topic : topics.values()) {
+            topicCounts[topic.current]++;
+        }
+        List<ConnectionStats> stats = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            long connectedMillis = shard.connected ? Math.max(1, now - shard.connectedSince) : 0;
+            stats.add(new ConnectionStats(name, shard.index, shard.connected, topicCounts[shard.index],
+                    shard.messages.get(), shard.bytes.get(),
+                    connectedMillis == 0 ? 0 : shard.messagesSinceConnect.get() * 1000.0 / connectedMillis,
+                    shard.framesSent.get(), shard.argsSent.get(), shard.reconnects.get(),
+                    shard.pendingSubscribe.size() + shard.pendingUnsubscribe.size()));
+        }
+        return stats;
+    }
+
+    private void connect(Shard shard) {
+        if (shutdown) {
+            return;
+        }
+        // 先使旧连接的回调失效，再关闭旧连接，旧连接迟到的关闭事件不会影响新连接
+        int generation;
+        WebSocket previous;
+        synchronized (this) {
+            generation = ++shard.generation;
+            previous = shard.socket;
+            shard.socket = null;
+        }
+        if (previous != null) {
+            try {
+                previous.close(1000, "Reconnecting");
+            } catch (Exception e) {
+                log.debug("关闭{}旧连接 #{} 失败: {}", name, shard.index, e.getMessage());
+            }
+        }
+        try {
+            Request request = new Request.Builder().url(url).build();
+            WebSocket socket = factory.newWebSocket(request, new ShardListener(shard, generation));
+            synchronized (this) {
+                if (shard.generation == generation) {
+                    shard.socket = socket;
+                }
+            }
+        } catch (Exception e) {
+            log.error("创建{}连接 #{} 失败: {}", name, shard.index, e.getMessage(), e);
+            markDown(shard, generation);
+        }
+    }
+
+    private void onOpen(Shard shard, WebSocket socket, int generation) {
+        boolean reconnect;
+        synchronized (this) {
+            if (shard.generation != generation) {
+                return;
+            }
+            shard.socket = socket;
+            shard.connected = true;
+            shard.retryCount = 0;
+            shard.connectedSince = System.currentTimeMillis();
+            shard.lastMessageTime = shard.connectedSince;
+            shard.messagesSinceConnect.set(0);
+            reconnect = shard.everConnected;
+            shard.everConnected = true;
+            shard.pendingSubscribe.clear();
+            shard.pendingUnsubscribe.clear();
+            // 订阅请求数按连接限制，新连接重新计数
+            shard.requestTimes.clear();
+
+            int movedBack = 0;
+            for (Topic topic : topics.values()) {
+                if (topic.home == shard.index && topic.current != shard.index) {
+                    // 临时迁移到其他连接的订阅迁回本连接
+                    Shard temporary = shards[topic.current];
+                    if (temporary.connected && temporary.pendingSubscribe.remove(topic.key) == null) {
+                        temporary.pendingUnsubscribe.put(topic.key, topic.arg);
+                        scheduleFlush(temporary, batchMillis);
+                    }
+                    topic.current = shard.index;
+                    movedBack++;
+                }
+                if (topic.current == shard.index) {
+                    shard.pendingSubscribe.put(topic.key, topic.arg);
+                }
+            }
+            log.info("{}连接 #{} {}成功，待恢复订阅 {} 个，其中迁回 {} 个",
+                    name, shard.index, reconnect ? "重连" : "连接", shard.pendingSubscribe.size(), movedBack);
+            scheduleFlush(shard, 0);
+        }
+        callback.onShardOpen(shard.index, reconnect);
+    }
+
+    /**
+     * 标记连接断开：订阅迁移到其他在线连接，并安排重连
+     */
+    private void markDown(Shard shard, int generation) {
+        synchronized (this) {
+            if (shard.generation != generation) {
+                return;
+            }
+            boolean wasConnected = shard.connected;
+            shard.connected = false;
+            shard.pendingSubscribe.clear();
+            shard.pendingUnsubscribe.clear();
+            if (wasConnected) {
+                int moved = 0;
+                for (Topic topic : topics.values()) {
+                    if (topic.current != shard.index) {
+                        continue;
+                    }
+                    Shard fallback = findFallback(topic.home);
+                    if (fallback != null) {
+                        topic.current = fallback.index;
+                        fallback.pendingSubscribe.put(topic.key, topic.arg);
+                        scheduleFlush(fallback, 0);
+                        moved++;
+                    }
+                }
+                log.warn("{}连接 #{} 断开，{} 个订阅临时迁移到其他连接", name, shard.index, moved);
+            }
+        }
+        scheduleReconnect(shard);
+    }
+
+    /**
+     * 从home之后依次查找在线的连接
+     */
+    private Shard findFallback(int home) {
+        for (int k = 1; k < shards.length; k++) {
+            Shard candidate = shards[(home + k) % shards.length];
+            if (candidate.connected) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void scheduleReconnect(Shard shard) {
+        synchronized (this) {
+            if (shutdown || shard.reconnectScheduled || shard.connected) {
+                return;
+            }
+            shard.reconnectScheduled = true;
+        }
+        long delaySeconds = reconnectDelaySeconds(shard.retryCount++);
+        log.info("{}连接 #{} 将在 {} 秒后重连", name, shard.index, delaySeconds);
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                shard.reconnectScheduled = false;
+                if (shard.connected) {
+                    return;
+                }
+            }
+            shard.reconnects.incrementAndGet();
+            connect(shard);
+        }, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 重连延迟：首次1秒，之后2、4、6秒，再之后10秒，最多20秒
+     */
+    static long reconnectDelaySeconds(int retry) {
+        if (retry == 0) {
+            return 1;
+        } else if (retry <= 3) {
+            return retry * 2L;
+        } else if (retry <= 10) {
+            return 10;
+        }
+        return 20;
+    }
+
+    /**
+     * 安排一次合并发送，已安排的发送不晚于本次时直接复用；
+     * 已安排的发送更晚时（通常是限流推迟）改为更早的时间，发送时会重新检查限流
+     * 调用方需持有连接池锁
+     */
+    private void scheduleFlush(Shard shard, long delayMillis) {
+        long dueAt = System.currentTimeMillis() + delayMillis;
+        if (shard.flushFuture != null && !shard.flushFuture.isDone()) {
+            if (shard.flushDueAt <= dueAt) {
+                return;
+            }
+            shard.flushFuture.cancel(false);
+        }
+        shard.flushDueAt = dueAt;
+        shard.flushFuture = scheduler.schedule(() -> flush(shard), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 把待发送的取消订阅和订阅合并成多参数请求发送，受每个请求的参数个数、字节数和每小时请求数限制
+     */
+    synchronized void flush(Shard shard) {
+        shard.flushFuture = null;
+        WebSocket socket = shard.socket;
+        if (!shard.connected || socket == null) {
+            return;
+        }
+        // 先取消订阅再订阅，迁回的主题不会在两个连接上重复推送太久
+        if (sendFrames(shard, socket, "unsubscribe", shard.pendingUnsubscribe)) {
+            sendFrames(shard, socket, "subscribe", shard.pendingSubscribe);
+        }
+    }
+
+    private boolean sendFrames(Shard shard, WebSocket socket, String op, Map<String, JSONObject> pending) {
+        while (!pending.isEmpty()) {
+            long now = System.currentTimeMillis();
+            while (!shard.requestTimes.isEmpty() && now - shard.requestTimes.peekFirst() >= ONE_HOUR_MILLIS) {
+                shard.requestTimes.pollFirst();
+            }
+            if (shard.requestTimes.size() >= maxRequestsPerHour) {
+                long wait = shard.requestTimes.peekFirst() + ONE_HOUR_MILLIS - now;
+                log.warn("{}连接 #{} 达到每小时 {} 个订阅请求的上限，{} 个参数推迟 {} 秒发送",
+                        name, shard.index, maxRequestsPerHour, pending.size(), wait / 1000);
+                scheduleFlush(shard, wait);
+                return false;
+            }
+
+            JSONArray args = new JSONArray();
+            // {"op":"subscribe","args":[]}的固定开销
+            int bytes = op.length() + 20;
+            List<String> keys = new ArrayList<>();
+            for (Map.Entry<String, JSONObject> entry : pending.entrySet()) {
+                int argBytes = entry.getValue().toJSONString().getBytes(StandardCharsets.UTF_8).length + 1;
+                if (!args.isEmpty() && (args.size() >= maxArgsPerFrame || bytes + argBytes > maxFrameBytes)) {
+                    break;
+                }
+                args.add(entry.getValue());
+                keys.add(entry.getKey());
+                bytes += argBytes;
+            }
+            JSONObject frame = new JSONObject();
+            frame.put("op", op);
+            frame.put("args", args);
+            if (!socket.send(frame.toJSONString())) {
+                log.warn("{}连接 #{} 发送{}请求失败，等待重连后恢复", name, shard.index, op);
+                return false;
+            }
+            for (String key : keys) {
+                pending.remove(key);
+            }
+            shard.requestTimes.addLast(now);
+            shard.framesSent.incrementAndGet();
+            shard.argsSent.addAndGet(args.size());
+            log.debug("{}连接 #{} 发送{}请求，{} 个参数", name, shard.index, op, args.size());
+        }
+        return true;
+    }
+
+    private static String topicKey(JSONObject arg) {
+        String channel = arg.getString("channel");
+        String instId = arg.getString("instId");
+        return channel != null && instId != null ? channel + ":" + instId : arg.toJSONString();
+    }
+
+    private static String hashKey(JSONObject arg, String key) {
+        String instId = arg.getString("instId");
+        return instId != null ? instId : key;
+    }
+
+    private class ShardListener extends WebSocketListener {
+
+        private final Shard shard;
+        private final int generation;
+
+        ShardListener(Shard shard, int generation) {
+            this.shard = shard;
+            this.generation = generation;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            WebSocketConnectionPool.this.onOpen(shard, webSocket, generation);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            if (shard.generation != generation) {
+                return;
+            }
+            shard.lastMessageTime = System.currentTimeMillis();
+            shard.messages.incrementAndGet();
+            shard.messagesSinceConnect.incrementAndGet();
+            shard.bytes.addAndGet(text.length());
+            if ("ping".equals(text)) {
+                webSocket.send("pong");
+                return;
+            }
+            callback.onMessage(text);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            log.error("{}连接 #{} 失败: {}", name, shard.index, t.getMessage());
+            markDown(shard, generation);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            log.info("{}连接 #{} 关闭: {}, {}", name, shard.index, code, reason);
+            markDown(shard, generation);
+        }
+    }
+
+    private static final class Topic {
+        final String key;
+        final JSONObject arg;
+        final int home;
+        int current;
+
+        Topic(String key, JSONObject arg, int home) {
+            this.key = key;
+            this.arg = arg;
+            this.home = home;
+        }
+    }
+
+    static final class Shard {
+        final int index;
+        volatile WebSocket socket;
+        volatile boolean connected;
+        volatile int generation;
+        volatile long lastMessageTime = System.currentTimeMillis();
+        volatile long connectedSince;
+        boolean everConnected;
+        boolean reconnectScheduled;
+        ScheduledFuture<?> flushFuture;
+        long flushDueAt;
+        int retryCount;
+        final Map<String, JSONObject> pendingSubscribe = new LinkedHashMap<>();
+        final Map<String, JSONObject> pendingUnsubscribe = new LinkedHashMap<>();
+        final Deque<Long> requestTimes = new ArrayDeque<>();
+        final AtomicLong messages = new AtomicLong();
+        final AtomicLong messagesSinceConnect = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong framesSent = new AtomicLong();
+        final AtomicLong argsSent = new AtomicLong();
+        final AtomicLong reconnects = new AtomicLong();
+
+        Shard(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * 单个连接的统计
+     */
+    public static final class ConnectionStats {
+
+        private final String pool;
+        private final int shard;
+        private final boolean connected;
+        private final int topics;
+        private final long messages;
+        private final long bytes;
+        private final double messagesPerSecond;
+        private final long framesSent;
+        private final long argsSent;
+        private final long reconnects;
+        private final int pendingArgs;
+
+        ConnectionStats(String pool, int shard, boolean connected, int topics, long messages, long bytes,
+                        double messagesPerSecond, long framesSent, long argsSent, long reconnects, int pendingArgs) {
+            this.pool = pool;
+            this.shard = shard;
+            this.connected = connected;
+            this.topics = topics;
+            this.messages = messages;
+            this.bytes = bytes;
+            this.messagesPerSecond = messagesPerSecond;
+            this.framesSent = framesSent;
+            this.argsSent = argsSent;
+            this.reconnects = reconnects;
+            this.pendingArgs = pendingArgs;
+        }
+
+        public String getPool() {
+            return pool;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        /**
+         * 当前分配在该连接上的订阅数
+         */
+        public int getTopics() {
+            return topics;
+        }
+
+        /**
+         * 累计收到的消息数
+         */
+        public long getMessages() {
+            return messages;
+        }
+
+        /**
+         * 累计收到的字符数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 本次连接以来的平均每秒消息数
+         */
+        public double getMessagesPerSecond() {
+            return messagesPerSecond;
+        }
+
+        /**
+         * 累计发送的订阅/取消订阅请求数
+         */
+        public long getFramesSent() {
+            return framesSent;
+        }
+
+        /**
+         * 累计发送的订阅参数个数，与请求数之比即合并程度
+         */
+        public long getArgsSent() {
+            return argsSent;
+        }
+
+        public long getReconnects() {
+            return reconnects;
+        }
+
+        /**
+         * 等待发送的订阅参数个数
+         */
+        public int getPendingArgs() {
+            return pendingArgs;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -29,17 +31,29 @@ import java.util.function.Consumer;
 /**
  * WebSocket工具类
  * 处理与OKX交易所的WebSocket连接和消息
+ * 公共频道和业务频道各使用一个分片连接池，订阅按交易对分配到池内的多个连接；私有频道使用单个连接
  */
 @Slf4j
 @Component
 public class WebSocketUtil{
 
+    /**
+     * 公共频道超过该时间没有收到消息即重连
+     */
+    private static final long PUBLIC_IDLE_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * 业务频道可能长时间没有消息，容忍度更高
+     */
+    private static final long BUSINESS_IDLE_TIMEOUT_MILLIS = 300000;
+
     private final OkxApiConfig okxApiConfig;
     private final OkHttpClient okHttpClient;
     private final ApplicationEventPublisher applicationEventPublisher;
 
-    private WebSocket publicWebSocket;
-    private WebSocket bussinessWebSocket;
+    // 公共频道和业务频道的分片连接池
+    private final WebSocketConnectionPool publicPool;
+    private final WebSocketConnectionPool businessPool;
     private WebSocket privateWebSocket;
 
     private final Map<String,Consumer<JSONObject>> messageHandlers = new ConcurrentHashMap<>();
@@ -47,32 +61,22 @@ public class WebSocketUtil{
     private final ScheduledExecutorService reconnectScheduler;
 
     // 添加队列存储待执行的操作
-    private final ConcurrentLinkedQueue<PendingOperation> publicPendingOperations = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<PendingOperation> privatePendingOperations = new ConcurrentLinkedQueue<>();
 
     // 保存已订阅的主题
-    private final Set<String> publicSubscribedTopics = ConcurrentHashMap.newKeySet();
     private final Set<String> privateSubscribedTopics = ConcurrentHashMap.newKeySet();
 
     // 连接状态标志
-    private final AtomicBoolean publicConnected = new AtomicBoolean(false);
     private final AtomicBoolean privateConnected = new AtomicBoolean(false);
-    private final AtomicBoolean bussinessConnected = new AtomicBoolean(false);
 
     // 重连计数器 - 持久化重试状态
-    private final AtomicInteger publicRetryCount = new AtomicInteger(0);
     private final AtomicInteger privateRetryCount = new AtomicInteger(0);
-    private final AtomicInteger businessRetryCount = new AtomicInteger(0);
 
     // 最后接收消息时间，用于检测连接活跃度
-    private final AtomicLong lastPublicMessageTime = new AtomicLong(System.currentTimeMillis());
     private final AtomicLong lastPrivateMessageTime = new AtomicLong(System.currentTimeMillis());
-    private final AtomicLong lastBusinessMessageTime = new AtomicLong(System.currentTimeMillis());
 
     // 重连锁，防止并发重连
-    private final Object publicReconnectLock = new Object();
     private final Object privateReconnectLock = new Object();
-    private final Object businessReconnectLock = new Object();
 
     // 添加静态Logger以解决编译问题
     private static final Logger logger = org.slf4j.LoggerFactory.getLogger(WebSocketUtil.class);
@@ -84,6 +88,10 @@ public class WebSocketUtil{
     // 添加重连状态管理
     private final Set<String> reconnectingChannels = ConcurrentHashMap.newKeySet();
 
+    // 行情日志，未开启时为null
+    @Autowired(required = false)
+    private MarketDataJournal marketDataJournal;
+
     @Autowired
     public WebSocketUtil(OkxApiConfig okxApiConfig, @Qualifier("webSocketHttpClient") OkHttpClient okHttpClient, ApplicationEventPublisher applicationEventPublisher,
                          @Qualifier("websocketPingScheduler") ScheduledExecutorService pingScheduler,
@@ -93,6 +101,34 @@ public class WebSocketUtil{
         this.applicationEventPublisher = applicationEventPublisher;
         this.pingScheduler = pingScheduler;
         this.reconnectScheduler = reconnectScheduler;
+        // 连接池在init时才建立连接，之前的订阅先记录下来，连接建立后一次性发送
+        this.publicPool = createPool("公共频道", okxApiConfig.getWs().getPublicChannel(),
+            okxApiConfig.getWs().getPublicShards(), PUBLIC_IDLE_TIMEOUT_MILLIS, false);
+        this.businessPool = createPool("业务频道", okxApiConfig.getWs().getBussinessChannel(),
+            okxApiConfig.getWs().getBusinessShards(), BUSINESS_IDLE_TIMEOUT_MILLIS, true);
+    }
+
+    /**
+     * 创建分片连接池，消息统一交给handleMessage处理
+     */
+    private WebSocketConnectionPool createPool(String name, String url, int shards, long idleTimeoutMillis, boolean business){
+        return new WebSocketConnectionPool(name, url, shards, okxApiConfig.getWs(), idleTimeoutMillis, okHttpClient, reconnectScheduler,
+            new WebSocketConnectionPool.Callback(){
+                @Override
+                public void onMessage(String text){
+                    MarketDataJournal journal = marketDataJournal;
+                    // pong等心跳消息不记录
+                    if(journal != null && text.startsWith("{")){
+                        journal.append(text);
+                    }
+                    handleMessage(text);
+                }
+
+                @Override
+                public void onShardOpen(int shard, boolean reconnect){
+                    onPoolShardOpen(business, reconnect);
+                }
+            });
     }
 
     /**
@@ -119,20 +155,20 @@ public class WebSocketUtil{
         try{
             if(okxApiConfig.isWebSocketMode()){
                 logger.info("初始化WebSocket连接，模式: {}", okxApiConfig.getConnectionMode());
-                logger.info("公共频道URL: {}", okxApiConfig.getWs().getPublicChannel());
-                logger.info("业务频道URL: {}", okxApiConfig.getWs().getBussinessChannel());
+                logger.info("公共频道URL: {}, 连接数: {}", okxApiConfig.getWs().getPublicChannel(), publicPool.getShardCount());
+                logger.info("业务频道URL: {}, 连接数: {}", okxApiConfig.getWs().getBussinessChannel(), businessPool.getShardCount());
                 logger.info("私有频道URL: {}", okxApiConfig.getWs().getPrivateChannel());
 
                 // 连接公共频道
                 try{
-                    connectPublicChannel();
+                    publicPool.start();
                 }catch(Exception e){
                     logger.error("连接公共频道失败: {}", e.getMessage(), e);
                 }
 
                 // 连接业务频道
                 try{
-                    connectBussinessChannel();
+                    businessPool.start();
                 }catch(Exception e){
                     logger.error("连接业务频道失败: {}", e.getMessage(), e);
                 }
@@ -176,13 +212,8 @@ public class WebSocketUtil{
             reconnectScheduler.shutdownNow();
         }
 
-        if(publicWebSocket != null){
-            publicWebSocket.close(1000, "Application shutting down");
-        }
-
-        if(bussinessWebSocket != null){
-            bussinessWebSocket.close(1000, "Application shutting down");
-        }
+        publicPool.shutdown();
+        businessPool.shutdown();
 
         if(privateWebSocket != null){
             privateWebSocket.close(1000, "Application shutting down");
@@ -190,113 +221,26 @@ public class WebSocketUtil{
     }
 
     /**
-     * 连接bussiness频道
-     */
-    private void connectBussinessChannel(){
-        try{
-            Request request = new Request.Builder()
-                .url(okxApiConfig.getWs().getBussinessChannel())
-                .build();
-
-            bussinessWebSocket = okHttpClient.newWebSocket(request, new WebSocketListener(){
-                @Override
-                public void onOpen(WebSocket webSocket, Response response){
-                    logger.info("业务频道WebSocket连接成功");
-                    bussinessConnected.set(true);
-                    lastBusinessMessageTime.set(System.currentTimeMillis());
-                    
-                    // 重连成功，重置重试计数器
-                    businessRetryCount.set(0);
-                    
-                    // 恢复之前的操作
-                    restorePublicOperations();
-                }
-
-                @Override
-                public void onMessage(WebSocket webSocket, String text){
-                    lastBusinessMessageTime.set(System.currentTimeMillis());
-                    handleMessage(text);
-                }
-
-                @Override
-                public void onFailure(WebSocket webSocket, Throwable t, Response response){
-                    logger.error("业务频道WebSocket连接失败", t);
-                    bussinessConnected.set(false);
-                    // 尝试重连
-                    scheduleBusinessReconnect();
-                }
-
-                @Override
-                public void onClosed(WebSocket webSocket, int code, String reason){
-                    logger.info("业务频道WebSocket连接关闭: {}, {}", code, reason);
-                    bussinessConnected.set(false);
-                    // 如果不是应用主动关闭，尝试重连
-                    if(code != 1000){
-                        scheduleBusinessReconnect();
-                    }
-                }
-            });
-        }catch(Exception e){
-            logger.error("创建业务频道WebSocket连接失败", e);
-            bussinessConnected.set(false);
-            scheduleBusinessReconnect();
-        }
-    }
-
-    /**
-     * 连接公共频道
+     * 连接池中的连接建立后发布重连事件
+     * 公共和业务频道的所有连接都在线时发布公共频道事件；业务频道连接断线重连后另外发布业务频道事件
      */
-    private void connectPublicChannel(){
+    private void onPoolShardOpen(boolean business, boolean reconnect){
         try{
-            Request request = new Request.Builder()
-                .url(okxApiConfig.getWs().getPublicChannel())
-                .build();
-
-            publicWebSocket = okHttpClient.newWebSocket(request, new WebSocketListener(){
-                @Override
-                public void onOpen(WebSocket webSocket, Response response){
-                    logger.info("公共频道WebSocket连接成功");
-                    publicConnected.set(true);
-                    lastPublicMessageTime.set(System.currentTimeMillis());
-                    
-                    // 重连成功，重置重试计数器
-                    publicRetryCount.set(0);
-                    
-                    // 恢复之前的操作
-                    restorePublicOperations();
-                }
-
-                @Override
-                public void onMessage(WebSocket webSocket, String text){
-                    lastPublicMessageTime.set(System.currentTimeMillis());
-                    handleMessage(text);
-                }
-
-                @Override
-                public void onFailure(WebSocket webSocket, Throwable t, Response response){
-                    logger.error("公共频道WebSocket连接失败", t);
-                    publicConnected.set(false);
-                    // 尝试重连
-                    schedulePublicReconnect();
-                }
-
-                @Override
-                public void onClosed(WebSocket webSocket, int code, String reason){
-                    logger.info("公共频道WebSocket连接关闭: {}, {}", code, reason);
-                    publicConnected.set(false);
-                    // 如果不是应用主动关闭，尝试重连
-                    if(code != 1000){
-                        schedulePublicReconnect();
-                    }
-                }
-            });
+            if(applicationEventPublisher == null){
+                return;
+            }
+            if(business && reconnect){
+                logger.info("发布WebSocket业务频道重连事件");
+                applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.BUSINESS));
+            }
+            if(publicPool.isFullyConnected() && businessPool.isFullyConnected()){
+                logger.info("发布WebSocket公共频道重连事件");
+                applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.PUBLIC));
+            }
         }catch(Exception e){
-            logger.error("创建公共频道WebSocket连接失败", e);
-            publicConnected.set(false);
-            schedulePublicReconnect();
+            logger.error("发布WebSocket重连事件失败", e);
         }
     }
-
     /**
      * 连接私有频道
      */
@@ -459,36 +403,9 @@ public class WebSocketUtil{
      */
     private void pingWebSockets(){
         try{
-            long currentTime = System.currentTimeMillis();
-            
-            // 检查公共频道连接活跃度 - 只有连接正常时才发送ping
-            if(publicWebSocket != null && publicConnected.get()){
-                // 延长ping检查时间，避免频繁检测
-                if (currentTime - lastPublicMessageTime.get() > 60000) {
-                    logger.warn("公共频道超过60秒没有收到消息，触发重连");
-                    schedulePublicReconnect();
-                } else {
-                    try{
-                        publicWebSocket.send("ping");
-                        debugLog("发送公共频道ping消息");
-                    }catch(Exception e){
-                        logger.warn("发送公共频道ping消息失败，将尝试重连", e);
-                        schedulePublicReconnect();
-                    }
-                }
-            }
-
-            // 检查业务频道连接活跃度 - 业务频道不强制要求频繁ping
-            if(bussinessWebSocket != null && bussinessConnected.get()){
-                // 业务频道可能长时间没有消息，所以不基于消息时间触发重连
-                try{
-                    bussinessWebSocket.send("ping");
-                    debugLog("发送业务频道ping消息");
-                }catch(Exception e){
-                    logger.warn("发送业务频道ping消息失败，将尝试重连", e);
-                    scheduleBusinessReconnect();
-                }
-            }
+            // 公共频道和业务频道由连接池逐个连接发送ping，空闲超时的连接会被重连
+            publicPool.ping();
+            businessPool.ping();
 
             // 检查私有频道连接活跃度 - 私有频道也不强制要求频繁ping
             if(privateWebSocket != null && privateConnected.get()){
@@ -512,10 +429,8 @@ public class WebSocketUtil{
     private void handleMessage(String message){
         try{
             // 处理简单的ping-pong响应
+            // 公共和业务频道的ping由连接池在收到的连接上回复，这里只剩私有频道
             if("ping".equals(message)){
-                if(publicWebSocket != null){
-                    publicWebSocket.send("pong");
-                }
                 if(privateWebSocket != null){
                     privateWebSocket.send("pong");
                 }
@@ -650,6 +565,16 @@ public class WebSocketUtil{
         }
     }
 
+    /**
+     * 注入一条消息，与实时消息一样路由到已注册的处理器，但不写入行情日志
+     * 用于行情日志回放，以及模拟撮合推送orders频道的订单状态
+     *
+     * @param message 消息文本
+     */
+    public void replayMessage(String message){
+        handleMessage(message);
+    }
+
     /**
      * 注册消息处理器
      *
@@ -667,41 +592,13 @@ public class WebSocketUtil{
      * @param symbol 交易对
      */
     public void subscribePublicTopic(String topic, String symbol){
-        // 创建订阅消息
-        JSONObject subscribeMessage = new JSONObject();
-        subscribeMessage.put("op", "subscribe");
-
         JSONObject arg = new JSONObject();
         arg.put("channel", topic);
         arg.put("instId", symbol);
 
-        JSONObject[] args = new JSONObject[]{arg};
-        subscribeMessage.put("args", args);
-
-        // 将主题添加到已订阅集合中
-        String key = topic + ":" + symbol;
-        publicSubscribedTopics.add(key);
-
-        // 检查连接状态，决定是立即发送还是加入待执行队列
-        if(publicConnected.get() && publicWebSocket != null){
-            publicWebSocket.send(subscribeMessage.toJSONString());
-            logger.info("订阅公共频道主题: {}, 交易对: {}", topic, symbol);
-        }else{
-            // 如果未连接，加入待执行队列
-            PendingOperation operation = new PendingOperation(
-                "公共频道订阅: " + key,
-                () -> {
-                    if(publicWebSocket != null){
-                        publicWebSocket.send(subscribeMessage.toJSONString());
-                        logger.info("恢复订阅公共频道主题: {}, 交易对: {}", topic, symbol);
-                    }else{
-                        throw new OkxApiException("公共频道WebSocket未连接");
-                    }
-                }
-            );
-            publicPendingOperations.offer(operation);
-            logger.info("添加待执行的公共频道订阅: {}, 交易对: {}", topic, symbol);
-        }
+        // 由连接池按交易对分配连接，未连接时记录下来，连接建立后合并发送
+        publicPool.subscribe(arg);
+        logger.info("订阅公共频道主题: {}, 交易对: {}", topic, symbol);
     }
 
     /**
@@ -752,27 +649,11 @@ public class WebSocketUtil{
      * @param symbol 交易对
      */
     public void unsubscribePublicTopic(String topic, String symbol){
-        if(publicWebSocket == null){
-            return;
-        }
-
-        JSONObject unsubscribeMessage = new JSONObject();
-        unsubscribeMessage.put("op", "unsubscribe");
-
         JSONObject arg = new JSONObject();
         arg.put("channel", topic);
         arg.put("instId", symbol);
 
-        JSONObject[] args = new JSONObject[]{arg};
-        unsubscribeMessage.put("args", args);
-
-        // 从已订阅集合中移除
-        String key = topic + ":" + symbol;
-        publicSubscribedTopics.remove(key);
-
-        // 仅在连接可用时发送
-        if(publicConnected.get()){
-            publicWebSocket.send(unsubscribeMessage.toJSONString());
+        if(publicPool.unsubscribe(arg)){
             logger.info("取消订阅公共频道主题: {}, 交易对: {}", topic, symbol);
         }
     }
@@ -835,67 +716,14 @@ public class WebSocketUtil{
 
     /**
      * 订阅公共频道主题（带自定义参数）
+     * 指定交易对时走业务频道（K线等），否则走公共频道
      *
      * @param arg 订阅参数对象
      */
     public void subscribePublicTopicWithArgs(JSONObject arg, String... symbols){
-        // 创建订阅消息
-        JSONObject subscribeMessage = new JSONObject();
-        subscribeMessage.put("op", "subscribe");
-
-        JSONObject[] args = new JSONObject[]{arg};
-        subscribeMessage.put("args", args);
-
-        // 生成一个唯一标识
-        String key = "custom:" + arg.toJSONString();
-        publicSubscribedTopics.add(key);
-
-        WebSocket targetSocket;
-        ConcurrentLinkedQueue<PendingOperation> targetQueue;
-
-        if(symbols != null && symbols.length > 0){
-            targetSocket = bussinessWebSocket;
-            if(! bussinessConnected.get() || targetSocket == null){
-                // 如果未连接，加入待执行队列
-                PendingOperation operation = new PendingOperation(
-                    "业务频道自定义订阅: " + key,
-                    () -> {
-                        if(bussinessWebSocket != null){
-                            bussinessWebSocket.send(subscribeMessage.toJSONString());
-                            logger.info("恢复订阅业务频道自定义主题，参数: {}", arg);
-                        }else{
-                            throw new OkxApiException("业务频道WebSocket未连接");
-                        }
-                    }
-                );
-                publicPendingOperations.offer(operation);
-                logger.info("添加待执行的业务频道自定义订阅，参数: {}", arg);
-                return;
-            }
-        }else{
-            targetSocket = publicWebSocket;
-            if(! publicConnected.get() || targetSocket == null){
-                // 如果未连接，加入待执行队列
-                PendingOperation operation = new PendingOperation(
-                    "公共频道自定义订阅: " + key,
-                    () -> {
-                        if(publicWebSocket != null){
-                            publicWebSocket.send(subscribeMessage.toJSONString());
-                            logger.info("恢复订阅公共频道自定义主题，参数: {}", arg);
-                        }else{
-                            throw new OkxApiException("公共频道WebSocket未连接");
-                        }
-                    }
-                );
-                publicPendingOperations.offer(operation);
-                logger.info("添加待执行的公共频道自定义订阅，参数: {}", arg);
-                return;
-            }
-        }
-
-        // 直接发送
-        targetSocket.send(subscribeMessage.toJSONString());
-                            debugLog("订阅公共频道主题，参数: {}", arg);
+        WebSocketConnectionPool pool = symbols != null && symbols.length > 0 ? businessPool : publicPool;
+        pool.subscribe(arg);
+        debugLog("订阅{}主题，参数: {}", pool == businessPool ? "业务频道" : "公共频道", arg);
     }
 
     /**
@@ -904,116 +732,9 @@ public class WebSocketUtil{
      * @param arg 取消订阅参数对象
      */
     public void unsubscribePublicTopicWithArgs(JSONObject arg, String... symbols){
-        if(publicWebSocket == null || bussinessWebSocket == null){
-            logger.warn("公共频道WebSocket未连接，无法取消订阅");
-            return;
-        }
-
-        JSONObject unsubscribeMessage = new JSONObject();
-        unsubscribeMessage.put("op", "unsubscribe");
-
-        JSONObject[] args = new JSONObject[]{arg};
-        unsubscribeMessage.put("args", args);
-
-        // 从已订阅集合中移除
-        String key = "custom:" + arg.toJSONString();
-        publicSubscribedTopics.remove(key);
-
-        WebSocket targetSocket;
-        if(symbols != null && symbols.length > 0){
-            targetSocket = bussinessWebSocket;
-            if(! bussinessConnected.get()){
-                return;
-            }
-        }else{
-            targetSocket = publicWebSocket;
-            if(! publicConnected.get()){
-                return;
-            }
-        }
-
-        // 直接发送
-        targetSocket.send(unsubscribeMessage.toJSONString());
-        logger.info("取消订阅公共频道主题，参数: {}", arg);
-    }
-
-    /**
-     * 恢复公共频道的操作
-     */
-    private void restorePublicOperations(){
-        logger.info("开始恢复公共频道订阅，共 {} 个待执行操作", publicPendingOperations.size());
-
-        // 如果两个连接都已经就绪，才开始恢复操作
-        if(! publicConnected.get() || ! bussinessConnected.get()){
-            logger.info("公共频道连接尚未就绪，等待所有连接建立后再恢复");
-            return;
-        }
-
-        // 首先恢复队列中所有待执行的操作
-        int count = 0;
-        while(! publicPendingOperations.isEmpty()){
-            PendingOperation operation = publicPendingOperations.poll();
-            if(operation != null){
-                try{
-                    logger.info("恢复执行公共频道操作: {}", operation.getDescription());
-                    operation.execute();
-                    count++;
-                }catch(Exception e){
-                    logger.error("恢复执行公共频道操作失败: {}", operation.getDescription(), e);
-                    // 如果执行失败，重新添加到队列末尾
-                    publicPendingOperations.offer(operation);
-                }
-            }
-        }
-
-        // 重新订阅所有已记录的主题，确保所有币种都能及时更新价格
-        int topicCount = 0;
-        for(String topic: publicSubscribedTopics){
-            try{
-                // 解析主题格式（例如："tickers:BTC-USDT"）
-                if(topic.contains(":")){
-                    String[] parts = topic.split(":");
-                    String channel = parts[0];
-                    String symbol = parts[1];
-
-                    // 如果主题格式正确且不是自定义主题，重新订阅
-                    if(parts.length == 2 && ! channel.equals("custom")){
-                        logger.info("重新订阅主题: {}, 交易对: {}", channel, symbol);
-
-                        // 创建订阅消息
-                        JSONObject subscribeMessage = new JSONObject();
-                        subscribeMessage.put("op", "subscribe");
-
-                        JSONObject arg = new JSONObject();
-                        arg.put("channel", channel);
-                        arg.put("instId", symbol);
-
-                        JSONObject[] args = new JSONObject[]{arg};
-                        subscribeMessage.put("args", args);
-
-                        // 直接发送订阅请求
-                        publicWebSocket.send(subscribeMessage.toJSONString());
-                        topicCount++;
-                    }
-                }
-            }catch(Exception e){
-                logger.error("重新订阅主题失败: {}", topic, e);
-            }
-        }
-
-        logger.info("公共频道操作恢复完成，成功执行 {} 个操作，重新订阅 {} 个主题", count, topicCount);
-
-        // 发布WebSocket重连事件
-        try{
-            // 由于WebSocketUtil不是Spring Bean，无法直接访问ApplicationEventPublisher
-            // 使用反射查找Spring上下文，获取ApplicationEventPublisher
-            // 静态方法获取ApplicationContext
-            if(applicationEventPublisher != null){
-                logger.info("发布WebSocket公共频道重连事件");
-                applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.PUBLIC));
-            }
-        }catch(Exception e){
-            logger.error("发布WebSocket重连事件失败", e);
+        WebSocketConnectionPool pool = symbols != null && symbols.length > 0 ? businessPool : publicPool;
+        if(pool.unsubscribe(arg)){
+            logger.info("取消订阅公共频道主题，参数: {}", arg);
         }
     }
 
@@ -1058,24 +779,6 @@ public class WebSocketUtil{
         }
     }
 
-    /**
-     * 恢复业务频道的操作
-     */
-    private void restoreBusinessOperations(){
-        logger.info("开始恢复业务频道操作");
-
-        if(! bussinessConnected.get()){
-            logger.info("业务频道连接尚未就绪，等待连接建立后再恢复");
-            return;
-        }
-
-        // 目前业务频道没有特定的待执行操作队列
-        // 可以在这里添加业务频道相关的恢复逻辑
-        logger.info("业务频道操作恢复完成");
-
-        // 发布WebSocket重连事件（已在调用处处理）
-    }
-
     /**
      * 检查私有WebSocket是否已连接
      *
@@ -1088,10 +791,21 @@ public class WebSocketUtil{
     /**
      * 检查公共WebSocket是否已连接
      *
-     * @return 如果公共WebSocket已连接则返回true，否则返回false
+     * @return 如果公共频道至少有一个连接在线则返回true，否则返回false
      */
     public boolean isPublicSocketConnected(){
-        return publicWebSocket != null;
+        return publicPool.isConnected();
+    }
+
+    /**
+     * 获取公共频道和业务频道各连接的吞吐统计
+     *
+     * @return 连接统计列表
+     */
+    public List<WebSocketConnectionPool.ConnectionStats> getConnectionStats(){
+        List<WebSocketConnectionPool.ConnectionStats> stats = new ArrayList<>(publicPool.getStats());
+        stats.addAll(businessPool.getStats());
+        return stats;
     }
 
     /**
@@ -1101,40 +815,9 @@ public class WebSocketUtil{
         try{
             long currentTime = System.currentTimeMillis();
 
-            // 检查公共频道连接状态 - 公共频道必须保持活跃
-            if(!publicConnected.get() || publicWebSocket == null || 
-               (currentTime - lastPublicMessageTime.get() > 120000)) { // 增加到2分钟容忍度
-                logger.warn("公共频道连接检测失败，状态: {}, WebSocket: {}, 最后消息时间: {} 秒前", 
-                    publicConnected.get(), 
-                    publicWebSocket != null ? "存在" : "null",
-                    (currentTime - lastPublicMessageTime.get()) / 1000);
-                
-                // 避免并发重连
-                if (!isCurrentlyReconnecting("public")) {
-                    schedulePublicReconnect();
-                }
-            }
-
-            // 检查业务频道连接状态 - 业务频道容忍度更高
-            if(!bussinessConnected.get() || bussinessWebSocket == null) {
-                // 如果连接状态为false或WebSocket为null，才认为需要重连
-                // 不基于消息时间判断，因为业务频道可能长时间没有消息
-                logger.warn("业务频道连接检测失败，状态: {}, WebSocket: {}, 最后消息时间: {} 秒前", 
-                    bussinessConnected.get(), 
-                    bussinessWebSocket != null ? "存在" : "null",
-                    (currentTime - lastBusinessMessageTime.get()) / 1000);
-                
-                if (!isCurrentlyReconnecting("business")) {
-                    scheduleBusinessReconnect();
-                }
-            } else if (currentTime - lastBusinessMessageTime.get() > 300000) {
-                // 只有超过5分钟没有消息时才基于消息时间重连
-                logger.warn("业务频道超过5分钟没有消息，尝试重连");
-                if (!isCurrentlyReconnecting("business")) {
-                    scheduleBusinessReconnect();
-                }
-            }
-
+            // 公共频道和业务频道由连接池检查，断开的连接安排重连
+            publicPool.checkConnections();
+            businessPool.checkConnections();
             // 检查私有频道连接状态 - 私有频道容忍度更高
             if(!privateConnected.get() || privateWebSocket == null) {
                 logger.warn("私有频道连接检测失败，状态: {}, WebSocket: {}, 最后消息时间: {} 秒前", 
@@ -1226,162 +909,4 @@ public class WebSocketUtil{
             return description;
         }
     }
-
-    /**
-     * 安排业务频道重连 - 优化版本
-     */
-    private void scheduleBusinessReconnect(){
-        if (isCurrentlyReconnecting("business")) {
-            debugLog("业务频道已在重连中，跳过本次重连请求");
-            return;
-        }
-
-        markReconnectStart("business");
-        
-        reconnectScheduler.submit(() -> {
-            try {
-                int currentRetry = businessRetryCount.getAndIncrement();
-                
-                // 优化重连延迟策略：更快的初始重连，渐进式增加延迟
-                long delaySeconds;
-                if (currentRetry == 0) {
-                    delaySeconds = 1; // 首次重连立即执行
-                } else if (currentRetry <= 3) {
-                    delaySeconds = currentRetry * 2; // 2, 4, 6秒
-                } else if (currentRetry <= 10) {
-                    delaySeconds = 10; // 保持10秒
-                } else {
-                    delaySeconds = 20; // 最大20秒，而不是30秒
-                    businessRetryCount.set(10); // 限制最大重试次数
-                }
-
-                debugLog("业务频道重连尝试 #{}, 延迟 {} 秒", currentRetry, delaySeconds);
-                
-                if (delaySeconds > 1) {
-                    Thread.sleep(delaySeconds * 1000);
-                }
-
-                if (bussinessWebSocket != null) {
-                    try {
-                        bussinessWebSocket.close(1000, "Reconnecting");
-                    } catch (Exception e) {
-                        debugLog("关闭旧业务频道连接失败: {}", e.getMessage());
-                    }
-                }
-                
-                connectBussinessChannel();
-
-                // 检查重连是否成功 - 缩短等待时间
-                Thread.sleep(3000); // 等待3秒检查连接状态
-                if (bussinessConnected.get()) {
-                    // 重连成功，重置重试计数器
-                    businessRetryCount.set(0);
-                    logger.info("业务频道重连成功");
-                    
-                    // 恢复业务频道的操作（如果有）
-                    restoreBusinessOperations();
-                    
-                    // 发布业务频道重连事件
-                    try{
-                        if(applicationEventPublisher != null){
-                            logger.info("发布WebSocket业务频道重连事件");
-                            applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.BUSINESS));
-                        }
-                    }catch(Exception e){
-                        logger.error("发布WebSocket业务频道重连事件失败", e);
-                    }
-                } else {
-                    // 如果重连失败，继续安排下一次重试
-                    logger.warn("业务频道重连失败，将安排下一次重试");
-                    markReconnectEnd("business"); // 先结束当前重连标记
-                    scheduleBusinessReconnect(); // 再安排下一次重连
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error("重连业务频道失败", e);
-                markReconnectEnd("business");
-                scheduleBusinessReconnect();
-                return;
-            } finally {
-                markReconnectEnd("business");
-            }
-        });
-    }
-
-    /**
-     * 安排公共频道重连 - 优化版本
-     */
-    private void schedulePublicReconnect(){
-        if (isCurrentlyReconnecting("public")) {
-            debugLog("公共频道已在重连中，跳过本次重连请求");
-            return;
-        }
-
-        markReconnectStart("public");
-        
-        reconnectScheduler.submit(() -> {
-            try {
-                int currentRetry = publicRetryCount.getAndIncrement();
-                
-                // 优化重连延迟策略：更快的初始重连，渐进式增加延迟
-                long delaySeconds;
-                if (currentRetry == 0) {
-                    delaySeconds = 1; // 首次重连立即执行
-                } else if (currentRetry <= 3) {
-                    delaySeconds = currentRetry * 2; // 2, 4, 6秒
-                } else if (currentRetry <= 10) {
-                    delaySeconds = 10; // 保持10秒
-                } else {
-                    delaySeconds = 20; // 最大20秒，而不是30秒
-                    publicRetryCount.set(10); // 限制最大重试次数
-                }
-
-                debugLog("公共频道重连尝试 #{}, 延迟 {} 秒", currentRetry, delaySeconds);
-                
-                if (delaySeconds > 1) {
-                    Thread.sleep(delaySeconds * 1000);
-                }
-
-                if (publicWebSocket != null) {
-                    try {
-                        publicWebSocket.close(1000, "Reconnecting");
-                    } catch (Exception e) {
-                        debugLog("关闭旧公共频道连接失败: {}", e.getMessage());
-                    }
-                }
-                
-                if (bussinessWebSocket != null) {
-                    try {
-                        bussinessWebSocket.close(1000, "Reconnecting");
-                    } catch (Exception e) {
-                        debugLog("关闭旧业务频道连接失败: {}", e.getMessage());
-                    }
-                }
-                
-                connectPublicChannel();
-                connectBussinessChannel();
-
-                // 检查重连是否成功 - 缩短等待时间
-                Thread.sleep(3000); // 等待3秒检查连接状态
-                if (publicConnected.get()) {
-                    // 重连成功，重置重试计数器
-                    publicRetryCount.set(0);
-                    logger.info("公共频道重连成功");
-                } else {
-                    // 如果重连失败，继续安排下一次重试
-                    logger.warn("公共频道重连失败，将安排下一次重试");
-                    markReconnectEnd("public");
-                    schedulePublicReconnect();
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error("重连公共频道失败", e);
-                markReconnectEnd("public");
-                schedulePublicReconnect();
-                return;
-            } finally {
-                markReconnectEnd("public");
-            }
-        });
-    }
 }
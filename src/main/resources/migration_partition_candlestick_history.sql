@@ -0,0 +1,67 @@
+-- 数据库迁移脚本：candlestick_history 改为按月分区并新增压缩归档表
+-- 创建时间: 2026-10-19
+-- 描述: 主键改为 (symbol, interval_val, open_time) 聚簇键，按 open_time 做 RANGE COLUMNS 月度分区，
+--       冷分区可由 CandlestickPartitionService 整体迁入 ROW_FORMAT=COMPRESSED 的归档表
+-- 注意: 两条 ALTER 都会重建整张表，请在低峰期执行；执行前确认 innodb_file_per_table=ON
+
+USE okx_trading;
+
+-- 分区键必须出现在每个唯一键中：原自增主键降级为普通索引，唯一键提升为聚簇主键
+-- 原 idx_symbol_interval 是主键前缀、idx_open_time 由分区裁剪替代，一并删除
+ALTER TABLE `candlestick_history`
+    DROP PRIMARY KEY,
+    DROP INDEX `idx_symbol_interval_opentime`,
+    DROP INDEX `idx_symbol_interval`,
+    DROP INDEX `idx_open_time`,
+    ADD PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
+    ADD INDEX `idx_id` (`id`);
+
+-- 先只建历史分区和兜底分区，应用启动后 CandlestickPartitionService 会把 p_max 按月拆分到当前月之后 N 个月
+ALTER TABLE `candlestick_history`
+    PARTITION BY RANGE COLUMNS (`open_time`) (
+        PARTITION `p_history` VALUES LESS THAN ('2019-01-01'),
+        PARTITION `p_max` VALUES LESS THAN (MAXVALUE));
+
+-- 归档表：结构与K线表一致，不分区，压缩行格式
+CREATE TABLE IF NOT EXISTS `candlestick_history_archive`
+(`id`           BIGINT      NOT NULL COMMENT '原K线表主键ID',
+ `symbol`       VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
+    `interval_val` VARCHAR(10) NOT NULL COMMENT 'K线间隔',
+    `open_time`    DATETIME    NOT NULL COMMENT '开盘时间',
+    `close_time`   DATETIME COMMENT '收盘时间',
+    `open`         DECIMAL(30, 15) COMMENT '开盘价',
+    `high`         DECIMAL(30, 15) COMMENT '最高价',
+    `low`          DECIMAL(30, 15) COMMENT '最低价',
+    `close`        DECIMAL(30, 15) COMMENT '收盘价',
+    `volume`       DECIMAL(30, 15) COMMENT '成交量',
+    `quote_volume` DECIMAL(30, 15) COMMENT '成交额',
+    `trades`       BIGINT COMMENT '成交笔数',
+    `fetch_time`   DATETIME COMMENT '数据获取时间',
+    PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
+    INDEX `idx_open_time` (`open_time`)) ENGINE = InnoDB
+    ROW_FORMAT = COMPRESSED KEY_BLOCK_SIZE = 8
+    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线归档数据';
+
+-- 归档中转表：结构与K线表完全一致但不分区，冷分区通过 EXCHANGE PARTITION 原子换出到此表后再写入归档表
+CREATE TABLE IF NOT EXISTS `candlestick_history_archive_staging`
+(`id`           BIGINT      NOT NULL AUTO_INCREMENT COMMENT '自增主键ID',
+ `symbol`       VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
+    `interval_val` VARCHAR(10) NOT NULL COMMENT 'K线间隔',
+    `open_time`    DATETIME    NOT NULL COMMENT '开盘时间',
+    `close_time`   DATETIME COMMENT '收盘时间',
+    `open`         DECIMAL(30, 15) COMMENT '开盘价',
+    `high`         DECIMAL(30, 15) COMMENT '最高价',
+    `low`          DECIMAL(30, 15) COMMENT '最低价',
+    `close`        DECIMAL(30, 15) COMMENT '收盘价',
+    `volume`       DECIMAL(30, 15) COMMENT '成交量',
+    `quote_volume` DECIMAL(30, 15) COMMENT '成交额',
+    `trades`       BIGINT COMMENT '成交笔数',
+    `fetch_time`   DATETIME COMMENT '数据获取时间',
+    PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
+    INDEX `idx_id` (`id`)) ENGINE = InnoDB
+    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线归档中转表';
+
+-- 验证分区裁剪：partitions 列应只包含查询时间范围覆盖的月分区
+-- EXPLAIN SELECT open_time FROM candlestick_history
+--  WHERE symbol = 'BTC-USDT' AND interval_val = '1m'
+--    AND open_time >= '2024-01-01 00:00:00' AND open_time < '2024-02-01 00:00:00';
@@ -101,7 +101,7 @@ CREATE TABLE IF NOT EXISTS `backtest_trade`
 
 -- 创建K线历史数据表
 CREATE TABLE IF NOT EXISTS `candlestick_history`
-(`id`           BIGINT      NOT NULL PRIMARY KEY AUTO_INCREMENT COMMENT '自增主键ID',
+(`id`           BIGINT      NOT NULL AUTO_INCREMENT COMMENT '自增主键ID',
  `symbol`       VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
     `interval_val` VARCHAR(10) NOT NULL COMMENT 'K线间隔，如1m, 5m, 15m, 30m, 1H, 2H, 4H, 6H, 12H, 1D, 1W, 1M',
     `open_time`    DATETIME    NOT NULL COMMENT '开盘时间',
@@ -114,10 +114,65 @@ CREATE TABLE IF NOT EXISTS `candlestick_history`
     `quote_volume` DECIMAL(30, 15) COMMENT '成交额',
     `trades`       BIGINT COMMENT '成交笔数',
     `fetch_time`   DATETIME COMMENT '数据获取时间',
-    UNIQUE KEY `idx_symbol_interval_opentime` (`symbol`, `interval_val`, `open_time`),
-    INDEX `idx_symbol_interval` (`symbol`, `interval_val`),
+    -- 聚簇主键即查询键，按(交易对, 间隔)范围扫描开盘时间时无需回表
+    PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
+    INDEX `idx_id` (`id`)) ENGINE = InnoDB
+    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线数据'
+    -- 按开盘时间月度分区，p_history之后的月分区由CandlestickPartitionService自动从p_max拆分创建
+    PARTITION BY RANGE COLUMNS (`open_time`) (
+        PARTITION `p_history` VALUES LESS THAN ('2019-01-01'),
+        PARTITION `p_max` VALUES LESS THAN (MAXVALUE));
+
+-- 历史K线归档表，冷分区整体迁入后压缩存储
+CREATE TABLE IF NOT EXISTS `candlestick_history_archive`
+(`id`           BIGINT      NOT NULL COMMENT '原K线表主键ID',
+ `symbol`       VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
+    `interval_val` VARCHAR(10) NOT NULL COMMENT 'K线间隔',
+    `open_time`    DATETIME    NOT NULL COMMENT '开盘时间',
+    `close_time`   DATETIME COMMENT '收盘时间',
+    `open`         DECIMAL(30, 15) COMMENT '开盘价',
+    `high`         DECIMAL(30, 15) COMMENT '最高价',
+    `low`          DECIMAL(30, 15) COMMENT '最低价',
+    `close`        DECIMAL(30, 15) COMMENT '收盘价',
+    `volume`       DECIMAL(30, 15) COMMENT '成交量',
+    `quote_volume` DECIMAL(30, 15) COMMENT '成交额',
+    `trades`       BIGINT COMMENT '成交笔数',
+    `fetch_time`   DATETIME COMMENT '数据获取时间',
+    PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
     INDEX `idx_open_time` (`open_time`)) ENGINE = InnoDB
-    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线数据';
+    ROW_FORMAT = COMPRESSED KEY_BLOCK_SIZE = 8
+    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线归档数据';
+
+-- 归档中转表：结构与K线表完全一致但不分区，冷分区通过 EXCHANGE PARTITION 原子换出到此表后再写入归档表
+CREATE TABLE IF NOT EXISTS `candlestick_history_archive_staging`
+(`id`           BIGINT      NOT NULL AUTO_INCREMENT COMMENT '自增主键ID',
+ `symbol`       VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
+    `interval_val` VARCHAR(10) NOT NULL COMMENT 'K线间隔',
+    `open_time`    DATETIME    NOT NULL COMMENT '开盘时间',
+    `close_time`   DATETIME COMMENT '收盘时间',
+    `open`         DECIMAL(30, 15) COMMENT '开盘价',
+    `high`         DECIMAL(30, 15) COMMENT '最高价',
+    `low`          DECIMAL(30, 15) COMMENT '最低价',
+    `close`        DECIMAL(30, 15) COMMENT '收盘价',
+    `volume`       DECIMAL(30, 15) COMMENT '成交量',
+    `quote_volume` DECIMAL(30, 15) COMMENT '成交额',
+    `trades`       BIGINT COMMENT '成交笔数',
+    `fetch_time`   DATETIME COMMENT '数据获取时间',
+    PRIMARY KEY (`symbol`, `interval_val`, `open_time`),
+    INDEX `idx_id` (`id`)) ENGINE = InnoDB
+    DEFAULT CHARSET = utf8mb4 COMMENT ='历史K线归档中转表';
+
+-- K线覆盖位图索引表，每行一个(交易对, 间隔)分块内已入库K线的压缩位图
+CREATE TABLE IF NOT EXISTS `candlestick_coverage`
+(`id`            BIGINT      NOT NULL PRIMARY KEY AUTO_INCREMENT COMMENT '自增主键ID',
+ `symbol`        VARCHAR(20) NOT NULL COMMENT '交易对，如BTC-USDT',
+    `interval_val`  VARCHAR(10) NOT NULL COMMENT 'K线间隔',
+    `chunk_index`   BIGINT      NOT NULL COMMENT '分块序号，floor(开盘分钟数/间隔分钟数/1440)',
+    `present_count` INT         NOT NULL COMMENT '分块内已存在的K线数量',
+    `bitmap`        VARBINARY(2048) COMMENT 'Deflater压缩后的位图',
+    `update_time`   DATETIME COMMENT '更新时间',
+    UNIQUE KEY `idx_symbol_interval_chunk` (`symbol`, `interval_val`, `chunk_index`)) ENGINE = InnoDB
+    DEFAULT CHARSET = utf8mb4 COMMENT ='K线覆盖位图索引';
 
 -- 创建实时订单表
 CREATE TABLE IF NOT EXISTS `real_time_orders`
@@ -0,0 +1,100 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.strategy.BacktestMetricsCalculator;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可续跑回测检查点测试类
+ */
+class BacktestCheckpointTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("100000");
+    private static final BigDecimal FEE = new BigDecimal("0.001");
+    private static final ZonedDateTime START = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+
+    @Test
+    void testResumedRunMatchesSingleRun() {
+        for (String code : new String[]{"SMA", "RSI", "BOLLINGER"}) {
+            BarSeries full = new BaseBarSeries("CHECKPOINT_FULL");
+            addWaveBars(full, 0, 900);
+            BacktestCheckpoint single = new BacktestCheckpoint(full, StrategyRegisterCenter.createStrategy(full, code), AMOUNT, FEE);
+            assertEquals(900, single.advance());
+
+            BarSeries growing = new BaseBarSeries("CHECKPOINT_GROWING");
+            addWaveBars(growing, 0, 500);
+            BacktestCheckpoint resumed = new BacktestCheckpoint(growing, StrategyRegisterCenter.createStrategy(growing, code), AMOUNT, FEE);
+            assertEquals(500, resumed.advance());
+            addWaveBars(growing, 500, 850);
+            assertEquals(350, resumed.advance());
+            assertEquals(0, resumed.advance());
+            addWaveBars(growing, 850, 900);
+            assertEquals(50, resumed.advance());
+
+            BacktestResultDTO expected = single.toResult(code);
+            BacktestResultDTO actual = resumed.toResult(code);
+            assertEquals(900, resumed.getProcessedBars());
+            assertEquals(expected.getNumberOfTrades(), actual.getNumberOfTrades(), code);
+            assertEquals(0, expected.getFinalAmount().compareTo(actual.getFinalAmount()), code);
+            assertEquals(0, expected.getMaxDrawdown().compareTo(actual.getMaxDrawdown()), code);
+            assertArrayEquals(single.getEquityCurve(), resumed.getEquityCurve(), 1e-9, code);
+            assertEquals(single.isPositionOpen(), resumed.isPositionOpen(), code);
+        }
+    }
+
+    @Test
+    void testTradeStatisticsMatchMetricsCalculator() {
+        BarSeries series = new BaseBarSeries("CHECKPOINT_METRICS");
+        addWaveBars(series, 0, 900);
+        BacktestCheckpoint checkpoint = new BacktestCheckpoint(series, StrategyRegisterCenter.createStrategy(series, "SMA"), AMOUNT, FEE);
+        checkpoint.advance();
+
+        BacktestResultDTO incremental = checkpoint.toResult("SMA");
+        BacktestResultDTO full = new BacktestMetricsCalculator(series, checkpoint.getTradingRecord(), AMOUNT, "SMA", "",
+                FEE, "1H", createBenchmark(series)).getResult();
+
+        assertTrue(full.isSuccess());
+        assertTrue(incremental.getNumberOfTrades() > 0);
+        assertEquals(full.getNumberOfTrades(), incremental.getNumberOfTrades());
+        assertEquals(full.getProfitableTrades(), incremental.getProfitableTrades());
+        assertEquals(0, full.getFinalAmount().compareTo(incremental.getFinalAmount()));
+        assertEquals(0, full.getTotalFee().compareTo(incremental.getTotalFee()));
+        assertEquals(0, full.getTotalReturn().compareTo(incremental.getTotalReturn()));
+        assertEquals(0, full.getMaxDrawdown().compareTo(incremental.getMaxDrawdown()));
+        assertEquals(0, full.getMaximumLoss().compareTo(incremental.getMaximumLoss()));
+    }
+
+    private static List<CandlestickEntity> createBenchmark(BarSeries series) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        for (int i = 0; i < series.getBarCount(); i++) {
+            candles.add(CandlestickEntity.builder()
+                    .openTime(series.getBar(i).getBeginTime().toLocalDateTime())
+                    .close(BigDecimal.valueOf(series.getBar(i).getClosePrice().doubleValue()))
+                    .build());
+        }
+        return candles;
+    }
+
+    private static void addWaveBars(BarSeries series, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double close = 100 + 10 * Math.sin(i / 9.0) + 3 * Math.sin(i / 2.3) + i * 0.02;
+            series.addBar(Duration.ofHours(1), START.plusHours(i),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(close + 1), DecimalNum.valueOf(close - 1),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(1000 + i));
+        }
+    }
+}
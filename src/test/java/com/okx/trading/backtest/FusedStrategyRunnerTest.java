@@ -0,0 +1,138 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BarSeriesManager;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.Position;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.rules.BooleanRule;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 融合多策略K线循环测试类
+ */
+class FusedStrategyRunnerTest {
+
+    private static final List<String> STRATEGY_CODES = Arrays.asList("SMA", "EMA", "RSI", "MACD", "BOLLINGER");
+
+    @Test
+    void testFusedRecordsMatchIndependentRuns() {
+        BarSeries series = createWaveSeries(800);
+
+        FusedStrategyRunner.Result fused = FusedStrategyRunner.run(series, createStrategies(series));
+
+        for (int s = 0; s < STRATEGY_CODES.size(); s++) {
+            assertNull(fused.getError(s));
+            assertSamePositions(runIndependently(series, STRATEGY_CODES.get(s)), fused.getRecord(s));
+        }
+    }
+
+    @Test
+    void testGroupedRunMatchesSingleGroup() {
+        BarSeries series = createWaveSeries(800);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            FusedStrategyRunner.Result grouped = FusedStrategyRunner.run(series, createStrategies(series), executor, 3);
+
+            for (int s = 0; s < STRATEGY_CODES.size(); s++) {
+                assertSamePositions(runIndependently(series, STRATEGY_CODES.get(s)), grouped.getRecord(s));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPruningStopsOnlyHopelessStrategies() {
+        BarSeries series = createWaveSeries(800);
+        List<Strategy> strategies = createStrategies(series);
+        strategies.add(new BaseStrategy(BooleanRule.FALSE, BooleanRule.FALSE));
+        PruningPolicy policy = PruningPolicy.of(0, 0, 0.5, 10);
+
+        FusedStrategyRunner.Result pruned = FusedStrategyRunner.run(series, strategies, policy, 0.001);
+
+        for (int s = 0; s < STRATEGY_CODES.size(); s++) {
+            assertNull(pruned.getPruneReason(s));
+            assertSamePositions(runIndependently(series, STRATEGY_CODES.get(s)), pruned.getRecord(s));
+            assertEquals(800, pruned.getTracker(s).getProcessedBars());
+        }
+        int idle = STRATEGY_CODES.size();
+        assertNotNull(pruned.getPruneReason(idle));
+        assertEquals(400, pruned.getTracker(idle).getProcessedBars());
+        assertEquals(0, pruned.getTracker(idle).getTotalReturn(), 1e-12);
+    }
+
+    @Test
+    void testEquityTrackerMatchesCheckpointAccounting() {
+        BarSeries series = createWaveSeries(800);
+        BigDecimal amount = new BigDecimal("100000");
+        BacktestCheckpoint checkpoint = new BacktestCheckpoint(series, StrategyRegisterCenter.createStrategy(series, "SMA"),
+                amount, new BigDecimal("0.001"));
+        checkpoint.advance();
+
+        FusedStrategyRunner.Result result = FusedStrategyRunner.run(series,
+                Collections.singletonList(StrategyRegisterCenter.createStrategy(series, "SMA")),
+                PruningPolicy.disabled().withCondition(tracker -> null), 0.001);
+
+        EquityTracker tracker = result.getTracker(0);
+        assertTrue(tracker.getClosedTrades() > 0);
+        // 回测指标把每笔收益率舍入到四位小数，净值跟踪不舍入，两者只差舍入误差
+        assertEquals(checkpoint.getEquity(), tracker.getEquity() * amount.doubleValue(), checkpoint.getEquity() * 1e-3);
+        assertEquals(checkpoint.isPositionOpen(), tracker.isPositionOpen());
+    }
+
+    private static List<Strategy> createStrategies(BarSeries series) {
+        List<Strategy> strategies = new ArrayList<>();
+        for (String code : STRATEGY_CODES) {
+            strategies.add(StrategyRegisterCenter.createStrategy(series, code));
+        }
+        return strategies;
+    }
+
+    private static TradingRecord runIndependently(BarSeries series, String code) {
+        return new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel())
+                .run(StrategyRegisterCenter.createStrategy(series, code), Trade.TradeType.BUY);
+    }
+
+    private static void assertSamePositions(TradingRecord expected, TradingRecord actual) {
+        assertEquals(expected.getPositionCount(), actual.getPositionCount());
+        for (int i = 0; i < expected.getPositions().size(); i++) {
+            Position e = expected.getPositions().get(i);
+            Position a = actual.getPositions().get(i);
+            assertEquals(e.getEntry().getIndex(), a.getEntry().getIndex());
+            assertEquals(e.getExit().getIndex(), a.getExit().getIndex());
+        }
+        assertEquals(expected.isClosed(), actual.isClosed());
+    }
+
+    private static BarSeries createWaveSeries(int barCount) {
+        BaseBarSeries series = new BaseBarSeries("FUSED_TEST");
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 9.0) + 3 * Math.sin(i / 2.3) + i * 0.02;
+            series.addBar(Duration.ofHours(1), time.plusHours(i),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(close + 1), DecimalNum.valueOf(close - 1),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(1000 + i));
+        }
+        return series;
+    }
+}
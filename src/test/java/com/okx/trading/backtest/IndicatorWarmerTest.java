@@ -0,0 +1,132 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BarSeriesManager;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.Position;
+import org.ta4j.core.Rule;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.Trade;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.cost.ZeroCostModel;
+import org.ta4j.core.indicators.CachedIndicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.rules.CrossedUpIndicatorRule;
+import org.ta4j.core.rules.OverIndicatorRule;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指标缓存预热测试类
+ */
+class IndicatorWarmerTest {
+
+    @Test
+    void testDiscoverGroupsIndependentSubgraphsInDependencyOrder() {
+        BarSeries series = createWaveSeries(300);
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+        EMAIndicator ema = new EMAIndicator(close, 10);
+        SMAIndicator sma = new SMAIndicator(close, 30);
+        Rule crossRule = new CrossedUpIndicatorRule(ema, sma);
+        RSIIndicator rsi = new RSIIndicator(new ClosePriceIndicator(series), 14);
+        Rule rsiRule = new OverIndicatorRule(rsi, 70);
+
+        List<List<CachedIndicator<?>>> components = IndicatorWarmer.discover(Arrays.asList(crossRule, rsiRule));
+
+        assertEquals(2, components.size());
+        List<CachedIndicator<?>> first = components.get(0);
+        assertTrue(first.contains(close) && first.contains(ema) && first.contains(sma));
+        assertTrue(first.indexOf(close) < first.indexOf(ema));
+        assertTrue(first.indexOf(close) < first.indexOf(sma));
+        assertTrue(components.get(1).contains(rsi));
+        assertFalse(components.get(1).contains(close));
+    }
+
+    @Test
+    void testWarmupAvoidsDeepRecursion() {
+        int barCount = 200_000;
+        BarSeries series = createWaveSeries(barCount);
+        RunningSumIndicator sum = new RunningSumIndicator(new ClosePriceIndicator(series));
+
+        assertEquals(2, IndicatorWarmer.warm(series, Collections.singletonList(new OverIndicatorRule(sum, 0))));
+
+        double expected = 0;
+        for (int i = 0; i < barCount; i++) {
+            expected += series.getBar(i).getClosePrice().doubleValue();
+        }
+        assertEquals(expected, sum.getValue(series.getEndIndex()).doubleValue(), 1e-6);
+    }
+
+    @Test
+    void testWarmedStrategiesProduceSameTrades() {
+        BarSeries series = createWaveSeries(2_000);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (String code : new String[]{"SMA", "EMA", "RSI", "MACD", "BOLLINGER"}) {
+                Strategy warmed = StrategyRegisterCenter.createStrategy(series, code);
+                assertTrue(IndicatorWarmer.warm(series, Collections.singletonList(warmed), executor) > 0, code);
+
+                TradingRecord expected = run(series, StrategyRegisterCenter.createStrategy(series, code));
+                TradingRecord actual = run(series, warmed);
+                assertEquals(expected.getPositionCount(), actual.getPositionCount(), code);
+                for (int i = 0; i < expected.getPositionCount(); i++) {
+                    Position e = expected.getPositions().get(i);
+                    Position a = actual.getPositions().get(i);
+                    assertEquals(e.getEntry().getIndex(), a.getEntry().getIndex(), code);
+                    assertEquals(e.getExit().getIndex(), a.getExit().getIndex(), code);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TradingRecord run(BarSeries series, Strategy strategy) {
+        return new BarSeriesManager(series, new ZeroCostModel(), new ZeroCostModel()).run(strategy, Trade.TradeType.BUY);
+    }
+
+    private static BarSeries createWaveSeries(int barCount) {
+        BarSeries series = new BaseBarSeriesBuilder().withName("WARMUP_TEST").withNumTypeOf(DoubleNum.class).build();
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 9.0) + 3 * Math.sin(i / 2.3) + (i % 1000) * 0.02;
+            series.addBar(Duration.ofMinutes(1), time.plusMinutes(i), close, close + 1, close - 1, close, 1000 + i);
+        }
+        return series;
+    }
+
+    /**
+     * 自身递归的累加指标：第一次在最后一个下标取值时会递归到起点
+     */
+    private static class RunningSumIndicator extends CachedIndicator<Num> {
+        private final Indicator<Num> source;
+
+        RunningSumIndicator(Indicator<Num> source) {
+            super(source);
+            this.source = source;
+        }
+
+        @Override
+        protected Num calculate(int index) {
+            Num value = source.getValue(index);
+            return index == 0 ? value : getValue(index - 1).plus(value);
+        }
+    }
+}
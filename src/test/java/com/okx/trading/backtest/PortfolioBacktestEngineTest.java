@@ -0,0 +1,99 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.model.dto.PortfolioBacktestResultDTO;
+import com.okx.trading.model.dto.PortfolioSymbolResultDTO;
+import com.okx.trading.strategy.StrategyRegisterCenter;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多品种组合回测引擎测试类
+ */
+class PortfolioBacktestEngineTest {
+
+    private static final long HOUR = 3600;
+    private static final long START = 1704067200L;
+
+    @Test
+    void testSymbolsShareOneCashPool() {
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(new BigDecimal("1000"), BigDecimal.ZERO, 2);
+        // A在第0根开仓、第2根平仓并上涨10%；B在第1根开仓、第3根平仓并下跌10%
+        engine.addSymbol("A", "SMA", times(0, 4), new double[]{100, 105, 110, 110}, new byte[]{1, 0, 2, 0});
+        engine.addSymbol("B", "SMA", times(0, 4), new double[]{50, 50, 50, 45}, new byte[]{0, 1, 0, 2});
+
+        PortfolioBacktestResultDTO result = engine.run();
+
+        assertTrue(result.isSuccess());
+        assertEquals(4, result.getTimelineBars());
+        assertEquals(2, result.getNumberOfTrades());
+        assertEquals(1, result.getProfitableTrades());
+        // A: 500 -> 550；B开仓时目标仓位为 1025 / 2 = 512.5，但只剩500现金，下跌10%亏损50
+        assertEquals(1000 + 50 - 50, result.getFinalAmount().doubleValue(), 1e-6);
+        assertEquals(new BigDecimal("-50.00000000"), result.getSymbols().get(1).getTotalProfit());
+        assertEquals(4, engine.getTradeRecords().size());
+    }
+
+    @Test
+    void testEntriesBeyondMaxPositionsAreSkipped() {
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(new BigDecimal("1000"), new BigDecimal("0.001"), 1);
+        engine.addSymbol("A", "SMA", times(0, 3), new double[]{100, 100, 110}, new byte[]{1, 0, 2});
+        // B的K线时间错开半小时，归并后与A交替推进
+        engine.addSymbol("B", "SMA", times(HOUR / 2, 3), new double[]{10, 10, 10}, new byte[]{1, 0, 2});
+
+        PortfolioBacktestResultDTO result = engine.run();
+
+        assertEquals(6, result.getTimelineBars());
+        assertEquals(1, result.getSkippedEntries());
+        PortfolioSymbolResultDTO b = result.getSymbols().get(1);
+        assertEquals("B", b.getSymbol());
+        assertEquals(0, b.getNumberOfTrades());
+        assertEquals(1000 * 0.999 * 1.1 * 0.999, result.getFinalAmount().doubleValue(), 1e-6);
+    }
+
+    @Test
+    void testAddSymbolFromBarSeriesDropsSeries() {
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(new BigDecimal("100000"), new BigDecimal("0.001"), 0);
+        for (String symbol : new String[]{"BTC-USDT", "ETH-USDT", "SOL-USDT"}) {
+            BarSeries series = createWaveSeries(symbol, 600, symbol.length());
+            engine.addSymbol(symbol, "SMA", series, StrategyRegisterCenter.createStrategy(series, "SMA"));
+        }
+
+        PortfolioBacktestResultDTO result = engine.run();
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getSymbolCount());
+        assertEquals(600, result.getTimelineBars());
+        assertTrue(result.getNumberOfTrades() > 0);
+        assertEquals(result.getFinalAmount().doubleValue(),
+                engine.getEquityValues()[engine.getEquityValues().length - 1], 1e-6);
+    }
+
+    private static long[] times(long offset, int count) {
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = START + offset + i * HOUR;
+        }
+        return times;
+    }
+
+    private static BarSeries createWaveSeries(String name, int barCount, int phase) {
+        BaseBarSeries series = new BaseBarSeries(name);
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin((i + phase * 5) / 12.0);
+            series.addBar(Duration.ofHours(1), time.plusHours(i),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(close + 1), DecimalNum.valueOf(close - 1),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(1000));
+        }
+        return series;
+    }
+}
@@ -0,0 +1,145 @@
+package com.okx.trading.backtest;
+
+import com.okx.trading.backtest.PrefixSumIndicatorBank.Source;
+import com.okx.trading.model.dto.ParameterSweepResultDTO;
+import com.okx.trading.service.impl.ParameterSweepService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.helpers.HighPriceIndicator;
+import org.ta4j.core.indicators.helpers.HighestValueIndicator;
+import org.ta4j.core.indicators.helpers.LowPriceIndicator;
+import org.ta4j.core.indicators.helpers.LowestValueIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 前缀和指标库测试类
+ */
+@Slf4j
+class PrefixSumIndicatorBankTest {
+
+    @Test
+    void testIndicatorsMatchTa4j() {
+        BarSeries series = createWaveSeries(1_000);
+        PrefixSumIndicatorBank bank = PrefixSumIndicatorBank.of(series);
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+
+        for (int period : new int[]{2, 5, 20, 77, 200}) {
+            assertSame(new SMAIndicator(close, period), bank.sma(Source.CLOSE, period), period);
+            assertSame(new StandardDeviationIndicator(close, period), bank.stdDev(Source.CLOSE, period), period);
+            assertSame(new HighestValueIndicator(new HighPriceIndicator(series), period), bank.highest(Source.HIGH, period), period);
+            assertSame(new LowestValueIndicator(new LowPriceIndicator(series), period), bank.lowest(Source.LOW, period), period);
+        }
+    }
+
+    @Test
+    void testSweepRanksEveryPeriod() {
+        BarSeries series = createWaveSeries(1_500);
+        List<Integer> periods = new ArrayList<>();
+        for (int period = 5; period <= 60; period += 5) {
+            periods.add(period);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParameterSweepService service = new ParameterSweepService(executor);
+            for (String family : new String[]{ParameterSweepService.FAMILY_SMA, ParameterSweepService.FAMILY_BOLLINGER,
+                    ParameterSweepService.FAMILY_DONCHIAN, ParameterSweepService.FAMILY_RSI}) {
+                ParameterSweepResultDTO result = service.sweep(series, family, periods, 2.0, new BigDecimal("0.001"));
+                assertTrue(result.isSuccess(), family);
+                assertEquals(periods.size(), result.getEntries().size(), family);
+                assertEquals(result.getEntries().get(0).getPeriod(), result.getBestPeriod(), family);
+                for (int i = 1; i < result.getEntries().size(); i++) {
+                    assertTrue(result.getEntries().get(i - 1).getSharpeRatio()
+                            .compareTo(result.getEntries().get(i).getSharpeRatio()) >= 0, family);
+                }
+            }
+            assertFalse(service.sweep(series, "UNKNOWN", periods, 2.0, new BigDecimal("0.001")).isSuccess());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBankIsFasterThanTa4jOnDecimalSeries() {
+        BarSeries series = createWaveSeries(2_000, DecimalNum.class);
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+        int[] periods = new int[10];
+        for (int k = 0; k < periods.length; k++) {
+            periods[k] = 5 * (k + 1);
+        }
+
+        // 与规则一样每个下标读取多次：当前K线和前一根K线
+        long start = System.nanoTime();
+        double expected = 0;
+        for (int period : periods) {
+            expected += readAll(new SMAIndicator(close, period)) + readAll(new StandardDeviationIndicator(close, period));
+        }
+        long ta4jNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        PrefixSumIndicatorBank bank = PrefixSumIndicatorBank.of(series);
+        double actual = 0;
+        for (int period : periods) {
+            actual += readAll(bank.sma(Source.CLOSE, period)) + readAll(bank.stdDev(Source.CLOSE, period));
+        }
+        long bankNanos = System.nanoTime() - start;
+        log.info("{}个周期的SMA和标准差, {}根DecimalNum K线: ta4j {}ms, 指标库 {}ms, 加速{}倍", periods.length,
+                series.getBarCount(), ta4jNanos / 1_000_000, bankNanos / 1_000_000, String.format("%.1f", (double) ta4jNanos / bankNanos));
+
+        assertEquals(expected, actual, Math.abs(expected) * 1e-7);
+        assertTrue(bankNanos < ta4jNanos, "指标库耗时 " + bankNanos + "ns 不低于ta4j " + ta4jNanos + "ns");
+        // 同一下标只转换一次Num
+        Indicator<Num> sma = bank.sma(Source.CLOSE, 20);
+        Num first = sma.getValue(100);
+        assertTrue(first == sma.getValue(100));
+    }
+
+    private static double readAll(Indicator<Num> indicator) {
+        double sum = 0;
+        for (int i = 1; i < indicator.getBarSeries().getBarCount(); i++) {
+            sum += indicator.getValue(i).doubleValue();
+            indicator.getValue(i - 1);
+        }
+        return sum;
+    }
+
+    private static void assertSame(Indicator<Num> expected, Indicator<Num> actual, int period) {
+        for (int i = 0; i < expected.getBarSeries().getBarCount(); i++) {
+            assertEquals(expected.getValue(i).doubleValue(), actual.getValue(i).doubleValue(), 1e-6,
+                    "period " + period + " index " + i);
+        }
+    }
+
+    private static BarSeries createWaveSeries(int barCount) {
+        return createWaveSeries(barCount, DoubleNum.class);
+    }
+
+    private static BarSeries createWaveSeries(int barCount, Class<? extends Num> numType) {
+        BarSeries series = new BaseBarSeriesBuilder().withName("PREFIX_SUM_TEST").withNumTypeOf(numType).build();
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 9.0) + 3 * Math.sin(i / 2.3) + i * 0.02;
+            series.addBar(Duration.ofHours(1), time.plusHours(i), close, close + 1 + (i % 7) * 0.1,
+                    close - 1 - (i % 5) * 0.1, close, 1000 + i);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,190 @@
+package com.okx.trading.event;
+
+import com.okx.trading.model.market.Candlestick;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 行情事件环形总线测试类
+ */
+class MarketDataEventBusTest {
+
+    private MarketDataEventBus bus;
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    void testSlowConsumerConflatesWithoutBlockingOthers() throws Exception {
+        bus = new MarketDataEventBus(64);
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Candlestick> slow = new CopyOnWriteArrayList<>();
+        List<Candlestick> fast = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", (symbol, interval, candlestick) -> {
+            slow.add(candlestick);
+            firstReceived.countDown();
+            await(release);
+        });
+        bus.subscribe("fast", (symbol, interval, candlestick) -> fast.add(candlestick));
+
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 100, false));
+        assertTrue(firstReceived.await(5, TimeUnit.SECONDS));
+        // 慢消费者阻塞期间继续发布：同一根K线的多次更新、完结推送和下一根K线的更新
+        for (int i = 1; i <= 10; i++) {
+            bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 100 + i, false));
+        }
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 111, true));
+        bus.publishKline("candle1m", "ETH-USDT", "1m", candle(0, 50, false));
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(1, 112, false));
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(1, 113, false));
+
+        // 快消费者不受影响，读完全部事件（发布过快时同样可能合并）
+        waitFor(() -> bus.getStats().get(1).getConsumed() == 15);
+        assertEquals(15, bus.getStats().get(1).getProcessed() + bus.getStats().get(1).getConflated());
+        assertEquals(113, fast.get(fast.size() - 1).getClose().intValue());
+        assertEquals(1, slow.size());
+        release.countDown();
+        waitFor(() -> bus.getStats().get(0).getLag() == 0);
+
+        // 积压中BTC只保留最新的未完结更新，完结K线和其他交易对照常按顺序交付
+        assertEquals(4, slow.size());
+        assertTrue(slow.get(1).isConfirmed());
+        assertEquals(111, slow.get(1).getClose().intValue());
+        assertEquals(50, slow.get(2).getClose().intValue());
+        assertEquals(113, slow.get(3).getClose().intValue());
+
+        MarketDataEventBus.ConsumerStats stats = bus.getStats().get(0);
+        assertEquals("slow", stats.getName());
+        assertEquals(15, stats.getPublished());
+        assertEquals(4, stats.getProcessed());
+        assertEquals(11, stats.getConflated());
+        assertEquals(0, stats.getDropped());
+        assertTrue(stats.getMaxLag() >= 14);
+    }
+
+    @Test
+    void testOverrunKeepsConfirmedEventsWithoutBlockingPublisher() throws Exception {
+        bus = new MarketDataEventBus(8);
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Candlestick> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", (symbol, interval, candlestick) -> {
+            received.add(candlestick);
+            firstReceived.countDown();
+            await(release);
+        });
+
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 100, true));
+        assertTrue(firstReceived.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            bus.publishKline("candle1m", "BTC-USDT", "1m", candle(i, 100 + i, true));
+        }
+        release.countDown();
+        waitFor(() -> bus.getStats().get(0).getLag() == 0);
+
+        // 被覆盖的已完结K线从溢出队列补回，按发布顺序全部交付
+        MarketDataEventBus.ConsumerStats stats = bus.getStats().get(0);
+        assertEquals(8, bus.getCapacity());
+        assertEquals(101, stats.getPublished());
+        assertEquals(0, stats.getDropped());
+        assertEquals(101, received.size());
+        for (int i = 0; i <= 100; i++) {
+            assertEquals(100 + i, received.get(i).getClose().intValue());
+        }
+    }
+
+    @Test
+    void testOverrunDropsOnlyUnconfirmedEvents() throws Exception {
+        bus = new MarketDataEventBus(8);
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Candlestick> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", (symbol, interval, candlestick) -> {
+            received.add(candlestick);
+            firstReceived.countDown();
+            await(release);
+        });
+
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 100, true));
+        assertTrue(firstReceived.await(5, TimeUnit.SECONDS));
+        // 每根K线一次未完结更新和一次完结推送
+        for (int i = 1; i <= 20; i++) {
+            bus.publishKline("candle1m", "BTC-USDT", "1m", candle(i, 100 + i, false));
+            bus.publishKline("candle1m", "BTC-USDT", "1m", candle(i, 100 + i, true));
+        }
+        release.countDown();
+        waitFor(() -> bus.getStats().get(0).getLag() == 0);
+
+        assertEquals(21, received.size());
+        assertTrue(received.stream().allMatch(Candlestick::isConfirmed));
+        assertTrue(bus.getStats().get(0).getDropped() > 0);
+    }
+
+    @Test
+    void testUpdatesForDifferentBarsAreNotConflated() throws Exception {
+        bus = new MarketDataEventBus(64);
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Candlestick> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", (symbol, interval, candlestick) -> {
+            received.add(candlestick);
+            firstReceived.countDown();
+            await(release);
+        });
+
+        bus.publishKline("candle1m", "ETH-USDT", "1m", candle(0, 50, false));
+        assertTrue(firstReceived.await(5, TimeUnit.SECONDS));
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 100, false));
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(0, 101, false));
+        bus.publishKline("candle1m", "BTC-USDT", "1m", candle(1, 102, false));
+        release.countDown();
+        waitFor(() -> bus.getStats().get(0).getLag() == 0);
+
+        // 上一根K线的最后一次更新不会被下一根K线的更新合并掉
+        assertEquals(3, received.size());
+        assertEquals(101, received.get(1).getClose().intValue());
+        assertEquals(102, received.get(2).getClose().intValue());
+        assertEquals(1, bus.getStats().get(0).getConflated());
+    }
+
+    private static Candlestick candle(int minute, double close, boolean confirmed) {
+        return Candlestick.builder()
+                .symbol("BTC-USDT")
+                .intervalVal("1m")
+                .openTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(minute))
+                .close(BigDecimal.valueOf(close))
+                .state(confirmed ? 1 : 0)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.okx.trading.exchange;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存撮合引擎测试类
+ */
+@Slf4j
+class MatchingEngineTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+
+    private final List<String> events = new ArrayList<>();
+    private MatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new MatchingEngine(new MatchingEngine.ExecutionListener() {
+            @Override
+            public void onFill(String symbol, long orderId, long price, long quantity, long leaves) {
+                events.add("fill " + orderId + " " + price + "x" + quantity + " leaves " + leaves);
+            }
+
+            @Override
+            public void onCancel(String symbol, long orderId, long quantity) {
+                events.add("cancel " + orderId + " " + quantity);
+            }
+        });
+    }
+
+    @Test
+    void testPriceTimePriorityAndPartialFill() {
+        engine.submit(SYMBOL, 1, false, MatchingEngine.OrderType.LIMIT, 101, 5);
+        engine.submit(SYMBOL, 2, false, MatchingEngine.OrderType.LIMIT, 100, 3);
+        engine.submit(SYMBOL, 3, false, MatchingEngine.OrderType.LIMIT, 100, 4);
+        assertTrue(events.isEmpty());
+
+        // 先吃完更优的100价位，同价位按时间先后，剩余部分挂单
+        long leaves = engine.submit(SYMBOL, 4, true, MatchingEngine.OrderType.LIMIT, 100, 10);
+
+        assertEquals(3, leaves);
+        assertEquals(100, engine.bestBid(SYMBOL));
+        assertEquals(101, engine.bestAsk(SYMBOL));
+        assertEquals(3, engine.leaves(SYMBOL, 4));
+        assertEquals(-1, engine.leaves(SYMBOL, 2));
+        assertEquals(4, events.size());
+        assertEquals("fill 2 100x3 leaves 0", events.get(0));
+        assertEquals("fill 4 100x3 leaves 7", events.get(1));
+        assertEquals("fill 3 100x4 leaves 0", events.get(2));
+        assertEquals("fill 4 100x4 leaves 3", events.get(3));
+    }
+
+    @Test
+    void testIocAndMarketCancelRemainder() {
+        engine.submit(SYMBOL, 1, false, MatchingEngine.OrderType.LIMIT, 100, 2);
+        engine.submit(SYMBOL, 2, false, MatchingEngine.OrderType.LIMIT, 105, 2);
+
+        // IOC只成交限价以内的部分
+        assertEquals(3, engine.submit(SYMBOL, 3, true, MatchingEngine.OrderType.IOC, 102, 5));
+        assertEquals("cancel 3 3", events.get(events.size() - 1));
+        assertEquals(-1, engine.bestBid(SYMBOL));
+
+        // 市价单不限价格，对手盘不足时撤销剩余
+        events.clear();
+        assertEquals(1, engine.submit(SYMBOL, 4, true, MatchingEngine.OrderType.MARKET, 0, 3));
+        assertEquals("fill 4 105x2 leaves 1", events.get(1));
+        assertEquals("cancel 4 1", events.get(2));
+        assertEquals(-1, engine.bestAsk(SYMBOL));
+    }
+
+    @Test
+    void testCancel() {
+        engine.submit(SYMBOL, 1, true, MatchingEngine.OrderType.LIMIT, 99, 2);
+        engine.submit(SYMBOL, 2, true, MatchingEngine.OrderType.LIMIT, 99, 3);
+        engine.submit(SYMBOL, 3, true, MatchingEngine.OrderType.LIMIT, 98, 1);
+
+        assertTrue(engine.cancel(SYMBOL, 1));
+        assertFalse(engine.cancel(SYMBOL, 1));
+        assertFalse(engine.cancel("ETH-USDT", 2));
+        assertEquals("cancel 1 2", events.get(0));
+
+        // 撤单后同价位剩下的订单仍可成交，价位清空后最优价下移
+        engine.submit(SYMBOL, 4, false, MatchingEngine.OrderType.MARKET, 0, 3);
+        assertEquals("fill 2 99x3 leaves 0", events.get(1));
+        assertEquals(98, engine.bestBid(SYMBOL));
+    }
+
+    @Test
+    void testQuoteFillsCrossedOrdersWithoutHouseSelfTrade() {
+        engine.quote(SYMBOL, 99, 101, 1_000);
+        engine.submit(SYMBOL, 1, false, MatchingEngine.OrderType.LIMIT, 105, 10);
+        assertEquals(101, engine.bestAsk(SYMBOL));
+
+        // 做市报价移动到挂单之上，挂单按挂单价格成交；上一组做市订单已撤销，做市订单之间不成交
+        engine.quote(SYMBOL, 106, 106, 1_000);
+        assertEquals(1, events.size());
+        assertEquals("fill 1 105x10 leaves 0", events.get(0));
+        assertEquals(106, engine.bestBid(SYMBOL));
+        assertEquals(106, engine.bestAsk(SYMBOL));
+
+        assertEquals(0, engine.submit(SYMBOL, 2, true, MatchingEngine.OrderType.MARKET, 0, 5));
+        assertEquals("fill 2 106x5 leaves 0", events.get(1));
+    }
+
+    @Test
+    void testThroughput() {
+        MatchingEngine.ExecutionListener ignore = new MatchingEngine.ExecutionListener() {
+            @Override
+            public void onFill(String symbol, long orderId, long price, long quantity, long leaves) {
+            }
+
+            @Override
+            public void onCancel(String symbol, long orderId, long quantity) {
+            }
+        };
+        MatchingEngine benchmark = new MatchingEngine(ignore);
+        Random random = new Random(42);
+        int count = 500_000;
+        long start = System.nanoTime();
+        for (int i = 1; i <= count; i++) {
+            boolean buy = random.nextBoolean();
+            long price = 10_000 + random.nextInt(200) - 100;
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                benchmark.submit(SYMBOL, i, buy, MatchingEngine.OrderType.MARKET, 0, 1 + random.nextInt(10));
+            } else if (kind == 1 && i > 100) {
+                benchmark.cancel(SYMBOL, i - 1 - random.nextInt(100));
+            } else {
+                benchmark.submit(SYMBOL, i, buy, MatchingEngine.OrderType.LIMIT, price, 1 + random.nextInt(10));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("撮合{}笔订单耗时{}ms，{}笔/秒，成交{}笔", count, elapsed / 1_000_000,
+                (long) (count * 1e9 / elapsed), benchmark.getFillCount());
+
+        assertTrue(benchmark.getFillCount() > 0);
+        assertTrue(benchmark.bestBid(SYMBOL) < benchmark.bestAsk(SYMBOL));
+    }
+}
@@ -0,0 +1,127 @@
+package com.okx.trading.listener;
+
+import com.okx.trading.event.WebSocketReconnectEvent;
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.KlineCacheService;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * WebSocket重连缺口补齐测试类
+ */
+class WebSocketReconnectEventListenerTest {
+
+    private OkxApiService okxApiService;
+    private RealTimeStrategyManager manager;
+    private ExecutorService executor;
+    private WebSocketReconnectEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        okxApiService = mock(OkxApiService.class);
+        manager = mock(RealTimeStrategyManager.class);
+        executor = Executors.newFixedThreadPool(2);
+        listener = new WebSocketReconnectEventListener(mock(KlineCacheService.class), okxApiService, manager, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testMissedBarsAreFetchedPerSeriesAndReplayed() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(10);
+        Map<String, LocalDateTime> gaps = new LinkedHashMap<>();
+        gaps.put("BTC-USDT_1m", since);
+        gaps.put("ETH-USDT_1m", since);
+        when(manager.beginReplay()).thenReturn(gaps);
+        // 历史接口从新到旧返回，最新一根尚未完结
+        List<Candlestick> page = new ArrayList<>();
+        for (int i = 10; i >= 0; i--) {
+            page.add(candle(since.plusMinutes(i)));
+        }
+        when(okxApiService.getHistoryKlineData(eq("BTC-USDT"), eq("1m"), anyLong(), anyLong(), eq(100))).thenReturn(page);
+        when(okxApiService.getHistoryKlineData(eq("ETH-USDT"), eq("1m"), anyLong(), anyLong(), eq(100)))
+                .thenThrow(new RuntimeException("timeout"));
+
+        listener.backfillGapsOnReconnect(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.BUSINESS));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Candlestick>> bars = ArgumentCaptor.forClass(List.class);
+        verify(manager, timeout(5000)).finishReplay(eq("BTC-USDT"), eq("1m"), bars.capture());
+        assertEquals(9, bars.getValue().size());
+        assertTrue(bars.getValue().stream().allMatch(Candlestick::isConfirmed));
+        assertTrue(bars.getValue().stream().allMatch(c -> c.getOpenTime().isAfter(since)));
+        // 获取失败的系列同样结束补齐，恢复实时处理
+        verify(manager, timeout(5000)).finishReplay("ETH-USDT", "1m", Collections.emptyList());
+    }
+
+    @Test
+    void testRejectedSubmissionStillFinishesEverySeries() {
+        Map<String, LocalDateTime> gaps = new LinkedHashMap<>();
+        gaps.put("BTC-USDT_1m", LocalDateTime.now().minusMinutes(10));
+        gaps.put("ETH-USDT_1m", LocalDateTime.now().minusMinutes(10));
+        when(manager.beginReplay()).thenReturn(gaps);
+        executor.shutdownNow();
+
+        listener.backfillGapsOnReconnect(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.PUBLIC));
+
+        // 线程池拒绝任务时在发布线程上直接结束补齐，后面的系列不受影响
+        verify(manager).finishReplay("BTC-USDT", "1m", Collections.emptyList());
+        verify(manager).finishReplay("ETH-USDT", "1m", Collections.emptyList());
+        verifyNoInteractions(okxApiService);
+    }
+
+    @Test
+    void testPagesBackwardsUntilGapIsCovered() {
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        LocalDateTime since = now.minusMinutes(150);
+        List<Candlestick> newer = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            newer.add(candle(now.minusMinutes(1 + i)));
+        }
+        List<Candlestick> older = new ArrayList<>();
+        for (int i = 100; i < 149; i++) {
+            older.add(candle(now.minusMinutes(1 + i)));
+        }
+        when(okxApiService.getHistoryKlineData(eq("BTC-USDT"), eq("1m"), anyLong(), anyLong(), eq(100))).thenReturn(newer, older);
+
+        List<Candlestick> bars = listener.fetchMissedBars("BTC-USDT", "1m", since, System.currentTimeMillis());
+
+        assertEquals(149, bars.size());
+        ArgumentCaptor<Long> end = ArgumentCaptor.forClass(Long.class);
+        verify(okxApiService, times(2)).getHistoryKlineData(eq("BTC-USDT"), eq("1m"), anyLong(), end.capture(), eq(100));
+        assertEquals(now.minusMinutes(100).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), end.getAllValues().get(1).longValue());
+        verify(manager, never()).finishReplay(anyString(), anyString(), anyList());
+    }
+
+    private static Candlestick candle(LocalDateTime openTime) {
+        return Candlestick.builder()
+                .symbol("BTC-USDT")
+                .intervalVal("1m")
+                .openTime(openTime)
+                .closeTime(openTime.plusMinutes(1))
+                .close(BigDecimal.ONE)
+                .build();
+    }
+}
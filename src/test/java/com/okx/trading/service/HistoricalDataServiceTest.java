@@ -1,19 +1,32 @@
 package com.okx.trading.service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.okx.trading.model.entity.CandlestickEntity;
 import com.okx.trading.repository.CandlestickRepository;
@@ -30,12 +43,26 @@ public class HistoricalDataServiceTest {
     @Mock
     private OkxApiService okxApiService;
 
+    @Mock
+    private CandlestickPartitionService partitionService;
+
+    @Mock
+    private CandlestickCoverageService coverageService;
+
+    @Mock
+    private RedisCacheService redisCacheService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private HistoricalDataServiceImpl historicalDataService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(historicalDataService, "redisCacheService", redisCacheService);
+        ReflectionTestUtils.setField(historicalDataService, "eventPublisher", eventPublisher);
     }
 
     /**
@@ -64,4 +91,132 @@ public class HistoricalDataServiceTest {
         verify(candlestickRepository).findLatestBySymbolAndInterval(
                 eq(symbol), eq(interval), any(PageRequest.class));
     }
-} 
\ No newline at end of file
+
+    /**
+     * 测试重新获取已归档区间时不会把归档K线再次写入K线表
+     */
+    @Test
+    public void testSaveBatchSkipsArchivedCandles() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<CandlestickEntity> archived = new ArrayList<>();
+        List<CandlestickEntity> fetched = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CandlestickEntity entity = CandlestickEntity.builder().symbol("BTC-USDT").intervalVal("1H")
+                    .openTime(start.plusHours(i)).close(BigDecimal.ONE).build();
+            if (i < 3) {
+                archived.add(entity);
+            }
+            fetched.add(CandlestickEntity.builder().symbol("BTC-USDT").intervalVal("1H")
+                    .openTime(start.plusHours(i)).close(BigDecimal.ONE).build());
+        }
+        when(partitionService.isArchived(any(LocalDateTime.class))).thenReturn(true);
+        when(candlestickRepository.findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                eq("BTC-USDT"), eq("1H"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(new ArrayList<>());
+        when(candlestickRepository.findArchivedBySymbolAndIntervalAndOpenTimeBetween(
+                "BTC-USDT", "1H", start, start.plusHours(3))).thenReturn(archived);
+        when(candlestickRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CandlestickEntity> saved = historicalDataService.saveBatch(fetched);
+
+        // 只有归档之后的一根K线写入K线表
+        assertEquals(1, saved.size());
+        assertEquals(start.plusHours(3), saved.get(0).getOpenTime());
+    }
+
+    /**
+     * 测试并发的相同历史数据请求只加载一次
+     */
+    @Test
+    public void testConcurrentIdenticalFetchesShareOneLoad() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = start.plusHours(9);
+        List<CandlestickEntity> stored = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            stored.add(CandlestickEntity.builder().symbol("BTC-USDT").intervalVal("1H")
+                    .openTime(start.plusHours(i)).closeTime(start.plusHours(i + 1).minusSeconds(1))
+                    .close(BigDecimal.ONE).build());
+        }
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(candlestickRepository.findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                eq("BTC-USDT"), eq("1H"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return stored;
+                });
+
+        AtomicReference<List<CandlestickEntity>> leaderResult = new AtomicReference<>();
+        AtomicReference<List<CandlestickEntity>> followerResult = new AtomicReference<>();
+        Thread leader = new Thread(() -> leaderResult.set(historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(
+                "BTC-USDT", "1H", "2024-01-01 00:00:00", "2024-01-01 09:00:00")));
+        Thread follower = new Thread(() -> followerResult.set(historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(
+                "BTC-USDT", "1H", "2024-01-01 03:00:00", "2024-01-01 05:00:00")));
+
+        leader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        follower.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (follower.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertEquals(10, leaderResult.get().size());
+        assertEquals(3, followerResult.get().size());
+        assertEquals(start.plusHours(3), followerResult.get().get(0).getOpenTime());
+        verify(candlestickRepository, times(1)).findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                anyString(), anyString(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    /**
+     * 测试leader加载抛出Error时，等待同一分块的请求以异常结束而不是永久阻塞
+     */
+    @Test
+    public void testFollowersFailWhenLeaderThrowsError() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(candlestickRepository.findBySymbolAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                eq("BTC-USDT"), eq("1H"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    throw new OutOfMemoryError("test");
+                });
+
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        AtomicReference<Throwable> followerError = new AtomicReference<>();
+        Thread leader = new Thread(() -> {
+            try {
+                historicalDataService.fetchAndSaveHistoryWithIntegrityCheck("BTC-USDT", "1H", "2024-01-01 00:00:00", "2024-01-01 09:00:00");
+            } catch (Throwable e) {
+                leaderError.set(e);
+            }
+        });
+        Thread follower = new Thread(() -> {
+            try {
+                historicalDataService.fetchAndSaveHistoryWithIntegrityCheck("BTC-USDT", "1H", "2024-01-01 03:00:00", "2024-01-01 05:00:00");
+            } catch (Throwable e) {
+                followerError.set(e);
+            }
+        });
+
+        leader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        follower.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (follower.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertTrue(leaderError.get() instanceof OutOfMemoryError);
+        assertFalse(follower.isAlive());
+        assertTrue(followerError.get().getCause() instanceof OutOfMemoryError);
+    }
+}
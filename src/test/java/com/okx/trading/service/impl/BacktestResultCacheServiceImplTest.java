@@ -0,0 +1,181 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.event.StrategyChangedEvent;
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.model.entity.StrategyInfoEntity;
+import com.okx.trading.service.StrategyInfoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.boot.info.GitProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回测结果缓存服务测试类
+ */
+class BacktestResultCacheServiceImplTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusHours(49);
+    private static final BigDecimal AMOUNT = new BigDecimal("100000");
+    private static final BigDecimal FEE = new BigDecimal("0.001");
+
+    private final Map<String, Object> store = new HashMap<>();
+    private StrategyInfoService strategyInfoService;
+    private RedisTemplate<String, Object> redisTemplate;
+    private SetOperations<String, Object> setOperations;
+    private BacktestResultCacheServiceImpl cacheService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        setOperations = mock(SetOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        doAnswer(invocation -> store.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), any(), anyLong(), any());
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> store.get(invocation.<String>getArgument(0)));
+
+        strategyInfoService = mock(StrategyInfoService.class);
+        when(strategyInfoService.getStrategyByCode(anyString())).thenReturn(Optional.empty());
+        cacheService = new BacktestResultCacheServiceImpl(redisTemplate, strategyInfoService, "git-abc123");
+    }
+
+    @Test
+    void testPutThenGetReturnsCachedResult() {
+        BarSeries series = createSeries(0);
+        String key = cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, series, new ArrayList<>());
+        assertNull(cacheService.get(key));
+
+        BacktestResultDTO result = new BacktestResultDTO();
+        result.setSuccess(true);
+        result.setNumberOfTrades(3);
+        result.setTotalReturn(new BigDecimal("0.1234"));
+        cacheService.put(key, "SMA", SYMBOL, "1H", result);
+
+        BacktestResultDTO cached = cacheService.get(key);
+        assertNotNull(cached);
+        assertEquals(3, cached.getNumberOfTrades());
+        assertEquals(0, new BigDecimal("0.1234").compareTo(cached.getTotalReturn()));
+        assertEquals(1L, cacheService.getStats().get("hits"));
+        assertEquals(1L, cacheService.getStats().get("misses"));
+        verify(setOperations).add("backtest-result-index:strategy:SMA", key);
+        verify(setOperations).add("backtest-result-index:data:BTC-USDT:1H", key);
+    }
+
+    @Test
+    void testFailedResultIsNotCached() {
+        String key = cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null);
+        BacktestResultDTO failed = new BacktestResultDTO();
+        failed.setSuccess(false);
+
+        cacheService.put(key, "SMA", SYMBOL, "1H", failed);
+
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    void testKeyChangesWithInputs() {
+        String base = cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null);
+
+        // 数值相等但写法不同的参数视为同一回测
+        assertEquals(base, cacheService.buildKey("SMA", SYMBOL, "1H", START, END,
+                new BigDecimal("100000.00"), new BigDecimal("0.0010"), createSeries(0), null));
+        // 任何一根K线被修正都会产生新的键
+        assertNotEquals(base, cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(1), null));
+        assertNotEquals(base, cacheService.buildKey("EMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null));
+        assertNotEquals(base, cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, new BigDecimal("0.002"), createSeries(0), null));
+
+        // 批量回测预先计算的数据指纹与逐个计算得到相同的键
+        String fingerprint = cacheService.dataFingerprint(createSeries(0), null);
+        assertEquals(base, cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, fingerprint));
+    }
+
+    @Test
+    void testStrategySourceChangeProducesNewKeyAndEvictsIndex() {
+        StrategyInfoEntity strategy = new StrategyInfoEntity();
+        strategy.setStrategyCode("AI_1");
+        strategy.setSourceCode("rule-a");
+        when(strategyInfoService.getStrategyByCode("AI_1")).thenReturn(Optional.of(strategy));
+        String before = cacheService.buildKey("AI_1", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null);
+
+        when(setOperations.members("backtest-result-index:strategy:AI_1")).thenReturn(new HashSet<>(Arrays.asList(before)));
+        when(redisTemplate.delete(anyCollection())).thenReturn(2L);
+        strategy.setSourceCode("rule-b");
+        cacheService.onStrategyChanged(new StrategyChangedEvent(this, "AI_1"));
+
+        String after = cacheService.buildKey("AI_1", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null);
+        assertNotEquals(before, after);
+        verify(redisTemplate).delete(argThat((Collection<String> keys) ->
+                keys.contains(before) && keys.contains("backtest-result-index:strategy:AI_1")));
+        assertEquals(1L, cacheService.getStats().get("evictions"));
+    }
+
+    @Test
+    void testBuiltinStrategyKeyChangesWithBuildVersion() {
+        String key = cacheService.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null);
+        BacktestResultCacheServiceImpl redeployed = new BacktestResultCacheServiceImpl(redisTemplate, strategyInfoService, "git-def456");
+
+        assertNotEquals(key, redeployed.buildKey("SMA", SYMBOL, "1H", START, END, AMOUNT, FEE, createSeries(0), null));
+    }
+
+    @Test
+    void testBuiltinVersionPrefersGitCommitThenBuildThenClassHash() {
+        Properties git = new Properties();
+        git.setProperty("commit.id", "abc123");
+        Properties build = new Properties();
+        build.setProperty("version", "1.0.0");
+        build.setProperty("time", "2024-01-01T00:00:00Z");
+
+        assertEquals("git-abc123", BacktestResultCacheServiceImpl.builtinVersion(new GitProperties(git), new BuildProperties(build)));
+        assertEquals("build-1.0.0-1704067200000", BacktestResultCacheServiceImpl.builtinVersion(null, new BuildProperties(build)));
+        // IDE直接运行时没有构建信息，退回到内置策略类字节码哈希，同一份代码结果稳定
+        String classes = BacktestResultCacheServiceImpl.builtinVersion(null, null);
+        assertTrue(classes.matches("classes-[0-9a-f]{64}"));
+        assertEquals(classes, BacktestResultCacheServiceImpl.builtinVersion(null, null));
+    }
+
+    private static BarSeries createSeries(int bumpedBar) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime openTime = START.plusHours(i);
+            BigDecimal price = BigDecimal.valueOf(40000 + i + (i == bumpedBar && bumpedBar > 0 ? 1 : 0));
+            candles.add(CandlestickEntity.builder()
+                    .symbol(SYMBOL)
+                    .intervalVal("1H")
+                    .openTime(openTime)
+                    .closeTime(openTime.plusHours(1).minusSeconds(1))
+                    .open(price)
+                    .high(price.add(BigDecimal.TEN))
+                    .low(price.subtract(BigDecimal.TEN))
+                    .close(price)
+                    .volume(BigDecimal.ONE)
+                    .build());
+        }
+        return new CandlestickBarSeriesConverter().convert(candles, "test");
+    }
+}
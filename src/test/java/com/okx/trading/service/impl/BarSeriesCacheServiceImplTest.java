@@ -0,0 +1,145 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.event.HistoricalDataChangedEvent;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.HistoricalDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回测条形系列缓存服务测试类
+ */
+class BarSeriesCacheServiceImplTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private HistoricalDataService historicalDataService;
+    private BarSeriesCacheServiceImpl cacheService;
+
+    @BeforeEach
+    void setUp() {
+        historicalDataService = mock(HistoricalDataService.class);
+        when(historicalDataService.getIntervalMinutes("1H")).thenReturn(60L);
+        when(historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(eq(SYMBOL), eq("1H"), anyString(), anyString()))
+                .thenAnswer(invocation -> createCandles(
+                        LocalDateTime.parse(invocation.getArgument(2), FORMAT),
+                        LocalDateTime.parse(invocation.getArgument(3), FORMAT)));
+        cacheService = new BarSeriesCacheServiceImpl(historicalDataService, new CandlestickBarSeriesConverter());
+    }
+
+    @Test
+    void testRepeatedRequestHitsCache() {
+        LocalDateTime end = START.plusHours(99);
+
+        BarSeries first = cacheService.getSeries(SYMBOL, "1H", START, end);
+        BarSeries second = cacheService.getSeries(SYMBOL, "1H", START, end);
+
+        assertSame(first, second);
+        assertEquals(100, second.getBarCount());
+        assertEquals(1L, cacheService.getStats().get("hits"));
+        assertEquals(1L, cacheService.getStats().get("misses"));
+        assertThrows(UnsupportedOperationException.class, () -> second.addPrice(second.numOf(1)));
+        verify(historicalDataService, times(1)).fetchAndSaveHistoryWithIntegrityCheck(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testLongerRangeOnlyLoadsTail() {
+        cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(99));
+
+        BarSeries extended = cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(149));
+
+        assertEquals(150, extended.getBarCount());
+        assertEquals(1L, cacheService.getStats().get("extensions"));
+        verify(historicalDataService).fetchAndSaveHistoryWithIntegrityCheck(
+                SYMBOL, "1H", START.plusHours(100).format(FORMAT), START.plusHours(149).format(FORMAT));
+        for (int i = 1; i < extended.getBarCount(); i++) {
+            assertTrue(extended.getBar(i).getEndTime().isAfter(extended.getBar(i - 1).getEndTime()));
+        }
+    }
+
+    @Test
+    void testExtensionAppendsWithoutChangingEarlierSeries() {
+        BarSeries first = cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(99));
+        BarSeries extended = cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(149));
+        Bar extendedBar = extended.getBar(120);
+
+        // 已交给调用方的较短系列不受尾部追加影响，追加的系列复用已有的Bar
+        assertEquals(100, first.getBarCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> first.getBar(100));
+        assertSame(first.getBar(99), extended.getBar(99));
+
+        // 从较短的系列再次扩展不会覆盖较长系列的K线
+        BarSeries branched = cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(129));
+        assertEquals(130, branched.getBarCount());
+        assertSame(extendedBar, extended.getBar(120));
+        assertEquals(150, extended.getBarCount());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenOverBudget() {
+        ReflectionTestUtils.setField(cacheService, "maxBars", 150L);
+
+        cacheService.getBenchmark(SYMBOL, "1H", START, START.plusHours(99));
+        cacheService.getBenchmark(SYMBOL, "1H", START.plusHours(200), START.plusHours(299));
+
+        assertEquals(1L, cacheService.getStats().get("evictions"));
+        assertEquals(1, cacheService.getStats().get("entries"));
+        assertEquals(100L, cacheService.getStats().get("cachedBars"));
+    }
+
+    @Test
+    void testBackfillInsideCachedRangeDropsSeries() {
+        when(historicalDataService.fetchAndSaveHistoryWithIntegrityCheck(eq("ETH-USDT"), eq("1H"), anyString(), anyString()))
+                .thenReturn(createCandles(START, START.plusHours(9)));
+        BarSeries first = cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(99));
+        cacheService.getBenchmark("ETH-USDT", "1H", START, START.plusHours(9));
+
+        // 缓存最后一根之后追加的K线不影响缓存
+        cacheService.onHistoricalDataChanged(new HistoricalDataChangedEvent(this, SYMBOL, "1H",
+                START.plusHours(100), START.plusHours(120)));
+        assertEquals(2, cacheService.getStats().get("entries"));
+
+        // 回补落在缓存范围内，只清除变更的交易对，再次请求重新加载
+        cacheService.onHistoricalDataChanged(new HistoricalDataChangedEvent(this, SYMBOL, "1H",
+                START.plusHours(40), START.plusHours(41)));
+        assertEquals(1, cacheService.getStats().get("entries"));
+        assertNotSame(first, cacheService.getSeries(SYMBOL, "1H", START, START.plusHours(99)));
+        verify(historicalDataService, times(2)).fetchAndSaveHistoryWithIntegrityCheck(
+                SYMBOL, "1H", START.format(FORMAT), START.plusHours(99).format(FORMAT));
+    }
+
+    private static List<CandlestickEntity> createCandles(LocalDateTime from, LocalDateTime to) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        for (LocalDateTime openTime = from; !openTime.isAfter(to); openTime = openTime.plusHours(1)) {
+            BigDecimal price = BigDecimal.valueOf(40000 + openTime.getHour());
+            candles.add(CandlestickEntity.builder()
+                    .symbol(SYMBOL)
+                    .intervalVal("1H")
+                    .openTime(openTime)
+                    .closeTime(openTime.plusHours(1).minusSeconds(1))
+                    .open(price)
+                    .high(price.add(BigDecimal.TEN))
+                    .low(price.subtract(BigDecimal.TEN))
+                    .close(price.add(BigDecimal.ONE))
+                    .volume(BigDecimal.ONE)
+                    .build());
+        }
+        return candles;
+    }
+}
@@ -0,0 +1,191 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.TimeSlice;
+import com.okx.trading.model.entity.CandlestickCoverageEntity;
+import com.okx.trading.repository.CandlestickCoverageRepository;
+import com.okx.trading.repository.CandlestickRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K线覆盖索引服务测试类
+ */
+class CandlestickCoverageServiceImplTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+
+    private CandlestickCoverageRepository coverageRepository;
+    private CandlestickRepository candlestickRepository;
+    private CandlestickCoverageServiceImpl coverageService;
+
+    @BeforeEach
+    void setUp() {
+        coverageRepository = mock(CandlestickCoverageRepository.class);
+        candlestickRepository = mock(CandlestickRepository.class);
+        when(coverageRepository.findChunksBetween(anyString(), anyString(), anyLong(), anyLong()))
+                .thenReturn(Collections.emptyList());
+        when(coverageRepository.save(any(CandlestickCoverageEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        coverageService = new CandlestickCoverageServiceImpl(coverageRepository, candlestickRepository);
+    }
+
+    @Test
+    void testFindMissingRangesAcrossDayBoundary() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 23, 50);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 2, 0, 10);
+
+        // 缺失 23:55 ~ 00:04，横跨两个分块
+        List<LocalDateTime> existing = new ArrayList<>();
+        for (LocalDateTime t = start; !t.isAfter(end); t = t.plusMinutes(1)) {
+            if (t.isBefore(LocalDateTime.of(2024, 1, 1, 23, 55)) || t.isAfter(LocalDateTime.of(2024, 1, 2, 0, 4))) {
+                existing.add(t);
+            }
+        }
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(eq(SYMBOL), eq("1m"), any(), any()))
+                .thenReturn(existing);
+
+        List<TimeSlice> missing = coverageService.findMissingRanges(SYMBOL, "1m", 1, start, end);
+
+        assertEquals(1, missing.size());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 23, 55), missing.get(0).getStart());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 0, 4), missing.get(0).getEnd());
+        assertEquals(existing.size(), coverageService.countPresent(SYMBOL, "1m", 1, start, end));
+        // 两个分块在一次查询中回填
+        verify(candlestickRepository, times(1)).findExistingOpenTimesBySymbolAndIntervalBetween(eq(SYMBOL), eq("1m"), any(), any());
+    }
+
+    @Test
+    void testMarkPresentFillsGap() {
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(anyString(), anyString(), any(), any()))
+                .thenReturn(Collections.emptyList());
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime end = start.plusHours(10);
+
+        List<TimeSlice> missing = coverageService.findMissingRanges(SYMBOL, "1H", 60, start, end);
+        assertEquals(1, missing.size());
+        assertEquals(start, missing.get(0).getStart());
+        assertEquals(end, missing.get(0).getEnd());
+
+        List<LocalDateTime> saved = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            if (i != 4) {
+                saved.add(start.plusHours(i));
+            }
+        }
+        coverageService.markPresent(SYMBOL, "1H", 60, saved);
+
+        missing = coverageService.findMissingRanges(SYMBOL, "1H", 60, start, end);
+        assertEquals(1, missing.size());
+        assertEquals(start.plusHours(4), missing.get(0).getStart());
+        assertEquals(start.plusHours(4), missing.get(0).getEnd());
+    }
+
+    @Test
+    void testUnalignedStartTimeIsFlooredToOpenTime() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        List<LocalDateTime> existing = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            if (i != 6) {
+                existing.add(start.plusHours(i));
+            }
+        }
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(anyString(), anyString(), any(), any()))
+                .thenReturn(existing);
+
+        // 从 02:30 开始查询，02:00 开盘的K线已存在，只有 06:00 缺失
+        List<TimeSlice> missing = coverageService.findMissingRanges(SYMBOL, "1H", 60, start.plusMinutes(150), start.plusHours(10));
+
+        assertEquals(1, missing.size());
+        assertEquals(start.plusHours(6), missing.get(0).getStart());
+        assertEquals(start.plusHours(6), missing.get(0).getEnd());
+        assertEquals(8, coverageService.countPresent(SYMBOL, "1H", 60, start.plusMinutes(150), start.plusHours(10)));
+    }
+
+    @Test
+    void testWeeklySlotsAlignToMonday() {
+        // 2024-01-01 是周一，01-15 的周线缺失
+        LocalDateTime monday = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<LocalDateTime> existing = new ArrayList<>();
+        for (int i = 0; i <= 4; i++) {
+            if (i != 2) {
+                existing.add(monday.plusWeeks(i));
+            }
+        }
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(anyString(), anyString(), any(), any()))
+                .thenReturn(existing);
+
+        // 从周三开始查询，向下对齐到周一而不是纪元起点的周四
+        List<TimeSlice> missing = coverageService.findMissingRanges(SYMBOL, "1W", 10080, monday.plusDays(2), monday.plusWeeks(4));
+
+        assertEquals(1, missing.size());
+        assertEquals(monday.plusWeeks(2), missing.get(0).getStart());
+        assertEquals(monday.plusWeeks(2), missing.get(0).getEnd());
+        assertEquals(4, coverageService.countPresent(SYMBOL, "1W", 10080, monday.plusDays(2), monday.plusWeeks(4)));
+    }
+
+    @Test
+    void testMonthlyRangesUseCalendarMonths() {
+        LocalDateTime january = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(eq(SYMBOL), eq("1M"), eq(january), any()))
+                .thenReturn(Arrays.asList(january, january.plusMonths(2)));
+
+        List<TimeSlice> missing = coverageService.findMissingRanges(SYMBOL, "1M", 43200, january.plusDays(14), january.plusMonths(2).plusDays(9));
+
+        assertEquals(1, missing.size());
+        assertEquals(january.plusMonths(1), missing.get(0).getStart());
+        assertEquals(january.plusMonths(1), missing.get(0).getEnd());
+        assertEquals(2, coverageService.countPresent(SYMBOL, "1M", 43200, january.plusDays(14), january.plusMonths(2).plusDays(9)));
+        // 月线不进入位图索引
+        coverageService.markPresent(SYMBOL, "1M", 43200, Collections.singletonList(january.plusMonths(1)));
+        verifyNoInteractions(coverageRepository);
+    }
+
+    @Test
+    void testLeastRecentlyUsedChunksAreEvicted() {
+        ReflectionTestUtils.setField(coverageService, "maxCachedChunks", 2);
+        AtomicLong ids = new AtomicLong();
+        when(coverageRepository.save(any(CandlestickCoverageEntity.class))).thenAnswer(invocation -> {
+            CandlestickCoverageEntity entity = invocation.getArgument(0);
+            entity.setId(ids.incrementAndGet());
+            return entity;
+        });
+        when(candlestickRepository.findExistingOpenTimesBySymbolAndIntervalBetween(anyString(), anyString(), any(), any()))
+                .thenReturn(Collections.emptyList());
+        LocalDateTime day = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+        // 1m周期下每天一个分块，依次访问三天后第一天被淘汰
+        for (int i = 0; i < 3; i++) {
+            coverageService.countPresent(SYMBOL, "1m", 1, day.plusDays(i), day.plusDays(i).plusMinutes(10));
+        }
+        coverageService.countPresent(SYMBOL, "1m", 1, day.plusDays(2), day.plusDays(2).plusMinutes(10));
+        verify(coverageRepository, times(3)).findChunksBetween(anyString(), anyString(), anyLong(), anyLong());
+
+        coverageService.countPresent(SYMBOL, "1m", 1, day, day.plusMinutes(10));
+        verify(coverageRepository, times(4)).findChunksBetween(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testCompressRoundTrip() {
+        BitSet bits = new BitSet(CandlestickCoverageServiceImpl.SLOTS_PER_CHUNK);
+        bits.set(0, 1000);
+        bits.set(1200);
+        bits.set(1439);
+
+        byte[] compressed = CandlestickCoverageServiceImpl.compress(bits);
+
+        assertTrue(compressed.length < CandlestickCoverageServiceImpl.SLOTS_PER_CHUNK / 8);
+        assertEquals(bits, CandlestickCoverageServiceImpl.decompress(compressed));
+    }
+}
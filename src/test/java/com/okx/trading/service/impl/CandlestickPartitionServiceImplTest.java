@@ -0,0 +1,169 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.service.CandlestickCoverageService;
+import com.okx.trading.service.HistoricalDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K线表分区管理服务测试类
+ */
+class CandlestickPartitionServiceImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CandlestickCoverageService coverageService;
+    private CandlestickPartitionServiceImpl partitionService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        coverageService = mock(CandlestickCoverageService.class);
+        HistoricalDataService historicalDataService = mock(HistoricalDataService.class);
+        when(historicalDataService.getIntervalMinutes("1H")).thenReturn(60L);
+        partitionService = new CandlestickPartitionServiceImpl(jdbcTemplate, coverageService, historicalDataService);
+    }
+
+    @Test
+    void testArchiveBoundaryLoadedAtStartup() {
+        LocalDateTime archivedUntil = LocalDateTime.of(2024, 6, 30, 23, 0);
+        when(jdbcTemplate.queryForObject(contains("candlestick_history_archive"), eq(Object.class)))
+                .thenReturn(Timestamp.valueOf(archivedUntil));
+
+        // 首次分区维护之前，查询就能按归档边界决定是否合并归档表
+        assertFalse(partitionService.isArchived(null));
+        partitionService.init();
+
+        assertTrue(partitionService.isArchived(null));
+        assertTrue(partitionService.isArchived(LocalDateTime.of(2024, 6, 1, 0, 0)));
+        assertTrue(partitionService.isArchived(archivedUntil));
+        assertFalse(partitionService.isArchived(archivedUntil.plusHours(1)));
+    }
+
+    @Test
+    void testMissingArchiveTableMeansHotOnly() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Object.class))).thenThrow(new RuntimeException("Table doesn't exist"));
+
+        partitionService.init();
+
+        assertFalse(partitionService.isArchived(null));
+        assertFalse(partitionService.isArchived(LocalDateTime.of(2020, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void testOnlyColdPartitionsAreArchived() {
+        ReflectionTestUtils.setField(partitionService, "archiveAfterMonths", 3);
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        String cold = "p" + currentMonth.minusMonths(4).toString().substring(0, 7).replace("-", "");
+        String hot = "p" + currentMonth.minusMonths(1).toString().substring(0, 7).replace("-", "");
+        when(jdbcTemplate.queryForList(contains("information_schema.PARTITIONS"), anyString())).thenReturn(Arrays.asList(
+                partitionRow(cold, currentMonth.minusMonths(3)),
+                partitionRow(hot, currentMonth),
+                partitionRow("p_max", null)));
+        Map<String, Object> series = new HashMap<>();
+        series.put("symbol", "BTC-USDT");
+        series.put("interval_val", "1H");
+        series.put("min_time", Timestamp.valueOf(currentMonth.minusMonths(4).atStartOfDay()));
+        series.put("max_time", Timestamp.valueOf(currentMonth.minusMonths(3).atStartOfDay().minusHours(1)));
+        when(jdbcTemplate.queryForList(contains("PARTITION (" + cold + ")"))).thenReturn(Collections.singletonList(series));
+        when(jdbcTemplate.queryForList(contains("PARTITION (" + hot + ")"))).thenReturn(Collections.singletonList(series));
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE"))).thenReturn(720);
+        when(jdbcTemplate.queryForObject(contains("candlestick_history_archive"), eq(Object.class)))
+                .thenReturn(series.get("max_time"));
+
+        assertEquals(1, partitionService.archiveColdPartitions());
+
+        // 只有超过阈值的月分区被复制并换出，覆盖索引先于换出建立；换出后从中转表补齐复制之后写入的K线，原分区不做TRUNCATE
+        InOrder inOrder = inOrder(coverageService, jdbcTemplate);
+        inOrder.verify(coverageService).countPresent(eq("BTC-USDT"), eq("1H"), eq(60L), any(), any());
+        inOrder.verify(jdbcTemplate).update(contains("FROM candlestick_history PARTITION (" + cold + ")"));
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE candlestick_history EXCHANGE PARTITION " + cold
+                + " WITH TABLE candlestick_history_archive_staging");
+        inOrder.verify(jdbcTemplate).update(contains("FROM candlestick_history_archive_staging"));
+        inOrder.verify(jdbcTemplate).execute("TRUNCATE TABLE candlestick_history_archive_staging");
+        verify(jdbcTemplate, never()).execute(contains("TRUNCATE PARTITION"));
+        verify(jdbcTemplate, never()).execute(contains("EXCHANGE PARTITION " + hot));
+        assertTrue(partitionService.isArchived(currentMonth.minusMonths(4).atStartOfDay()));
+        assertFalse(partitionService.isArchived(currentMonth.minusMonths(1).atStartOfDay()));
+    }
+
+    @Test
+    void testInterruptedArchiveIsDrainedBeforeNextPartition() {
+        ReflectionTestUtils.setField(partitionService, "archiveAfterMonths", 3);
+        when(jdbcTemplate.queryForList(contains("information_schema.PARTITIONS"), anyString()))
+                .thenReturn(Collections.singletonList(partitionRow("p_max", null)));
+        when(jdbcTemplate.update(contains("FROM candlestick_history_archive_staging"))).thenReturn(720);
+
+        // 上次换出后中断：没有需要归档的分区时也先把中转表里的K线写入归档表
+        assertEquals(0, partitionService.archiveColdPartitions());
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(contains("FROM candlestick_history_archive_staging"));
+        inOrder.verify(jdbcTemplate).execute("TRUNCATE TABLE candlestick_history_archive_staging");
+        verify(jdbcTemplate, never()).execute(contains("EXCHANGE PARTITION"));
+    }
+
+    @Test
+    void testExplainUsesSameInclusiveRangeAsRepository() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 31, 23, 59, 59);
+        Map<String, Object> plan = new HashMap<>();
+        plan.put("partitions", "p202401");
+        when(jdbcTemplate.queryForList(contains("open_time BETWEEN ? AND ?"),
+                eq("BTC-USDT"), eq("1H"), eq(Timestamp.valueOf(start)), eq(Timestamp.valueOf(end))))
+                .thenReturn(Collections.singletonList(plan));
+
+        assertEquals(Collections.singletonList("p202401"), partitionService.explainPartitions("BTC-USDT", "1H", start, end));
+    }
+
+    @Test
+    void testBuildCreatePartitionSqlSplitsMaxPartition() {
+        String sql = CandlestickPartitionServiceImpl.buildCreatePartitionSql(
+                LocalDate.of(2024, 11, 1), LocalDate.of(2025, 2, 1), true);
+
+        assertEquals("ALTER TABLE candlestick_history REORGANIZE PARTITION p_max INTO ("
+                + "PARTITION p202411 VALUES LESS THAN ('2024-12-01'), "
+                + "PARTITION p202412 VALUES LESS THAN ('2025-01-01'), "
+                + "PARTITION p202501 VALUES LESS THAN ('2025-02-01'), "
+                + "PARTITION p_max VALUES LESS THAN (MAXVALUE))", sql);
+    }
+
+    @Test
+    void testBuildCreatePartitionSqlWithoutMaxPartition() {
+        String sql = CandlestickPartitionServiceImpl.buildCreatePartitionSql(
+                LocalDate.of(2024, 12, 1), LocalDate.of(2025, 1, 1), false);
+
+        assertEquals("ALTER TABLE candlestick_history ADD PARTITION ("
+                + "PARTITION p202412 VALUES LESS THAN ('2025-01-01'))", sql);
+        assertNull(CandlestickPartitionServiceImpl.buildCreatePartitionSql(
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 1), true));
+    }
+
+    @Test
+    void testParseUpperBound() {
+        assertEquals(LocalDate.of(2024, 2, 1), CandlestickPartitionServiceImpl.parseUpperBound("'2024-02-01 00:00:00'"));
+        assertEquals(LocalDate.of(2019, 1, 1), CandlestickPartitionServiceImpl.parseUpperBound("'2019-01-01'"));
+        assertNull(CandlestickPartitionServiceImpl.parseUpperBound("MAXVALUE"));
+    }
+
+    private static Map<String, Object> partitionRow(String name, LocalDate upperBound) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("PARTITION_NAME", name);
+        row.put("PARTITION_DESCRIPTION", upperBound == null ? "MAXVALUE" : "'" + upperBound + " 00:00:00'");
+        return row;
+    }
+}
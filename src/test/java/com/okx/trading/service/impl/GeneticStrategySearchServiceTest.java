@@ -0,0 +1,156 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.GeneticCandidateDTO;
+import com.okx.trading.model.dto.GeneticSearchRequestDTO;
+import com.okx.trading.model.dto.GeneticSearchResultDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.BacktestTradeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 规则组合遗传搜索服务测试类
+ */
+class GeneticStrategySearchServiceTest {
+
+    private ExecutorService executorService;
+    private BacktestTradeService backtestTradeService;
+    private GeneticStrategySearchService geneticStrategySearchService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        backtestTradeService = mock(BacktestTradeService.class);
+        when(backtestTradeService.saveBacktestTrades(anyString(), any(), anyString())).thenReturn("backtest-id");
+        geneticStrategySearchService = new GeneticStrategySearchService(executorService, backtestTradeService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testSearchIsReproducibleAndSavesFrontUnderOneBatch() {
+        BarSeries series = createWaveSeries(800);
+        List<CandlestickEntity> benchmark = createBenchmark(series);
+
+        GeneticSearchResultDTO first = geneticStrategySearchService.search(series, benchmark, createRequest(3));
+        GeneticSearchResultDTO second = geneticStrategySearchService.search(series, benchmark, createRequest(0));
+
+        assertTrue(first.isSuccess(), first.getErrorMessage());
+        assertEquals(5, first.getGeneCount());
+        assertEquals(4, first.getBestScoreByGeneration().size());
+        assertFalse(first.getParetoFront().isEmpty());
+        for (GeneticCandidateDTO candidate : first.getParetoFront()) {
+            assertEquals(0, candidate.getParetoRank());
+            assertFalse(candidate.isPruned());
+            assertTrue(candidate.getEntryRules().size() <= 2 && candidate.getExitRules().size() <= 2);
+        }
+        assertEquals(describe(first.getParetoFront()), describe(second.getParetoFront()));
+
+        int saved = Math.min(3, first.getParetoFront().size());
+        assertNotNull(first.getBatchBacktestId());
+        assertNull(second.getBatchBacktestId());
+        verify(backtestTradeService, times(saved)).saveBacktestSummary(any(), anyString(), eq("BTC-USDT"), eq("1H"),
+                any(), any(), eq("backtest-id"), eq(first.getBatchBacktestId()));
+    }
+
+    @Test
+    void testDominationAndPruningOrder() {
+        GeneticStrategySearchService.Genome genome = new GeneticStrategySearchService.Genome(new int[]{1}, false, new int[]{2, 0}, true);
+        assertEquals("A[1]A[0, 2]", genome.key);
+
+        GeneticStrategySearchService.Candidate best = candidate(0.5, 0.1, 6, false);
+        GeneticStrategySearchService.Candidate worse = candidate(0.2, 0.2, 5, false);
+        GeneticStrategySearchService.Candidate tradeOff = candidate(0.8, 0.3, 4, false);
+        GeneticStrategySearchService.Candidate pruned = candidate(1.0, 0.9, 9, true);
+        List<GeneticStrategySearchService.Candidate> candidates = new ArrayList<>(Arrays.asList(worse, pruned, tradeOff, best));
+
+        GeneticStrategySearchService.rank(candidates);
+        candidates.sort(GeneticStrategySearchService.RANKING);
+
+        assertEquals(0, best.rank);
+        assertEquals(0, tradeOff.rank);
+        assertEquals(1, worse.rank);
+        assertSame(pruned, candidates.get(3));
+    }
+
+    private static GeneticStrategySearchService.Candidate candidate(double totalReturn, double maxDrawdown, double score, boolean pruned) {
+        GeneticStrategySearchService.Candidate candidate = new GeneticStrategySearchService.Candidate(
+                new GeneticStrategySearchService.Genome(new int[]{(int) (totalReturn * 10)}, true, new int[]{0}, true));
+        candidate.totalReturn = totalReturn;
+        candidate.maxDrawdown = maxDrawdown;
+        candidate.score = score;
+        candidate.pruned = pruned;
+        return candidate;
+    }
+
+    private static GeneticSearchRequestDTO createRequest(int saveTopN) {
+        GeneticSearchRequestDTO request = new GeneticSearchRequestDTO();
+        request.setSymbol("BTC-USDT");
+        request.setInterval("1H");
+        request.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        request.setEndTime(LocalDateTime.of(2024, 2, 1, 0, 0));
+        request.setStrategyCodes(Arrays.asList("SMA", "EMA", "RSI", "BOLLINGER", "MACD"));
+        request.setPopulationSize(12);
+        request.setGenerations(4);
+        request.setMaxEntryRules(2);
+        request.setMaxExitRules(2);
+        request.setSeed(42L);
+        request.setSaveTopN(saveTopN);
+        return request;
+    }
+
+    private static List<String> describe(List<GeneticCandidateDTO> front) {
+        List<String> descriptions = new ArrayList<>();
+        for (GeneticCandidateDTO candidate : front) {
+            descriptions.add(candidate.getDescription() + " " + candidate.getTotalReturn());
+        }
+        return descriptions;
+    }
+
+    private static List<CandlestickEntity> createBenchmark(BarSeries series) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        for (int i = 0; i < series.getBarCount(); i++) {
+            candles.add(CandlestickEntity.builder()
+                    .openTime(series.getBar(i).getBeginTime().toLocalDateTime())
+                    .close(BigDecimal.valueOf(series.getBar(i).getClosePrice().doubleValue()))
+                    .build());
+        }
+        return candles;
+    }
+
+    private static BarSeries createWaveSeries(int barCount) {
+        BarSeries series = new BaseBarSeries("GENETIC_TEST");
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 9.0) + 3 * Math.sin(i / 2.3) + i * 0.02;
+            series.addBar(Duration.ofHours(1), time.plusHours(i),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(close + 1), DecimalNum.valueOf(close - 1),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(1000 + i));
+        }
+        return series;
+    }
+}
@@ -0,0 +1,98 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.model.dto.LiveReplayResultDTO;
+import com.okx.trading.model.dto.LiveSignalCheckDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.HistoricalDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 实时策略历史回放测试类
+ */
+class LiveReplayServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private LiveReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        HistoricalDataService historicalDataService = mock(HistoricalDataService.class);
+        when(historicalDataService.getIntervalMinutes(anyString())).thenReturn(60L);
+        service = new LiveReplayService(historicalDataService, new RealTimeOrderServiceImpl(), new CandlestickBarSeriesConverter());
+    }
+
+    @Test
+    void testReplayDrivesLivePathAndMatchesBacktestSignals() {
+        List<CandlestickEntity> candles = waveCandles(400);
+        // 乱序传入，回放前按开盘时间排序
+        Collections.reverse(candles);
+
+        LiveReplayResultDTO result = service.replay(candles, "BTC-USDT", "1H", Arrays.asList("SMA", "NOT_EXISTS"), 3, 100,
+                BigDecimal.valueOf(100));
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(300, result.getCandles());
+        assertEquals(3, result.getStrategyInstances());
+        assertEquals(START.plusHours(100), result.getStartTime());
+        assertTrue(result.getCandlesPerSecond() > 0);
+        assertEquals(result.getCandlesPerSecond() * 3, result.getStrategyEvaluationsPerSecond(), 1e-6 * result.getStrategyEvaluationsPerSecond());
+
+        LiveSignalCheckDTO sma = result.getSignalChecks().get(0);
+        assertNull(sma.getErrorMessage());
+        assertTrue(sma.getLiveSignals() > 2, "正弦行情应产生多次买卖");
+        assertTrue(sma.isMatched(), sma.getFirstMismatch());
+        // 三个实例各自下单，模拟交易所按收盘价全部成交
+        assertEquals(sma.getLiveSignals() * 3, result.getOrders());
+        assertEquals(result.getOrders(), result.getFilledOrders());
+        assertEquals(1, result.getMatchedStrategies());
+
+        LiveSignalCheckDTO unknown = result.getSignalChecks().get(1);
+        assertNotNull(unknown.getErrorMessage());
+    }
+
+    @Test
+    void testRejectsTooFewCandles() {
+        LiveReplayResultDTO result = service.replay(waveCandles(50), "BTC-USDT", "1H", Collections.singletonList("SMA"), 1, 100,
+                BigDecimal.valueOf(100));
+
+        assertFalse(result.isSuccess());
+        assertEquals(0, result.getCandles());
+    }
+
+    private static List<CandlestickEntity> waveCandles(int count) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        double previous = 100;
+        for (int i = 0; i < count; i++) {
+            double close = 100 + 10 * Math.sin(i / 8.0);
+            candles.add(CandlestickEntity.builder()
+                    .symbol("BTC-USDT")
+                    .intervalVal("1H")
+                    .openTime(START.plusHours(i))
+                    .closeTime(START.plusHours(i + 1))
+                    .open(BigDecimal.valueOf(previous))
+                    .high(BigDecimal.valueOf(Math.max(previous, close) + 0.5))
+                    .low(BigDecimal.valueOf(Math.min(previous, close) - 0.5))
+                    .close(BigDecimal.valueOf(close))
+                    .volume(BigDecimal.TEN)
+                    .quoteVolume(BigDecimal.valueOf(close * 10))
+                    .build());
+            previous = close;
+        }
+        return candles;
+    }
+}
@@ -0,0 +1,71 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.config.OkxApiConfig;
+import com.okx.trading.exception.BusinessException;
+import com.okx.trading.model.dto.MarketDataReplayResultDTO;
+import com.okx.trading.util.MarketDataJournal;
+import com.okx.trading.util.WebSocketUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 行情日志回放服务测试类
+ */
+class MarketDataReplayServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private WebSocketUtil webSocketUtil;
+    private OkxApiConfig okxApiConfig;
+    private MarketDataJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        webSocketUtil = mock(WebSocketUtil.class);
+        okxApiConfig = new OkxApiConfig();
+        journal = new MarketDataJournal(directory, 1 << 16, 1000);
+        long start = START.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        for (int i = 0; i < 3; i++) {
+            journal.append("{\"arg\":{\"channel\":\"tickers\",\"instId\":\"BTC-USDT\"},\"data\":[]}", start + i * 1000L);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void testReplayRejectedOutsideMockMode() {
+        okxApiConfig.setUseMockData(false);
+        MarketDataReplayServiceImpl service = new MarketDataReplayServiceImpl(webSocketUtil, journal, okxApiConfig);
+
+        assertThrows(BusinessException.class, () -> service.replay(START, START.plusMinutes(1), 0));
+        verifyNoInteractions(webSocketUtil);
+    }
+
+    @Test
+    void testReplayDeliversJournalInMockMode() {
+        okxApiConfig.setUseMockData(true);
+        MarketDataReplayServiceImpl service = new MarketDataReplayServiceImpl(webSocketUtil, journal, okxApiConfig);
+
+        MarketDataReplayResultDTO result = service.replay(START, START.plusMinutes(1), 0);
+
+        assertEquals(3, result.getMessages());
+        assertEquals(2000, result.getJournalSpanMillis());
+        verify(webSocketUtil, times(3)).replayMessage(anyString());
+    }
+}
@@ -0,0 +1,45 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.BollingerBandsDTO;
+import com.okx.trading.model.entity.CandlestickEntity;
+import com.okx.trading.service.HistoricalDataService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 市场数据服务测试类
+ */
+class MarketDataServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void testBollingerBandsReadOnlyLatestWindow() {
+        HistoricalDataService historicalDataService = mock(HistoricalDataService.class);
+        // 倒序返回最近的24根K线
+        List<CandlestickEntity> latest = new ArrayList<>();
+        for (int i = 99; i >= 76; i--) {
+            CandlestickEntity candle = new CandlestickEntity();
+            candle.setOpenTime(START.plusHours(i));
+            candle.setClose(BigDecimal.valueOf(100 + i % 7));
+            latest.add(candle);
+        }
+        when(historicalDataService.getLatestHistoricalData("BTC-USDT", "1H", 24)).thenReturn(latest);
+
+        List<BollingerBandsDTO> bands = new MarketDataServiceImpl(historicalDataService)
+                .getBollingerBandsData("BTC-USDT", "1H", 20, 2.0, 5);
+
+        verify(historicalDataService).getLatestHistoricalData("BTC-USDT", "1H", 24);
+        verifyNoMoreInteractions(historicalDataService);
+        assertEquals(5, bands.size());
+        assertEquals(START.plusHours(95), bands.get(0).getTimestamp());
+        assertEquals(START.plusHours(99), bands.get(4).getTimestamp());
+    }
+}
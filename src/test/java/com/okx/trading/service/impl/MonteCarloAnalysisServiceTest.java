@@ -0,0 +1,175 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.BacktestResultDTO;
+import com.okx.trading.model.dto.MonteCarloResultDTO;
+import com.okx.trading.model.dto.TradeRecordDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 蒙特卡洛稳健性分析服务测试类
+ */
+class MonteCarloAnalysisServiceTest {
+
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("100000");
+    private static final BigDecimal FEE_RATIO = new BigDecimal("0.001");
+
+    private ExecutorService executorService;
+    private MonteCarloAnalysisService monteCarloAnalysisService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        monteCarloAnalysisService = new MonteCarloAnalysisService(executorService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testSameSeedReproducesDistributions() {
+        BarSeries series = createSeries(500);
+        BacktestResultDTO backtest = createBacktest(series, 10);
+
+        MonteCarloResultDTO first = monteCarloAnalysisService.analyze(series, backtest, FEE_RATIO, 10000, 0, 42L);
+        MonteCarloResultDTO second = monteCarloAnalysisService.analyze(series, backtest, FEE_RATIO, 10000, 0, 42L);
+
+        assertTrue(first.isSuccess());
+        assertEquals(10000, first.getSimulations());
+        assertEquals(first.getTradeCount(), backtest.getTrades().size());
+        assertEquals(first.getResampleFinalAmount(), second.getResampleFinalAmount());
+        assertEquals(first.getBootstrapMaxDrawdown(), second.getBootstrapMaxDrawdown());
+        assertEquals(first.getReshuffleMaxDrawdown(), second.getReshuffleMaxDrawdown());
+        assertTrue(first.getResampleFinalAmount().getP5().compareTo(first.getResampleFinalAmount().getP95()) <= 0);
+        assertTrue(first.getBootstrapMaxDrawdown().getMin().signum() >= 0);
+    }
+
+    @Test
+    void testReshuffleOfWinningTradesHasNoDrawdown() {
+        double[] tradeReturns = {0.01, 0.02, 0.03};
+        MonteCarloAnalysisService.Samples samples = new MonteCarloAnalysisService.Samples(100);
+
+        MonteCarloAnalysisService.simulate(tradeReturns,
+                new MonteCarloAnalysisService.BootstrapBlocks(new double[]{0.01, -0.01}, 1), 1, 1, 0, 100,
+                new SplittableRandom(7), samples);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0.0, samples.reshuffleMaxDrawdown[i]);
+            assertTrue(samples.resampleEquity[i] > 1);
+        }
+    }
+
+    @Test
+    void testBlockBootstrapMatchesBarByBarCompounding() {
+        double[] barReturns = new double[103];
+        SplittableRandom generator = new SplittableRandom(3);
+        for (int i = 0; i < barReturns.length; i++) {
+            barReturns[i] = generator.nextDouble(-0.03, 0.03);
+        }
+        int blockSize = 5;
+        MonteCarloAnalysisService.BootstrapBlocks blocks = new MonteCarloAnalysisService.BootstrapBlocks(barReturns, blockSize);
+        MonteCarloAnalysisService.Samples samples = new MonteCarloAnalysisService.Samples(50);
+        SplittableRandom random = new SplittableRandom(11);
+        SplittableRandom replay = new SplittableRandom(11);
+
+        for (int s = 0; s < 50; s++) {
+            MonteCarloAnalysisService.bootstrap(blocks, 1, s, random, samples);
+
+            // 用相同的随机序列逐K线累加，预计算的整块统计量应给出相同结果
+            double equity = 1;
+            double peak = 1;
+            double maxDrawdown = 0;
+            int filled = 0;
+            while (filled < barReturns.length) {
+                int index = replay.nextInt(barReturns.length);
+                for (int j = 0; j < blockSize && filled < barReturns.length; j++, filled++) {
+                    equity *= 1 + barReturns[index];
+                    peak = Math.max(peak, equity);
+                    maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+                    index = (index + 1) % barReturns.length;
+                }
+            }
+            assertEquals(equity, samples.bootstrapEquity[s], 1e-12);
+            assertEquals(maxDrawdown, samples.bootstrapMaxDrawdown[s], 1e-12);
+        }
+    }
+
+    @Test
+    void testBarReturnsCompoundToTradeReturn() {
+        BarSeries series = createSeries(20);
+        BacktestResultDTO backtest = createBacktest(series, 1);
+        TradeRecordDTO trade = backtest.getTrades().get(0);
+
+        double[] barReturns = MonteCarloAnalysisService.extractBarReturns(series, backtest.getTrades(), FEE_RATIO.doubleValue());
+
+        double equity = 1;
+        for (double r : barReturns) {
+            equity *= 1 + r;
+        }
+        assertEquals(trade.getExitAmount().doubleValue() / trade.getEntryAmount().doubleValue(), equity, 1e-9);
+    }
+
+    private static BarSeries createSeries(int barCount) {
+        BaseBarSeries series = new BaseBarSeries("MONTE_CARLO_TEST");
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 7.0) + i * 0.05;
+            series.addBar(Duration.ofHours(1), time.plusHours(i),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(close + 1), DecimalNum.valueOf(close - 1),
+                    DecimalNum.valueOf(close), DecimalNum.valueOf(1000));
+        }
+        return series;
+    }
+
+    /**
+     * 每段区间做一笔多头交易，按与BacktestMetricsCalculator相同的方式全仓复利并扣除手续费
+     */
+    private static BacktestResultDTO createBacktest(BarSeries series, int tradeCount) {
+        List<TradeRecordDTO> trades = new ArrayList<>();
+        int span = series.getBarCount() / tradeCount;
+        BigDecimal amount = INITIAL_AMOUNT;
+        for (int k = 0; k < tradeCount; k++) {
+            int entry = k * span + 1;
+            int exit = Math.min(series.getBarCount() - 1, entry + span / 2 + 1);
+            double entryPrice = series.getBar(entry).getClosePrice().doubleValue();
+            double exitPrice = series.getBar(exit).getClosePrice().doubleValue();
+            double exitAmount = amount.doubleValue() * (1 - FEE_RATIO.doubleValue())
+                    * (exitPrice / entryPrice) * (1 - FEE_RATIO.doubleValue());
+
+            TradeRecordDTO trade = new TradeRecordDTO();
+            trade.setType("BUY");
+            trade.setClosed(true);
+            trade.setEntryTime(series.getBar(entry).getEndTime().toLocalDateTime());
+            trade.setExitTime(series.getBar(exit).getEndTime().toLocalDateTime());
+            trade.setEntryAmount(amount);
+            trade.setExitAmount(BigDecimal.valueOf(exitAmount));
+            trades.add(trade);
+            amount = BigDecimal.valueOf(exitAmount);
+        }
+
+        BacktestResultDTO backtest = new BacktestResultDTO();
+        backtest.setSuccess(true);
+        backtest.setInitialAmount(INITIAL_AMOUNT);
+        backtest.setFinalAmount(amount);
+        backtest.setTrades(trades);
+        return backtest;
+    }
+}
@@ -1,5 +1,8 @@
 package com.okx.trading.service.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.okx.trading.event.MarketDataEventBus;
 import com.okx.trading.model.market.Candlestick;
 import com.okx.trading.model.market.Ticker;
 import com.okx.trading.model.trade.Order;
@@ -9,6 +12,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -135,7 +140,9 @@ class OkxApiMockServiceImplTest {
         assertNotNull(order.getPrice()); // 验证市场价格已设置
         assertNotNull(order.getOrigQty()); // 验证数量已计算
         assertTrue(order.getOrigQty().compareTo(BigDecimal.ZERO) > 0); // 验证数量大于0
-        assertEquals("NEW", order.getStatus());
+        // 未开启做市流动性时没有对手盘，市价单剩余部分被撤销
+        assertEquals("CANCELED", order.getStatus());
+        assertEquals(0, order.getExecutedQty().signum());
     }
 
     @Test
@@ -154,7 +161,8 @@ class OkxApiMockServiceImplTest {
         assertEquals(orderRequest.getSide(), order.getSide());
         assertNotNull(order.getPrice()); // 验证市场价格已设置
         assertEquals(new BigDecimal("0.1").setScale(8), order.getOrigQty().setScale(8)); // 验证数量与输入金额相同
-        assertEquals("NEW", order.getStatus());
+        assertEquals("CANCELED", order.getStatus());
+        assertEquals(0, order.getExecutedQty().signum());
     }
 
     @Test
@@ -361,4 +369,100 @@ class OkxApiMockServiceImplTest {
 
         assertTrue(exception.getMessage().contains("必须指定数量、金额或比例"));
     }
+
+    @Test
+    void limitOrdersMatchAndPushOrdersChannel() {
+        List<String> pushes = new ArrayList<>();
+        okxApiService.setOrderPushListener(pushes::add);
+
+        Order sell = okxApiService.createSpotOrder(limitOrder("SELL", "50000", "0.3"));
+        Order buy = okxApiService.createSpotOrder(limitOrder("BUY", "50100", "0.5"));
+
+        // 按挂单价格成交，剩余部分继续挂单
+        assertEquals("FILLED", sell.getStatus());
+        assertEquals("PARTIALLY_FILLED", buy.getStatus());
+        assertEquals(0, new BigDecimal("0.3").compareTo(buy.getExecutedQty()));
+        assertEquals(0, new BigDecimal("15000").compareTo(buy.getCummulativeQuoteQty()));
+        assertEquals(0, new BigDecimal("15").compareTo(buy.getFee()));
+
+        JSONObject message = JSON.parseObject(pushes.get(pushes.size() - 1));
+        assertEquals("orders", message.getJSONObject("arg").getString("channel"));
+        JSONObject data = message.getJSONArray("data").getJSONObject(0);
+        assertEquals(buy.getOrderId(), data.getString("ordId"));
+        assertEquals("partially_filled", data.getString("state"));
+        assertEquals(0, new BigDecimal("50000").compareTo(data.getBigDecimal("fillPx")));
+        assertEquals(0, new BigDecimal("0.3").compareTo(data.getBigDecimal("accFillSz")));
+
+        assertTrue(okxApiService.cancelOrder("BTC-USDT", buy.getOrderId()));
+        assertEquals("CANCELED", buy.getStatus());
+        assertEquals("canceled", JSON.parseObject(pushes.get(pushes.size() - 1))
+                .getJSONArray("data").getJSONObject(0).getString("state"));
+        // 已结束的订单不能再撤销
+        assertFalse(okxApiService.cancelOrder("BTC-USDT", buy.getOrderId()));
+        assertFalse(okxApiService.cancelOrder("BTC-USDT", sell.getOrderId()));
+    }
+
+    @Test
+    void liquidityFillsMarketOrdersAndRestingOrdersFollowPrice() {
+        OkxApiMockServiceImpl exchange = new OkxApiMockServiceImpl(true);
+        exchange.updateMarketPrice("ETH-USDT", new BigDecimal("3000"), LocalDateTime.now());
+
+        OrderRequest marketBuy = new OrderRequest();
+        marketBuy.setSymbol("ETH-USDT");
+        marketBuy.setType("MARKET");
+        marketBuy.setSide("BUY");
+        marketBuy.setAmount(new BigDecimal("300"));
+        Order filled = exchange.createSpotOrder(marketBuy);
+        assertEquals("FILLED", filled.getStatus());
+        assertEquals(0, new BigDecimal("0.1").compareTo(filled.getExecutedQty()));
+        assertEquals(0, new BigDecimal("3000").compareTo(filled.getPrice()));
+
+        OrderRequest limitSell = limitOrder("SELL", "3100", "0.2");
+        limitSell.setSymbol("ETH-USDT");
+        Order resting = exchange.createSpotOrder(limitSell);
+        assertEquals("NEW", resting.getStatus());
+
+        // 价格上穿挂单价，挂单按挂单价格成交
+        exchange.updateMarketPrice("ETH-USDT", new BigDecimal("3200"), LocalDateTime.now());
+        assertEquals("FILLED", resting.getStatus());
+        assertEquals(0, new BigDecimal("620").compareTo(resting.getCummulativeQuoteQty()));
+    }
+
+    @Test
+    void restingOrdersFillFromMarketDataEventBus() throws Exception {
+        MarketDataEventBus bus = new MarketDataEventBus(64);
+        try {
+            OkxApiMockServiceImpl exchange = new OkxApiMockServiceImpl(true);
+            exchange.setMarketDataEventBus(bus);
+
+            OrderRequest limitSell = limitOrder("SELL", "60000", "0.2");
+            Order resting = exchange.createSpotOrder(limitSell);
+            assertEquals("NEW", resting.getStatus());
+
+            // 实时K线推送带来的价格变化也会重新报价，不只在首次下单时报价一次
+            Candlestick candlestick = new Candlestick();
+            candlestick.setSymbol("BTC-USDT");
+            candlestick.setClose(new BigDecimal("61000"));
+            bus.publishKline("candle1m", "BTC-USDT", "1m", candlestick);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"FILLED".equals(resting.getStatus()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("FILLED", resting.getStatus());
+            assertEquals(0, new BigDecimal("61000").compareTo(exchange.getTicker("BTC-USDT").getLastPrice()));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private static OrderRequest limitOrder(String side, String price, String quantity) {
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setSymbol("BTC-USDT");
+        orderRequest.setType("LIMIT");
+        orderRequest.setSide(side);
+        orderRequest.setPrice(new BigDecimal(price));
+        orderRequest.setQuantity(new BigDecimal(quantity));
+        return orderRequest;
+    }
 }
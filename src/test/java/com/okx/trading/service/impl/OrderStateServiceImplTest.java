@@ -0,0 +1,156 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.account.AccountBalance;
+import com.okx.trading.model.trade.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单与余额状态服务测试类
+ */
+class OrderStateServiceImplTest {
+
+    private OrderStateServiceImpl orderStateService;
+
+    @BeforeEach
+    void setUp() {
+        orderStateService = new OrderStateServiceImpl();
+    }
+
+    @Test
+    void testWaitersCompleteOnMatchingStateChange() throws Exception {
+        CompletableFuture<Order> filled = orderStateService.awaitByClientOrderId("c1", order -> "FILLED".equals(order.getStatus()));
+        CompletableFuture<Order> any = orderStateService.awaitByOrderId("1", order -> true);
+
+        orderStateService.onOrderUpdate(order("1", "c1", "NEW", "0", 1));
+        assertTrue(any.isDone());
+        assertFalse(filled.isDone());
+
+        orderStateService.onOrderUpdate(order("1", "c1", "FILLED", "2", 2));
+        assertEquals("FILLED", filled.get().getStatus());
+        assertSame(orderStateService.getByOrderId("1"), orderStateService.getByClientOrderId("c1"));
+
+        // 当前状态已满足条件时立即完成
+        assertTrue(orderStateService.awaitByOrderId("1", order -> "FILLED".equals(order.getStatus())).isDone());
+    }
+
+    @Test
+    void testMarketOrderWaiterSkipsPartialFills() throws Exception {
+        CompletableFuture<Order> market = orderStateService.awaitByClientOrderId("c1",
+                OkxApiWebSocketServiceImpl.orderPushCondition("MARKET"));
+        CompletableFuture<Order> limit = orderStateService.awaitByClientOrderId("c1",
+                OkxApiWebSocketServiceImpl.orderPushCondition("LIMIT"));
+
+        orderStateService.onOrderUpdate(order("1", "c1", "PARTIALLY_FILLED", "1", 1));
+        assertTrue(limit.isDone());
+        // 部分成交推送不能让市价单提前返回，否则只记录到第一笔成交
+        assertFalse(market.isDone());
+
+        orderStateService.onOrderUpdate(order("1", "c1", "FILLED", "2", 2));
+        assertEquals("FILLED", market.get().getStatus());
+        assertEquals(new BigDecimal("2"), market.get().getExecutedQty());
+    }
+
+    @Test
+    void testOutOfOrderPushesDoNotRegressState() {
+        orderStateService.onOrderUpdate(order("1", "c1", "PARTIALLY_FILLED", "1", 2));
+        assertFalse(orderStateService.onOrderUpdate(order("1", "c1", "NEW", "0", 1)));
+        orderStateService.onOrderUpdate(order("1", "c1", "CANCELED", "1", 3));
+        assertFalse(orderStateService.onOrderUpdate(order("1", "c1", "PARTIALLY_FILLED", "1", 4)));
+
+        assertEquals("CANCELED", orderStateService.getByOrderId("1").getStatus());
+        assertTrue(orderStateService.getOpenOrders().isEmpty());
+    }
+
+    @Test
+    void testAllTerminalStatesAreFinished() {
+        orderStateService.onOrderUpdate(order("1", "c1", "MMP_CANCELED", "0", 1));
+        orderStateService.onOrderUpdate(order("2", "c2", "EXPIRED", "0", 1));
+        orderStateService.onOrderUpdate(order("3", "c3", "REJECTED", "0", 1));
+        orderStateService.onOrderUpdate(order("4", "c4", "PARTIALLY_FILLED", "1", 1));
+
+        // 做市商保护撤单等完结状态不会留在未完结列表中，也不会被较晚到达的挂单推送改回
+        assertEquals(1, orderStateService.getOpenOrders().size());
+        assertFalse(orderStateService.onOrderUpdate(order("1", "c1", "NEW", "0", 2)));
+    }
+
+    @Test
+    void testRejectionFailsWaiter() {
+        CompletableFuture<Order> future = orderStateService.awaitByClientOrderId("c1", order -> true);
+
+        orderStateService.onOrderRejected("c1", new IllegalStateException("余额不足"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertEquals("余额不足", e.getCause().getMessage());
+    }
+
+    @Test
+    void testQueryAndEviction() {
+        Order old = order("1", "c1", "FILLED", "1", 1);
+        old.setUpdateTime(LocalDateTime.now().minusHours(2));
+        orderStateService.onOrderUpdate(old);
+        orderStateService.onOrderUpdate(order("2", "c2", "NEW", "0", 2));
+        Order other = order("3", "c3", "NEW", "0", 3);
+        other.setSymbol("ETH-USDT");
+        orderStateService.onOrderUpdate(other);
+
+        assertEquals(2, orderStateService.getOrders("BTC-USDT", null, null).size());
+        // 按创建时间倒序
+        assertEquals("3", orderStateService.getOrders(null, "NEW", 1).get(0).getOrderId());
+        assertEquals(2, orderStateService.getOpenOrders().size());
+
+        assertEquals(1, orderStateService.evictFinishedOrders());
+        assertNull(orderStateService.getByOrderId("1"));
+        assertNull(orderStateService.getByClientOrderId("c1"));
+    }
+
+    @Test
+    void testBalancePushesMergeByCurrency() throws Exception {
+        CompletableFuture<AccountBalance> future = orderStateService.awaitBalance(false);
+        orderStateService.onBalanceUpdate(balance("100", asset("USDT", "80"), asset("BTC", "0.5")), false);
+        assertEquals(2, future.get().getAssetBalances().size());
+
+        // 事件推送只包含变化的币种
+        orderStateService.onBalanceUpdate(balance("120", asset("USDT", "60")), false);
+
+        AccountBalance merged = orderStateService.getBalance(false);
+        assertEquals(new BigDecimal("120"), merged.getTotalEquity());
+        assertEquals(2, merged.getAssetBalances().size());
+        assertEquals(new BigDecimal("60"), merged.getAssetBalances().get(0).getAvailable());
+        assertNull(orderStateService.getBalance(true));
+    }
+
+    private static Order order(String orderId, String clientOrderId, String status, String executed, int second) {
+        LocalDateTime base = LocalDateTime.now().withNano(0);
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setClientOrderId(clientOrderId);
+        order.setSymbol("BTC-USDT");
+        order.setStatus(status);
+        order.setOrigQty(new BigDecimal("2"));
+        order.setExecutedQty(new BigDecimal(executed));
+        order.setCreateTime(base.plusSeconds(second));
+        order.setUpdateTime(base.plusSeconds(second));
+        return order;
+    }
+
+    private static AccountBalance balance(String equity, AccountBalance.AssetBalance... assets) {
+        AccountBalance balance = new AccountBalance();
+        balance.setTotalEquity(new BigDecimal(equity));
+        balance.setAssetBalances(assets.length == 0 ? Collections.emptyList() : Arrays.asList(assets));
+        return balance;
+    }
+
+    private static AccountBalance.AssetBalance asset(String currency, String available) {
+        return AccountBalance.AssetBalance.builder().asset(currency).available(new BigDecimal(available)).build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.service.RedisCacheService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 进程内价格簿服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceBookServiceImplTest {
+
+    @Mock
+    private RedisCacheService redisCacheService;
+
+    @InjectMocks
+    private PriceBookServiceImpl priceBookService;
+
+    @Captor
+    private ArgumentCaptor<Map<String, BigDecimal>> pricesCaptor;
+
+    @Test
+    void testUpdatesAreCoalescedIntoOneFlush() {
+        when(redisCacheService.updateCoinPrices(anyMap())).thenReturn(true);
+        for (int i = 0; i < 100; i++) {
+            priceBookService.updatePrice("BTC-USDT", BigDecimal.valueOf(40000 + i), 1000L + i);
+            priceBookService.updatePrice("ETH-USDT", BigDecimal.valueOf(2000 + i), 1000L + i);
+        }
+
+        assertEquals(new BigDecimal("40099"), priceBookService.getPrice("BTC-USDT"));
+        assertEquals(1099L, priceBookService.getPricePoint("ETH-USDT").getTimestamp());
+        verify(redisCacheService, never()).getCoinPrice(anyString());
+
+        assertEquals(2, priceBookService.flush());
+        verify(redisCacheService, times(1)).updateCoinPrices(pricesCaptor.capture());
+        assertEquals(new BigDecimal("40099"), pricesCaptor.getValue().get("BTC-USDT"));
+        assertEquals(new BigDecimal("2099"), pricesCaptor.getValue().get("ETH-USDT"));
+
+        // 没有新的更新时不访问Redis
+        assertEquals(0, priceBookService.flush());
+        verify(redisCacheService, times(1)).updateCoinPrices(anyMap());
+    }
+
+    @Test
+    void testFailedFlushIsRetriedAndMissesFallBackToRedis() {
+        when(redisCacheService.updateCoinPrices(anyMap())).thenReturn(false, true);
+        when(redisCacheService.getCoinPrice("SOL-USDT")).thenReturn(new BigDecimal("150"));
+        priceBookService.updatePrice("BTC-USDT", new BigDecimal("40000"), 1000L);
+
+        assertEquals(0, priceBookService.flush());
+        assertEquals(1, priceBookService.flush());
+        verify(redisCacheService, times(2)).updateCoinPrices(anyMap());
+
+        assertEquals(new BigDecimal("150"), priceBookService.getPrice("SOL-USDT"));
+        assertNull(priceBookService.getPricePoint("SOL-USDT"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.dto.WalkForwardFoldDTO;
+import com.okx.trading.model.dto.WalkForwardResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 走步分析服务测试类
+ */
+class WalkForwardAnalysisServiceTest {
+
+    private static final List<String> CANDIDATES = Arrays.asList("SMA", "EMA", "RSI");
+
+    private ExecutorService executorService;
+    private WalkForwardAnalysisService walkForwardAnalysisService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        walkForwardAnalysisService = new WalkForwardAnalysisService(executorService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testPlanFoldsCoversAllBars() {
+        int[] plan = WalkForwardAnalysisService.planFolds(1000, 10, 0.7);
+
+        assertNotNull(plan);
+        assertEquals(1000, plan[0] + 10 * plan[1]);
+        assertTrue(plan[0] > plan[1]);
+        assertNull(WalkForwardAnalysisService.planFolds(10, 10, 0.7));
+        assertNull(WalkForwardAnalysisService.planFolds(1000, 10, 1.0));
+    }
+
+    @Test
+    void testAnalyzeSelectsOneCandidatePerFold() {
+        BarSeries series = createWaveSeries(1200);
+
+        WalkForwardResultDTO result = walkForwardAnalysisService.analyze(series, CANDIDATES, 6, 0.7,
+                WalkForwardAnalysisService.OBJECTIVE_SHARPE, new BigDecimal("100000"), new BigDecimal("0.001"));
+        WalkForwardResultDTO repeated = walkForwardAnalysisService.analyze(series, CANDIDATES, 6, 0.7,
+                WalkForwardAnalysisService.OBJECTIVE_SHARPE, new BigDecimal("100000"), new BigDecimal("0.001"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(6, result.getFolds().size());
+        assertEquals(6, result.getSelectionCounts().values().stream().mapToInt(Integer::intValue).sum());
+        for (WalkForwardFoldDTO fold : result.getFolds()) {
+            assertTrue(CANDIDATES.contains(fold.getSelectedStrategyCode()));
+            assertTrue(fold.getOutOfSampleStart().isAfter(fold.getInSampleEnd()));
+        }
+        // 并行执行顺序不影响选择结果
+        assertEquals(result.getSelectionCounts(), repeated.getSelectionCounts());
+        assertEquals(result.getTotalReturn(), repeated.getTotalReturn());
+    }
+
+    @Test
+    void testEvaluateSegmentAppliesFeesOnEntryAndExit() {
+        double[] closes = {100, 101, 102, 103, 104, 105, 106, 107};
+        BarSeries series = createWaveSeries(closes.length);
+        TradingRecord record = new BaseTradingRecord();
+        record.enter(2, series.numOf(102), series.numOf(1));
+        record.exit(5, series.numOf(105), series.numOf(1));
+
+        WalkForwardAnalysisService.SegmentStats stats =
+                WalkForwardAnalysisService.evaluateSegment(closes, record, 0, 7, 0.001, 8760, null);
+
+        assertEquals(1, stats.trades);
+        assertEquals(1, stats.profitableTrades);
+        assertEquals(105.0 / 102.0 * 0.999 * 0.999 - 1, stats.totalReturn, 1e-12);
+        assertEquals(0.0, stats.maxDrawdown, 0.002);
+    }
+
+    private static BarSeries createWaveSeries(int barCount) {
+        BaseBarSeries series = new BaseBarSeries("WALK_FORWARD_TEST");
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < barCount; i++) {
+            double close = 100 + 10 * Math.sin(i / 15.0) + i * 0.01;
+            double open = 100 + 10 * Math.sin((i - 1) / 15.0) + (i - 1) * 0.01;
+            series.addBar(Duration.ofHours(1), time.plusHours(i),
+                    DecimalNum.valueOf(open),
+                    DecimalNum.valueOf(Math.max(open, close) + 0.5),
+                    DecimalNum.valueOf(Math.min(open, close) - 0.5),
+                    DecimalNum.valueOf(close),
+                    DecimalNum.valueOf(1000));
+        }
+        return series;
+    }
+}
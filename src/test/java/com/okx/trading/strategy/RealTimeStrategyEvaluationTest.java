@@ -0,0 +1,333 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.controller.TradeController;
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.model.entity.RealTimeOrderEntity;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.model.trade.Order;
+import com.okx.trading.repository.RealTimeStrategyRepository;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.RealTimeOrderService;
+import com.okx.trading.service.RealTimeStrategyService;
+import com.okx.trading.service.StrategyInfoService;
+import com.okx.trading.service.impl.OkxApiWebSocketServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.num.DecimalNum;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 实时策略评估时机测试类
+ */
+class RealTimeStrategyEvaluationTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private RealTimeStrategyManager manager;
+    private BarSeries series;
+    private TradeController tradeController;
+    private RealTimeOrderService realTimeOrderService;
+
+    @BeforeEach
+    void setUp() {
+        tradeController = mock(TradeController.class);
+        realTimeOrderService = mock(RealTimeOrderService.class);
+        manager = newManager(Optional.empty());
+
+        series = new BaseBarSeries("BTC-USDT_1H");
+        for (int i = 0; i < 3; i++) {
+            series.addBar(Duration.ofHours(1), START.plusHours(i + 1).atZone(ZoneId.systemDefault()),
+                    DecimalNum.valueOf(100), DecimalNum.valueOf(101), DecimalNum.valueOf(99), DecimalNum.valueOf(100), DecimalNum.valueOf(10));
+        }
+        manager.getRunningBarSeries().put("BTC-USDT_1H", series);
+    }
+
+    private RealTimeStrategyManager newManager(Optional<SignalNettingExecutor> signalNetting) {
+        HistoricalDataService historicalDataService = mock(HistoricalDataService.class);
+        when(historicalDataService.getIntervalMinutes(anyString())).thenReturn(60L);
+        return new RealTimeStrategyManager(mock(OkxApiWebSocketServiceImpl.class), realTimeOrderService,
+                tradeController, historicalDataService, mock(RealTimeStrategyService.class),
+                mock(CandlestickBarSeriesConverter.class), mock(StrategyInfoService.class), mock(RealTimeStrategyRepository.class),
+                signalNetting);
+    }
+
+    @Test
+    void testOnCloseEvaluatesOncePerConfirmedBar() {
+        Strategy strategy = addStrategy("ON_CLOSE", 1000L);
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 101, false));
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 102, false));
+        verify(strategy, never()).shouldEnter(anyInt());
+        // K线内的推送只替换最后一根，不重复追加
+        assertEquals(4, series.getBarCount());
+        assertEquals(102, series.getLastBar().getClosePrice().doubleValue(), 1e-9);
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 103, true));
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 103, true));
+        verify(strategy, times(1)).shouldEnter(series.getEndIndex());
+        assertEquals(4, series.getBarCount());
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(4, 104, false));
+        assertEquals(5, series.getBarCount());
+        verify(strategy, times(1)).shouldEnter(anyInt());
+    }
+
+    @Test
+    void testThrottledAndEveryTickModes() {
+        Strategy throttled = addStrategy("THROTTLED", 60_000L);
+        Strategy everyTick = addStrategy("EVERY_TICK", 0L);
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 101, false));
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 102, false));
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 103, true));
+
+        // 节流模式：第一次K线内推送评估，间隔内的推送跳过，完结K线一定评估
+        verify(throttled, times(2)).shouldEnter(anyInt());
+        verify(everyTick, times(3)).shouldEnter(anyInt());
+        assertEquals(4, series.getBarCount());
+    }
+
+    @Test
+    void testReplayFillsGapInOrderBeforeBufferedLiveKlines() {
+        Strategy strategy = addStrategy("ON_CLOSE", 1000L);
+
+        Map<String, LocalDateTime> gaps = manager.beginReplay();
+        assertEquals(START.plusHours(2), gaps.get("BTC-USDT_1H"));
+        // 已在补齐中的系列不重复返回
+        assertTrue(manager.beginReplay().isEmpty());
+
+        // 补齐期间的实时推送先缓存
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(5, 110, false));
+        assertEquals(3, series.getBarCount());
+
+        // 缺失的K线乱序到达，早于系列最后一根的被忽略，只有最新一根参与评估
+        int applied = manager.finishReplay("BTC-USDT", "1H",
+                Arrays.asList(candle(4, 105, true), candle(2, 102, true), candle(1, 101, true), candle(3, 103, true)));
+        assertEquals(3, applied);
+        assertEquals(6, series.getBarCount());
+        assertEquals(102, series.getBar(2).getClosePrice().doubleValue(), 1e-9);
+        assertEquals(105, series.getBar(4).getClosePrice().doubleValue(), 1e-9);
+        assertEquals(110, series.getLastBar().getClosePrice().doubleValue(), 1e-9);
+        verify(strategy, times(1)).shouldEnter(4);
+        assertEquals(START.plusHours(4), manager.getLastConfirmedBars().get("BTC-USDT_1H"));
+
+        // 补齐结束后恢复实时处理
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(5, 111, true));
+        assertEquals(6, series.getBarCount());
+        verify(strategy, times(1)).shouldEnter(5);
+        assertEquals(START.plusHours(5), manager.beginReplay().get("BTC-USDT_1H"));
+    }
+
+    @Test
+    void testRejectedNettedSignalLeavesStrategyFreeToRetry() {
+        enableNetting();
+        Strategy strategy = addStrategy("ON_CLOSE", 1000L);
+        when(strategy.shouldEnter(anyInt())).thenReturn(true);
+        RealTimeStrategyEntity state = manager.getRunningStrategies().get("ON_CLOSE_BTC-USDT_1H");
+        Order rejected = new Order();
+        rejected.setStatus("REJECTED");
+        when(tradeController.createSpotOrder(anyString(), any(), anyString(), any(), any(), any(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(ApiResponse.success(rejected))
+                .thenReturn(ApiResponse.success(order("BUY", "1", "100", "FILLED")));
+
+        // 下单被拒：策略状态不变，也不再处于等待结果中
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 100, true));
+        assertNull(state.getLastTradeType());
+        assertTrue(manager.getPendingSignals().isEmpty());
+
+        // 下一根K线重新发出买入信号并成交
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(4, 100, true));
+        verify(tradeController, times(2)).createSpotOrder(anyString(), any(), anyString(), any(), any(), any(), any(), any(), any(), any(), anyBoolean());
+        assertEquals("BUY", state.getLastTradeType());
+        assertTrue(state.getIsInPosition());
+    }
+
+    @Test
+    void testPartialSellKeepsRemainingPosition() {
+        enableNetting();
+        Strategy strategy = addStrategy("ON_CLOSE", 1000L);
+        when(strategy.shouldExit(anyInt())).thenReturn(true);
+        RealTimeStrategyEntity state = manager.getRunningStrategies().get("ON_CLOSE_BTC-USDT_1H");
+        state.setLastTradeType("BUY");
+        state.setIsInPosition(true);
+        state.setLastTradeQuantity(3.0);
+        state.setLastTradeAmount(300.0);
+        when(tradeController.createSpotOrder(anyString(), any(), anyString(), any(), any(), any(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(ApiResponse.success(order("SELL", "1", "110", "PARTIALLY_FILLED")));
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 110, true));
+
+        // 卖出1个，成本100结转，剩余2个仍持仓，下一次卖出信号继续卖出
+        assertEquals("BUY", state.getLastTradeType());
+        assertTrue(state.getIsInPosition());
+        assertEquals(2.0, state.getLastTradeQuantity(), 1e-9);
+        assertEquals(200.0, state.getLastTradeAmount(), 1e-9);
+        assertEquals(10.0, state.getTotalProfit(), 1e-9);
+    }
+
+    @Test
+    void testAcceptedOrderWaitsForFillInsteadOfResending() {
+        recordTrades();
+        Strategy strategy = addStrategy("ON_CLOSE", 1000L);
+        when(strategy.shouldEnter(anyInt())).thenReturn(true);
+        RealTimeStrategyEntity state = manager.getRunningStrategies().get("ON_CLOSE_BTC-USDT_1H");
+        // REST下单只返回受理的订单，成交要查询订单才能拿到
+        when(tradeController.createSpotOrder(anyString(), any(), anyString(), any(), any(), any(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(ApiResponse.success(order("BUY", "0", "0", "NEW")));
+        when(tradeController.getOrder("BTC-USDT", "1"))
+                .thenReturn(ApiResponse.success(order("BUY", "0", "0", "NEW")))
+                .thenReturn(ApiResponse.success(order("BUY", "1", "100", "FILLED")));
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 100, true));
+        assertNull(state.getLastTradeType());
+        assertTrue(manager.getPendingSignals().contains("ON_CLOSE_BTC-USDT_1H"));
+
+        // 订单仍未成交：不重复下单
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(4, 100, true));
+        assertTrue(manager.getPendingSignals().contains("ON_CLOSE_BTC-USDT_1H"));
+
+        // 订单成交后更新状态，已持仓不再买入
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(5, 100, true));
+        verify(tradeController, times(1)).createSpotOrder(anyString(), any(), anyString(), any(), any(), any(), any(), any(), any(), any(), anyBoolean());
+        assertEquals("BUY", state.getLastTradeType());
+        assertTrue(state.getIsInPosition());
+        assertEquals(1.0, state.getLastTradeQuantity(), 1e-9);
+        assertTrue(manager.getPendingSignals().isEmpty());
+        assertTrue(manager.getPendingOrders().isEmpty());
+    }
+
+    @Test
+    void testAcceptedBatchOrdersWaitForFillInsteadOfResending() {
+        SignalNettingExecutor netting = new SignalNettingExecutor(tradeController, mock(ScheduledExecutorService.class), true, 200);
+        manager = newManager(Optional.of(netting));
+        manager.getRunningBarSeries().put("BTC-USDT_1H", series);
+        BarSeries ethSeries = new BaseBarSeries("ETH-USDT_1H");
+        manager.getRunningBarSeries().put("ETH-USDT_1H", ethSeries);
+        recordTrades();
+        Strategy btc = addStrategy("ON_CLOSE", 1000L);
+        Strategy eth = addStrategy("ON_CLOSE", 1000L, "ETH-USDT");
+        when(btc.shouldEnter(anyInt())).thenReturn(true);
+        when(eth.shouldEnter(anyInt())).thenReturn(true);
+        Order btcOrder = order("BUY", "0", "0", "NEW");
+        Order ethOrder = order("BUY", "0", "0", "NEW");
+        ethOrder.setOrderId("2");
+        when(tradeController.createSpotOrders(any())).thenReturn(ApiResponse.success(Arrays.asList(btcOrder, ethOrder)));
+        Order ethFilled = order("BUY", "2", "100", "FILLED");
+        ethFilled.setOrderId("2");
+        when(tradeController.getOrder("BTC-USDT", "1")).thenReturn(ApiResponse.success(order("BUY", "1", "100", "FILLED")));
+        when(tradeController.getOrder("ETH-USDT", "2")).thenReturn(ApiResponse.success(ethFilled));
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(3, 100, true));
+        manager.handleNewKlineData("ETH-USDT", "1H", candle("ETH-USDT", 3, 50, true));
+        netting.flush();
+        // 批量下单返回受理未成交的订单：两个策略都等待成交
+        assertEquals(2, manager.getPendingOrders().size());
+        assertNull(manager.getRunningStrategies().get("ON_CLOSE_BTC-USDT_1H").getLastTradeType());
+
+        manager.handleNewKlineData("BTC-USDT", "1H", candle(4, 100, true));
+        manager.handleNewKlineData("ETH-USDT", "1H", candle("ETH-USDT", 4, 50, true));
+        netting.flush();
+        verify(tradeController, times(1)).createSpotOrders(any());
+        assertTrue(manager.getPendingSignals().isEmpty());
+        assertEquals("BUY", manager.getRunningStrategies().get("ON_CLOSE_BTC-USDT_1H").getLastTradeType());
+        assertEquals(2.0, manager.getRunningStrategies().get("ON_CLOSE_ETH-USDT_1H").getLastTradeQuantity(), 1e-9);
+    }
+
+    @Test
+    void testEvaluationModeParsing() {
+        assertEquals(EvaluationMode.ON_CLOSE, EvaluationMode.of(null));
+        assertEquals(EvaluationMode.ON_CLOSE, EvaluationMode.of("unknown"));
+        assertEquals(EvaluationMode.THROTTLED, EvaluationMode.of("throttled"));
+        assertFalse(EvaluationMode.ON_CLOSE.shouldEvaluate(false, 10_000, 0, 0));
+        assertTrue(EvaluationMode.THROTTLED.shouldEvaluate(false, 10_000, 8_000, 2_000));
+        assertFalse(EvaluationMode.THROTTLED.shouldEvaluate(false, 10_000, 9_000, 2_000));
+    }
+
+    private void enableNetting() {
+        manager = newManager(Optional.of(new SignalNettingExecutor(tradeController, null, true, 0)));
+        manager.getRunningBarSeries().put("BTC-USDT_1H", series);
+        recordTrades();
+    }
+
+    private void recordTrades() {
+        manager.setTradeRecorder((state, candlestick, order) -> {
+        });
+        when(realTimeOrderService.createOrderRecord(anyString(), anyString(), any(), anyString(), anyString(), anyString(), anyBoolean(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Order order = invocation.getArgument(2);
+                    return RealTimeOrderEntity.builder()
+                            .side(order.getSide())
+                            .executedQty(order.getExecutedQty())
+                            .executedAmount(order.getCummulativeQuoteQty())
+                            .price(order.getPrice())
+                            .fee(order.getFee())
+                            .status(order.getStatus())
+                            .build();
+                });
+    }
+
+    private static Order order(String side, String executedQty, String quote, String status) {
+        Order order = new Order();
+        order.setOrderId("1");
+        order.setSide(side);
+        order.setExecutedQty(new BigDecimal(executedQty));
+        order.setCummulativeQuoteQty(new BigDecimal(quote));
+        order.setPrice(new BigDecimal(executedQty).signum() == 0 ? BigDecimal.ZERO : new BigDecimal(quote).divide(new BigDecimal(executedQty)));
+        order.setFee(BigDecimal.ZERO);
+        order.setStatus(status);
+        return order;
+    }
+
+    private Strategy addStrategy(String mode, Long intervalMs) {
+        return addStrategy(mode, intervalMs, "BTC-USDT");
+    }
+
+    private Strategy addStrategy(String mode, Long intervalMs, String symbol) {
+        Strategy strategy = mock(Strategy.class);
+        RealTimeStrategyEntity state = new RealTimeStrategyEntity(mode, symbol, "1H", START, 100.0, mode);
+        state.setStrategy(strategy);
+        state.setEvaluationMode(mode);
+        state.setEvaluationIntervalMs(intervalMs);
+        manager.getRunningStrategies().put(mode + "_" + symbol + "_1H", state);
+        return strategy;
+    }
+
+    private static Candlestick candle(int hour, double close, boolean confirmed) {
+        return candle("BTC-USDT", hour, close, confirmed);
+    }
+
+    private static Candlestick candle(String symbol, int hour, double close, boolean confirmed) {
+        return Candlestick.builder()
+                .symbol(symbol)
+                .intervalVal("1H")
+                .openTime(START.plusHours(hour))
+                .closeTime(START.plusHours(hour + 1))
+                .open(BigDecimal.valueOf(100))
+                .high(BigDecimal.valueOf(close + 1))
+                .low(BigDecimal.valueOf(99))
+                .close(BigDecimal.valueOf(close))
+                .volume(BigDecimal.TEN)
+                .state(confirmed ? 1 : 0)
+                .build();
+    }
+}
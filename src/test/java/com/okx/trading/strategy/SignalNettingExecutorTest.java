@@ -0,0 +1,194 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.controller.TradeController;
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.model.trade.Order;
+import com.okx.trading.model.trade.OrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 策略信号轧差执行器测试类
+ */
+class SignalNettingExecutorTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("100");
+
+    private TradeController tradeController;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, Order> results = Collections.synchronizedMap(new HashMap<>());
+
+    @BeforeEach
+    void setUp() {
+        tradeController = mock(TradeController.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testOpposingSignalsCrossInternallyAndRemainderIsAllocated() {
+        // 买入300（3个）对两个各卖出1个，净买入1个
+        when(tradeController.createSpotOrder(eq("BTC-USDT"), eq("MARKET"), eq("BUY"), isNull(), isNull(),
+                eq(new BigDecimal("100.00000000")), isNull(), isNull(), anyString(), isNull(), eq(false)))
+                .thenReturn(ApiResponse.success(order("1001", "1", "101", "0.1", "FILLED")));
+
+        executor(0).submit(Arrays.asList(
+                signal("buy", "BTC-USDT", "BUY", "300", null),
+                signal("sell1", "BTC-USDT", "SELL", null, "1"),
+                signal("sell2", "BTC-USDT", "SELL", null, "1")));
+
+        Order buy = results.get("buy");
+        assertEquals("FILLED", buy.getStatus());
+        assertEquals("1001", buy.getOrderId());
+        assertEquals(0, new BigDecimal("3").compareTo(buy.getExecutedQty()));
+        assertEquals(0, new BigDecimal("301").compareTo(buy.getCummulativeQuoteQty()));
+        assertEquals(0, new BigDecimal("0.1").compareTo(buy.getFee()));
+
+        Order sell = results.get("sell1");
+        assertEquals("FILLED", sell.getStatus());
+        assertEquals(0, BigDecimal.ONE.compareTo(sell.getExecutedQty()));
+        assertEquals(0, PRICE.compareTo(sell.getPrice()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(sell.getFee()));
+        verify(tradeController, never()).createSpotOrders(any());
+    }
+
+    @Test
+    void testFullyOffsettingSignalsSkipExchange() {
+        executor(0).submit(Arrays.asList(
+                signal("buy", "BTC-USDT", "BUY", "200", null),
+                signal("sell", "BTC-USDT", "SELL", null, "2")));
+
+        assertEquals("FILLED", results.get("buy").getStatus());
+        assertEquals(0, new BigDecimal("2").compareTo(results.get("buy").getExecutedQty()));
+        assertEquals(0, new BigDecimal("200").compareTo(results.get("sell").getCummulativeQuoteQty()));
+        verifyNoInteractions(tradeController);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRemaindersAcrossSymbolsShareOneBatch() {
+        Order rejected = new Order();
+        rejected.setStatus("REJECTED");
+        when(tradeController.createSpotOrders(anyList()))
+                .thenReturn(ApiResponse.success(Arrays.asList(rejected, order("2001", "2", "4000", "4", "FILLED"))));
+
+        executor(0).submit(Arrays.asList(
+                signal("btcSell", "BTC-USDT", "SELL", null, "3"),
+                signal("btcBuy", "BTC-USDT", "BUY", "100", null),
+                signal("ethSell", "ETH-USDT", "SELL", null, "2")));
+
+        ArgumentCaptor<List<OrderRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tradeController).createSpotOrders(captor.capture());
+        List<OrderRequest> requests = captor.getValue();
+        assertEquals(2, requests.size());
+        assertEquals("SELL", requests.get(0).getSide());
+        assertEquals(0, new BigDecimal("2").compareTo(requests.get(0).getQuantity()));
+
+        // BTC净额订单被拒，卖出信号只得到内部对冲的1个；ETH单个信号按原订单返回
+        Order btcSell = results.get("btcSell");
+        assertEquals("PARTIALLY_FILLED", btcSell.getStatus());
+        assertEquals(0, BigDecimal.ONE.compareTo(btcSell.getExecutedQty()));
+        assertEquals("FILLED", results.get("btcBuy").getStatus());
+        assertEquals("2001", results.get("ethSell").getOrderId());
+    }
+
+    @Test
+    void testRejectedRemainderWithoutCrossCompletesWithNull() {
+        Order rejected = new Order();
+        rejected.setStatus("REJECTED");
+        when(tradeController.createSpotOrder(anyString(), anyString(), anyString(), any(), any(), any(), any(), any(), anyString(), any(), anyBoolean()))
+                .thenReturn(ApiResponse.success(rejected));
+
+        executor(0).submit(Arrays.asList(
+                signal("sell1", "BTC-USDT", "SELL", null, "1"),
+                signal("sell2", "BTC-USDT", "SELL", null, "2")));
+
+        // 没有成交的信号收到null，而不是数量为0的订单
+        assertTrue(results.containsKey("sell1"));
+        assertNull(results.get("sell1"));
+        assertNull(results.get("sell2"));
+    }
+
+    @Test
+    void testInvalidSignalGroupCompletesWithNullWithoutAffectingOthers() {
+        List<Order> received = new ArrayList<>();
+        SignalNettingExecutor.Signal broken = new SignalNettingExecutor.Signal("ETH-USDT", "BUY", new BigDecimal("100"), null,
+                BigDecimal.ZERO, received::add);
+
+        executor(0).submit(Arrays.asList(broken,
+                signal("buy", "BTC-USDT", "BUY", "200", null),
+                signal("sell", "BTC-USDT", "SELL", null, "2")));
+
+        assertEquals(1, received.size());
+        assertNull(received.get(0));
+        assertEquals("FILLED", results.get("buy").getStatus());
+
+        // 回调只生效一次
+        broken.complete(new Order());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void testSignalsWithinWindowAreNettedTogether() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+        SignalNettingExecutor executor = executor(50);
+        executor.submit(Collections.singletonList(signal("buy", "BTC-USDT", "BUY", "100", null, done)));
+        executor.submit(Collections.singletonList(signal("sell", "BTC-USDT", "SELL", null, "1", done)));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("FILLED", results.get("buy").getStatus());
+        assertEquals("FILLED", results.get("sell").getStatus());
+        verifyNoInteractions(tradeController);
+    }
+
+    private SignalNettingExecutor executor(long windowMillis) {
+        return new SignalNettingExecutor(tradeController, scheduler, true, windowMillis);
+    }
+
+    private SignalNettingExecutor.Signal signal(String name, String symbol, String side, String amount, String quantity) {
+        return signal(name, symbol, side, amount, quantity, null);
+    }
+
+    private SignalNettingExecutor.Signal signal(String name, String symbol, String side, String amount, String quantity,
+                                                CountDownLatch done) {
+        return new SignalNettingExecutor.Signal(symbol, side, amount == null ? null : new BigDecimal(amount),
+                quantity == null ? null : new BigDecimal(quantity), PRICE, order -> {
+            results.put(name, order);
+            if (done != null) {
+                done.countDown();
+            }
+        });
+    }
+
+    private static Order order(String orderId, String executedQty, String quote, String fee, String status) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setExecutedQty(new BigDecimal(executedQty));
+        order.setCummulativeQuoteQty(new BigDecimal(quote));
+        order.setFee(new BigDecimal(fee));
+        order.setStatus(status);
+        return order;
+    }
+}
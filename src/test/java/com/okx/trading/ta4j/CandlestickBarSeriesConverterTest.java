@@ -0,0 +1,73 @@
+package com.okx.trading.ta4j;
+
+import com.okx.trading.adapter.CandlestickBarSeriesConverter;
+import com.okx.trading.model.entity.CandlestickEntity;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 蜡烛图数据转换器测试类
+ */
+public class CandlestickBarSeriesConverterTest {
+
+    private final CandlestickBarSeriesConverter converter = new CandlestickBarSeriesConverter();
+
+    @Test
+    public void testConvertStream_ShouldMatchListConversion() {
+        List<CandlestickEntity> candles = createCandles(LocalDateTime.of(2024, 1, 1, 0, 0), 50);
+
+        BarSeries fromList = converter.convert(candles, "BTC-USDT_1H");
+        BarSeries fromStream = converter.convert(candles.stream(), "BTC-USDT_1H");
+
+        assertEquals(fromList.getBarCount(), fromStream.getBarCount());
+        assertEquals(Duration.ofHours(1), fromStream.getBar(0).getTimePeriod());
+        for (int i = 0; i < fromList.getBarCount(); i++) {
+            assertEquals(fromList.getBar(i).getEndTime(), fromStream.getBar(i).getEndTime());
+            assertEquals(fromList.getBar(i).getClosePrice(), fromStream.getBar(i).getClosePrice());
+        }
+    }
+
+    @Test
+    public void testConvertStream_ShouldSkipDuplicatedOpenTime() {
+        List<CandlestickEntity> candles = createCandles(LocalDateTime.of(2024, 1, 1, 0, 0), 10);
+        candles.add(5, candles.get(4));
+
+        BarSeries series = converter.convert(candles.stream(), "BTC-USDT_1H");
+
+        assertEquals(10, series.getBarCount());
+    }
+
+    @Test
+    public void testConvertStream_WithSingleCandle() {
+        BarSeries series = converter.convert(createCandles(LocalDateTime.of(2024, 1, 1, 0, 0), 1).stream(), "BTC-USDT_1H");
+
+        assertEquals(1, series.getBarCount());
+    }
+
+    private List<CandlestickEntity> createCandles(LocalDateTime start, int count) {
+        List<CandlestickEntity> candles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = BigDecimal.valueOf(40000 + i * 10);
+            candles.add(CandlestickEntity.builder()
+                    .symbol("BTC-USDT")
+                    .intervalVal("1H")
+                    .openTime(start.plusHours(i))
+                    .closeTime(start.plusHours(i + 1).minusSeconds(1))
+                    .open(price)
+                    .high(price.add(BigDecimal.TEN))
+                    .low(price.subtract(BigDecimal.TEN))
+                    .close(price.add(BigDecimal.ONE))
+                    .volume(BigDecimal.ONE)
+                    .build());
+        }
+        return candles;
+    }
+}
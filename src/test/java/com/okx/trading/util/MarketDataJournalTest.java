@@ -0,0 +1,137 @@
+package com.okx.trading.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 行情日志测试类
+ */
+class MarketDataJournalTest {
+
+    private static final long START = LocalDateTime.of(2024, 1, 1, 23, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppendAndReadTimeWindow() {
+        try (MarketDataJournal journal = new MarketDataJournal(directory, 1 << 20, 1000)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(journal.append(candleFrame("BTC-USDT", i), START + i * 500L));
+            }
+            assertEquals(100, journal.getRecords());
+
+            List<MarketDataJournal.Record> records = new ArrayList<>();
+            long count = journal.read(START + 10_000, START + 20_000, records::add);
+
+            // 窗口两端都包含在内，按写入顺序返回
+            assertEquals(21, count);
+            assertEquals(START + 10_000, records.get(0).getReceiveTime());
+            assertEquals(START + 20_000, records.get(20).getReceiveTime());
+            MarketDataJournal.Record record = records.get(0);
+            assertEquals("candle1m", record.getChannel());
+            assertEquals("BTC-USDT", record.getInstId());
+            assertEquals(START + 20 * 60_000L, record.getExchangeTime());
+            assertEquals(candleFrame("BTC-USDT", 20), record.getPayload());
+        }
+    }
+
+    @Test
+    void testSegmentsRollWhenFullAndOnDayChange() throws Exception {
+        try (MarketDataJournal journal = new MarketDataJournal(directory, 4096, 1000)) {
+            // 每条记录约200字节，4KB的段写满后开启下一个段
+            for (int i = 0; i < 60; i++) {
+                journal.append(candleFrame("ETH-USDT", i), START + i * 1000L);
+            }
+            // 跨过零点后的消息写入新一天的段
+            for (int i = 0; i < 5; i++) {
+                journal.append(candleFrame("ETH-USDT", 60 + i), START + 3_600_000L + i * 1000L);
+            }
+
+            List<String> segments = segmentNames();
+            assertTrue(segments.size() > 2, segments.toString());
+            assertTrue(segments.contains("20240101-0000.journal"));
+            assertTrue(segments.contains("20240102-0000.journal"));
+
+            List<MarketDataJournal.Record> records = new ArrayList<>();
+            assertEquals(65, journal.read(START, START + 7_200_000L, records::add));
+            for (int i = 1; i < records.size(); i++) {
+                assertTrue(records.get(i).getReceiveTime() > records.get(i - 1).getReceiveTime());
+            }
+            assertEquals(5, journal.read(START + 3_600_000L, START + 7_200_000L, record -> {
+            }));
+        }
+    }
+
+    @Test
+    void testReopenAppendsToNewSegmentAndKeepsExistingRecords() throws Exception {
+        try (MarketDataJournal journal = new MarketDataJournal(directory, 1 << 16, 1000)) {
+            journal.append(candleFrame("BTC-USDT", 0), START);
+            journal.append(candleFrame("BTC-USDT", 1), START + 1000);
+        }
+        try (MarketDataJournal journal = new MarketDataJournal(directory, 1 << 16, 1000)) {
+            journal.append(candleFrame("BTC-USDT", 2), START + 2000);
+            assertEquals(2, segmentNames().size());
+
+            List<MarketDataJournal.Record> records = new ArrayList<>();
+            assertEquals(3, journal.read(START, START + 2000, records::add));
+            assertEquals(START + 2000, records.get(2).getReceiveTime());
+        }
+    }
+
+    @Test
+    void testOversizedFrameIsDroppedAndClosedJournalRejectsWrites() {
+        MarketDataJournal journal = new MarketDataJournal(directory, 256, 1000);
+        StringBuilder large = new StringBuilder("{\"data\":\"");
+        for (int i = 0; i < 300; i++) {
+            large.append('x');
+        }
+        assertFalse(journal.append(large.append("\"}").toString(), START));
+        assertEquals(1, journal.getDropped());
+        journal.close();
+        assertFalse(journal.append(candleFrame("BTC-USDT", 0), START));
+    }
+
+    @Test
+    void testSegmentSizeBeyondMappableRangeIsRejected() {
+        // 4096MB按int计算会溢出为0，这里按long传入并在构造时拒绝
+        assertThrows(IllegalArgumentException.class, () -> new MarketDataJournal(directory, 4096 * 1024L * 1024L, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new MarketDataJournal(directory, 0, 1000));
+    }
+
+    @Test
+    void testExtractFields() {
+        String ticker = "{\"arg\":{\"channel\":\"tickers\",\"instId\":\"BTC-USDT\"},\"data\":[{\"last\":\"43000.1\",\"ts\":\"1704067200123\"}]}";
+        assertEquals("tickers", MarketDataJournal.extractString(ticker, "\"channel\":\""));
+        assertEquals("BTC-USDT", MarketDataJournal.extractString(ticker, "\"instId\":\""));
+        assertEquals(1704067200123L, MarketDataJournal.extractExchangeTime(ticker));
+        assertEquals(0, MarketDataJournal.extractExchangeTime("{\"event\":\"subscribe\"}"));
+        assertEquals("", MarketDataJournal.extractString("{\"event\":\"subscribe\"}", "\"channel\":\""));
+    }
+
+    private List<String> segmentNames() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String candleFrame(String instId, int minute) {
+        long ts = START + minute * 60_000L;
+        return "{\"arg\":{\"channel\":\"candle1m\",\"instId\":\"" + instId + "\"},\"data\":[[\"" + ts
+                + "\",\"43000.1\",\"43010.5\",\"42990.2\",\"43005.3\",\"12.5\",\"537000.1\",\"537000.1\",\"0\"]]}";
+    }
+}
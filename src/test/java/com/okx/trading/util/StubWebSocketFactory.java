@@ -0,0 +1,127 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * 本地WebSocket桩
+ * 不建立网络连接，记录每个连接发送的消息，由测试主动触发连接建立、收到消息和连接失败
+ */
+class StubWebSocketFactory implements WebSocket.Factory {
+
+    private final List<StubWebSocket> sockets = new CopyOnWriteArrayList<>();
+
+    @Override
+    public WebSocket newWebSocket(Request request, WebSocketListener listener) {
+        StubWebSocket socket = new StubWebSocket(request, listener);
+        sockets.add(socket);
+        return socket;
+    }
+
+    /**
+     * 按创建顺序返回所有连接，包括重连时新建的连接
+     */
+    List<StubWebSocket> getSockets() {
+        return sockets;
+    }
+
+    StubWebSocket last() {
+        return sockets.get(sockets.size() - 1);
+    }
+
+    static class StubWebSocket implements WebSocket {
+
+        private final Request request;
+        private final WebSocketListener listener;
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean closed;
+
+        StubWebSocket(Request request, WebSocketListener listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        void open() {
+            listener.onOpen(this, null);
+        }
+
+        void receive(String text) {
+            listener.onMessage(this, text);
+        }
+
+        void fail() {
+            closed = true;
+            listener.onFailure(this, new IOException("stub failure"), null);
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        List<String> getSent() {
+            return sent;
+        }
+
+        /**
+         * 已发送的指定操作的请求，如subscribe、unsubscribe
+         */
+        List<JSONObject> frames(String op) {
+            return sent.stream()
+                    .filter(text -> text.startsWith("{"))
+                    .map(JSON::parseObject)
+                    .filter(frame -> op.equals(frame.getString("op")))
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * 指定操作的所有请求中的参数个数之和
+         */
+        int argCount(String op) {
+            return frames(op).stream().mapToInt(frame -> frame.getJSONArray("args").size()).sum();
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public long queueSize() {
+            return 0;
+        }
+
+        @Override
+        public boolean send(String text) {
+            if (closed) {
+                return false;
+            }
+            sent.add(text);
+            return true;
+        }
+
+        @Override
+        public boolean send(ByteString bytes) {
+            return !closed;
+        }
+
+        @Override
+        public boolean close(int code, String reason) {
+            closed = true;
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSONObject;
+import com.okx.trading.config.OkxApiConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WebSocket分片连接池测试类
+ */
+class WebSocketConnectionPoolTest {
+
+    private static final String[] SYMBOLS = {"BTC-USDT", "ETH-USDT", "SOL-USDT", "XRP-USDT", "DOGE-USDT", "ADA-USDT"};
+
+    private ScheduledExecutorService scheduler;
+    private StubWebSocketFactory factory;
+    private OkxApiConfig.WebSocketConfig config;
+    private WebSocketConnectionPool pool;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<Integer> opened = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        factory = new StubWebSocketFactory();
+        config = new OkxApiConfig.WebSocketConfig();
+        config.setMaxArgsPerFrame(3);
+        config.setSubscribeBatchMillis(20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testPendingSubscriptionsAreBatchedIntoMultiArgFrames() throws Exception {
+        pool = createPool(1);
+        pool.start();
+        StubWebSocketFactory.StubWebSocket socket = factory.last();
+
+        // 连接建立前的订阅只记录，连接建立后按每个请求3个参数合并发送
+        for (String symbol : SYMBOLS) {
+            pool.subscribe(arg("candle1m", symbol));
+        }
+        pool.subscribe(arg("tickers", "BTC-USDT"));
+        assertTrue(socket.getSent().isEmpty());
+        socket.open();
+        waitFor(() -> socket.argCount("subscribe") == 7);
+        assertEquals(3, socket.frames("subscribe").size());
+        assertEquals(3, socket.frames("subscribe").get(0).getJSONArray("args").size());
+
+        // 合并窗口内的订阅和取消订阅各合并成一个请求
+        pool.subscribe(arg("candle5m", "BTC-USDT"));
+        pool.subscribe(arg("candle5m", "ETH-USDT"));
+        pool.unsubscribe(arg("tickers", "BTC-USDT"));
+        assertFalse(pool.unsubscribe(arg("tickers", "BTC-USDT")));
+        waitFor(() -> socket.argCount("subscribe") == 9);
+        assertEquals(4, socket.frames("subscribe").size());
+        assertEquals(1, socket.frames("unsubscribe").size());
+
+        // 服务端ping由连接池直接回复，其他消息交给回调
+        socket.receive("ping");
+        socket.receive("{\"arg\":{\"channel\":\"candle1m\"}}");
+        assertTrue(socket.getSent().contains("pong"));
+        assertEquals(1, received.size());
+
+        WebSocketConnectionPool.ConnectionStats stats = pool.getStats().get(0);
+        assertTrue(stats.isConnected());
+        assertEquals(8, stats.getTopics());
+        assertEquals(5, stats.getFramesSent());
+        assertEquals(10, stats.getArgsSent());
+        assertEquals(2, stats.getMessages());
+        assertEquals(0, stats.getPendingArgs());
+    }
+
+    @Test
+    void testFrameByteLimitSplitsRequests() throws Exception {
+        config.setMaxArgsPerFrame(100);
+        config.setMaxFrameBytes(120);
+        pool = createPool(1);
+        pool.start();
+        StubWebSocketFactory.StubWebSocket socket = factory.last();
+        for (String symbol : SYMBOLS) {
+            pool.subscribe(arg("candle1m", symbol));
+        }
+        socket.open();
+
+        waitFor(() -> socket.argCount("subscribe") == SYMBOLS.length);
+        assertTrue(socket.frames("subscribe").size() > 1);
+        for (String frame : socket.getSent()) {
+            assertTrue(frame.length() <= 120, frame);
+        }
+    }
+
+    @Test
+    void testTopicsFailOverAndMoveBackAfterReconnect() throws Exception {
+        pool = createPool(2);
+        pool.start();
+        StubWebSocketFactory.StubWebSocket first = factory.getSockets().get(0);
+        StubWebSocketFactory.StubWebSocket second = factory.getSockets().get(1);
+        first.open();
+        second.open();
+        for (String symbol : SYMBOLS) {
+            pool.subscribe(arg("candle1m", symbol));
+            pool.subscribe(arg("candle1H", symbol));
+        }
+
+        // 同一交易对的所有频道落在同一个连接上
+        int onFirst = 0;
+        for (String symbol : SYMBOLS) {
+            int shard = pool.getShardOf(arg("candle1m", symbol));
+            assertEquals(Math.floorMod(symbol.hashCode(), 2), shard);
+            assertEquals(shard, pool.getShardOf(arg("candle1H", symbol)));
+            onFirst += shard == 0 ? 2 : 0;
+        }
+        assertTrue(onFirst > 0 && onFirst < SYMBOLS.length * 2);
+        int total = SYMBOLS.length * 2;
+        int firstTopics = onFirst;
+        waitFor(() -> first.argCount("subscribe") == firstTopics && second.argCount("subscribe") == total - firstTopics);
+
+        // 第一个连接断开，它的订阅临时迁移到第二个连接
+        first.fail();
+        assertFalse(pool.isFullyConnected());
+        assertTrue(pool.isConnected());
+        for (String symbol : SYMBOLS) {
+            assertEquals(1, pool.getShardOf(arg("candle1m", symbol)));
+        }
+        waitFor(() -> second.argCount("subscribe") == total);
+
+        // 重连成功后迁回，第二个连接取消这些订阅
+        waitFor(() -> factory.getSockets().size() == 3);
+        StubWebSocketFactory.StubWebSocket reconnected = factory.last();
+        reconnected.open();
+        assertEquals(1, opened.get(opened.size() - 1));
+        waitFor(() -> reconnected.argCount("subscribe") == firstTopics && second.argCount("unsubscribe") == firstTopics);
+        for (String symbol : SYMBOLS) {
+            assertEquals(Math.floorMod(symbol.hashCode(), 2), pool.getShardOf(arg("candle1m", symbol)));
+        }
+
+        // 旧连接迟到的消息不再计入
+        first.receive("{\"arg\":{\"channel\":\"candle1m\"}}");
+        assertTrue(received.isEmpty());
+
+        List<WebSocketConnectionPool.ConnectionStats> stats = pool.getStats();
+        assertEquals(1, stats.get(0).getReconnects());
+        assertEquals(firstTopics, stats.get(0).getTopics());
+        assertEquals(total - firstTopics, stats.get(1).getTopics());
+        assertTrue(pool.isFullyConnected());
+    }
+
+    @Test
+    void testRateLimitedFlushIsPulledForwardOnReconnect() throws Exception {
+        config.setMaxRequestsPerHour(1);
+        pool = createPool(1);
+        pool.start();
+        StubWebSocketFactory.StubWebSocket socket = factory.last();
+        socket.open();
+        pool.subscribe(arg("candle1m", "BTC-USDT"));
+        waitFor(() -> socket.argCount("subscribe") == 1);
+
+        // 达到每小时请求上限，后续订阅推迟一小时发送
+        pool.subscribe(arg("candle1m", "ETH-USDT"));
+        Thread.sleep(100);
+        assertEquals(1, socket.frames("subscribe").size());
+        assertEquals(1, pool.getStats().get(0).getPendingArgs());
+
+        // 重连后新连接重新计数，恢复订阅立即发送，不再等待之前推迟的发送
+        socket.fail();
+        waitFor(() -> factory.getSockets().size() == 2);
+        StubWebSocketFactory.StubWebSocket reconnected = factory.last();
+        reconnected.open();
+        waitFor(() -> reconnected.argCount("subscribe") == 2);
+    }
+
+    @Test
+    void testReconnectDelayBackoff() {
+        assertEquals(1, WebSocketConnectionPool.reconnectDelaySeconds(0));
+        assertEquals(6, WebSocketConnectionPool.reconnectDelaySeconds(3));
+        assertEquals(10, WebSocketConnectionPool.reconnectDelaySeconds(10));
+        assertEquals(20, WebSocketConnectionPool.reconnectDelaySeconds(11));
+    }
+
+    private WebSocketConnectionPool createPool(int shards) {
+        return new WebSocketConnectionPool("测试频道", "wss://stub.okx.com/ws/v5/public", shards, config, 0, factory, scheduler,
+                new WebSocketConnectionPool.Callback() {
+                    @Override
+                    public void onMessage(String text) {
+                        received.add(text);
+                    }
+
+                    @Override
+                    public void onShardOpen(int shard, boolean reconnect) {
+                        opened.add(reconnect ? 1 : 0);
+                    }
+                });
+    }
+
+    private static JSONObject arg(String channel, String instId) {
+        JSONObject arg = new JSONObject();
+        arg.put("channel", channel);
+        arg.put("instId", instId);
+        return arg;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(5);
+        }
+    }
+}
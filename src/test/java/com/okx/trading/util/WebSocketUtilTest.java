@@ -1,19 +1,25 @@
 package com.okx.trading.util;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.Mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -54,6 +60,8 @@ public class WebSocketUtilTest {
 
     private WebSocketUtil webSocketUtil;
 
+    private final ArgumentCaptor<WebSocketListener> listenerCaptor = ArgumentCaptor.forClass(WebSocketListener.class);
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -98,24 +106,23 @@ public class WebSocketUtilTest {
     }
 
     /**
-     * 测试连接恢复机制
+     * 测试连接恢复机制：公共频道连接失败后由连接池重连
      */
     @Test
     public void testConnectionRecovery() {
-        // 设置WebSocketUtil中的私有字段
-        ReflectionTestUtils.setField(webSocketUtil, "publicWebSocket", webSocket);
-        ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", webSocket);
-        ReflectionTestUtils.setField(webSocketUtil, "bussinessWebSocket", webSocket);
-
-        // 模拟连接断开（send方法返回false）
-        when(webSocket.send(anyString())).thenReturn(false);
-
-        // 执行检查连接状态的方法
-        ReflectionTestUtils.invokeMethod(webSocketUtil, "checkConnectionsAndReconnect");
-
-        // 验证是否尝试重新连接
-        verify(webSocket, times(3)).close(eq(1000), anyString());
-        verify(okHttpClient, times(3)).newWebSocket(any(), any());
+        runScheduledTasksImmediately();
+        List<WebSocketListener> listeners = initAndCaptureListeners();
+        listeners.get(0).onOpen(webSocket, null);
+        listeners.get(1).onOpen(webSocket, null);
+        assertTrue(webSocketUtil.isPublicSocketConnected());
+
+        // 模拟公共频道连接失败
+        listeners.get(0).onFailure(webSocket, new IOException("connection reset"), null);
+
+        // 验证关闭旧连接并重新建立连接
+        verify(webSocket).close(eq(1000), anyString());
+        verify(okHttpClient, times(4)).newWebSocket(any(), any());
+        assertFalse(webSocketUtil.isPublicSocketConnected());
     }
 
     /**
@@ -123,10 +130,12 @@ public class WebSocketUtilTest {
      */
     @Test
     public void testPingMechanism() {
-        // 设置WebSocketUtil中的私有字段
-        ReflectionTestUtils.setField(webSocketUtil, "publicWebSocket", webSocket);
+        runScheduledTasksImmediately();
+        List<WebSocketListener> listeners = initAndCaptureListeners();
+        listeners.get(0).onOpen(webSocket, null);
+        listeners.get(1).onOpen(webSocket, null);
         ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", webSocket);
-        ReflectionTestUtils.setField(webSocketUtil, "bussinessWebSocket", webSocket);
+        ((AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "privateConnected")).set(true);
 
         // 执行ping方法
         ReflectionTestUtils.invokeMethod(webSocketUtil, "pingWebSockets");
@@ -163,28 +172,17 @@ public class WebSocketUtilTest {
      */
     @Test
     public void testExponentialBackoffReconnect() {
-        // 捕获重连调用
-        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
-
-        // 触发重连
-        ReflectionTestUtils.invokeMethod(webSocketUtil, "schedulePublicReconnect");
-
-        // 验证是否使用指数退避策略
-        verify(reconnectScheduler).schedule(runnableCaptor.capture(), eq(5L), eq(TimeUnit.SECONDS));
+        runScheduledTasksImmediately();
+        List<WebSocketListener> listeners = initAndCaptureListeners();
 
-        // 获取重连Runnable
-        Runnable reconnectTask = runnableCaptor.getValue();
-        assertNotNull(reconnectTask, "重连任务不应为空");
-
-        // 模拟连接失败
-        when(webSocket.send(anyString())).thenReturn(false);
-        when(okHttpClient.newWebSocket(any(), any())).thenReturn(webSocket);
-
-        // 执行重连任务
-        reconnectTask.run();
+        // 连续两次连接失败，重连延迟递增
+        listeners.get(0).onFailure(webSocket, new IOException("connection refused"), null);
+        verify(reconnectScheduler).schedule(any(Runnable.class), eq(1L), eq(TimeUnit.SECONDS));
+        listenerCaptor.getValue().onFailure(webSocket, new IOException("connection refused"), null);
+        verify(reconnectScheduler).schedule(any(Runnable.class), eq(2L), eq(TimeUnit.SECONDS));
 
         // 验证是否尝试了新的连接
-        verify(okHttpClient, times(2)).newWebSocket(any(), any());
+        verify(okHttpClient, times(5)).newWebSocket(any(), any());
     }
 
     /**
@@ -192,64 +190,30 @@ public class WebSocketUtilTest {
      */
     @Test
     public void testOperationRecoveryAfterReconnection() {
-        // 1. 首先订阅一个主题，但模拟连接未就绪
-        AtomicBoolean publicConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "publicConnected");
-        AtomicBoolean bussinessConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "bussinessConnected");
+        runScheduledTasksImmediately();
         AtomicBoolean privateConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "privateConnected");
 
-        // 保存原始值以便恢复
-        boolean origPublicConnected = publicConnected.get();
-        boolean origBussinessConnected = bussinessConnected.get();
-        boolean origPrivateConnected = privateConnected.get();
-
-        try {
-            // 设置为false模拟未连接
-            publicConnected.set(false);
-            bussinessConnected.set(false);
-            privateConnected.set(false);
-
-            // 2. 执行订阅操作，应该加入待执行队列
-            webSocketUtil.subscribePublicTopic("test-channel", "BTC-USDT");
-            webSocketUtil.subscribePrivateTopic("account");
-
-            // 3. 验证操作已加入队列
-            Object publicQueue = ReflectionTestUtils.getField(webSocketUtil, "publicPendingOperations");
-            Object privateQueue = ReflectionTestUtils.getField(webSocketUtil, "privatePendingOperations");
-            assertTrue(publicQueue != null && !publicQueue.toString().contains("size=0"));
-            assertTrue(privateQueue != null && !privateQueue.toString().contains("size=0"));
-
-            // 4. 模拟连接建立
-            ArgumentCaptor<WebSocketListener> listenerCaptor = ArgumentCaptor.forClass(WebSocketListener.class);
-            when(okHttpClient.newWebSocket(any(), listenerCaptor.capture())).thenReturn(webSocket);
-
-            // 5. 触发连接
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "connectPublicChannel");
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "connectBussinessChannel");
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "connectPrivateChannel");
-
-            // 6. 捕获监听器并模拟公共频道连接成功
-            if (!listenerCaptor.getAllValues().isEmpty()) {
-                WebSocketListener publicListener = listenerCaptor.getAllValues().get(0);
-                if (listenerCaptor.getAllValues().size() > 1) {
-                    WebSocketListener bussinessListener = listenerCaptor.getAllValues().get(1);
-                    // 模拟连接成功
-                    publicListener.onOpen(webSocket, null);
-                    bussinessListener.onOpen(webSocket, null);
-                }
-            }
+        // 1. 连接建立前订阅，公共频道由连接池记录，私有频道加入待执行队列
+        webSocketUtil.subscribePublicTopic("test-channel", "BTC-USDT");
+        webSocketUtil.subscribePrivateTopic("account");
+        Object privateQueue = ReflectionTestUtils.getField(webSocketUtil, "privatePendingOperations");
+        assertTrue(privateQueue != null && !privateQueue.toString().contains("size=0"));
+        verify(webSocket, never()).send(anyString());
 
-            // 模拟私有频道登录成功（需要修改标记并触发恢复）
-            privateConnected.set(true);
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "restorePrivateOperations");
-
-            // 验证是否发送了订阅消息
-            verify(webSocket, times(3)).send(anyString()); // 公共和私有消息各一次，以及额外的重连消息
-        } finally {
-            // 恢复原始状态
-            publicConnected.set(origPublicConnected);
-            bussinessConnected.set(origBussinessConnected);
-            privateConnected.set(origPrivateConnected);
-        }
+        // 2. 连接建立
+        List<WebSocketListener> listeners = initAndCaptureListeners();
+        listeners.get(0).onOpen(webSocket, null);
+        listeners.get(1).onOpen(webSocket, null);
+
+        // 模拟私有频道登录成功（需要修改标记并触发恢复）
+        ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", webSocket);
+        privateConnected.set(true);
+        ReflectionTestUtils.invokeMethod(webSocketUtil, "restorePrivateOperations");
+
+        // 验证是否发送了订阅消息：公共和私有各一次
+        verify(webSocket).send(argThat((String text) -> text.contains("test-channel")));
+        verify(webSocket).send(argThat((String text) -> text.contains("account")));
+        verify(webSocket, times(2)).send(anyString());
     }
 
     /**
@@ -257,58 +221,23 @@ public class WebSocketUtilTest {
      */
     @Test
     public void testAutoReconnectAndRecovery() {
-        // 获取原子布尔变量
-        AtomicBoolean publicConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "publicConnected");
-        AtomicBoolean bussinessConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "bussinessConnected");
-        AtomicBoolean privateConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "privateConnected");
-
-        // 保存原始值以便恢复
-        boolean origPublicConnected = publicConnected.get();
-        boolean origBussinessConnected = bussinessConnected.get();
-        boolean origPrivateConnected = privateConnected.get();
-
-        try {
-            // 1. 设置WebSocket和连接状态
-            WebSocket mockWebSocket = webSocket; // 保存原始mock
-            ReflectionTestUtils.setField(webSocketUtil, "publicWebSocket", mockWebSocket);
-            ReflectionTestUtils.setField(webSocketUtil, "bussinessWebSocket", mockWebSocket);
-            ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", mockWebSocket);
-            publicConnected.set(true);
-            bussinessConnected.set(true);
-            privateConnected.set(true);
-
-            // 2. 订阅主题
-            webSocketUtil.subscribePublicTopic("test-channel", "BTC-USDT");
-
-            // 3. 捕获重连任务
-            ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
-
-            // 4. 模拟连接关闭
-            ArgumentCaptor<WebSocketListener> listenerCaptor = ArgumentCaptor.forClass(WebSocketListener.class);
-            when(okHttpClient.newWebSocket(any(), listenerCaptor.capture())).thenReturn(webSocket);
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "connectPublicChannel");
-
-            if (!listenerCaptor.getAllValues().isEmpty()) {
-                WebSocketListener listener = listenerCaptor.getValue();
-
-                // 5. 触发onClosed回调
-                listener.onClosed(mockWebSocket, 1001, "Connection closed");
-
-                // 6. 验证是否调用了重连方法
-                verify(reconnectScheduler).schedule(runnableCaptor.capture(), eq(5L), eq(TimeUnit.SECONDS));
-
-                // 7. 执行重连任务
-                when(webSocket.send(anyString())).thenReturn(true); // 确保连接成功
-                if (runnableCaptor.getValue() != null) {
-                    runnableCaptor.getValue().run();
-                }
-            }
-        } finally {
-            // 恢复原始状态
-            publicConnected.set(origPublicConnected);
-            bussinessConnected.set(origBussinessConnected);
-            privateConnected.set(origPrivateConnected);
-        }
+        runScheduledTasksImmediately();
+        List<WebSocketListener> listeners = initAndCaptureListeners();
+        listeners.get(0).onOpen(webSocket, null);
+        listeners.get(1).onOpen(webSocket, null);
+
+        // 1. 订阅主题
+        webSocketUtil.subscribePublicTopic("test-channel", "BTC-USDT");
+        verify(webSocket, times(1)).send(argThat((String text) -> text.contains("test-channel")));
+
+        // 2. 模拟连接关闭，连接池按退避策略重连
+        listeners.get(0).onClosed(webSocket, 1001, "Connection closed");
+        verify(reconnectScheduler).schedule(any(Runnable.class), eq(1L), eq(TimeUnit.SECONDS));
+        verify(okHttpClient, times(4)).newWebSocket(any(), any());
+
+        // 3. 新连接建立后自动恢复订阅
+        listenerCaptor.getValue().onOpen(webSocket, null);
+        verify(webSocket, times(2)).send(argThat((String text) -> text.contains("test-channel")));
     }
 
     /**
@@ -316,55 +245,49 @@ public class WebSocketUtilTest {
      */
     @Test
     public void testPendingOperationsQueue() {
-        // 获取原子布尔变量
-        AtomicBoolean publicConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "publicConnected");
-        AtomicBoolean bussinessConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "bussinessConnected");
+        runScheduledTasksImmediately();
         AtomicBoolean privateConnected = (AtomicBoolean) ReflectionTestUtils.getField(webSocketUtil, "privateConnected");
 
-        // 保存原始值以便恢复
-        boolean origPublicConnected = publicConnected.get();
-        boolean origBussinessConnected = bussinessConnected.get();
-        boolean origPrivateConnected = privateConnected.get();
-
-        try {
-            // 1. 模拟连接未就绪
-            publicConnected.set(false);
-            privateConnected.set(false);
-
-            // 2. 执行多个订阅操作
-            webSocketUtil.subscribePublicTopic("test-channel1", "BTC-USDT");
-            webSocketUtil.subscribePublicTopic("test-channel2", "ETH-USDT");
-            webSocketUtil.subscribePrivateTopic("account");
-            webSocketUtil.subscribePrivateTopic("orders");
-
-            // 3. 验证队列中的操作数量
-            Object publicQueue = ReflectionTestUtils.getField(webSocketUtil, "publicPendingOperations");
-            Object privateQueue = ReflectionTestUtils.getField(webSocketUtil, "privatePendingOperations");
-            assertTrue(publicQueue != null && !publicQueue.toString().contains("size=0")); // 确认公共频道有操作
-            assertTrue(privateQueue != null && !privateQueue.toString().contains("size=0")); // 确认私有频道有操作
-
-            // 4. 模拟连接就绪并恢复操作
-            publicConnected.set(true);
-            bussinessConnected.set(true);
-            ReflectionTestUtils.setField(webSocketUtil, "publicWebSocket", webSocket);
-            ReflectionTestUtils.setField(webSocketUtil, "bussinessWebSocket", webSocket);
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "restorePublicOperations");
-
-            privateConnected.set(true);
-            ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", webSocket);
-            ReflectionTestUtils.invokeMethod(webSocketUtil, "restorePrivateOperations");
-
-            // 5. 验证队列是否已处理
-            publicQueue = ReflectionTestUtils.getField(webSocketUtil, "publicPendingOperations");
-            privateQueue = ReflectionTestUtils.getField(webSocketUtil, "privatePendingOperations");
-
-            // 6. 验证是否发送了订阅消息
-            verify(webSocket, times(6)).send(anyString()); // 总共6个订阅消息（包括额外的恢复操作）
-        } finally {
-            // 恢复原始状态
-            publicConnected.set(origPublicConnected);
-            bussinessConnected.set(origBussinessConnected);
-            privateConnected.set(origPrivateConnected);
-        }
+        // 1. 连接未就绪时执行多个订阅操作
+        webSocketUtil.subscribePublicTopic("test-channel1", "BTC-USDT");
+        webSocketUtil.subscribePublicTopic("test-channel2", "ETH-USDT");
+        webSocketUtil.subscribePrivateTopic("account");
+        webSocketUtil.subscribePrivateTopic("orders");
+
+        // 2. 验证私有频道队列中有操作
+        Object privateQueue = ReflectionTestUtils.getField(webSocketUtil, "privatePendingOperations");
+        assertTrue(privateQueue != null && !privateQueue.toString().contains("size=0"));
+
+        // 3. 模拟连接就绪并恢复操作
+        List<WebSocketListener> listeners = initAndCaptureListeners();
+        listeners.get(0).onOpen(webSocket, null);
+        listeners.get(1).onOpen(webSocket, null);
+
+        privateConnected.set(true);
+        ReflectionTestUtils.setField(webSocketUtil, "privateWebSocket", webSocket);
+        ReflectionTestUtils.invokeMethod(webSocketUtil, "restorePrivateOperations");
+
+        // 4. 公共频道的两个订阅合并成一个请求，私有频道各一个
+        verify(webSocket).send(argThat((String text) -> text.contains("test-channel1") && text.contains("test-channel2")));
+        verify(webSocket, times(3)).send(anyString());
+    }
+
+    /**
+     * 初始化并按创建顺序返回公共、业务、私有频道连接的监听器
+     */
+    private List<WebSocketListener> initAndCaptureListeners() {
+        when(okHttpClient.newWebSocket(any(), listenerCaptor.capture())).thenReturn(webSocket);
+        webSocketUtil.init();
+        return new ArrayList<>(listenerCaptor.getAllValues());
+    }
+
+    /**
+     * 连接池的合并发送和重连任务立即在当前线程执行
+     */
+    private void runScheduledTasksImmediately() {
+        when(reconnectScheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
     }
 }